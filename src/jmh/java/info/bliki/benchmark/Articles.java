@@ -0,0 +1,69 @@
+package info.bliki.benchmark;
+
+import java.io.File;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.util.Locale;
+
+import info.bliki.wiki.dump.WikiXMLParser;
+import info.bliki.wiki.filter.WikiTestModel;
+
+/**
+ * The benchmark input: the longest article of the test dump, cut at a paragraph boundary into article size classes.
+ */
+final class Articles {
+	static final String DUMP_RESOURCE = "/dump/enwiki-20150112-pages-articles1.xml";
+
+	/**
+	 * Article size classes by the length of the raw wiki text
+	 */
+	enum SizeClass {
+		small(4 * 1024),
+		medium(32 * 1024),
+		large(Integer.MAX_VALUE);
+
+		final int maxLength;
+
+		SizeClass(final int maxLength) {
+			this.maxLength = maxLength;
+		}
+	}
+
+	private static String longestArticle;
+
+	private Articles() {
+	}
+
+	/**
+	 * @return the raw wiki text of the given size class
+	 */
+	static synchronized String get(final SizeClass sizeClass) throws Exception {
+		if (longestArticle == null) {
+			final String[] longest = { "" };
+			try (InputStream inputStream = Articles.class.getResourceAsStream(DUMP_RESOURCE)) {
+				new WikiXMLParser(inputStream, (article, siteinfo) -> {
+					if (article.isMain() && article.getText().length() > longest[0].length()) {
+						longest[0] = article.getText();
+					}
+				}).parse();
+			}
+			longestArticle = longest[0];
+		}
+		if (longestArticle.length() <= sizeClass.maxLength) {
+			return longestArticle;
+		}
+		final int end = longestArticle.lastIndexOf("\n\n", sizeClass.maxLength);
+		return longestArticle.substring(0, end > 0 ? end : sizeClass.maxLength);
+	}
+
+	static File dumpFile(final String resource) throws URISyntaxException {
+		return new File(Articles.class.getResource(resource).toURI());
+	}
+
+	/**
+	 * @return a wiki model which reads templates from the <code>wikitestModel/templates</code> test resources
+	 */
+	static WikiTestModel newWikiModel() {
+		return new WikiTestModel(Locale.ENGLISH, "${image}", "${title}", "wikitestModel");
+	}
+}
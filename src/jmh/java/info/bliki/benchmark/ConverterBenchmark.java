@@ -0,0 +1,76 @@
+package info.bliki.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import info.bliki.benchmark.Articles.SizeClass;
+import info.bliki.wiki.filter.HTMLConverter;
+import info.bliki.wiki.filter.PlainTextConverter;
+import info.bliki.wiki.filter.PlainTextExtractor;
+import info.bliki.wiki.filter.WikiTestModel;
+
+/**
+ * Throughput of the complete render pipeline (template expansion, parsing and conversion) for the HTML and plain
+ * text output, compared with the single-pass plain text extraction without template expansion.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConverterBenchmark {
+	@Param({ "small", "medium", "large" })
+	public String sizeClass;
+
+	private String text;
+	private WikiTestModel wikiModel;
+	private PlainTextExtractor plainTextExtractor;
+
+	@Setup
+	public void setUp() throws Exception {
+		text = Articles.get(SizeClass.valueOf(sizeClass));
+		wikiModel = Articles.newWikiModel();
+		wikiModel.setSharedTemplateCallsCache(null);
+		plainTextExtractor = new PlainTextExtractor(wikiModel);
+	}
+
+	@Benchmark
+	public StringBuilder renderHtml() throws Exception {
+		final StringBuilder buf = new StringBuilder(text.length() * 2);
+		wikiModel.render(new HTMLConverter(), text, buf, false, true);
+		return buf;
+	}
+
+	@Benchmark
+	public StringBuilder renderHtmlStreaming() throws Exception {
+		final StringBuilder buf = new StringBuilder(text.length() * 2);
+		wikiModel.renderStreaming(new HTMLConverter(), text, buf, false);
+		return buf;
+	}
+
+	@Benchmark
+	public StringBuilder renderPlainText() throws Exception {
+		final StringBuilder buf = new StringBuilder(text.length());
+		wikiModel.render(new PlainTextConverter(), text, buf, false, true);
+		return buf;
+	}
+
+	@Benchmark
+	public StringBuilder extractPlainText() throws Exception {
+		final StringBuilder buf = new StringBuilder(text.length());
+		plainTextExtractor.extract(text, buf);
+		return buf;
+	}
+}
@@ -0,0 +1,46 @@
+package info.bliki.benchmark;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import info.bliki.wiki.dump.WikiXMLParser;
+
+/**
+ * Throughput of the dump parser for the uncompressed and the bzip2 compressed test dump.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DumpBenchmark {
+	@Param({ "xml", "bz2" })
+	public String format;
+
+	private File dumpFile;
+
+	@Setup
+	public void setUp() throws Exception {
+		dumpFile = Articles.dumpFile("bz2".equals(format) ? Articles.DUMP_RESOURCE + ".bz2" : Articles.DUMP_RESOURCE);
+	}
+
+	@Benchmark
+	public long parse() throws Exception {
+		final long[] length = { 0L };
+		new WikiXMLParser(dumpFile, (article, siteinfo) -> length[0] += article.getText().length()).parse();
+		return length[0];
+	}
+}
@@ -0,0 +1,57 @@
+package info.bliki.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import info.bliki.benchmark.Articles.SizeClass;
+import info.bliki.html.HTML2WikiConverter;
+import info.bliki.html.wikipedia.ToWikipedia;
+import info.bliki.htmlcleaner.BaseToken;
+import info.bliki.htmlcleaner.HtmlCleaner;
+
+/**
+ * Throughput of the HTML cleaner and the HTML to wiki text conversion, with the rendered HTML of the articles as
+ * input.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HtmlBenchmark {
+	@Param({ "small", "medium", "large" })
+	public String sizeClass;
+
+	private String html;
+
+	@Setup
+	public void setUp() throws Exception {
+		html = Articles.newWikiModel().render(Articles.get(SizeClass.valueOf(sizeClass)), false);
+	}
+
+	@Benchmark
+	public List<BaseToken> clean() throws Exception {
+		final HtmlCleaner cleaner = new HtmlCleaner(html);
+		cleaner.clean();
+		return cleaner.getNodeList();
+	}
+
+	@Benchmark
+	public String toWiki() {
+		final HTML2WikiConverter converter = new HTML2WikiConverter(html);
+		return converter.toWiki(new ToWikipedia());
+	}
+}
@@ -0,0 +1,72 @@
+package info.bliki.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import info.bliki.benchmark.Articles.SizeClass;
+import info.bliki.wiki.filter.TemplateParser;
+import info.bliki.wiki.filter.WikiTestModel;
+import info.bliki.wiki.model.PreprocessedTemplateCache;
+
+/**
+ * Throughput of the wiki text parser (scanning and building the node tree without templates) and of the template
+ * expansion step with the templates of the <code>wikitestModel</code> test resources.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+	@Param({ "small", "medium", "large" })
+	public String sizeClass;
+
+	/**
+	 * Expand the templates with the preprocessed texts and node trees of a {@link PreprocessedTemplateCache}, which
+	 * is filled by the warmup iterations
+	 */
+	@Param({ "false", "true" })
+	public boolean preprocessedCache;
+
+	private String text;
+	private WikiTestModel wikiModel;
+
+	@Setup
+	public void setUp() throws Exception {
+		text = Articles.get(SizeClass.valueOf(sizeClass));
+		wikiModel = Articles.newWikiModel();
+		// measure the expansion, not the lookup of cached template calls
+		wikiModel.setSharedTemplateCallsCache(null);
+		if (preprocessedCache) {
+			wikiModel.setPreprocessedTemplateCache(new PreprocessedTemplateCache());
+		}
+	}
+
+	@Benchmark
+	public Object parse() throws Exception {
+		// a null converter only parses the text into the node tree
+		wikiModel.render(null, text, null, false, false);
+		return wikiModel.getCategories();
+	}
+
+	@Benchmark
+	public StringBuilder expandTemplates() throws Exception {
+		final StringBuilder buf = new StringBuilder(text.length() + text.length() / 10);
+		wikiModel.setUp();
+		TemplateParser.parse(text, wikiModel, buf, false);
+		wikiModel.tearDown();
+		return buf;
+	}
+}
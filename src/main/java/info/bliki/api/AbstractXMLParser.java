@@ -8,11 +8,13 @@ import org.xml.sax.helpers.DefaultHandler;
 import org.xml.sax.helpers.XMLReaderFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
 import java.io.StringReader;
 
 /**
- * Base class for reading XML strings.
+ * Base class for reading XML strings or streams. A stream is parsed incrementally, so the whole document is never held
+ * in memory.
  */
 public abstract class AbstractXMLParser extends DefaultHandler {
 	protected static final String TITLE_ID = "title";
@@ -25,13 +27,27 @@ public abstract class AbstractXMLParser extends DefaultHandler {
 	protected StringBuffer fData;
 	protected XMLReader fXMLReader;
 	protected Reader fReader;
+	protected InputStream fInputStream;
 
 	public AbstractXMLParser(String xmlText) throws SAXException {
+		this();
+		fReader = new StringReader(xmlText);
+	}
+
+	/**
+	 * @param xmlStream
+	 *            the UTF-8 encoded XML document; it isn't closed by the parser
+	 */
+	public AbstractXMLParser(InputStream xmlStream) throws SAXException {
+		this();
+		fInputStream = xmlStream;
+	}
+
+	private AbstractXMLParser() throws SAXException {
 		super();
 		fXMLReader = XMLReaderFactory.createXMLReader();
 		fXMLReader.setContentHandler(this);
 		fXMLReader.setErrorHandler(this);
-		fReader = new StringReader(xmlText);
 	}
 
 	protected String getString() {
@@ -68,7 +84,7 @@ public abstract class AbstractXMLParser extends DefaultHandler {
 	}
 
 	public void parse() throws IOException, SAXException {
-		InputSource inputSource = new InputSource(fReader);
+		InputSource inputSource = fInputStream != null ? new InputSource(fInputStream) : new InputSource(fReader);
 		inputSource.setEncoding("UTF-8");
 		fXMLReader.parse(inputSource);
 	}
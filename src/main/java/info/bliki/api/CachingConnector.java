@@ -0,0 +1,149 @@
+package info.bliki.api;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import org.apache.http.impl.client.HttpClientBuilder;
+
+import info.bliki.util.Throwables;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A connector which serves the content of pages from an {@link IRevisionCache} if the cached revision is still the
+ * latest one.
+ *
+ * {@link #queryContent(User, List)} first probes the latest revision ids of the pages with <code>prop=info</code>
+ * queries of up to {@link #MAX_TITLES_PER_QUERY} titles, and only downloads the content of pages whose latest revision
+ * isn't cached. Downloaded revisions are added to the cache. Asynchronous content queries (see
+ * {@link #queryContentAsync(User, List, Consumer)}) probe and download every chunk of titles in the same way.
+ */
+@Slf4j
+public class CachingConnector extends Connector {
+	private final IRevisionCache cache;
+
+	public CachingConnector(final IRevisionCache cache) {
+		this(DEFAULT_HTTPCLIENT_BUILDER, DEFAULT_MAX_CONCURRENT_REQUESTS, cache);
+	}
+
+	public CachingConnector(final HttpClientBuilder builder, final int maxConcurrentRequests,
+			final IRevisionCache cache) {
+		super(builder, maxConcurrentRequests);
+		this.cache = cache;
+	}
+
+	public IRevisionCache getCache() {
+		return cache;
+	}
+
+	@Override
+	public List<Page> queryContent(final User user, final List<String> listOfTitleStrings) {
+		final Map<String, Page> pages = new LinkedHashMap<>();
+		final List<String> modifiedTitles = new ArrayList<>();
+		for (int start = 0; start < listOfTitleStrings.size(); start += MAX_TITLES_PER_QUERY) {
+			final List<String> chunk = listOfTitleStrings.subList(start,
+					Math.min(start + MAX_TITLES_PER_QUERY, listOfTitleStrings.size()));
+			final List<Page> probes = queryInfo(user, chunk);
+			if (probes.isEmpty()) {
+				// the probe failed, download the content
+				modifiedTitles.addAll(chunk);
+				continue;
+			}
+			for (final Page probe : probes) {
+				if (probe.isMissing() || probe.isInvalid()) {
+					pages.put(probe.getTitle(), probe);
+					continue;
+				}
+				final Page cached = getCached(probe);
+				pages.put(probe.getTitle(), cached);
+				if (cached == null) {
+					modifiedTitles.add(probe.getTitle());
+				}
+			}
+		}
+
+		for (int start = 0; start < modifiedTitles.size(); start += MAX_TITLES_PER_QUERY) {
+			final List<Page> downloaded = super.queryContent(user,
+					modifiedTitles.subList(start, Math.min(start + MAX_TITLES_PER_QUERY, modifiedTitles.size())));
+			for (final Page page : downloaded) {
+				pages.put(page.getTitle(), page);
+				try {
+					cache.put(page);
+				} catch (final IOException e) {
+					Throwables.log(log, e);
+				}
+			}
+		}
+
+		final List<Page> result = new ArrayList<>(pages.size());
+		for (final Page page : pages.values()) {
+			if (page != null) {
+				result.add(page);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public CompletableFuture<Void> queryAsync(final User user, final List<String> listOfTitleStrings,
+			final Consumer<Page> consumer, final String... valuePairs) {
+		if (!Arrays.equals(valuePairs, CONTENT_QUERY)) {
+			return super.queryAsync(user, listOfTitleStrings, consumer, valuePairs);
+		}
+		final Object consumerLock = new Object();
+		final Consumer<Page> lockedConsumer = page -> {
+			synchronized (consumerLock) {
+				consumer.accept(page);
+			}
+		};
+		final List<String> titles = new ArrayList<>(listOfTitleStrings);
+		final List<CompletableFuture<Void>> chunks = new ArrayList<>();
+		for (int start = 0; start < titles.size(); start += MAX_TITLES_PER_QUERY) {
+			final List<String> chunk = titles.subList(start, Math.min(start + MAX_TITLES_PER_QUERY, titles.size()));
+			final List<Page> probes = new ArrayList<>();
+			chunks.add(queryInfoAsync(user, chunk, probes::add).handle((ignored, throwable) -> {
+				if (throwable != null) {
+					// the probe failed, download the content
+					Throwables.log(log, throwable);
+					return chunk;
+				}
+				final List<String> modifiedTitles = new ArrayList<>();
+				for (final Page probe : probes) {
+					final Page page = probe.isMissing() || probe.isInvalid() ? probe : getCached(probe);
+					if (page != null) {
+						lockedConsumer.accept(page);
+					} else {
+						modifiedTitles.add(probe.getTitle());
+					}
+				}
+				return modifiedTitles;
+			}).thenCompose(modifiedTitles -> modifiedTitles.isEmpty() ? CompletableFuture.<Void> completedFuture(null)
+					: super.queryAsync(user, modifiedTitles, page -> {
+						try {
+							cache.put(page);
+						} catch (final IOException e) {
+							Throwables.log(log, e);
+						}
+						lockedConsumer.accept(page);
+					}, valuePairs)));
+		}
+		return CompletableFuture.allOf(chunks.toArray(new CompletableFuture<?>[chunks.size()]));
+	}
+
+	private Page getCached(final Page probe) {
+		if (probe.getLastrevid() == null) {
+			return null;
+		}
+		try {
+			return cache.get(probe.getTitle(), probe.getLastrevid());
+		} catch (final IOException e) {
+			Throwables.log(log, e);
+			return null;
+		}
+	}
+}
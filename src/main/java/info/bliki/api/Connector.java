@@ -1,13 +1,24 @@
 package info.bliki.api;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.ProxySelector;
 import java.net.URI;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import org.apache.http.HttpHeaders;
 import org.apache.http.HttpResponse;
@@ -53,6 +64,7 @@ public class Connector {
 	private final static String PARAM_FORMAT = "format";
 	private final static String PARAM_ACTION = "action";
 	private final static String PARAM_TITLES = "titles";
+	private final static String PARAM_MAXLAG = "maxlag";
 
 	/**
 	 * See <a href="https://www.mediawiki.org/wiki/API:Query#Generators_and_continuation">Generators and
@@ -75,18 +87,66 @@ public class Connector {
 	private static final String REVISIONS = "revisions";
 	private static final String RVPROP = "rvprop";
 	private static final String INFO = "info";
+	private static final String CONTENT_RVPROP = "ids|timestamp|user|comment|content";
+	/**
+	 * The query strings of a query for the content of the latest revisions
+	 */
+	static final String[] CONTENT_QUERY = { PROP, REVISIONS, RVPROP, CONTENT_RVPROP };
+
+	/**
+	 * The maximum number of titles in a single query of a user without the <code>apihighlimits</code> right. See
+	 * <a href="https://www.mediawiki.org/wiki/API:Query#Specifying_pages">Specifying pages</a>.
+	 */
+	public static final int MAX_TITLES_PER_QUERY = 50;
+
+	/**
+	 * The default number of requests the asynchronous queries keep in flight
+	 */
+	public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 4;
 
 	private final HttpClient client;
+	private final RequestScheduler scheduler;
+	private final int maxConcurrentRequests;
+	private ExecutorService executor;
 
 	protected static HttpClientBuilder DEFAULT_HTTPCLIENT_BUILDER = HttpClientBuilder.create().disableRedirectHandling()
-			.setRoutePlanner(new SystemDefaultRoutePlanner(ProxySelector.getDefault()));
+			.setRoutePlanner(new SystemDefaultRoutePlanner(ProxySelector.getDefault()))
+			.setMaxConnPerRoute(DEFAULT_MAX_CONCURRENT_REQUESTS).setMaxConnTotal(4 * DEFAULT_MAX_CONCURRENT_REQUESTS);
 
 	public Connector() {
 		this(DEFAULT_HTTPCLIENT_BUILDER);
 	}
 
 	public Connector(final HttpClientBuilder builder) {
+		this(builder, DEFAULT_MAX_CONCURRENT_REQUESTS);
+	}
+
+	/**
+	 * @param builder
+	 *            the builder of the HTTP client; its connection pool should allow <code>maxConcurrentRequests</code>
+	 *            connections per route
+	 * @param maxConcurrentRequests
+	 *            the maximum number of requests the asynchronous queries keep in flight
+	 */
+	public Connector(final HttpClientBuilder builder, final int maxConcurrentRequests) {
+		this(builder, new RequestScheduler(maxConcurrentRequests));
+	}
+
+	/**
+	 * @param builder
+	 *            the builder of the HTTP client; its connection pool should allow the maximum number of concurrent
+	 *            requests of the scheduler per route
+	 * @param scheduler
+	 *            schedules all requests of this connector; it can be shared by connectors for the same server
+	 */
+	public Connector(final HttpClientBuilder builder, final RequestScheduler scheduler) {
 		client = builder.build();
+		this.scheduler = scheduler;
+		this.maxConcurrentRequests = scheduler.getMaxConcurrentRequests();
+	}
+
+	public RequestScheduler getScheduler() {
+		return scheduler;
 	}
 
 	/**
@@ -125,10 +185,12 @@ public class Connector {
 			}
 			request.setEntity(new UrlEncodedFormEntity(params, (Charset) null));
 			try {
-				final HttpResponse response = client.execute(request);
-				if (response.getStatusLine().getStatusCode() == HttpStatus.SC_OK) {
-					final String responseBody = getAsXmlString(response);
-
+				final String responseBody = scheduler.execute(client, request,
+						response -> response.getStatusLine().getStatusCode() == HttpStatus.SC_OK
+								? getAsXmlString(response)
+								: null,
+						false);
+				if (responseBody != null) {
 					final XMLUserParser parser = new XMLUserParser(user, responseBody);
 					parser.parse();
 					if (i == 0 && User.NEED_TOKEN_ID.equals(user.getResult())) {
@@ -159,7 +221,7 @@ public class Connector {
 	 * @return a list of downloaded Mediawiki pages.
 	 */
 	public List<Page> queryContent(final User user, final List<String> listOfTitleStrings) {
-		return query(user, listOfTitleStrings, PROP, REVISIONS, RVPROP, "timestamp|user|comment|content");
+		return query(user, listOfTitleStrings, PROP, REVISIONS, RVPROP, CONTENT_RVPROP);
 	}
 
 	/**
@@ -232,6 +294,128 @@ public class Connector {
 		return query(user, listOfImageStrings, PROP, IMAGEINFO, IIPROP, URL, IIURLWIDTH, Integer.toString(imageWidth));
 	}
 
+	/**
+	 * Get the content of Mediawiki wiki pages asynchronously, see {@link #queryAsync(User, List, Consumer, String...)}.
+	 */
+	public CompletableFuture<Void> queryContentAsync(final User user, final List<String> listOfTitleStrings,
+			final Consumer<Page> consumer) {
+		return queryAsync(user, listOfTitleStrings, consumer, CONTENT_QUERY);
+	}
+
+	/**
+	 * List all categories the pages belong to asynchronously, see
+	 * {@link #queryAsync(User, List, Consumer, String...)}.
+	 */
+	public CompletableFuture<Void> queryCategoriesAsync(final User user, final List<String> listOfTitleStrings,
+			final Consumer<Page> consumer) {
+		return queryAsync(user, listOfTitleStrings, consumer, PROP, CATEGORIES);
+	}
+
+	/**
+	 * Get basic page information asynchronously, see {@link #queryAsync(User, List, Consumer, String...)}.
+	 */
+	public CompletableFuture<Void> queryInfoAsync(final User user, final List<String> listOfTitleStrings,
+			final Consumer<Page> consumer) {
+		return queryAsync(user, listOfTitleStrings, consumer, PROP, INFO);
+	}
+
+	/**
+	 * Get all links from the given pages asynchronously, see {@link #queryAsync(User, List, Consumer, String...)}.
+	 */
+	public CompletableFuture<Void> queryLinksAsync(final User user, final List<String> listOfTitleStrings,
+			final Consumer<Page> consumer) {
+		return queryAsync(user, listOfTitleStrings, consumer, PROP, LINKS);
+	}
+
+	/**
+	 * Query the Mediawiki API for any number of wiki pages asynchronously. The titles are split into chunks of
+	 * {@link #MAX_TITLES_PER_QUERY} titles, which are queried in parallel as far as the {@link RequestScheduler}
+	 * allows. The responses are parsed while they're received and the <code>continue</code> parameters are
+	 * followed until all data of a chunk is received. Every page is passed to the consumer as soon as it's complete.
+	 *
+	 * The consumer is called from the threads of this connector, but never concurrently for the same query, so it
+	 * doesn't need to be thread-safe.
+	 *
+	 * @param user
+	 *            user login data
+	 * @param listOfTitleStrings
+	 *            the titles of the pages
+	 * @param consumer
+	 *            receives the pages
+	 * @param valuePairs
+	 *            pairs of query strings which should be appended to the Mediawiki API URL
+	 * @return a future which completes after all pages are passed to the consumer, or completes exceptionally with
+	 *         the first failed request
+	 */
+	public CompletableFuture<Void> queryAsync(final User user, final List<String> listOfTitleStrings,
+			final Consumer<Page> consumer, final String... valuePairs) {
+		final List<String> titles = new ArrayList<>(listOfTitleStrings);
+		final Object consumerLock = new Object();
+		final List<CompletableFuture<Void>> chunks = new ArrayList<>();
+		for (int start = 0; start < titles.size(); start += MAX_TITLES_PER_QUERY) {
+			final List<String> chunk = titles.subList(start, Math.min(start + MAX_TITLES_PER_QUERY, titles.size()));
+			chunks.add(CompletableFuture.runAsync(() -> {
+				try {
+					queryAllPages(user, chunk, valuePairs, page -> {
+						synchronized (consumerLock) {
+							consumer.accept(page);
+						}
+					});
+				} catch (IOException | SAXException e) {
+					throw new CompletionException(e);
+				}
+			}, getExecutor()));
+		}
+		return CompletableFuture.allOf(chunks.toArray(new CompletableFuture<?>[chunks.size()]));
+	}
+
+	/**
+	 * Query the pages and follow the <code>continue</code> parameters of the responses. The data of pages returned by
+	 * multiple responses is merged. Pages of a response without <code>continue</code> parameters are complete and
+	 * passed to the consumer while the response is parsed, as Mediawiki writes the <code>continue</code> element
+	 * before the pages.
+	 */
+	private void queryAllPages(final User user, final List<String> listOfTitleStrings, final String[] valuePairs,
+			final Consumer<Page> consumer) throws IOException, SAXException {
+		final Map<String, Page> continuedPages = new LinkedHashMap<>();
+		Map<String, String> continueParameters = Collections.emptyMap();
+		do {
+			continueParameters = executeHttpMethod(
+					createQueryRequest(user, listOfTitleStrings, valuePairs, continueParameters), xmlStream -> {
+						final XMLPagesParser parser = new XMLPagesParser(xmlStream);
+						parser.setPageConsumer(page -> {
+							final Page previous = continuedPages.get(page.getTitle());
+							if (previous != null) {
+								previous.merge(page);
+							} else if (parser.getContinueParameters().isEmpty()) {
+								consumer.accept(page);
+							} else {
+								continuedPages.put(page.getTitle(), page);
+							}
+						});
+						return parsePageBody(parser).getContinueParameters();
+					});
+		} while (!continueParameters.isEmpty());
+		continuedPages.values().forEach(consumer);
+	}
+
+	/**
+	 * Lazily create the executor for the asynchronous queries; its threads terminate when they're idle.
+	 */
+	private synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			final ThreadPoolExecutor threadPool = new ThreadPoolExecutor(maxConcurrentRequests, maxConcurrentRequests,
+					30L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+						final Thread thread = new Thread(runnable, "bliki-api-connector");
+						thread.setDaemon(true);
+						return thread;
+					});
+			threadPool.allowCoreThreadTimeOut(true);
+			executor = threadPool;
+		}
+		return executor;
+	}
+
 	/**
 	 * Query the Mediawiki API for some wiki pages.
 	 *
@@ -264,10 +448,9 @@ public class Connector {
 	 */
 	private List<Page> query(final User user, final List<String> listOfTitleStrings, final String... valuePairs) {
 		try {
-			final String responseBody = queryXML(user, listOfTitleStrings, valuePairs);
-			if (responseBody != null) {
-				return parsePageBody(responseBody).getPagesList();
-			}
+			return executeHttpMethod(
+					createQueryRequest(user, listOfTitleStrings, valuePairs, Collections.<String, String> emptyMap()),
+					xmlStream -> parsePageBody(new XMLPagesParser(xmlStream)).getPagesList());
 		} catch (IOException | SAXException e) {
 			Throwables.log(log, e);
 		}
@@ -275,11 +458,23 @@ public class Connector {
 		return new ArrayList<>();
 	}
 
-	private String queryXML(final User user, final List<String> listOfTitleStrings, final String[] valuePairs) {
+	/**
+	 * @param continueParameters
+	 *            the parameters of the <code>continue</code> element of the previous response, empty for the first
+	 *            request
+	 */
+	private HttpRequestBase createQueryRequest(final User user, final List<String> listOfTitleStrings,
+			final String[] valuePairs, final Map<String, String> continueParameters) {
 		final String titlesString = formatTitleString(listOfTitleStrings);
 		final List<NameValuePair> parameters = new ArrayList<>();
 		parameters.add(new BasicNameValuePair(PARAM_ACTION, ACTION_QUERY));
-		parameters.add(new BasicNameValuePair(PARAM_CONTINUE, ""));
+		if (continueParameters.isEmpty()) {
+			parameters.add(new BasicNameValuePair(PARAM_CONTINUE, ""));
+		} else {
+			for (final Map.Entry<String, String> entry : continueParameters.entrySet()) {
+				parameters.add(new BasicNameValuePair(entry.getKey(), entry.getValue()));
+			}
+		}
 
 		if (titlesString.length() > 0) {
 			// don't encode the title for the NameValuePair !
@@ -290,8 +485,7 @@ public class Connector {
 				parameters.add(new BasicNameValuePair(valuePairs[i], valuePairs[i + 1]));
 			}
 		}
-		return executeHttpMethod(
-				createAuthenticatedRequest(user, parameters.toArray(new NameValuePair[parameters.size()])));
+		return createAuthenticatedRequest(user, parameters.toArray(new NameValuePair[parameters.size()]));
 	}
 
 	private String formatTitleString(final List<String> titles) {
@@ -318,6 +512,10 @@ public class Connector {
 		final List<NameValuePair> parameterList = new ArrayList<>();
 		parameterList.add(new BasicNameValuePair(PARAM_FORMAT, FORMAT_XML));
 		Collections.addAll(parameterList, parameters);
+		final Integer maxlag = scheduler.getMaxlag();
+		if (maxlag != null) {
+			parameterList.add(new BasicNameValuePair(PARAM_MAXLAG, maxlag.toString()));
+		}
 
 		if (user.isAuthenticated()) {
 			// TODO is this really correct?
@@ -333,10 +531,7 @@ public class Connector {
 	}
 
 	private static String getAsXmlString(final HttpResponse response) throws IOException {
-		final ContentType type = ContentType.get(response.getEntity());
-		if (!type.getMimeType().startsWith("text/xml")) {
-			throw new IOException("Invalid content-type: " + type);
-		}
+		checkXmlContentType(response);
 
 		String responseBody = EntityUtils.toString(response.getEntity());
 		if (responseBody.length() > 0 && responseBody.charAt(0) != '<') {
@@ -349,23 +544,69 @@ public class Connector {
 		return responseBody;
 	}
 
+	private static void checkXmlContentType(final HttpResponse response) throws IOException {
+		final ContentType type = ContentType.get(response.getEntity());
+		if (!type.getMimeType().startsWith("text/xml")) {
+			throw new IOException("Invalid content-type: " + type);
+		}
+	}
+
+	private static void checkStatus(final HttpRequestBase request, final HttpResponse response) throws IOException {
+		final int statusCode = response.getStatusLine().getStatusCode();
+		if (statusCode != HttpStatus.SC_OK) {
+			throw new IOException("HTTP status " + statusCode + " for " + request.getURI());
+		}
+	}
+
+	/**
+	 * Execute the request; identical requests in flight at the same time share the response body.
+	 */
 	private String executeHttpMethod(final HttpRequestBase request) {
 		try {
-			final HttpResponse response = client.execute(request);
-
-			if (response.getStatusLine().getStatusCode() == HttpStatus.SC_OK) {
+			return scheduler.execute(client, request, response -> {
+				checkStatus(request, response);
 				return getAsXmlString(response);
-			}
-		} catch (final IOException e) {
+			}, true);
+		} catch (IOException | SAXException e) {
 			Throwables.log(log, e);
-		} finally {
-			request.reset();
 		}
 		return null;
 	}
 
+	/**
+	 * Execute the request and parse the (decompressed) response body while it's received.
+	 */
+	private <T> T executeHttpMethod(final HttpRequestBase request, final ResponseParser<T> parser)
+			throws IOException, SAXException {
+		return scheduler.execute(client, request, response -> {
+			checkStatus(request, response);
+			checkXmlContentType(response);
+			try (InputStream content = skipToMarkup(response.getEntity().getContent())) {
+				return parser.parse(content);
+			}
+		}, false);
+	}
+
+	/**
+	 * Skip any text (for example PHP notices) before the XML markup of a response.
+	 */
+	private static InputStream skipToMarkup(final InputStream content) throws IOException {
+		final InputStream stream = new BufferedInputStream(content);
+		while (true) {
+			stream.mark(1);
+			final int b = stream.read();
+			if (b == '<' || b == -1) {
+				stream.reset();
+				return stream;
+			}
+		}
+	}
+
 	private XMLPagesParser parsePageBody(final String responseBody) throws SAXException, IOException {
-		final XMLPagesParser parser = new XMLPagesParser(responseBody);
+		return parsePageBody(new XMLPagesParser(responseBody));
+	}
+
+	private XMLPagesParser parsePageBody(final XMLPagesParser parser) throws SAXException, IOException {
 		parser.parse();
 		final List<String> warnings = parser.getWarnings();
 		if (!warnings.isEmpty()) {
@@ -373,4 +614,11 @@ public class Connector {
 		}
 		return parser;
 	}
+
+	/**
+	 * Parses the XML body of a response.
+	 */
+	private interface ResponseParser<T> {
+		T parse(InputStream xmlStream) throws IOException, SAXException;
+	}
 }
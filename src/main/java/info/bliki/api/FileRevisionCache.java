@@ -0,0 +1,325 @@
+package info.bliki.api;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+import javax.annotation.Nullable;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A persistent {@link IRevisionCache} in a directory of append-only segment files.
+ *
+ * Every stored revision is appended as a record with a length and CRC-32 header to the current segment
+ * <code>revisions-NNNNN.seg</code>; a new segment is started when the current one exceeds the segment size. An
+ * in-memory index maps every title to the revision id and position of its latest record, it's rebuilt by scanning the
+ * segments when the cache is opened. A truncated or corrupt record at the end of the last segment (for example after a
+ * crash) is cut off.
+ *
+ * Older revisions of a page are never removed from the segments; delete the directory to reclaim their space.
+ *
+ * Lookups run concurrently with each other; they are excluded from {@link #put(Page)} and {@link #close()} by a
+ * read/write lock, so a segment is never closed while it's read.
+ */
+@Slf4j
+public class FileRevisionCache implements IRevisionCache, Closeable {
+	/**
+	 * The default maximum size of a segment file
+	 */
+	public static final long DEFAULT_SEGMENT_SIZE = 64L << 20;
+
+	private static final String SEGMENT_PREFIX = "revisions-";
+	private static final String SEGMENT_SUFFIX = ".seg";
+	private static final int RECORD_HEADER_SIZE = 8;
+
+	private final File directory;
+	private final long segmentSize;
+	private final List<FileChannel> segments = new ArrayList<>();
+	private final Map<String, Entry> index = new HashMap<>();
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private static class Entry {
+		final String revid;
+		final int segment;
+		final long position;
+		final int length;
+
+		Entry(final String revid, final int segment, final long position, final int length) {
+			this.revid = revid;
+			this.segment = segment;
+			this.position = position;
+			this.length = length;
+		}
+	}
+
+	/**
+	 * Open the cache in the given directory with the default segment size.
+	 */
+	public FileRevisionCache(final File directory) throws IOException {
+		this(directory, DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * Open the cache in the given directory.
+	 *
+	 * @param directory
+	 *            the directory of the segment files; created if it doesn't exist
+	 * @param segmentSize
+	 *            the size after which a new segment file is started
+	 */
+	public FileRevisionCache(final File directory, final long segmentSize) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("can't create directory " + directory);
+		}
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		final String[] names = directory.list((dir, name) -> name.startsWith(SEGMENT_PREFIX)
+				&& name.endsWith(SEGMENT_SUFFIX));
+		Arrays.sort(names);
+		try {
+			for (int i = 0; i < names.length; i++) {
+				if (!names[i].equals(segmentName(i))) {
+					throw new IOException("missing segment " + segmentName(i) + " in " + directory);
+				}
+				segments.add(FileChannel.open(new File(directory, names[i]).toPath(), StandardOpenOption.READ,
+						StandardOpenOption.WRITE));
+				scan(i, i == names.length - 1);
+			}
+		} catch (final IOException e) {
+			close();
+			throw e;
+		}
+	}
+
+	private static String segmentName(final int segment) {
+		return String.format("%s%05d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX);
+	}
+
+	/**
+	 * Add the records of a segment to the index.
+	 *
+	 * @param last
+	 *            cut off an incomplete record at the end of the segment
+	 */
+	private void scan(final int segment, final boolean last) throws IOException {
+		final FileChannel channel = segments.get(segment);
+		final long size = channel.size();
+		long position = 0;
+		while (position < size) {
+			final Record record = readRecord(channel, position, size);
+			if (record == null) {
+				if (!last) {
+					throw new IOException("corrupt record at " + position + " in " + segmentName(segment));
+				}
+				log.warn("truncating corrupt record at {} in {}", position, new File(directory, segmentName(segment)));
+				channel.truncate(position);
+				break;
+			}
+			final int length = RECORD_HEADER_SIZE + record.payload.length;
+			final String[] key = record.fields(2);
+			index.put(key[0], new Entry(key[1], segment, position, length));
+			position += length;
+		}
+	}
+
+	@Override
+	@Nullable
+	public Page get(final String title, final String revid) throws IOException {
+		final Record record;
+		lock.readLock().lock();
+		try {
+			final Entry entry = index.get(title);
+			if (entry == null || !entry.revid.equals(revid)) {
+				return null;
+			}
+			record = readRecord(segments.get(entry.segment), entry.position, entry.position + entry.length);
+			if (record == null) {
+				throw new IOException("corrupt record of " + title + " in " + segmentName(entry.segment));
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		return record.toPage();
+	}
+
+	@Override
+	public void put(final Page page) throws IOException {
+		final Revision revision = page.getCurrentRevision();
+		if (revision == null || revision.getRevid() == null || page.getTitle() == null) {
+			return;
+		}
+		final byte[] payload = Record.payload(page);
+		final CRC32 crc = new CRC32();
+		crc.update(payload);
+		final ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + payload.length);
+		buffer.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+
+		lock.writeLock().lock();
+		try {
+			final Entry existing = index.get(page.getTitle());
+			if (existing != null && existing.revid.equals(revision.getRevid())) {
+				return;
+			}
+			FileChannel channel = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+			if (channel == null || (channel.size() > 0 && channel.size() + buffer.remaining() > segmentSize)) {
+				channel = FileChannel.open(new File(directory, segmentName(segments.size())).toPath(),
+						StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+				segments.add(channel);
+			}
+			final long position = channel.size();
+			final int length = buffer.remaining();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer, position + length - buffer.remaining());
+			}
+			index.put(page.getTitle(), new Entry(revision.getRevid(), segments.size() - 1, position, length));
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * @return the number of cached pages
+	 */
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return index.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		IOException exception = null;
+		lock.writeLock().lock();
+		try {
+			for (final FileChannel channel : segments) {
+				try {
+					channel.close();
+				} catch (final IOException e) {
+					exception = e;
+				}
+			}
+			segments.clear();
+			index.clear();
+		} finally {
+			lock.writeLock().unlock();
+		}
+		if (exception != null) {
+			throw exception;
+		}
+	}
+
+	/**
+	 * @return <code>null</code> if there is no complete and valid record at the position
+	 */
+	@Nullable
+	private static Record readRecord(final FileChannel channel, final long position, final long limit)
+			throws IOException {
+		if (limit - position < RECORD_HEADER_SIZE) {
+			return null;
+		}
+		final ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+		readFully(channel, header, position);
+		final int length = header.getInt(0);
+		if (length < 0 || length > limit - position - RECORD_HEADER_SIZE) {
+			return null;
+		}
+		final ByteBuffer payload = ByteBuffer.allocate(length);
+		readFully(channel, payload, position + RECORD_HEADER_SIZE);
+		final CRC32 crc = new CRC32();
+		crc.update(payload.array());
+		if ((int) crc.getValue() != header.getInt(4)) {
+			return null;
+		}
+		return new Record(payload.array());
+	}
+
+	private static void readFully(final FileChannel channel, final ByteBuffer buffer, final long position)
+			throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("unexpected end of segment");
+			}
+		}
+	}
+
+	/**
+	 * A stored revision: the title, revision id, page id, namespace, timestamp, user and content of a page, each as
+	 * a length-prefixed UTF-8 string.
+	 */
+	private static class Record {
+		final byte[] payload;
+
+		Record(final byte[] payload) {
+			this.payload = payload;
+		}
+
+		static byte[] payload(final Page page) throws IOException {
+			final Revision revision = page.getCurrentRevision();
+			final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (DataOutputStream out = new DataOutputStream(bytes)) {
+				for (final String field : new String[] { page.getTitle(), revision.getRevid(), page.getPageid(),
+						page.getNs(), revision.getTimestamp(), revision.getUser(), revision.getContent() }) {
+					if (field == null) {
+						out.writeInt(-1);
+					} else {
+						final byte[] encoded = field.getBytes(UTF_8);
+						out.writeInt(encoded.length);
+						out.write(encoded);
+					}
+				}
+			}
+			return bytes.toByteArray();
+		}
+
+		/**
+		 * Decode the first fields of the record.
+		 */
+		String[] fields(final int count) {
+			final ByteBuffer buffer = ByteBuffer.wrap(payload);
+			final String[] fields = new String[count];
+			for (int i = 0; i < count; i++) {
+				final int length = buffer.getInt();
+				if (length >= 0) {
+					fields[i] = new String(payload, buffer.position(), length, UTF_8);
+					buffer.position(buffer.position() + length);
+				}
+			}
+			return fields;
+		}
+
+		Page toPage() {
+			final String[] values = fields(7);
+			final Page page = new Page();
+			page.setTitle(values[0]);
+			page.setLastrevid(values[1]);
+			page.setPageid(values[2]);
+			page.setNs(values[3]);
+			final Revision revision = new Revision();
+			revision.setRevid(values[1]);
+			revision.setTimestamp(values[4]);
+			revision.setUser(values[5]);
+			revision.setContent(values[6]);
+			page.setCurrentRevision(revision);
+			return page;
+		}
+	}
+}
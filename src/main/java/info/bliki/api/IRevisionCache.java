@@ -0,0 +1,31 @@
+package info.bliki.api;
+
+import java.io.IOException;
+
+import javax.annotation.Nullable;
+
+/**
+ * A cache for the content of page revisions, used by the {@link CachingConnector}. Implementations must be
+ * thread-safe.
+ *
+ * @see FileRevisionCache
+ */
+public interface IRevisionCache {
+
+	/**
+	 * Get a cached page revision.
+	 *
+	 * @param title
+	 *            the normalized page title, as returned by the API
+	 * @param revid
+	 *            the id of the requested revision
+	 * @return <code>null</code> if the revision isn't cached
+	 */
+	@Nullable
+	Page get(String title, String revid) throws IOException;
+
+	/**
+	 * Store the current revision of a page. Pages without a revision or revision id are ignored.
+	 */
+	void put(Page page) throws IOException;
+}
@@ -26,6 +26,7 @@ public class Page extends PageInfo {
 	private final List<Link> links;
 	private final List<PageInfo> categories;
 	private String editToken;
+	private String lastrevid;
 	private String imageUrl;
 	private String imageThumbUrl;
 	private boolean missing;
@@ -104,6 +105,18 @@ public class Page extends PageInfo {
 		return links.get(index);
 	}
 
+	/**
+	 * @return the id of the latest revision of the page, retrieved with <code>prop=info</code>; <code>null</code>
+	 *         otherwise
+	 */
+	public String getLastrevid() {
+		return lastrevid;
+	}
+
+	public void setLastrevid(final String lastrevid) {
+		this.lastrevid = lastrevid;
+	}
+
 	public String getEditToken() {
 		return editToken;
 	}
@@ -225,4 +238,26 @@ public class Page extends PageInfo {
 			return null;
 		}
 	}
+
+	/**
+	 * Add the data of the same page from the continuation of a query. The links and categories of a continuation are
+	 * new, all other data is only taken if it's missing in this page.
+	 */
+	void merge(final Page continuation) {
+		links.addAll(continuation.links);
+		categories.addAll(continuation.categories);
+		if (revision == null) {
+			revision = continuation.revision;
+		}
+		if (imageUrl == null) {
+			imageUrl = continuation.imageUrl;
+			imageThumbUrl = continuation.imageThumbUrl;
+		}
+		if (editToken == null) {
+			editToken = continuation.editToken;
+		}
+		if (lastrevid == null) {
+			lastrevid = continuation.lastrevid;
+		}
+	}
 }
@@ -0,0 +1,363 @@
+package info.bliki.api;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import javax.annotation.Nullable;
+
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.util.EntityUtils;
+import org.xml.sax.SAXException;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Schedules the HTTP requests of a {@link Connector}, so it sends as many requests as the Mediawiki server tolerates
+ * but not more.
+ * <ul>
+ * <li>A token bucket limits the rate of requests, see {@link #RequestScheduler(double, int, int)}.</li>
+ * <li>The number of concurrent requests is limited by an adaptive limit: it increases additively with every
+ * successful response and is halved by every throttled one (AIMD).</li>
+ * <li>A response is throttled if its status is <code>429</code> or <code>503</code> or if it has a
+ * <code>Retry-After</code> header, which Mediawiki sends with <code>maxlag</code> errors. No request is sent before the
+ * <code>Retry-After</code> delay is over, then the request is retried up to {@link #getMaxRetries()} times.</li>
+ * <li>Identical GET requests whose body is shared (see {@link #execute(HttpClient, HttpRequestBase, ResponseHandler,
+ * boolean)}) are only sent once while one of them is in flight.</li>
+ * </ul>
+ * The metrics getters can be polled to monitor the scheduler. This class is thread-safe.
+ */
+@Slf4j
+public class RequestScheduler {
+	/**
+	 * The default number of retries of a throttled request
+	 */
+	public static final int DEFAULT_MAX_RETRIES = 3;
+
+	private static final long DEFAULT_BACKOFF_MILLIS = 1000L;
+	private static final long MAX_BACKOFF_MILLIS = 60000L;
+
+	private final double requestsPerSecond;
+	private final double burst;
+	private final int maxConcurrentRequests;
+	private final Map<String, CompletableFuture<Object>> sharedRequests = new HashMap<>();
+
+	private volatile Integer maxlag;
+	private volatile int maxRetries = DEFAULT_MAX_RETRIES;
+
+	// guarded by this
+	private double tokens;
+	private long refillNanos;
+	private long pausedUntilNanos;
+	private double concurrencyLimit;
+	private int inFlight;
+	private int queued;
+	private long completedRequests;
+	private long throttledResponses;
+	private long failedRequests;
+	private long totalLatencyNanos;
+
+	/**
+	 * A scheduler without rate limit.
+	 *
+	 * @param maxConcurrentRequests
+	 *            the maximum of the adaptive concurrency limit
+	 */
+	public RequestScheduler(final int maxConcurrentRequests) {
+		this(0, 1, maxConcurrentRequests);
+	}
+
+	/**
+	 * @param requestsPerSecond
+	 *            the rate of the token bucket; <code>0</code> disables the rate limit
+	 * @param burst
+	 *            the capacity of the token bucket, the number of requests which can be sent at once after an idle
+	 *            period
+	 * @param maxConcurrentRequests
+	 *            the maximum of the adaptive concurrency limit
+	 */
+	public RequestScheduler(final double requestsPerSecond, final int burst, final int maxConcurrentRequests) {
+		if (requestsPerSecond < 0 || burst < 1 || maxConcurrentRequests < 1) {
+			throw new IllegalArgumentException("invalid scheduler limits " + requestsPerSecond + "/s, burst " + burst
+					+ ", " + maxConcurrentRequests + " concurrent requests");
+		}
+		this.requestsPerSecond = requestsPerSecond;
+		this.burst = burst;
+		this.maxConcurrentRequests = maxConcurrentRequests;
+		this.tokens = burst;
+		this.refillNanos = System.nanoTime();
+		this.pausedUntilNanos = refillNanos;
+		this.concurrencyLimit = maxConcurrentRequests;
+	}
+
+	/**
+	 * Handles the response of a scheduled request; the request is in flight until the handler returns.
+	 */
+	public interface ResponseHandler<T> {
+		T handle(HttpResponse response) throws IOException, SAXException;
+	}
+
+	/**
+	 * Send a request when the rate and concurrency limits allow it and handle its response.
+	 *
+	 * @param shareResult
+	 *            if <code>true</code> and an identical GET request is in flight, wait for it and return its result
+	 *            instead of sending the request; only use this for immutable results
+	 * @throws IOException
+	 *             if the request fails or is still throttled after all retries
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T execute(final HttpClient client, final HttpRequestBase request, final ResponseHandler<T> handler,
+			final boolean shareResult) throws IOException, SAXException {
+		if (!shareResult || !"GET".equals(request.getMethod())) {
+			return execute(client, request, handler);
+		}
+		final String key = request.getURI().toString();
+		final CompletableFuture<Object> shared;
+		final CompletableFuture<Object> running;
+		synchronized (sharedRequests) {
+			running = sharedRequests.get(key);
+			shared = running == null ? new CompletableFuture<>() : running;
+			if (running == null) {
+				sharedRequests.put(key, shared);
+			}
+		}
+		if (running != null) {
+			return (T) join(running);
+		}
+		try {
+			final T result = execute(client, request, handler);
+			shared.complete(result);
+			return result;
+		} catch (IOException | SAXException | RuntimeException e) {
+			shared.completeExceptionally(e);
+			throw e;
+		} finally {
+			synchronized (sharedRequests) {
+				sharedRequests.remove(key);
+			}
+		}
+	}
+
+	private static Object join(final CompletableFuture<Object> future) throws IOException, SAXException {
+		try {
+			return future.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted while waiting for an identical request");
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof SAXException) {
+				throw (SAXException) cause;
+			}
+			throw (RuntimeException) cause;
+		}
+	}
+
+	private <T> T execute(final HttpClient client, final HttpRequestBase request, final ResponseHandler<T> handler)
+			throws IOException, SAXException {
+		for (int attempt = 0;; attempt++) {
+			acquire();
+			final long start = System.nanoTime();
+			boolean released = false;
+			try {
+				final HttpResponse response = client.execute(request);
+				final long retryAfterMillis = getRetryAfterMillis(response, attempt);
+				if (retryAfterMillis < 0) {
+					final T result = handler.handle(response);
+					released = true;
+					onSuccess(System.nanoTime() - start);
+					return result;
+				}
+				EntityUtils.consumeQuietly(response.getEntity());
+				released = true;
+				onThrottled(retryAfterMillis);
+				if (attempt >= maxRetries) {
+					throw new IOException("HTTP status " + response.getStatusLine().getStatusCode() + " for "
+							+ request.getURI() + ", throttled after " + (attempt + 1) + " attempts");
+				}
+				log.debug("throttled, retrying in {} ms: {}", retryAfterMillis, request.getURI());
+			} finally {
+				request.reset();
+				if (!released) {
+					onFailure();
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the delay before the request can be retried, <code>-1</code> if the response isn't throttled
+	 */
+	private static long getRetryAfterMillis(final HttpResponse response, final int attempt) {
+		final int statusCode = response.getStatusLine().getStatusCode();
+		final Header retryAfter = response.getFirstHeader(HttpHeaders.RETRY_AFTER);
+		if (retryAfter == null && statusCode != HttpStatus.SC_SERVICE_UNAVAILABLE && statusCode != 429) {
+			return -1;
+		}
+		if (retryAfter != null) {
+			final String value = retryAfter.getValue().trim();
+			try {
+				return Math.min(MAX_BACKOFF_MILLIS, Math.max(0L, Long.parseLong(value) * 1000L));
+			} catch (final NumberFormatException e) {
+				final Date date = DateUtils.parseDate(value);
+				if (date != null) {
+					return Math.min(MAX_BACKOFF_MILLIS, Math.max(0L, date.getTime() - System.currentTimeMillis()));
+				}
+			}
+		}
+		return Math.min(MAX_BACKOFF_MILLIS, DEFAULT_BACKOFF_MILLIS << Math.min(attempt, 16));
+	}
+
+	/**
+	 * Wait until the request is allowed by the pause after throttled responses, the token bucket and the concurrency
+	 * limit.
+	 */
+	private synchronized void acquire() throws InterruptedIOException {
+		queued++;
+		try {
+			while (true) {
+				final long now = System.nanoTime();
+				long waitNanos = pausedUntilNanos - now;
+				if (waitNanos <= 0 && requestsPerSecond > 0) {
+					tokens = Math.min(burst, tokens + (now - refillNanos) * requestsPerSecond / 1e9);
+					refillNanos = now;
+					if (tokens < 1) {
+						waitNanos = (long) Math.ceil((1 - tokens) * 1e9 / requestsPerSecond);
+					}
+				}
+				if (waitNanos <= 0 && inFlight < Math.max(1, (int) concurrencyLimit)) {
+					if (requestsPerSecond > 0) {
+						tokens -= 1;
+					}
+					inFlight++;
+					return;
+				}
+				if (waitNanos > 0) {
+					wait(Math.max(1L, waitNanos / 1000000L), (int) (waitNanos % 1000000L));
+				} else {
+					wait();
+				}
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted while waiting for a request slot");
+		} finally {
+			queued--;
+		}
+	}
+
+	private synchronized void onSuccess(final long latencyNanos) {
+		inFlight--;
+		completedRequests++;
+		totalLatencyNanos += latencyNanos;
+		concurrencyLimit = Math.min(maxConcurrentRequests, concurrencyLimit + 1 / concurrencyLimit);
+		notifyAll();
+	}
+
+	private synchronized void onThrottled(final long retryAfterMillis) {
+		inFlight--;
+		throttledResponses++;
+		concurrencyLimit = Math.max(1, concurrencyLimit / 2);
+		pausedUntilNanos = Math.max(pausedUntilNanos, System.nanoTime() + retryAfterMillis * 1000000L);
+		notifyAll();
+	}
+
+	private synchronized void onFailure() {
+		inFlight--;
+		failedRequests++;
+		notifyAll();
+	}
+
+	/**
+	 * @return the value of the <code>maxlag</code> parameter added to every request, <code>null</code> if it isn't
+	 *         sent
+	 */
+	@Nullable
+	public Integer getMaxlag() {
+		return maxlag;
+	}
+
+	/**
+	 * Ask the server to reject requests while its database replication lag exceeds the given number of seconds, see
+	 * <a href="https://www.mediawiki.org/wiki/Manual:Maxlag_parameter">Maxlag parameter</a>. The rejected requests are
+	 * retried after the <code>Retry-After</code> delay.
+	 *
+	 * @param maxlag
+	 *            the lag in seconds, <code>null</code> to not send the parameter
+	 */
+	public void setMaxlag(@Nullable final Integer maxlag) {
+		this.maxlag = maxlag;
+	}
+
+	public int getMaxRetries() {
+		return maxRetries;
+	}
+
+	public void setMaxRetries(final int maxRetries) {
+		this.maxRetries = maxRetries;
+	}
+
+	public int getMaxConcurrentRequests() {
+		return maxConcurrentRequests;
+	}
+
+	/**
+	 * @return the current adaptive limit of concurrent requests
+	 */
+	public synchronized int getConcurrencyLimit() {
+		return Math.max(1, (int) concurrencyLimit);
+	}
+
+	/**
+	 * @return the number of requests waiting for the rate or concurrency limit
+	 */
+	public synchronized int getQueueDepth() {
+		return queued;
+	}
+
+	public synchronized int getInFlightRequests() {
+		return inFlight;
+	}
+
+	public synchronized long getCompletedRequests() {
+		return completedRequests;
+	}
+
+	public synchronized long getThrottledResponses() {
+		return throttledResponses;
+	}
+
+	/**
+	 * @return the number of requests which failed with an exception
+	 */
+	public synchronized long getFailedRequests() {
+		return failedRequests;
+	}
+
+	/**
+	 * @return the mean time from sending a completed request until its response was handled
+	 */
+	public synchronized double getMeanLatencyMillis() {
+		return completedRequests == 0 ? 0 : totalLatencyNanos / 1e6 / completedRequests;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "RequestScheduler{" + "queued=" + queued + ", inFlight=" + inFlight + ", concurrencyLimit="
+				+ getConcurrencyLimit() + ", completed=" + completedRequests + ", throttled=" + throttledResponses
+				+ ", failed=" + failedRequests + ", meanLatencyMillis=" + getMeanLatencyMillis() + '}';
+	}
+}
@@ -4,6 +4,8 @@ package info.bliki.api;
  * Manages revision data from the <a href="https://meta.wikimedia.org/w/api.php">Wikimedia API</a>
  */
 public class Revision {
+	String revid;
+
 	String user;
 
 	String timestamp;
@@ -32,6 +34,17 @@ public class Revision {
 		return content.hashCode();
 	}
 
+	/**
+	 * @return the revision id, <code>null</code> if the query didn't request <code>rvprop=ids</code>
+	 */
+	public String getRevid() {
+		return revid;
+	}
+
+	public void setRevid(String revid) {
+		this.revid = revid;
+	}
+
 	public String getAnon() {
 		return anon;
 	}
@@ -58,6 +58,26 @@ public class User {
 	 *            Domain (optional)
 	 */
 	public User(String name, String password, String mediawikiApiUrl, String domain) {
+		this(name, password, mediawikiApiUrl, domain, new Connector());
+	}
+
+	/**
+	 * Create a User for a Mediawiki wiki which sends its queries through the given connector, for example a
+	 * {@link CachingConnector}.
+	 *
+	 * @param name
+	 *            User Name
+	 * @param password
+	 *            Password
+	 * @param mediawikiApiUrl
+	 *            A mediawiki API Url (example:
+	 *            <a href="https://meta.wikimedia.org/w/api.php" >https://meta.wikimedia.org/w/api.php</a>
+	 * @param domain
+	 *            Domain (optional)
+	 * @param connector
+	 *            the connector for the queries of this user
+	 */
+	public User(String name, String password, String mediawikiApiUrl, String domain, Connector connector) {
 		if (mediawikiApiUrl != null && !mediawikiApiUrl.startsWith("https://")) {
 			throw new IllegalArgumentException("the mediawiki API url must use HTTPS "
 					+ "(https://lists.wikimedia.org/pipermail/mediawiki-api-announce/2016-May/000110.html)");
@@ -69,7 +89,7 @@ public class User {
 		this.password = password;
 		this.domain = domain;
 		this.actionUrl = mediawikiApiUrl;
-		this.connector = new Connector();
+		this.connector = connector;
 	}
 
 	@Override
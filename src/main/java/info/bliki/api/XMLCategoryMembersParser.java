@@ -1,7 +1,9 @@
 package info.bliki.api;
 
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
@@ -24,6 +26,8 @@ public class XMLCategoryMembersParser extends AbstractXMLParser {
 
 	private final List<PageInfo> pagesList;
 
+	private Consumer<PageInfo> pageConsumer;
+
 	private String cmContinue;
 
 	public XMLCategoryMembersParser(final String xmlText) throws SAXException {
@@ -32,14 +36,36 @@ public class XMLCategoryMembersParser extends AbstractXMLParser {
 		cmContinue = "";
 	}
 
+	public XMLCategoryMembersParser(final InputStream xmlStream) throws SAXException {
+		super(xmlStream);
+		pagesList = new ArrayList<>();
+		cmContinue = "";
+	}
+
+	/**
+	 * Hand out every category member as soon as its element is parsed, instead of collecting them in the
+	 * {@link #getPagesList() list}.
+	 *
+	 * @param pageConsumer
+	 *            receives the category members in document order; <code>null</code> collects them again
+	 */
+	public void setPageConsumer(final Consumer<PageInfo> pageConsumer) {
+		this.pageConsumer = pageConsumer;
+	}
+
 	@Override
 	public void endElement(final String uri, final String name, final String qName) {
+		PageInfo parsed = null;
 		try {
 			if (CM_TAG.equals(qName)) {// ||
 				// CATEGORY_ID.equals(qName))
 				// {
 				if (fPage != null) {
-					pagesList.add(fPage);
+					if (pageConsumer != null) {
+						parsed = fPage;
+					} else {
+						pagesList.add(fPage);
+					}
 				}
 				// System.out.println(getString());
 			}
@@ -50,6 +76,10 @@ public class XMLCategoryMembersParser extends AbstractXMLParser {
 		} catch (final RuntimeException e) {
 			Throwables.log(log, e);
 		}
+		if (parsed != null) {
+			// exceptions of the consumer abort the parsing
+			pageConsumer.accept(parsed);
+		}
 	}
 
 	/**
@@ -1,8 +1,12 @@
 package info.bliki.api;
 
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
@@ -27,7 +31,11 @@ public class XMLPagesParser extends AbstractXMLParser {
 	private static final String IMAGEINFO_ID = "imageinfo";
 	private static final String II_ID = "ii";
 	private static final String EDIT_TOKEN_ID = "edittoken";
+	private static final String LAST_REV_ID = "lastrevid";
+	private static final String REVID_ID = "revid";
+	private static final String USER_ID = "user";
 	private static final String WARNINGS = "warnings";
+	private static final String CONTINUE_ID = "continue";
 	private static final String PAGE_MISSING_ATTRIBUTE = "missing";
 	private static final String PAGE_INVALID_ATTRIBUTE = "invalid";
 
@@ -36,12 +44,30 @@ public class XMLPagesParser extends AbstractXMLParser {
 	private final List<Page> pagesList;
 	private List<String> warnings;
 	private boolean isParsingWarnings;
+	private Map<String, String> continueParameters;
+	private Consumer<Page> pageConsumer;
 
 	public XMLPagesParser(final String xmlText) throws SAXException {
 		super(xmlText);
 		pagesList = new ArrayList<>();
 	}
 
+	public XMLPagesParser(final InputStream xmlStream) throws SAXException {
+		super(xmlStream);
+		pagesList = new ArrayList<>();
+	}
+
+	/**
+	 * Hand out every page as soon as its element is parsed, instead of collecting the pages in the
+	 * {@link #getPagesList() pages list}.
+	 *
+	 * @param pageConsumer
+	 *            receives the pages in document order; <code>null</code> collects the pages again
+	 */
+	public void setPageConsumer(final Consumer<Page> pageConsumer) {
+		this.pageConsumer = pageConsumer;
+	}
+
 	@Override
 	public void startElement(final String namespaceURI, final String localName, final String qName,
 			final Attributes atts) {
@@ -53,11 +79,16 @@ public class XMLPagesParser extends AbstractXMLParser {
 			fPage.setNs(fAttributes.getValue(NS_ID));
 			fPage.setTitle(fAttributes.getValue(TITLE_ID));
 			fPage.setEditToken(fAttributes.getValue(EDIT_TOKEN_ID));
+			fPage.setLastrevid(fAttributes.getValue(LAST_REV_ID));
 			fPage.setMissing(fAttributes.getValue(PAGE_MISSING_ATTRIBUTE) != null);
 			fPage.setInvalid(fAttributes.getValue(PAGE_INVALID_ATTRIBUTE) != null);
 		} else if (REV_ID.equals(qName)) {
 			fRevision = new Revision();
+			fRevision.setRevid(fAttributes.getValue(REVID_ID));
 			fRevision.setAnon(fAttributes.getValue(ANON_ID));
+			if (fAttributes.getValue(USER_ID) != null) {
+				fRevision.setUser(fAttributes.getValue(USER_ID));
+			}
 			fRevision.setTimestamp(fAttributes.getValue(TIMESTAMP_ID));
 			fPage.setCurrentRevision(fRevision);
 		} else if (CATEGORY_ID.equals(qName)) {
@@ -83,12 +114,18 @@ public class XMLPagesParser extends AbstractXMLParser {
 		} else if (WARNINGS.equals(qName)) {
 			warnings = new ArrayList<>();
 			isParsingWarnings = true;
+		} else if (CONTINUE_ID.equals(qName)) {
+			continueParameters = new LinkedHashMap<>();
+			for (int i = 0; i < fAttributes.getLength(); i++) {
+				continueParameters.put(fAttributes.getQName(i), fAttributes.getValue(i));
+			}
 		}
 		fData = null;
 	}
 
 	@Override
 	public void endElement(final String uri, final String name, final String qName) {
+		Page parsedPage = null;
 		try {
 			if (REV_ID.equals(qName)) {
 				if (fRevision != null) {
@@ -96,7 +133,11 @@ public class XMLPagesParser extends AbstractXMLParser {
 				}
 			} else if (PAGE_TAG1.equals(qName) || PAGE_TAG2.equals(qName)) {
 				if (fPage != null) {
-					pagesList.add(fPage);
+					if (pageConsumer != null) {
+						parsedPage = fPage;
+					} else {
+						pagesList.add(fPage);
+					}
 				}
 			} else if (WARNINGS.equals(qName)) {
 				isParsingWarnings = false;
@@ -111,8 +152,15 @@ public class XMLPagesParser extends AbstractXMLParser {
 		} catch (final RuntimeException e) {
 			Throwables.log(log, e);
 		}
+		if (parsedPage != null) {
+			// exceptions of the consumer abort the parsing
+			pageConsumer.accept(parsedPage);
+		}
 	}
 
+	/**
+	 * @return the parsed pages; empty if a page consumer is set
+	 */
 	public List<Page> getPagesList() {
 		return pagesList;
 	}
@@ -124,4 +172,16 @@ public class XMLPagesParser extends AbstractXMLParser {
 			return warnings;
 		}
 	}
+
+	/**
+	 * @return the attributes of the <code>continue</code> element, which have to be added to the next request to get
+	 *         the remaining data of the query; empty if the query is complete
+	 */
+	public Map<String, String> getContinueParameters() {
+		if (continueParameters == null) {
+			return Collections.emptyMap();
+		} else {
+			return continueParameters;
+		}
+	}
 }
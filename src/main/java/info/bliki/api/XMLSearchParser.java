@@ -1,7 +1,9 @@
 package info.bliki.api;
 
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
@@ -27,6 +29,8 @@ public class XMLSearchParser extends AbstractXMLParser {
 
 	private final List<SearchResult> searchResultsList;
 
+	private Consumer<SearchResult> searchResultConsumer;
+
 	private String srOffset;
 
 	public XMLSearchParser(final String xmlText) throws SAXException {
@@ -35,12 +39,34 @@ public class XMLSearchParser extends AbstractXMLParser {
 		srOffset = "";
 	}
 
+	public XMLSearchParser(final InputStream xmlStream) throws SAXException {
+		super(xmlStream);
+		searchResultsList = new ArrayList<>();
+		srOffset = "";
+	}
+
+	/**
+	 * Hand out every search result as soon as its element is parsed, instead of collecting them in the
+	 * {@link #getSearchResultList() list}.
+	 *
+	 * @param searchResultConsumer
+	 *            receives the search results in document order; <code>null</code> collects them again
+	 */
+	public void setSearchResultConsumer(final Consumer<SearchResult> searchResultConsumer) {
+		this.searchResultConsumer = searchResultConsumer;
+	}
+
 	@Override
 	public void endElement(final String uri, final String name, final String qName) {
+		SearchResult parsed = null;
 		try {
 			if (PAGE_TAG2.equals(qName)) {
 				if (fSearchResult != null) {
-					searchResultsList.add(fSearchResult);
+					if (searchResultConsumer != null) {
+						parsed = fSearchResult;
+					} else {
+						searchResultsList.add(fSearchResult);
+					}
 				}
 			}
 
@@ -50,6 +76,10 @@ public class XMLSearchParser extends AbstractXMLParser {
 		} catch (final RuntimeException e) {
 			Throwables.log(log, e);
 		}
+		if (parsed != null) {
+			// exceptions of the consumer abort the parsing
+			searchResultConsumer.accept(parsed);
+		}
 	}
 
 	public List<SearchResult> getSearchResultList() {
@@ -2,9 +2,10 @@ package info.bliki.html;
 
 import info.bliki.html.wikipedia.IHTMLToWiki;
 import info.bliki.htmlcleaner.HtmlCleaner;
-import info.bliki.htmlcleaner.TagNode;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Converts a given HTML string into a wiki text string
@@ -29,44 +30,37 @@ public class HTML2WikiConverter {
 	 * @return
 	 */
 	public String toWiki(IHTMLToWiki converter) {
-		HtmlCleaner cleaner = null;
 		StringBuilder resultBuffer = new StringBuilder(fInputHTML.length());
 		try {
-			cleaner = new HtmlCleaner(fInputHTML);
-			cleaner.clean();
-			// resultBuffer.append(cleaner.getXmlAsString());
-			TagNode body = cleaner.getBodyNode();
-			converter.nodeToWiki(body, resultBuffer);
+			toWiki(converter, resultBuffer);
 		} catch (IOException e) {
 		}
-		int indx = resultBuffer.indexOf("<br>");
-		char ch;
-		if (indx >= 0) {
-			int lastIndx = 0;
-			StringBuilder tempBuffer = new StringBuilder(resultBuffer.length() + resultBuffer.length() / 10);
-			while (indx > 0) {
-				indx += 4;
-				tempBuffer.append(resultBuffer.substring(lastIndx, indx));
-				if (indx < resultBuffer.length()) {
-					ch = resultBuffer.charAt(indx);
-					if (ch != '\n' && ch != '\r' && ch != ' ' && ch != '#' && ch != '=' && ch != '*' && ch != ':'
-							&& ch != ';' && ch != '{' && ch != '|') {
-						tempBuffer.append('\n');
-					}
-					lastIndx = indx;
-					indx = resultBuffer.indexOf("<br>", lastIndx);
-				} else {
-					break;
-				}
-			}
-			if (lastIndx < resultBuffer.length()) {
-				tempBuffer.append(resultBuffer.substring(lastIndx));
-			}
-			return tempBuffer.toString();
-		}
 		return resultBuffer.toString();
 	}
 
+	/**
+	 * Converts a given HTML string into wiki text in a single pass. The HTML is cleaned in streaming mode and every
+	 * top-level node of the body is converted and written as soon as it's complete, so only the largest top-level node
+	 * is buffered.
+	 *
+	 * @param converter
+	 *            for creating the resulting wiki text
+	 * @param out
+	 *            receives the wiki text, for example a <code>Writer</code>
+	 */
+	public void toWiki(IHTMLToWiki converter, Appendable out) throws IOException {
+		final Appendable wikiText = new LineBreakAppendable(out);
+		final StringBuilder nodeBuffer = new StringBuilder();
+		final List<Object> node = new ArrayList<>(1);
+		node.add(null);
+		new HtmlCleaner(fInputHTML).clean(bodyNode -> {
+			node.set(0, bodyNode);
+			nodeBuffer.setLength(0);
+			converter.nodesToText(node, nodeBuffer);
+			wikiText.append(nodeBuffer);
+		});
+	}
+
 	public String getInputHTML() {
 		return fInputHTML;
 	}
@@ -0,0 +1,82 @@
+package info.bliki.html;
+
+import java.io.IOException;
+
+/**
+ * Writes the wiki text of a {@link HTML2WikiConverter} to an <code>Appendable</code> and starts a new line after every
+ * <code>&lt;br&gt;</code> which isn't followed by a line break, a space or a character with a special meaning at the
+ * start of a wiki text line. If the text starts with a <code>&lt;br&gt;</code> it's written unchanged.
+ */
+class LineBreakAppendable implements Appendable {
+	private static final String BR = "<br>";
+
+	private final Appendable fOut;
+
+	private long fLength = 0;
+
+	private int fMatched = 0;
+
+	private boolean fAfterBreak = false;
+
+	private boolean fDisabled = false;
+
+	LineBreakAppendable(Appendable out) {
+		fOut = out;
+	}
+
+	@Override
+	public Appendable append(CharSequence csq) throws IOException {
+		return append(csq, 0, csq.length());
+	}
+
+	@Override
+	public Appendable append(CharSequence csq, int start, int end) throws IOException {
+		if (fDisabled) {
+			fOut.append(csq, start, end);
+			return this;
+		}
+		int written = start;
+		for (int i = start; i < end; i++) {
+			final char ch = csq.charAt(i);
+			if (fAfterBreak) {
+				fAfterBreak = false;
+				if (needsNewLine(ch)) {
+					fOut.append(csq, written, i);
+					fOut.append('\n');
+					written = i;
+				}
+			}
+			fLength++;
+			if (ch == BR.charAt(fMatched)) {
+				if (++fMatched == BR.length()) {
+					fMatched = 0;
+					if (fLength == BR.length()) {
+						// the former post-processing didn't handle a leading <br>
+						fDisabled = true;
+						fOut.append(csq, written, end);
+						return this;
+					}
+					fAfterBreak = true;
+				}
+			} else {
+				fMatched = ch == '<' ? 1 : 0;
+			}
+		}
+		fOut.append(csq, written, end);
+		return this;
+	}
+
+	@Override
+	public Appendable append(char c) throws IOException {
+		if (fDisabled) {
+			fOut.append(c);
+			return this;
+		}
+		return append(String.valueOf(c), 0, 1);
+	}
+
+	private static boolean needsNewLine(char ch) {
+		return ch != '\n' && ch != '\r' && ch != ' ' && ch != '#' && ch != '=' && ch != '*' && ch != ':' && ch != ';'
+				&& ch != '{' && ch != '|';
+	}
+}
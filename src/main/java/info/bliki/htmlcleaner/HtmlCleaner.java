@@ -245,6 +245,10 @@ public class HtmlCleaner {
 
 	private TagNode headNode;
 
+	private transient ITagNodeVisitor _visitor = null;
+
+	private transient boolean _isBodyStarted = false;
+
 	/**
 	 * Constructor - creates the instance with specified html content as String.
 	 *
@@ -390,6 +394,7 @@ public class HtmlCleaner {
 	 */
 	public HtmlCleaner(InputStream in, String charset) throws IOException {
 		reader = new InputStreamReader(in, charset);
+		tagInfoProvider = HtmlTagProvider.getInstance();
 	}
 
 	public void clean() throws IOException {
@@ -411,6 +416,36 @@ public class HtmlCleaner {
 		createDocumentNodes(nodeList);
 	}
 
+	/**
+	 * Cleans the HTML in streaming mode: instead of building the body node, every top-level node of the body is passed
+	 * to the visitor as soon as it's complete, that is when no tag is open anymore, and released afterwards. So the
+	 * memory use is bounded by the largest top-level element instead of the whole document. Elements which belong into
+	 * the document head are added to the head node as in {@link #clean()}, the body node stays empty.
+	 *
+	 * @param visitor
+	 *            receives the nodes in document order
+	 */
+	public void clean(ITagNodeVisitor visitor) throws IOException {
+		_visitor = visitor;
+		_isBodyStarted = false;
+		try {
+			clean();
+		} finally {
+			_visitor = null;
+		}
+	}
+
+	/**
+	 * In streaming mode pass the nodes of the list to the visitor and remove them, if there is no open tag.
+	 */
+	void flushCompletedNodes(List<BaseToken> nodeList) throws IOException {
+		if (_visitor != null && _openTags.isEmpty() && !nodeList.isEmpty()) {
+			List<Object> completed = new ArrayList<Object>(nodeList);
+			nodeList.clear();
+			createDocumentNodes(completed);
+		}
+	}
+
 	public List<BaseToken> getNodeList() throws IOException {
 		allTags.clear();
 		if (htmlNode == null) {
@@ -666,7 +701,7 @@ public class HtmlCleaner {
 		}
 	}
 
-	private void createDocumentNodes(List<? extends Object> listNodes) {
+	private void createDocumentNodes(List<? extends Object> listNodes) throws IOException {
 		for (Object child : listNodes) {
 			if (child == null) {
 				continue;
@@ -678,7 +713,7 @@ public class HtmlCleaner {
 			if (child instanceof TagNode) {
 				TagInfo tag = tagInfoProvider.getTagInfo(((TagNode) child).getName());
 				if (tag != null) {
-					if (tag.isHeadTag() || (tag.isHeadAndBodyTag() && bodyNode.getChildren().isEmpty())) {
+					if (tag.isHeadTag() || (tag.isHeadAndBodyTag() && !isBodyStarted())) {
 						parent = headNode;
 					}
 				}
@@ -689,8 +724,28 @@ public class HtmlCleaner {
 			}
 
 			if (toAdd) {
-				parent.addChild(child);
+				if (parent == bodyNode && _visitor != null) {
+					visitBodyNode(child);
+				} else {
+					parent.addChild(child);
+				}
+			}
+		}
+	}
+
+	private boolean isBodyStarted() {
+		return _visitor != null ? _isBodyStarted : !bodyNode.getChildren().isEmpty();
+	}
+
+	private void visitBodyNode(Object child) throws IOException {
+		if (child instanceof List) {
+			// moved items followed by their tag, see closeSnippet()
+			for (Object item : (List<?>) child) {
+				visitBodyNode(item);
 			}
+		} else if (child != null) {
+			_isBodyStarted = true;
+			_visitor.visit((BaseToken) child);
 		}
 	}
 
@@ -44,7 +44,8 @@ import java.util.*;
  * Main HTML tokenizer.
  * <p>
  * Its taks is to parse HTML and produce list of valid tokens: open tag tokens, end tag tokens, contents (text) and
- * comments. As soon as new item is added to token list, cleaner is invoked to clean current list at the end.
+ * comments. As soon as new item is added to token list, cleaner is invoked to clean current list at the end. In the
+ * streaming mode of the cleaner the completed nodes are removed from the list again.
  * </p>
  *
  * Created by: Vladimir Nikic.<br>
@@ -63,7 +64,7 @@ public class HtmlTokenizer {
 
 	private transient int _len = -1;
 
-	private transient StringBuffer _saved = new StringBuffer(512);
+	private transient StringBuilder _saved = new StringBuilder(512);
 
 	private transient boolean _isLateForDoctype = false;
 
@@ -90,9 +91,10 @@ public class HtmlTokenizer {
 		this.cleaner = cleaner;
 	}
 
-	private void addToken(BaseToken token) {
+	private void addToken(BaseToken token) throws IOException {
 		_tokenList.add(token);
 		cleaner.makeTree(_tokenList, _tokenList.listIterator(_tokenList.size() - 1));
+		cleaner.flushCompletedNodes(_tokenList);
 	}
 
 	private void readIfNeeded(int neededChars) throws IOException {
@@ -289,7 +291,7 @@ public class HtmlTokenizer {
 		}
 	}
 
-	private void addSavedAsContent() {
+	private void addSavedAsContent() throws IOException {
 		if (_saved.length() > 0) {
 			addToken(new ContentToken(_saved.toString()));
 			_saved.delete(0, _saved.length());
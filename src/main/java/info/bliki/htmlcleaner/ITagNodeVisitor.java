@@ -0,0 +1,19 @@
+package info.bliki.htmlcleaner;
+
+import java.io.IOException;
+
+/**
+ * Receives the completed top-level nodes of a document cleaned in streaming mode, see
+ * {@link HtmlCleaner#clean(ITagNodeVisitor)}.
+ */
+public interface ITagNodeVisitor {
+
+	/**
+	 * Visit a top-level node of the document body after all its children are cleaned. The node isn't referenced by
+	 * the cleaner anymore afterwards.
+	 *
+	 * @param node
+	 *            a {@link TagNode} with its children, a {@link ContentToken} or a {@link CommentToken}
+	 */
+	void visit(BaseToken node) throws IOException;
+}
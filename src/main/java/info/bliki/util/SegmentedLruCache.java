@@ -0,0 +1,284 @@
+package info.bliki.util;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.ToIntFunction;
+
+import javax.annotation.Nullable;
+
+/**
+ * A thread-safe cache, which is bounded by the number of entries and by their total weight.
+ *
+ * The cache is striped into independently locked segments. Every segment is a <i>segmented LRU</i>: new entries are
+ * inserted into a probation area and promoted to a protected area on their first hit, so entries which are used only
+ * once can't evict the frequently used ones. Entries are evicted when either the maximum number of entries or the
+ * maximum weight of a segment is exceeded.
+ *
+ * @param <K>
+ *            the type of the keys
+ * @param <V>
+ *            the type of the values
+ */
+public class SegmentedLruCache<K, V> {
+	private static final int SEGMENT_COUNT = 16;
+
+	/**
+	 * The percentage of a segment's capacity reserved for the protected area
+	 */
+	private static final int PROTECTED_PERCENTAGE = 80;
+
+	private final List<Segment> fSegments;
+	private final ToIntFunction<? super V> fWeigher;
+	@Nullable
+	private final BiConsumer<? super K, ? super V> fRemovalListener;
+	private final LongAdder fHitCount = new LongAdder();
+	private final LongAdder fMissCount = new LongAdder();
+	private final LongAdder fEvictionCount = new LongAdder();
+
+	/**
+	 * @param maximumSize
+	 *            the maximum number of entries
+	 * @param maximumWeight
+	 *            the maximum total weight of all values
+	 * @param weigher
+	 *            the weight of a value
+	 * @param removalListener
+	 *            called in the lock of the segment for every entry which is evicted, removed with
+	 *            {@link #remove(Object)} or rejected by {@link #put(Object, Object)}, because it's heavier than a
+	 *            segment; maybe <code>null</code>
+	 */
+	public SegmentedLruCache(final int maximumSize, final long maximumWeight, final ToIntFunction<? super V> weigher,
+			@Nullable final BiConsumer<? super K, ? super V> removalListener) {
+		if (maximumSize <= 0 || maximumWeight <= 0) {
+			throw new IllegalArgumentException("invalid cache limits " + maximumSize + "/" + maximumWeight);
+		}
+		fWeigher = weigher;
+		fRemovalListener = removalListener;
+		fSegments = new ArrayList<>(SEGMENT_COUNT);
+		final int segmentSize = Math.max(1, (maximumSize + SEGMENT_COUNT - 1) / SEGMENT_COUNT);
+		final long segmentWeight = Math.max(1,
+				maximumWeight / SEGMENT_COUNT + (maximumWeight % SEGMENT_COUNT == 0 ? 0 : 1));
+		for (int i = 0; i < SEGMENT_COUNT; i++) {
+			fSegments.add(new Segment(segmentSize, segmentWeight));
+		}
+	}
+
+	/**
+	 * @return <code>null</code> if the key isn't cached
+	 */
+	@Nullable
+	public V get(final K key) {
+		final V value = segmentFor(key).get(key);
+		if (value != null) {
+			fHitCount.increment();
+		} else {
+			fMissCount.increment();
+		}
+		return value;
+	}
+
+	/**
+	 * Cache a value. The replaced value isn't passed to the removal listener.
+	 *
+	 * @return the replaced value or <code>null</code>
+	 */
+	@Nullable
+	public V put(final K key, final V value) {
+		return segmentFor(key).put(key, value);
+	}
+
+	/**
+	 * @return the removed value or <code>null</code>
+	 */
+	@Nullable
+	public V remove(final K key) {
+		return segmentFor(key).remove(key);
+	}
+
+	/**
+	 * Remove all entries without calling the removal listener.
+	 */
+	public void clear() {
+		for (final Segment segment : fSegments) {
+			segment.clear();
+		}
+	}
+
+	/**
+	 * @return the number of entries
+	 */
+	public int size() {
+		int size = 0;
+		for (final Segment segment : fSegments) {
+			size += segment.size();
+		}
+		return size;
+	}
+
+	/**
+	 * @return the total weight of all values
+	 */
+	public long weight() {
+		long weight = 0;
+		for (final Segment segment : fSegments) {
+			weight += segment.weight();
+		}
+		return weight;
+	}
+
+	public long getHitCount() {
+		return fHitCount.sum();
+	}
+
+	public long getMissCount() {
+		return fMissCount.sum();
+	}
+
+	public long getEvictionCount() {
+		return fEvictionCount.sum();
+	}
+
+	private Segment segmentFor(final K key) {
+		final int hash = key.hashCode();
+		return fSegments.get((hash ^ (hash >>> 16)) & (SEGMENT_COUNT - 1));
+	}
+
+	private void removed(final K key, final V value) {
+		if (fRemovalListener != null) {
+			fRemovalListener.accept(key, value);
+		}
+	}
+
+	/**
+	 * A segmented LRU, both areas are <code>LinkedHashMap</code>s in access order.
+	 */
+	private final class Segment {
+		private final int fMaximumSize;
+		private final long fMaximumWeight;
+		private final int fMaximumProtectedSize;
+		private final long fMaximumProtectedWeight;
+		private final LinkedHashMap<K, V> fProbation = new LinkedHashMap<>(16, 0.75f, true);
+		private final LinkedHashMap<K, V> fProtected = new LinkedHashMap<>(16, 0.75f, true);
+		private long fProbationWeight;
+		private long fProtectedWeight;
+
+		Segment(final int maximumSize, final long maximumWeight) {
+			fMaximumSize = maximumSize;
+			fMaximumWeight = maximumWeight;
+			fMaximumProtectedSize = Math.max(1, (int) ((long) maximumSize * PROTECTED_PERCENTAGE / 100));
+			fMaximumProtectedWeight = maximumWeight / 100 * PROTECTED_PERCENTAGE
+					+ maximumWeight % 100 * PROTECTED_PERCENTAGE / 100;
+		}
+
+		synchronized V get(final K key) {
+			V value = fProtected.get(key);
+			if (value != null) {
+				return value;
+			}
+			value = fProbation.remove(key);
+			if (value != null) {
+				// promote on the second access
+				final int weight = fWeigher.applyAsInt(value);
+				fProbationWeight -= weight;
+				fProtected.put(key, value);
+				fProtectedWeight += weight;
+				demote();
+			}
+			return value;
+		}
+
+		synchronized V put(final K key, final V value) {
+			final int weight = fWeigher.applyAsInt(value);
+			final V oldValue = removeEntry(key);
+			if (weight > fMaximumWeight) {
+				// too large for this cache
+				removed(key, value);
+				return oldValue;
+			}
+			fProbation.put(key, value);
+			fProbationWeight += weight;
+			evict();
+			return oldValue;
+		}
+
+		/**
+		 * Move the least recently used entries of the protected area back to the probation area.
+		 */
+		private void demote() {
+			final Iterator<Map.Entry<K, V>> iterator = fProtected.entrySet().iterator();
+			while ((fProtected.size() > fMaximumProtectedSize || fProtectedWeight > fMaximumProtectedWeight)
+					&& iterator.hasNext()) {
+				final Map.Entry<K, V> eldest = iterator.next();
+				iterator.remove();
+				final int weight = fWeigher.applyAsInt(eldest.getValue());
+				fProtectedWeight -= weight;
+				fProbation.put(eldest.getKey(), eldest.getValue());
+				fProbationWeight += weight;
+			}
+			evict();
+		}
+
+		/**
+		 * Remove the least recently used entries of the probation area, or of the protected area if the probation area
+		 * is empty, until the segment is within its limits.
+		 */
+		private void evict() {
+			while (size() > fMaximumSize || weight() > fMaximumWeight) {
+				final boolean fromProbation = !fProbation.isEmpty();
+				final Iterator<Map.Entry<K, V>> iterator = fromProbation ? fProbation.entrySet().iterator()
+						: fProtected.entrySet().iterator();
+				final Map.Entry<K, V> eldest = iterator.next();
+				final int weight = fWeigher.applyAsInt(eldest.getValue());
+				iterator.remove();
+				if (fromProbation) {
+					fProbationWeight -= weight;
+				} else {
+					fProtectedWeight -= weight;
+				}
+				fEvictionCount.increment();
+				removed(eldest.getKey(), eldest.getValue());
+			}
+		}
+
+		synchronized V remove(final K key) {
+			final V value = removeEntry(key);
+			if (value != null) {
+				removed(key, value);
+			}
+			return value;
+		}
+
+		private V removeEntry(final K key) {
+			V value = fProtected.remove(key);
+			if (value != null) {
+				fProtectedWeight -= fWeigher.applyAsInt(value);
+				return value;
+			}
+			value = fProbation.remove(key);
+			if (value != null) {
+				fProbationWeight -= fWeigher.applyAsInt(value);
+			}
+			return value;
+		}
+
+		synchronized void clear() {
+			fProbation.clear();
+			fProtected.clear();
+			fProbationWeight = 0;
+			fProtectedWeight = 0;
+		}
+
+		synchronized int size() {
+			return fProbation.size() + fProtected.size();
+		}
+
+		synchronized long weight() {
+			return fProbationWeight + fProtectedWeight;
+		}
+	}
+}
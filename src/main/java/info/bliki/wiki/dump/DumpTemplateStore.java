@@ -0,0 +1,351 @@
+package info.bliki.wiki.dump;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import javax.annotation.Nullable;
+
+import org.xml.sax.SAXException;
+
+import info.bliki.util.SegmentedLruCache;
+import info.bliki.wiki.filter.Encoder;
+import info.bliki.wiki.filter.ParsedPageName;
+import info.bliki.wiki.model.IConfiguration.Casing;
+
+/**
+ * A read-only store for the raw wiki text of templates and modules (or any other pages) extracted from a Mediawiki
+ * XML dump, which can be used to implement {@link info.bliki.wiki.model.IWikiModel#getRawWikiContent(ParsedPageName,
+ * Map)}.
+ *
+ * The store is created in a single pass over a dump with a {@link Writer}, which is an {@link IArticleFilter}. It
+ * consists of two files in a directory:
+ * <ul>
+ * <li><code>store.dat</code> contains the UTF-8 encoded key (namespace number and normalized page name) and wiki text
+ * of every stored page</li>
+ * <li><code>store.idx</code> contains fixed size entries with the 64-bit hash of the key and the offset and lengths of
+ * the page in <code>store.dat</code>, sorted by hash</li>
+ * </ul>
+ * Both files are memory-mapped, so a lookup is a binary search in the index followed by the decoding of a single page.
+ * The most recently used pages are kept in a {@link SegmentedLruCache} of decoded strings.
+ *
+ * A store instance is immutable after opening and can be shared by multiple threads and wiki models. Closing the store
+ * releases the memory-mapped files; pages can't be looked up anymore.
+ *
+ * @see DumpWikiModel
+ */
+public class DumpTemplateStore implements Closeable {
+	public static final String INDEX_FILE_NAME = "store.idx";
+	public static final String CONTENT_FILE_NAME = "store.dat";
+
+	/**
+	 * The default number of decoded pages kept in the LRU cache
+	 */
+	public static final int DEFAULT_CACHE_SIZE = 4096;
+
+	private static final long MAGIC = 0x424C494B49535431L; // "BLIKIST1"
+	private static final int HEADER_SIZE = 16;
+	private static final int ENTRY_SIZE = 24;
+	private static final int FLAG_FIRST_LETTER = 1;
+	private static final long SEGMENT_SIZE = 1L << 30;
+
+	/**
+	 * The memory-mapped files, <code>null</code> after closing
+	 */
+	private volatile MappedFiles fFiles;
+	private final int fCount;
+	private final boolean fFirstCharacterAsUpperCase;
+	private final SegmentedLruCache<String, String> fCache;
+
+	/**
+	 * Open the store in the given directory with the default cache size.
+	 */
+	public DumpTemplateStore(final File directory) throws IOException {
+		this(directory, DEFAULT_CACHE_SIZE);
+	}
+
+	/**
+	 * Open the store in the given directory.
+	 *
+	 * @param cacheSize
+	 *            the maximum number of decoded pages kept in the LRU cache; <code>0</code> disables the cache
+	 */
+	public DumpTemplateStore(final File directory, final int cacheSize) throws IOException {
+		final ByteBuffer indexBuffer;
+		final ByteBuffer[] segments;
+		try (FileChannel index = FileChannel.open(new File(directory, INDEX_FILE_NAME).toPath(),
+				StandardOpenOption.READ);
+				FileChannel content = FileChannel.open(new File(directory, CONTENT_FILE_NAME).toPath(),
+						StandardOpenOption.READ)) {
+			if (index.size() < HEADER_SIZE || index.size() > Integer.MAX_VALUE) {
+				throw new IOException("invalid store index in " + directory);
+			}
+			indexBuffer = index.map(FileChannel.MapMode.READ_ONLY, 0, index.size());
+			if (indexBuffer.getLong(0) != MAGIC) {
+				throw new IOException("invalid store index in " + directory);
+			}
+			fFirstCharacterAsUpperCase = (indexBuffer.getInt(8) & FLAG_FIRST_LETTER) != 0;
+			fCount = indexBuffer.getInt(12);
+			if (HEADER_SIZE + (long) fCount * ENTRY_SIZE != index.size()) {
+				throw new IOException("truncated store index in " + directory);
+			}
+			final long contentSize = content.size();
+			segments = new ByteBuffer[(int) ((contentSize + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+			for (int i = 0; i < segments.length; i++) {
+				final long start = i * SEGMENT_SIZE;
+				segments[i] = content.map(FileChannel.MapMode.READ_ONLY, start,
+						Math.min(SEGMENT_SIZE, contentSize - start));
+			}
+		}
+		fFiles = new MappedFiles(indexBuffer, segments);
+		fCache = cacheSize > 0 ? new SegmentedLruCache<>(cacheSize, Long.MAX_VALUE, String::length, null) : null;
+	}
+
+	/**
+	 * Create a store for all templates and modules of the given dump file and open it.
+	 *
+	 * @param dumpFile
+	 *            the dump; compressed with gzip or bzip2 if the name ends with <i>.gz</i> or <i>.bz2</i>
+	 * @param directory
+	 *            the directory for the store files
+	 */
+	public static DumpTemplateStore build(final File dumpFile, final File directory)
+			throws IOException, SAXException {
+		try (Writer writer = new Writer(directory)) {
+			new WikiXMLParser(dumpFile, writer).parse();
+		}
+		return new DumpTemplateStore(directory);
+	}
+
+	/**
+	 * @return the number of stored pages
+	 */
+	public int size() {
+		return fCount;
+	}
+
+	/**
+	 * Get the raw wiki text of a page.
+	 *
+	 * @param parsedPagename
+	 *            the parsed page name
+	 * @return <code>null</code> if the page isn't stored
+	 */
+	@Nullable
+	public String getRawWikiContent(final ParsedPageName parsedPagename) {
+		return getRawWikiContent(parsedPagename.namespace.getCode().code, parsedPagename.pagename);
+	}
+
+	/**
+	 * Get the raw wiki text of a page.
+	 *
+	 * @param namespaceCode
+	 *            the namespace number, for example <code>10</code> for templates
+	 * @param pagename
+	 *            the page name without the namespace prefix
+	 * @return <code>null</code> if the page isn't stored
+	 * @throws IllegalStateException
+	 *             if the store is closed
+	 */
+	@Nullable
+	public String getRawWikiContent(final int namespaceCode, final String pagename) {
+		final String key = createKey(namespaceCode, pagename, fFirstCharacterAsUpperCase);
+		if (fCache != null) {
+			final String cached = fCache.get(key);
+			if (cached != null) {
+				return cached;
+			}
+		}
+		final String content = lookup(key);
+		if (content != null && fCache != null) {
+			fCache.put(key, content);
+		}
+		return content;
+	}
+
+	@Nullable
+	private String lookup(final String key) {
+		final MappedFiles files = fFiles;
+		if (files == null) {
+			throw new IllegalStateException("the template store is closed");
+		}
+		final ByteBuffer index = files.fIndex;
+		final long hash = hash(key);
+		int low = 0;
+		int high = fCount - 1;
+		while (low <= high) {
+			final int mid = (low + high) >>> 1;
+			if (entryHash(index, mid) < hash) {
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+		final byte[] keyBytes = key.getBytes(UTF_8);
+		String result = null;
+		for (int entry = low; entry < fCount && entryHash(index, entry) == hash; entry++) {
+			final int position = HEADER_SIZE + entry * ENTRY_SIZE;
+			final long offset = index.getLong(position + 8);
+			final int keyLength = index.getInt(position + 16);
+			final int textLength = index.getInt(position + 20);
+			if (keyLength == keyBytes.length && Arrays.equals(keyBytes, read(files.fSegments, offset, keyLength))) {
+				// entries with equal hash are sorted by offset, the last stored page wins
+				result = new String(read(files.fSegments, offset + keyLength, textLength), UTF_8);
+			}
+		}
+		return result;
+	}
+
+	private static long entryHash(final ByteBuffer index, final int entry) {
+		return index.getLong(HEADER_SIZE + entry * ENTRY_SIZE);
+	}
+
+	private static byte[] read(final ByteBuffer[] segments, final long offset, final int length) {
+		final byte[] bytes = new byte[length];
+		int copied = 0;
+		while (copied < length) {
+			final long position = offset + copied;
+			final ByteBuffer segment = segments[(int) (position / SEGMENT_SIZE)].duplicate();
+			segment.position((int) (position % SEGMENT_SIZE));
+			final int count = Math.min(length - copied, segment.remaining());
+			segment.get(bytes, copied, count);
+			copied += count;
+		}
+		return bytes;
+	}
+
+	/**
+	 * Close the store. The memory-mapped files are unmapped, when the buffers are garbage collected.
+	 */
+	@Override
+	public void close() {
+		fFiles = null;
+		if (fCache != null) {
+			fCache.clear();
+		}
+	}
+
+	static String createKey(final int namespaceCode, final String pagename, final boolean firstCharacterAsUpperCase) {
+		return namespaceCode + ":" + Encoder.normaliseTitle(pagename, true, ' ', firstCharacterAsUpperCase);
+	}
+
+	/**
+	 * 64-bit FNV-1a hash of the key
+	 */
+	static long hash(final String key) {
+		long hash = 0xCBF29CE484222325L;
+		for (int i = 0; i < key.length(); i++) {
+			hash ^= key.charAt(i);
+			hash *= 0x100000001B3L;
+		}
+		return hash;
+	}
+
+	/**
+	 * The memory-mapped index and content files.
+	 */
+	private static final class MappedFiles {
+		final ByteBuffer fIndex;
+		final ByteBuffer[] fSegments;
+
+		MappedFiles(final ByteBuffer index, final ByteBuffer[] segments) {
+			fIndex = index;
+			fSegments = segments;
+		}
+	}
+
+	/**
+	 * An article filter which writes the accepted articles of a dump into a new {@link DumpTemplateStore}. The index is
+	 * written when the writer is closed. This class isn't thread-safe.
+	 */
+	public static class Writer implements IArticleFilter, Closeable {
+		private final File fDirectory;
+		private final Predicate<WikiArticle> fFilter;
+		private final boolean fFirstCharacterAsUpperCase;
+		private final OutputStream fContent;
+		private final List<long[]> fEntries = new ArrayList<>();
+		private long fOffset;
+
+		/**
+		 * Create a writer for all templates and modules of a dump, with the first letter of page names treated
+		 * case-insensitively.
+		 */
+		public Writer(final File directory) throws IOException {
+			this(directory, article -> article.isTemplate() || article.isModule(), Casing.FirstLetter);
+		}
+
+		/**
+		 * @param directory
+		 *            the directory for the store files; created if it doesn't exist
+		 * @param filter
+		 *            selects the articles which should be stored
+		 * @param casing
+		 *            the casing of the page names of the wiki
+		 */
+		public Writer(final File directory, final Predicate<WikiArticle> filter, final Casing casing)
+				throws IOException {
+			if (!directory.isDirectory() && !directory.mkdirs()) {
+				throw new IOException("can't create directory " + directory);
+			}
+			fDirectory = directory;
+			fFilter = filter;
+			fFirstCharacterAsUpperCase = casing == Casing.FirstLetter;
+			fContent = new BufferedOutputStream(new FileOutputStream(new File(directory, CONTENT_FILE_NAME)), 65536);
+		}
+
+		@Override
+		public void process(final WikiArticle article, final Siteinfo siteinfo) throws IOException {
+			if (article.getText() == null || !fFilter.test(article)) {
+				return;
+			}
+			final String title = article.getTitle();
+			final int namespaceCode = article.getIntegerNamespace();
+			String pagename = title;
+			if (namespaceCode != 0) {
+				final int colonIndex = title.indexOf(':');
+				if (colonIndex >= 0) {
+					pagename = title.substring(colonIndex + 1);
+				}
+			}
+			final String key = createKey(namespaceCode, pagename, fFirstCharacterAsUpperCase);
+			final byte[] keyBytes = key.getBytes(UTF_8);
+			final byte[] textBytes = article.getText().getBytes(UTF_8);
+			fContent.write(keyBytes);
+			fContent.write(textBytes);
+			fEntries.add(new long[] { hash(key), fOffset, keyBytes.length, textBytes.length });
+			fOffset += keyBytes.length + textBytes.length;
+		}
+
+		@Override
+		public void close() throws IOException {
+			fContent.close();
+			fEntries.sort((e1, e2) -> e1[0] != e2[0] ? Long.compare(e1[0], e2[0]) : Long.compare(e1[1], e2[1]));
+			try (DataOutputStream index = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(new File(fDirectory, INDEX_FILE_NAME)), 65536))) {
+				index.writeLong(MAGIC);
+				index.writeInt(fFirstCharacterAsUpperCase ? FLAG_FIRST_LETTER : 0);
+				index.writeInt(fEntries.size());
+				for (final long[] entry : fEntries) {
+					index.writeLong(entry[0]);
+					index.writeLong(entry[1]);
+					index.writeInt((int) entry[2]);
+					index.writeInt((int) entry[3]);
+				}
+			}
+		}
+	}
+}
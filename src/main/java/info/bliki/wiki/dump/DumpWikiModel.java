@@ -0,0 +1,44 @@
+package info.bliki.wiki.dump;
+
+import java.util.Locale;
+import java.util.Map;
+
+import info.bliki.wiki.filter.ParsedPageName;
+import info.bliki.wiki.model.Configuration;
+import info.bliki.wiki.model.WikiModel;
+import info.bliki.wiki.model.WikiModelContentException;
+import info.bliki.wiki.namespaces.INamespace;
+
+/**
+ * A wiki model which reads the content of transcluded templates and modules from a {@link DumpTemplateStore}. The
+ * store can be shared by multiple models, for example one model per worker of a {@link ParallelWikiXMLParser}.
+ */
+public class DumpWikiModel extends WikiModel {
+	private final DumpTemplateStore fTemplateStore;
+
+	public DumpWikiModel(DumpTemplateStore templateStore, String imageBaseURL, String linkBaseURL) {
+		super(imageBaseURL, linkBaseURL);
+		fTemplateStore = templateStore;
+	}
+
+	public DumpWikiModel(DumpTemplateStore templateStore, Configuration configuration, Locale locale,
+			INamespace namespace, String imageBaseURL, String linkBaseURL) {
+		super(configuration, locale, namespace, imageBaseURL, linkBaseURL);
+		fTemplateStore = templateStore;
+	}
+
+	public DumpTemplateStore getTemplateStore() {
+		return fTemplateStore;
+	}
+
+	@Override
+	public String getRawWikiContent(ParsedPageName parsedPagename, Map<String, String> templateParameters)
+			throws WikiModelContentException {
+		String result = super.getRawWikiContent(parsedPagename, templateParameters);
+		if (result != null) {
+			// found magic word template
+			return result;
+		}
+		return fTemplateStore.getRawWikiContent(parsedPagename);
+	}
+}
@@ -0,0 +1,26 @@
+package info.bliki.wiki.dump;
+
+import java.io.IOException;
+
+/**
+ * Interface for a worker which transforms a single article of a Wikipedia XML dump file into a result. Used by the
+ * {@link ParallelWikiXMLParser}, where every worker thread owns its own processor instance, so implementations don't
+ * need to be thread-safe and may keep expensive state (for example a <code>WikiModel</code>) between calls.
+ *
+ * @param <T>
+ *            the type of the result
+ */
+public interface IArticleProcessor<T> {
+	/**
+	 * Process a single Wikipedia article
+	 *
+	 * @param article
+	 *            a Wikipedia article
+	 * @param siteinfo
+	 *            the site and namespace information found in the header of a Mediawiki dump. Maybe <code>null</code>
+	 * @return the result which should be passed to the {@link IArticleSink}; maybe <code>null</code>
+	 * @throws IOException
+	 *             throw an IOException for stopping the processing
+	 */
+	T process(WikiArticle article, Siteinfo siteinfo) throws IOException;
+}
@@ -0,0 +1,24 @@
+package info.bliki.wiki.dump;
+
+import java.io.IOException;
+
+/**
+ * Interface for a collector of the results created by the {@link IArticleProcessor} workers of a
+ * {@link ParallelWikiXMLParser}. Calls to a sink are serialized, so implementations don't need to be thread-safe.
+ *
+ * @param <T>
+ *            the type of the result
+ */
+public interface IArticleSink<T> {
+	/**
+	 * Accept the result of a single processed Wikipedia article
+	 *
+	 * @param article
+	 *            the processed Wikipedia article
+	 * @param result
+	 *            the result returned by the {@link IArticleProcessor}; maybe <code>null</code>
+	 * @throws IOException
+	 *             throw an IOException for stopping the processing
+	 */
+	void accept(WikiArticle article, T result) throws IOException;
+}
@@ -1,5 +1,7 @@
 package info.bliki.wiki.dump;
 
+import java.util.Map;
+
 /**
  * A class abstracting a Wiki infobox.
  *
@@ -10,12 +12,24 @@ package info.bliki.wiki.dump;
  */
 public class InfoBox {
 	String infoBoxWikiText = null;
+	Map<String, WikiTextExtractor.Span> parameters;
 
-	InfoBox(String infoBoxWikiText) {
+	InfoBox(String infoBoxWikiText, Map<String, WikiTextExtractor.Span> parameters) {
 		this.infoBoxWikiText = infoBoxWikiText;
+		this.parameters = parameters;
 	}
 
 	public String dumpRaw() {
 		return infoBoxWikiText;
 	}
+
+	/**
+	 * Get the trimmed raw wiki text of the infobox parameters. Positional parameters are numbered starting with
+	 * <code>"1"</code>.
+	 *
+	 * @return the parameters in the order of the infobox
+	 */
+	public Map<String, WikiTextExtractor.Span> getParameters() {
+		return parameters;
+	}
 }
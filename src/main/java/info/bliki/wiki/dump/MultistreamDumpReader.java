@@ -0,0 +1,330 @@
+package info.bliki.wiki.dump;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.xml.sax.SAXException;
+
+/**
+ * Random access and parallel decompression for Wikimedia <i>pages-articles-multistream.xml.bz2</i> dumps.
+ *
+ * A multistream dump is a concatenation of independent bzip2 streams: the first one contains the
+ * <code>&lt;siteinfo&gt;</code> header, each following one typically 100 <code>&lt;page&gt;</code> elements and the
+ * last one the closing <code>&lt;/mediawiki&gt;</code> tag. With the byte offsets from a {@link MultistreamIndex} a
+ * single page can be read with one positional read and the decompression of one small stream, and the whole dump can
+ * be decompressed by multiple threads.
+ *
+ * The reader uses positional reads on a {@link FileChannel} only, so a single instance can be shared by multiple
+ * threads.
+ */
+public class MultistreamDumpReader implements Closeable {
+	private static final byte[] MEDIAWIKI_END = "</mediawiki>".getBytes(UTF_8);
+
+	private final FileChannel fChannel;
+	private final MultistreamIndex fIndex;
+	private final long fFileSize;
+	private volatile byte[] fHeader;
+	private volatile Siteinfo fSiteinfo;
+
+	public MultistreamDumpReader(final File dumpFile, final MultistreamIndex index) throws IOException {
+		fChannel = FileChannel.open(dumpFile.toPath(), StandardOpenOption.READ);
+		fIndex = index;
+		fFileSize = fChannel.size();
+	}
+
+	public MultistreamIndex getIndex() {
+		return fIndex;
+	}
+
+	/**
+	 * @return the site and namespace information found in the first stream of the dump
+	 */
+	public Siteinfo getSiteinfo() throws IOException {
+		Siteinfo siteinfo = fSiteinfo;
+		if (siteinfo == null) {
+			final Siteinfo[] result = new Siteinfo[1];
+			final InputStream header = new SequenceInputStream(new ByteArrayInputStream(getHeader()),
+					new ByteArrayInputStream(MEDIAWIKI_END));
+			parse(header, (article, info) -> {
+				// the header contains no pages
+			}, result);
+			siteinfo = result[0];
+			fSiteinfo = siteinfo;
+		}
+		return siteinfo;
+	}
+
+	/**
+	 * Read all pages of a single stream.
+	 *
+	 * @param streamOrdinal
+	 *            the ordinal of the stream in the range <code>0..getIndex().getStreamCount()-1</code>
+	 */
+	public List<WikiArticle> readStream(final int streamOrdinal) throws IOException {
+		final List<WikiArticle> articles = new ArrayList<>(100);
+		final byte[] pages = decompress(readRegion(fIndex.getStreamOffset(streamOrdinal), streamEnd(streamOrdinal)),
+				false);
+		final List<InputStream> parts = Arrays.asList(new ByteArrayInputStream(getHeader()),
+				new ByteArrayInputStream(pages), new ByteArrayInputStream(MEDIAWIKI_END));
+		parse(new SequenceInputStream(Collections.enumeration(parts)), (article, siteinfo) -> articles.add(article),
+				null);
+		return articles;
+	}
+
+	/**
+	 * @return the page with the given id or <code>null</code> if the id isn't indexed
+	 */
+	@Nullable
+	public WikiArticle getArticle(final long pageId) throws IOException {
+		final int streamOrdinal = fIndex.findStreamById(pageId);
+		if (streamOrdinal < 0) {
+			return null;
+		}
+		final String id = Long.toString(pageId);
+		for (final WikiArticle article : readStream(streamOrdinal)) {
+			if (id.equals(article.getId())) {
+				return article;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @param title
+	 *            the full title of the page including the namespace prefix; underscores are treated as spaces
+	 * @return the page with the given title or <code>null</code> if the title isn't indexed
+	 */
+	@Nullable
+	public WikiArticle getArticle(final String title) throws IOException {
+		final String normalizedTitle = title.replace('_', ' ');
+		int lastStream = -1;
+		for (final long id : fIndex.findIdsByTitle(normalizedTitle)) {
+			final int streamOrdinal = fIndex.findStreamById(id);
+			if (streamOrdinal < 0 || streamOrdinal == lastStream) {
+				continue;
+			}
+			lastStream = streamOrdinal;
+			for (final WikiArticle article : readStream(streamOrdinal)) {
+				if (normalizedTitle.equals(article.getTitle())) {
+					return article;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Open the complete, uncompressed dump as a stream, which is decompressed by the given number of threads. The
+	 * streams are decompressed ahead in a bounded window and returned in the order of the dump, so the result can be
+	 * passed directly to a {@link WikiXMLParser} or a {@link ParallelWikiXMLParser}.
+	 *
+	 * @param threads
+	 *            the number of decompression threads
+	 */
+	public InputStream openParallelInputStream(final int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("invalid number of threads " + threads);
+		}
+		final int streamCount = fIndex.getStreamCount();
+		final long[] boundaries = new long[streamCount + 2];
+		boundaries[0] = 0L;
+		for (int i = 0; i < streamCount; i++) {
+			boundaries[i + 1] = fIndex.getStreamOffset(i);
+		}
+		boundaries[streamCount + 1] = fFileSize;
+		return new ParallelInputStream(boundaries, threads);
+	}
+
+	/**
+	 * Parse the complete dump with the given number of decompression threads. The filter is called in the calling
+	 * thread.
+	 */
+	public void parse(final IArticleFilter filter, final int threads) throws IOException, SAXException {
+		try (InputStream inputStream = openParallelInputStream(threads)) {
+			new WikiXMLParser(inputStream, filter).parse();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		fChannel.close();
+	}
+
+	private byte[] getHeader() throws IOException {
+		byte[] header = fHeader;
+		if (header == null) {
+			final long end = fIndex.getStreamCount() > 0 ? fIndex.getStreamOffset(0) : fFileSize;
+			header = decompress(readRegion(0L, end), false);
+			fHeader = header;
+		}
+		return header;
+	}
+
+	private long streamEnd(final int streamOrdinal) {
+		return streamOrdinal + 1 < fIndex.getStreamCount() ? fIndex.getStreamOffset(streamOrdinal + 1) : fFileSize;
+	}
+
+	private void parse(final InputStream inputStream, final IArticleFilter filter, @Nullable final Siteinfo[] siteinfo)
+			throws IOException {
+		try {
+			final WikiXMLParser parser = new WikiXMLParser(inputStream, filter);
+			parser.parse();
+			if (siteinfo != null) {
+				siteinfo[0] = parser.getSiteinfo();
+			}
+		} catch (final SAXException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * Read the compressed bytes in the range <code>[start, end)</code> with a positional read.
+	 */
+	private byte[] readRegion(final long start, final long end) throws IOException {
+		final long length = end - start;
+		if (length < 0 || length > Integer.MAX_VALUE) {
+			throw new IOException("invalid stream range " + start + "-" + end);
+		}
+		final ByteBuffer buffer = ByteBuffer.allocate((int) length);
+		long position = start;
+		while (buffer.hasRemaining()) {
+			final int count = fChannel.read(buffer, position);
+			if (count < 0) {
+				throw new EOFException("unexpected end of dump at offset " + position);
+			}
+			position += count;
+		}
+		return buffer.array();
+	}
+
+	private static byte[] decompress(final byte[] compressed, final boolean concatenated) throws IOException {
+		try (InputStream inputStream = new BZip2CompressorInputStream(new ByteArrayInputStream(compressed),
+				concatenated)) {
+			final ByteArrayOutputStream result = new ByteArrayOutputStream(compressed.length * 5);
+			final byte[] buffer = new byte[8192];
+			int count;
+			while ((count = inputStream.read(buffer)) >= 0) {
+				result.write(buffer, 0, count);
+			}
+			return result.toByteArray();
+		}
+	}
+
+	/**
+	 * Concatenates the decompressed streams in order, while a thread pool decompresses a bounded window of the
+	 * following streams.
+	 */
+	private final class ParallelInputStream extends InputStream {
+		private final long[] fBoundaries;
+		private final ExecutorService fExecutor;
+		private final Deque<Future<byte[]>> fWindow = new ArrayDeque<>();
+		private final int fWindowSize;
+		private int fNextRegion;
+		private byte[] fCurrent = new byte[0];
+		private int fPosition;
+
+		ParallelInputStream(final long[] boundaries, final int threads) {
+			fBoundaries = boundaries;
+			fWindowSize = threads * 2;
+			fExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+				final Thread thread = new Thread(runnable, "bliki-bzip2-decompressor");
+				thread.setDaemon(true);
+				return thread;
+			});
+			fill();
+		}
+
+		private void fill() {
+			while (fWindow.size() < fWindowSize && fNextRegion < fBoundaries.length - 1) {
+				final long start = fBoundaries[fNextRegion];
+				final long end = fBoundaries[fNextRegion + 1];
+				fNextRegion++;
+				fWindow.add(fExecutor.submit(() -> decompress(readRegion(start, end), true)));
+			}
+		}
+
+		/**
+		 * @return <code>false</code> at the end of the dump
+		 */
+		private boolean next() throws IOException {
+			while (fPosition >= fCurrent.length) {
+				final Future<byte[]> future = fWindow.poll();
+				if (future == null) {
+					return false;
+				}
+				try {
+					fCurrent = future.get();
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("decompression interrupted");
+				} catch (final ExecutionException e) {
+					if (e.getCause() instanceof IOException) {
+						throw (IOException) e.getCause();
+					}
+					throw new IOException(e.getCause());
+				}
+				fPosition = 0;
+				fill();
+			}
+			return true;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (!next()) {
+				return -1;
+			}
+			return fCurrent[fPosition++] & 0xFF;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			if (!next()) {
+				return -1;
+			}
+			final int count = Math.min(len, fCurrent.length - fPosition);
+			System.arraycopy(fCurrent, fPosition, b, off, count);
+			fPosition += count;
+			return count;
+		}
+
+		@Override
+		public int available() {
+			return fCurrent.length - fPosition;
+		}
+
+		@Override
+		public void close() {
+			fExecutor.shutdownNow();
+			fWindow.clear();
+		}
+	}
+}
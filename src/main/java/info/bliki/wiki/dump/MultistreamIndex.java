@@ -0,0 +1,219 @@
+package info.bliki.wiki.dump;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+
+/**
+ * The index of a Wikimedia <i>pages-articles-multistream.xml.bz2</i> dump, read from the accompanying
+ * <i>pages-articles-multistream-index.txt.bz2</i> file. Every line of the index has the format
+ * <code>offset:pageId:title</code>, where <code>offset</code> is the byte offset of the bzip2 stream (typically
+ * containing 100 pages) in the compressed dump file.
+ *
+ * The index is kept in a few sorted <code>long</code> arrays (16 bytes per page), so even the index of a full
+ * Wikipedia dump can be loaded into memory. Titles are stored as hash codes only; {@link #findIdsByTitle(String)}
+ * therefore may return more than one candidate and the caller has to check the title of the page found in the dump.
+ *
+ * @see MultistreamDumpReader
+ */
+public class MultistreamIndex {
+	private final long[] fOffsets;
+	/**
+	 * <code>(pageId &lt;&lt; 32) | streamOrdinal</code>, sorted
+	 */
+	private final long[] fIds;
+	/**
+	 * <code>(titleHash &lt;&lt; 32) | pageId</code>, sorted
+	 */
+	private final long[] fTitles;
+
+	private MultistreamIndex(final long[] offsets, final long[] ids, final long[] titles) {
+		fOffsets = offsets;
+		fIds = ids;
+		fTitles = titles;
+	}
+
+	/**
+	 * Load an index file, which may be compressed with bzip2 if the file name ends with <i>.bz2</i>.
+	 */
+	public static MultistreamIndex load(final File indexFile) throws IOException {
+		return load(indexFile, null);
+	}
+
+	/**
+	 * Load an index file, which may be compressed with bzip2 if the file name ends with <i>.bz2</i>.
+	 *
+	 * @param titleFilter
+	 *            if not <code>null</code> only the titles accepted by this filter are indexed (for example only
+	 *            templates and modules); page ids are always indexed
+	 */
+	public static MultistreamIndex load(final File indexFile, @Nullable final Predicate<String> titleFilter)
+			throws IOException {
+		try (InputStream inputStream = new FileInputStream(indexFile)) {
+			if (indexFile.getName().endsWith(".bz2")) {
+				return load(new BZip2CompressorInputStream(inputStream, true), titleFilter);
+			}
+			return load(inputStream, titleFilter);
+		}
+	}
+
+	/**
+	 * Load an uncompressed index from the given stream. The stream isn't closed.
+	 */
+	public static MultistreamIndex load(final InputStream inputStream, @Nullable final Predicate<String> titleFilter)
+			throws IOException {
+		final LongArray offsets = new LongArray();
+		final LongArray ids = new LongArray();
+		final LongArray titles = new LongArray();
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, UTF_8));
+		String line;
+		int lineNumber = 0;
+		while ((line = reader.readLine()) != null) {
+			lineNumber++;
+			if (line.isEmpty()) {
+				continue;
+			}
+			final int firstColon = line.indexOf(':');
+			final int secondColon = firstColon < 0 ? -1 : line.indexOf(':', firstColon + 1);
+			if (secondColon < 0) {
+				throw new IOException("invalid index line " + lineNumber + ": " + line);
+			}
+			final long offset;
+			final long id;
+			try {
+				offset = Long.parseLong(line.substring(0, firstColon));
+				id = Long.parseLong(line.substring(firstColon + 1, secondColon));
+			} catch (final NumberFormatException nfe) {
+				throw new IOException("invalid index line " + lineNumber + ": " + line);
+			}
+			if (id < 0 || id > Integer.MAX_VALUE) {
+				throw new IOException("page id out of range in index line " + lineNumber + ": " + line);
+			}
+			if (offsets.size == 0 || offsets.last() != offset) {
+				if (offsets.size > 0 && offsets.last() > offset) {
+					throw new IOException("unordered offset in index line " + lineNumber + ": " + line);
+				}
+				offsets.add(offset);
+			}
+			ids.add(id << 32 | (offsets.size - 1));
+			final String title = line.substring(secondColon + 1);
+			if (titleFilter == null || titleFilter.test(title)) {
+				titles.add((long) titleHash(title) << 32 | id);
+			}
+		}
+		final long[] idArray = ids.toArray();
+		Arrays.sort(idArray);
+		final long[] titleArray = titles.toArray();
+		Arrays.sort(titleArray);
+		return new MultistreamIndex(offsets.toArray(), idArray, titleArray);
+	}
+
+	/**
+	 * The hash code of the title with underscores treated as spaces.
+	 */
+	static int titleHash(final String title) {
+		int h = 0;
+		for (int i = 0; i < title.length(); i++) {
+			final char ch = title.charAt(i);
+			h = 31 * h + (ch == '_' ? ' ' : ch);
+		}
+		return h;
+	}
+
+	/**
+	 * @return the number of bzip2 streams containing pages
+	 */
+	public int getStreamCount() {
+		return fOffsets.length;
+	}
+
+	/**
+	 * @return the number of indexed page ids
+	 */
+	public int getPageCount() {
+		return fIds.length;
+	}
+
+	/**
+	 * @param streamOrdinal
+	 *            the ordinal of the stream in the range <code>0..getStreamCount()-1</code>
+	 * @return the byte offset of the stream in the compressed dump file
+	 */
+	public long getStreamOffset(final int streamOrdinal) {
+		return fOffsets[streamOrdinal];
+	}
+
+	/**
+	 * @return the ordinal of the stream containing the given page id or <code>-1</code> if the id isn't indexed.
+	 */
+	public int findStreamById(final long pageId) {
+		if (pageId < 0 || pageId > Integer.MAX_VALUE) {
+			return -1;
+		}
+		int index = Arrays.binarySearch(fIds, pageId << 32);
+		if (index < 0) {
+			index = -index - 1;
+		}
+		if (index < fIds.length && fIds[index] >>> 32 == pageId) {
+			return (int) fIds[index];
+		}
+		return -1;
+	}
+
+	/**
+	 * Find the candidate page ids for a title; underscores are treated as spaces. Because only the hash codes of the
+	 * titles are stored, the result may contain ids of pages with other titles.
+	 *
+	 * @return the candidate page ids, an empty array if the title isn't indexed
+	 */
+	public long[] findIdsByTitle(final String title) {
+		final long hash = (long) titleHash(title) << 32;
+		int index = Arrays.binarySearch(fTitles, hash);
+		if (index < 0) {
+			index = -index - 1;
+		}
+		int end = index;
+		while (end < fTitles.length && (fTitles[end] & 0xFFFFFFFF00000000L) == hash) {
+			end++;
+		}
+		final long[] result = new long[end - index];
+		for (int i = index; i < end; i++) {
+			result[i - index] = fTitles[i] & 0xFFFFFFFFL;
+		}
+		return result;
+	}
+
+	/**
+	 * A growable array of primitive <code>long</code> values.
+	 */
+	private static final class LongArray {
+		long[] values = new long[1024];
+		int size;
+
+		void add(final long value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size + (size >> 1));
+			}
+			values[size++] = value;
+		}
+
+		long last() {
+			return values[size - 1];
+		}
+
+		long[] toArray() {
+			return Arrays.copyOf(values, size);
+		}
+	}
+}
@@ -0,0 +1,325 @@
+package info.bliki.wiki.dump;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import javax.annotation.Nullable;
+
+import org.xml.sax.SAXException;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A pipelined, multi-threaded Wikipedia XML dump file parser.
+ *
+ * The calling thread decompresses and parses the XML dump with a {@link WikiXMLParser} and hands every article over to
+ * a pool of worker threads. Every worker owns its own {@link IArticleProcessor} (created by the given factory), so
+ * expensive, non thread-safe objects like a <code>WikiModel</code> can be reused for all articles processed by that
+ * worker. The results are passed to an optional {@link IArticleSink}, either in the order of the dump or in the order
+ * of completion.
+ *
+ * The number of articles which are queued, processed or waiting to be passed to the sink in dump order is limited by
+ * the <code>queueCapacity</code>, so the XML parsing thread blocks if the workers can't keep up. The first exception
+ * thrown by a processor or by the sink stops the XML parsing and is rethrown from {@link #parse()}.
+ *
+ * @param <T>
+ *            the type of the results created by the processors
+ */
+public class ParallelWikiXMLParser<T> {
+	/**
+	 * Default number of articles in flight per worker thread
+	 */
+	public static final int DEFAULT_QUEUE_CAPACITY_PER_THREAD = 4;
+
+	private static final long POLL_MILLIS = 100L;
+
+	private final Reader fReader;
+	private final Supplier<? extends IArticleProcessor<T>> fProcessorFactory;
+	private final IArticleSink<T> fSink;
+	private final int fThreads;
+	private final int fQueueCapacity;
+	private final boolean fOrdered;
+
+	/**
+	 * Create a parser with one worker per available processor.
+	 *
+	 * @param filename
+	 *            the dump file; compressed with gzip or bzip2 if the name ends with <i>.gz</i> or <i>.bz2</i>
+	 * @param processorFactory
+	 *            creates one processor per worker thread
+	 * @param sink
+	 *            collects the results; maybe <code>null</code>
+	 * @param ordered
+	 *            if <code>true</code> the results are passed to the sink in the order of the dump
+	 */
+	public ParallelWikiXMLParser(final File filename, final Supplier<? extends IArticleProcessor<T>> processorFactory,
+			@Nullable final IArticleSink<T> sink, final boolean ordered) throws IOException {
+		this(WikiXMLParser.getReader(filename), processorFactory, sink, Runtime.getRuntime().availableProcessors(),
+				Runtime.getRuntime().availableProcessors() * DEFAULT_QUEUE_CAPACITY_PER_THREAD, ordered);
+	}
+
+	public ParallelWikiXMLParser(final File filename, final Supplier<? extends IArticleProcessor<T>> processorFactory,
+			@Nullable final IArticleSink<T> sink, final int threads, final int queueCapacity, final boolean ordered)
+			throws IOException {
+		this(WikiXMLParser.getReader(filename), processorFactory, sink, threads, queueCapacity, ordered);
+	}
+
+	public ParallelWikiXMLParser(final InputStream inputStream,
+			final Supplier<? extends IArticleProcessor<T>> processorFactory, @Nullable final IArticleSink<T> sink,
+			final int threads, final int queueCapacity, final boolean ordered) {
+		this(new BufferedReader(new InputStreamReader(inputStream, UTF_8)), processorFactory, sink, threads,
+				queueCapacity, ordered);
+	}
+
+	/**
+	 * @param reader
+	 *            the reader for the XML dump
+	 * @param processorFactory
+	 *            creates one processor per worker thread
+	 * @param sink
+	 *            collects the results; maybe <code>null</code>
+	 * @param threads
+	 *            the number of worker threads
+	 * @param queueCapacity
+	 *            the maximum number of articles in flight between the XML parsing thread and the sink
+	 * @param ordered
+	 *            if <code>true</code> the results are passed to the sink in the order of the dump
+	 */
+	public ParallelWikiXMLParser(final Reader reader, final Supplier<? extends IArticleProcessor<T>> processorFactory,
+			@Nullable final IArticleSink<T> sink, final int threads, final int queueCapacity, final boolean ordered) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("invalid number of threads " + threads);
+		}
+		if (queueCapacity < 1) {
+			throw new IllegalArgumentException("invalid queue capacity " + queueCapacity);
+		}
+		fReader = reader;
+		fProcessorFactory = processorFactory;
+		fSink = sink;
+		fThreads = threads;
+		fQueueCapacity = queueCapacity;
+		fOrdered = ordered;
+	}
+
+	/**
+	 * Parse the dump and wait until all articles are processed and passed to the sink.
+	 *
+	 * @throws IOException
+	 *             if reading the dump failed or a processor or the sink threw an <code>IOException</code>
+	 * @throws SAXException
+	 *             if the dump isn't well-formed XML
+	 */
+	public void parse() throws IOException, SAXException {
+		final Pipeline pipeline = new Pipeline();
+		pipeline.start();
+		Exception parserException = null;
+		try {
+			new WikiXMLParser(fReader, pipeline).parse();
+		} catch (IOException | SAXException | RuntimeException e) {
+			parserException = e;
+		} finally {
+			pipeline.shutdown(parserException != null);
+		}
+		final Throwable failure = pipeline.fFailure.get();
+		if (failure != null) {
+			rethrow(failure);
+		}
+		if (parserException != null) {
+			rethrow(parserException);
+		}
+	}
+
+	private static void rethrow(final Throwable throwable) throws IOException, SAXException {
+		if (throwable instanceof IOException) {
+			throw (IOException) throwable;
+		} else if (throwable instanceof SAXException) {
+			throw (SAXException) throwable;
+		} else if (throwable instanceof RuntimeException) {
+			throw (RuntimeException) throwable;
+		} else if (throwable instanceof Error) {
+			throw (Error) throwable;
+		} else if (throwable instanceof InterruptedException) {
+			final InterruptedIOException iioe = new InterruptedIOException("dump processing interrupted");
+			iioe.initCause(throwable);
+			throw iioe;
+		}
+		throw new IOException(throwable);
+	}
+
+	/**
+	 * A single article passed from the XML parsing thread to the workers.
+	 */
+	private static final class Task<T> {
+		final long sequence;
+		final WikiArticle article;
+		final Siteinfo siteinfo;
+		T result;
+
+		Task(final long sequence, final WikiArticle article, final Siteinfo siteinfo) {
+			this.sequence = sequence;
+			this.article = article;
+			this.siteinfo = siteinfo;
+		}
+	}
+
+	/**
+	 * The article filter for the XML parsing thread, which dispatches the articles to the worker threads.
+	 */
+	private final class Pipeline implements IArticleFilter {
+		private final Task<T> fPoison = new Task<>(-1L, null, null);
+		private final BlockingQueue<Task<T>> fQueue = new LinkedBlockingQueue<>();
+		private final Semaphore fPermits = new Semaphore(fQueueCapacity);
+		private final AtomicReference<Throwable> fFailure = new AtomicReference<>();
+		private volatile boolean fAborted;
+		private final List<Thread> fWorkers = new ArrayList<>(fThreads);
+		private final Object fSinkLock = new Object();
+		private final Map<Long, Task<T>> fPending = new HashMap<>();
+		private long fNextSequence;
+		private long fNextEmit;
+
+		void start() {
+			for (int i = 0; i < fThreads; i++) {
+				final Thread worker = new Thread(this::work, "bliki-dump-worker-" + i);
+				worker.setDaemon(true);
+				fWorkers.add(worker);
+				worker.start();
+			}
+		}
+
+		@Override
+		public void process(final WikiArticle article, final Siteinfo siteinfo) throws IOException {
+			try {
+				while (!fPermits.tryAcquire(POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+					checkFailure();
+				}
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				fail(e);
+				throw new InterruptedIOException("dump processing interrupted");
+			}
+			checkFailure();
+			// the XML parser reuses the article for all revisions of a page
+			fQueue.add(new Task<>(fNextSequence++, new WikiArticle(article), siteinfo));
+		}
+
+		private void checkFailure() throws IOException {
+			if (fFailure.get() != null) {
+				throw new IOException("dump processing stopped by a worker failure", fFailure.get());
+			}
+		}
+
+		private boolean isStopped() {
+			return fAborted || fFailure.get() != null;
+		}
+
+		private void fail(final Throwable throwable) {
+			fFailure.compareAndSet(null, throwable);
+		}
+
+		/**
+		 * Stop the workers after the queued articles are processed (or skipped, if <code>abort</code> is set) and wait
+		 * for their termination.
+		 */
+		void shutdown(final boolean abort) throws InterruptedIOException {
+			fAborted = abort;
+			for (int i = 0; i < fWorkers.size(); i++) {
+				fQueue.add(fPoison);
+			}
+			boolean interrupted = false;
+			for (final Thread worker : fWorkers) {
+				while (worker.isAlive()) {
+					try {
+						worker.join();
+					} catch (final InterruptedException e) {
+						// stop the remaining work as fast as possible, but don't leave the workers behind
+						fail(e);
+						interrupted = true;
+					}
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		private void work() {
+			try {
+				final IArticleProcessor<T> processor = fProcessorFactory.get();
+				while (true) {
+					final Task<T> task = fQueue.take();
+					if (task == fPoison) {
+						return;
+					}
+					if (isStopped()) {
+						fPermits.release();
+						continue;
+					}
+					task.result = processor.process(task.article, task.siteinfo);
+					complete(task);
+				}
+			} catch (final Throwable e) {
+				fail(e);
+				// unblock the XML parsing thread; the remaining articles are skipped
+				fPermits.release(fQueueCapacity);
+				drain();
+			}
+		}
+
+		/**
+		 * Skip all articles until this worker receives its poison pill.
+		 */
+		private void drain() {
+			try {
+				while (fQueue.take() != fPoison) {
+					// skip
+				}
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		private void complete(final Task<T> task) throws IOException {
+			synchronized (fSinkLock) {
+				if (!fOrdered) {
+					emit(task);
+					return;
+				}
+				fPending.put(task.sequence, task);
+				Task<T> next;
+				while ((next = fPending.remove(fNextEmit)) != null) {
+					fNextEmit++;
+					if (!isStopped()) {
+						emit(next);
+					} else {
+						fPermits.release();
+					}
+				}
+			}
+		}
+
+		private void emit(final Task<T> task) throws IOException {
+			try {
+				if (fSink != null) {
+					fSink.accept(task.article, task.result);
+				}
+			} finally {
+				fPermits.release();
+			}
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package info.bliki.wiki.dump;
+
+import java.io.IOException;
+
+import info.bliki.wiki.filter.PlainTextExtractor;
+import info.bliki.wiki.model.WikiModel;
+
+/**
+ * An article processor for the {@link ParallelWikiXMLParser} which converts the articles of the main namespace into
+ * plain text with a {@link PlainTextExtractor}. Redirects and articles of other namespaces are skipped (the result is
+ * <code>null</code>).
+ *
+ * Example which writes the plain text of all articles of a dump:
+ *
+ * <pre>
+ * new ParallelWikiXMLParser&lt;&gt;(dumpFile, PlainTextArticleProcessor::new, (article, text) -&gt; {
+ * 	if (text != null) {
+ * 		writer.write(text);
+ * 	}
+ * }, true).parse();
+ * </pre>
+ */
+public class PlainTextArticleProcessor implements IArticleProcessor<String> {
+	private static final String REDIRECT = "#REDIRECT";
+
+	private final PlainTextExtractor fExtractor;
+
+	private final StringBuilder fBuffer = new StringBuilder();
+
+	/**
+	 * Create a processor which drops templates, tables and references.
+	 */
+	public PlainTextArticleProcessor() {
+		this(new PlainTextExtractor(new WikiModel("${image}", "${title}")));
+	}
+
+	/**
+	 * @param extractor
+	 *            the extractor owned by this processor
+	 */
+	public PlainTextArticleProcessor(PlainTextExtractor extractor) {
+		fExtractor = extractor;
+	}
+
+	@Override
+	public String process(WikiArticle article, Siteinfo siteinfo) throws IOException {
+		final String text = article.getText();
+		if (text == null || !article.isMain() || text.regionMatches(true, 0, REDIRECT, 0, REDIRECT.length())) {
+			return null;
+		}
+		fBuffer.setLength(0);
+		fExtractor.extract(text, fBuffer);
+		return fBuffer.toString();
+	}
+}
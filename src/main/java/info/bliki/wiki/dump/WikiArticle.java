@@ -20,6 +20,22 @@ public class WikiArticle {
 
 	}
 
+	/**
+	 * Create a copy of an article.
+	 *
+	 * @param article
+	 *            the article to copy
+	 */
+	public WikiArticle(WikiArticle article) {
+		id = article.id;
+		integerNamespace = article.integerNamespace;
+		namespace = article.namespace;
+		revisionId = article.revisionId;
+		text = article.text;
+		timeStamp = article.timeStamp;
+		title = article.title;
+	}
+
 	/**
 	 * @return the id
 	 */
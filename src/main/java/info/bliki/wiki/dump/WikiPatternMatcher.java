@@ -2,12 +2,11 @@ package info.bliki.wiki.dump;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  *
- * Can be used as a stand alone class to pattern match parts of the wiki formatted text.
+ * Can be used as a stand alone class to pattern match parts of the wiki formatted text. The redirect, links,
+ * categories and templates are extracted in a single pass with a {@link WikiTextExtractor}.
  *
  *
  * Copied and modified from the <a href="https://code.google.com/p/wikixmlj/">WikiXMLJ project</a>.
@@ -18,6 +17,7 @@ import java.util.regex.Pattern;
 public class WikiPatternMatcher {
 
 	private String wikiText = null;
+	private final WikiTextExtractor extractor;
 	private List<String> pageCats = null;
 	private List<String> pageLinks = null;
 	private boolean redirect = false;
@@ -25,26 +25,31 @@ public class WikiPatternMatcher {
 	private boolean stub = false;
 	private boolean disambiguation = false;
 
-	private final static Pattern REDIRECT_PATTERN = Pattern.compile("#REDIRECT\\s+\\[\\[(.*?)\\]\\]");
-	private final static Pattern STUB_PATTERN = Pattern.compile("\\-stub\\}\\}");
-	private final static Pattern DISAMB_TEMPLATE_PATTERN = Pattern.compile("\\{\\{disambig\\}\\}");
-	private final static Pattern CATEGORY_PATTERN = Pattern.compile("\\[\\[Category:(.*?)\\]\\]", Pattern.MULTILINE);
-	private final static Pattern LINKS_PATTERN = Pattern.compile("\\[\\[(.*?)\\]\\]", Pattern.MULTILINE);
-
 	private InfoBox infoBox = null;
 
 	public WikiPatternMatcher(String wtext) {
+		this(wtext, new WikiTextExtractor(wtext));
+	}
+
+	/**
+	 * Match the wiki text with the (localized) namespace names of a dump.
+	 */
+	public WikiPatternMatcher(String wtext, Siteinfo siteinfo) {
+		this(wtext, new WikiTextExtractor(wtext, siteinfo));
+	}
+
+	private WikiPatternMatcher(String wtext, WikiTextExtractor extractor) {
 		wikiText = wtext;
-		Matcher matcher = REDIRECT_PATTERN.matcher(wikiText);
-		if (matcher.find()) {
+		this.extractor = extractor;
+		final WikiTextExtractor.Span redirectTarget = extractor.getRedirect();
+		if (redirectTarget != null) {
 			redirect = true;
-			if (matcher.groupCount() == 1)
-				redirectString = matcher.group(1);
+			redirectString = redirectTarget.toString();
+		}
+		for (WikiTextExtractor.Span templateName : extractor.getTemplateNames()) {
+			stub |= templateName.endsWithIgnoreCase("-stub");
+			disambiguation |= templateName.equalsIgnoreCase("disambig");
 		}
-		matcher = STUB_PATTERN.matcher(wikiText);
-		stub = matcher.find();
-		matcher = DISAMB_TEMPLATE_PATTERN.matcher(wikiText);
-		disambiguation = matcher.find();
 	}
 
 	public boolean isRedirect() {
@@ -65,40 +70,36 @@ public class WikiPatternMatcher {
 
 	public List<String> getCategories() {
 		if (pageCats == null)
-			parseCategories();
+			pageCats = toStrings(extractor.getCategories());
 		return pageCats;
 	}
 
 	public List<String> getLinks() {
 		if (pageLinks == null)
-			parseLinks();
+			pageLinks = toStrings(extractor.getLinks());
 		return pageLinks;
 	}
 
-	private void parseCategories() {
-		pageCats = new ArrayList<>();
-		// Pattern catPattern = Pattern.compile("\\[\\[Category:(.*?)\\]\\]",
-		// Pattern.MULTILINE);
-		Matcher matcher = CATEGORY_PATTERN.matcher(wikiText);
-		while (matcher.find()) {
-			String[] temp = matcher.group(1).split("\\|");
-			pageCats.add(temp[0]);
-		}
+	/**
+	 * @return the names of all templates used in the wiki text
+	 */
+	public List<String> getTemplateNames() {
+		return toStrings(extractor.getTemplateNames());
 	}
 
-	private void parseLinks() {
-		pageLinks = new ArrayList<>();
+	/**
+	 * @return the extractor which holds the offset based results of the scan
+	 */
+	public WikiTextExtractor getExtractor() {
+		return extractor;
+	}
 
-		Matcher matcher = LINKS_PATTERN.matcher(wikiText);
-		while (matcher.find()) {
-			String[] temp = matcher.group(1).split("\\|");
-			if (temp == null || temp.length == 0)
-				continue;
-			String link = temp[0];
-			if (link.contains(":") == false) {
-				pageLinks.add(link);
-			}
+	private static List<String> toStrings(List<WikiTextExtractor.Span> spans) {
+		final List<String> result = new ArrayList<>(spans.size());
+		for (WikiTextExtractor.Span span : spans) {
+			result.add(span.toString());
 		}
+		return result;
 	}
 
 	/**
@@ -140,35 +141,10 @@ public class WikiPatternMatcher {
 	 * @return <code>null</code> if the Infobox template wasn't found.
 	 */
 	private InfoBox parseInfoBox() {
-		String INFOBOX_CONST_STR = "{{Infobox";
-		int startPos = wikiText.indexOf(INFOBOX_CONST_STR);
-		if (startPos < 0)
+		final WikiTextExtractor.Span span = extractor.getInfoBox();
+		if (span == null)
 			return null;
-		int bracketCount = 2;
-		int endPos = startPos + INFOBOX_CONST_STR.length();
-
-		if (endPos >= wikiText.length()) {
-			return null;
-		}
-		for (; endPos < wikiText.length(); endPos++) {
-			switch (wikiText.charAt(endPos)) {
-			case '}':
-				bracketCount--;
-				break;
-			case '{':
-				bracketCount++;
-				break;
-			default:
-			}
-			if (bracketCount == 0)
-				break;
-		}
-		String infoBoxText;
-		if (endPos >= wikiText.length()) {
-			infoBoxText = wikiText.substring(startPos);
-		} else {
-			infoBoxText = wikiText.substring(startPos, endPos + 1);
-		}
+		String infoBoxText = span.toString();
 		infoBoxText = stripCite(infoBoxText); // strip clumsy {{cite}} tags
 		// strip any html formatting
 		infoBoxText = infoBoxText.replaceAll("&gt;", ">");
@@ -176,7 +152,7 @@ public class WikiPatternMatcher {
 		infoBoxText = infoBoxText.replaceAll("<ref.*?>.*?</ref>", " ");
 		infoBoxText = infoBoxText.replaceAll("</?.*?>", " ");
 
-		return new InfoBox(infoBoxText);
+		return new InfoBox(infoBoxText, extractor.getInfoBoxParameters());
 	}
 
 	private String stripCite(String text) {
@@ -208,10 +184,11 @@ public class WikiPatternMatcher {
 	}
 
 	public String getTranslatedTitle(String languageCode) {
-		Pattern translatePattern = Pattern.compile("^\\[\\[" + languageCode + ":(.*?)\\]\\]$", Pattern.MULTILINE);
-		Matcher matcher = translatePattern.matcher(wikiText);
-		if (matcher.find()) {
-			return matcher.group(1);
+		final String prefix = languageCode + ":";
+		for (WikiTextExtractor.Span link : extractor.getInterwikiLinks()) {
+			if (link.startsWithIgnoreCase(prefix)) {
+				return link.subSequence(prefix.length(), link.length()).toString();
+			}
 		}
 		return null;
 	}
@@ -0,0 +1,391 @@
+package info.bliki.wiki.dump;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import info.bliki.wiki.filter.WikipediaScanner;
+import info.bliki.wiki.namespaces.INamespace;
+import info.bliki.wiki.namespaces.INamespace.INamespaceValue;
+import info.bliki.wiki.namespaces.INamespace.NamespaceCode;
+import info.bliki.wiki.namespaces.Namespace;
+
+/**
+ * Extracts the redirect target, the links, the categories, the template names and the parameters of the first infobox
+ * from the raw wiki text of an article in a single pass. All results are {@link Span}s which refer to the scanned
+ * character array, so no strings are created unless a span is converted with {@link Span#toString()}.
+ *
+ * Namespace prefixes are resolved with the namespaces of the dump, so localized category names are recognized if the
+ * extractor is created with the {@link Siteinfo} of the dump. Like in Mediawiki the canonical (english) namespace
+ * names are recognized in every wiki. HTML comments and &lt;nowiki&gt; sections are skipped.
+ *
+ * @see WikiPatternMatcher
+ */
+public class WikiTextExtractor {
+	private static final INamespace CANONICAL_NAMESPACE = Namespace.getSharedInstance(Locale.ENGLISH);
+
+	/**
+	 * A region of the scanned character array.
+	 */
+	public static final class Span implements CharSequence {
+		private final char[] fSource;
+		private final int fStart;
+		private final int fEnd;
+
+		Span(char[] source, int start, int end) {
+			fSource = source;
+			fStart = start;
+			fEnd = end;
+		}
+
+		/**
+		 * @return the start offset in the scanned text
+		 */
+		public int getStart() {
+			return fStart;
+		}
+
+		/**
+		 * @return the end offset in the scanned text (exclusive)
+		 */
+		public int getEnd() {
+			return fEnd;
+		}
+
+		@Override
+		public int length() {
+			return fEnd - fStart;
+		}
+
+		@Override
+		public char charAt(int index) {
+			return fSource[fStart + index];
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			return new Span(fSource, fStart + start, fStart + end);
+		}
+
+		/**
+		 * @return <code>true</code> if this span is equal to the given string, ignoring the case of the characters
+		 */
+		public boolean equalsIgnoreCase(String str) {
+			return length() == str.length() && regionMatches(0, str);
+		}
+
+		/**
+		 * @return <code>true</code> if this span starts with the given string, ignoring the case of the characters
+		 */
+		public boolean startsWithIgnoreCase(String str) {
+			return length() >= str.length() && regionMatches(0, str);
+		}
+
+		/**
+		 * @return <code>true</code> if this span ends with the given string, ignoring the case of the characters
+		 */
+		public boolean endsWithIgnoreCase(String str) {
+			return length() >= str.length() && regionMatches(length() - str.length(), str);
+		}
+
+		private boolean regionMatches(int offset, String str) {
+			for (int i = 0; i < str.length(); i++) {
+				final char ch = fSource[fStart + offset + i];
+				final char strChar = str.charAt(i);
+				if (ch != strChar && Character.toLowerCase(ch) != Character.toLowerCase(strChar)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public String toString() {
+			return new String(fSource, fStart, fEnd - fStart);
+		}
+	}
+
+	private static final String REDIRECT = "#REDIRECT";
+	private static final String INFOBOX = "Infobox";
+
+	private final char[] fSource;
+	private final INamespace fNamespace;
+
+	private Span fRedirect = null;
+	private final List<Span> fLinks = new ArrayList<>();
+	private final List<Span> fInterwikiLinks = new ArrayList<>();
+	private final List<Span> fCategories = new ArrayList<>();
+	private final List<Span> fTemplateNames = new ArrayList<>();
+	private Span fInfoBox = null;
+	private Map<String, Span> fInfoBoxParameters = Collections.emptyMap();
+
+	/**
+	 * Scan the wiki text with the default (english) namespaces.
+	 */
+	public WikiTextExtractor(String wikiText) {
+		this(wikiText.toCharArray(), CANONICAL_NAMESPACE);
+	}
+
+	/**
+	 * Scan the wiki text with the namespaces of a dump.
+	 */
+	public WikiTextExtractor(String wikiText, Siteinfo siteinfo) {
+		this(wikiText.toCharArray(), siteinfo.getNamespace());
+	}
+
+	/**
+	 * @param source
+	 *            the wiki text, which isn't copied
+	 * @param namespace
+	 *            the namespaces of the wiki
+	 */
+	public WikiTextExtractor(char[] source, INamespace namespace) {
+		fSource = source;
+		fNamespace = namespace;
+		scan();
+	}
+
+	/**
+	 * @return the target of a <code>#REDIRECT [[...]]</code> or <code>null</code> if the text isn't a redirect
+	 */
+	@Nullable
+	public Span getRedirect() {
+		return fRedirect;
+	}
+
+	/**
+	 * @return the targets of the links to pages without namespace or interwiki prefix, in the order of the text
+	 */
+	public List<Span> getLinks() {
+		return fLinks;
+	}
+
+	/**
+	 * @return the targets of links with a prefix which isn't a namespace, for example language links like
+	 *         <code>[[de:Hallo]]</code>
+	 */
+	public List<Span> getInterwikiLinks() {
+		return fInterwikiLinks;
+	}
+
+	/**
+	 * @return the category names (without namespace prefix and sort key) of the text
+	 */
+	public List<Span> getCategories() {
+		return fCategories;
+	}
+
+	/**
+	 * @return the names of all templates called in the text, including nested templates
+	 */
+	public List<Span> getTemplateNames() {
+		return fTemplateNames;
+	}
+
+	/**
+	 * @return the complete first template whose name starts with <i>Infobox</i> including the braces or
+	 *         <code>null</code>
+	 */
+	@Nullable
+	public Span getInfoBox() {
+		return fInfoBox;
+	}
+
+	/**
+	 * @return the trimmed named and positional parameters of the first infobox; positional parameters are numbered
+	 *         starting with <code>"1"</code>
+	 */
+	public Map<String, Span> getInfoBoxParameters() {
+		return fInfoBoxParameters;
+	}
+
+	private void scan() {
+		int position = skipWhitespace(0, fSource.length);
+		if (startsWithIgnoreCase(position, REDIRECT)) {
+			position = skipWhitespace(position + REDIRECT.length(), fSource.length);
+			if (position < fSource.length && fSource[position] == ':') {
+				position = skipWhitespace(position + 1, fSource.length);
+			}
+			if (startsWith(position, "[[")) {
+				final int end = WikipediaScanner.findNestedEnd(fSource, '[', ']', position + 2);
+				if (end > 0) {
+					fRedirect = trim(position + 2, indexOfPipe(position + 2, end - 2));
+				}
+			}
+		}
+		while (position < fSource.length) {
+			final char ch = fSource[position];
+			if (ch == '<') {
+				position = skipComment(position);
+			} else if (ch == '[' && startsWith(position, "[[")) {
+				position = scanLink(position + 2);
+			} else if (ch == '{' && startsWith(position, "{{")) {
+				position = scanTemplate(position);
+			} else {
+				position++;
+			}
+		}
+	}
+
+	private int skipComment(int position) {
+		if (startsWith(position, "<!--")) {
+			final int end = indexOf("-->", position + 4);
+			return end < 0 ? fSource.length : end + 3;
+		}
+		if (startsWithIgnoreCase(position, "<nowiki>")) {
+			final int end = indexOf("</nowiki>", position + 8);
+			return end < 0 ? position + 8 : end + 9;
+		}
+		return position + 1;
+	}
+
+	private int scanLink(int rawStart) {
+		final int end = WikipediaScanner.findNestedEnd(fSource, '[', ']', rawStart);
+		if (end < 0) {
+			return rawStart;
+		}
+		final int targetEnd = indexOfPipe(rawStart, end - 2);
+		final Span target = trim(rawStart, targetEnd);
+		if (target.length() == 0 || target.charAt(0) == ':') {
+			// link to a category or file page
+			return end;
+		}
+		int colon = target.getStart();
+		while (colon < target.getEnd() && fSource[colon] != ':') {
+			colon++;
+		}
+		if (colon == target.getEnd()) {
+			fLinks.add(target);
+			return end;
+		}
+		final Span prefix = trim(target.getStart(), colon);
+		final String prefixText = prefix.toString();
+		INamespaceValue namespace = fNamespace.getNamespace(prefixText);
+		if (namespace == null && fNamespace != CANONICAL_NAMESPACE) {
+			namespace = CANONICAL_NAMESPACE.getNamespace(prefixText);
+		}
+		if (namespace == null) {
+			fInterwikiLinks.add(target);
+		} else if (namespace.getCode() == NamespaceCode.CATEGORY_NAMESPACE_KEY) {
+			fCategories.add(trim(colon + 1, target.getEnd()));
+		} else if (namespace.getCode() == NamespaceCode.FILE_NAMESPACE_KEY) {
+			// the caption may contain links
+			return targetEnd;
+		}
+		return end;
+	}
+
+	private int scanTemplate(int position) {
+		if (startsWith(position, "{{{")) {
+			// template parameter
+			return position + 3;
+		}
+		final int rawStart = position + 2;
+		final int end = WikipediaScanner.findNestedTemplateEnd(fSource, rawStart);
+		if (end < 0) {
+			return rawStart;
+		}
+		final int rawEnd = end - 2;
+		final int nameEnd = indexOfPipe(rawStart, rawEnd);
+		final Span name = trim(rawStart, nameEnd);
+		fTemplateNames.add(name);
+		if (fInfoBox == null && name.startsWithIgnoreCase(INFOBOX)) {
+			fInfoBox = new Span(fSource, position, end);
+			fInfoBoxParameters = parseParameters(nameEnd, rawEnd);
+		}
+		// template parameters may contain links and templates
+		return rawStart;
+	}
+
+	private Map<String, Span> parseParameters(int position, int rawEnd) {
+		final Map<String, Span> parameters = new LinkedHashMap<>();
+		int positionalIndex = 1;
+		while (position < rawEnd && fSource[position] == '|') {
+			final int parameterStart = position + 1;
+			final int parameterEnd = indexOfPipe(parameterStart, rawEnd);
+			int equals = parameterStart;
+			int level = 0;
+			while (equals < parameterEnd && (fSource[equals] != '=' || level > 0)) {
+				final char ch = fSource[equals++];
+				if (ch == '{' || ch == '[') {
+					level++;
+				} else if ((ch == '}' || ch == ']') && level > 0) {
+					level--;
+				}
+			}
+			if (equals < parameterEnd) {
+				parameters.put(trim(parameterStart, equals).toString(), trim(equals + 1, parameterEnd));
+			} else {
+				parameters.put(Integer.toString(positionalIndex++), trim(parameterStart, parameterEnd));
+			}
+			position = parameterEnd;
+		}
+		return Collections.unmodifiableMap(parameters);
+	}
+
+	/**
+	 * @return the position of the next <code>|</code> which isn't nested in a link or template, or <code>end</code>
+	 */
+	private int indexOfPipe(int position, int end) {
+		while (position < end) {
+			final char ch = fSource[position];
+			if (ch == '|') {
+				return position;
+			}
+			int nestedEnd = -1;
+			if (ch == '[' && startsWith(position, "[[")) {
+				nestedEnd = WikipediaScanner.findNestedEnd(fSource, '[', ']', position + 2);
+			} else if (ch == '{' && startsWith(position, "{{")) {
+				nestedEnd = WikipediaScanner.findNestedTemplateEnd(fSource, position + 2);
+			}
+			position = nestedEnd > position && nestedEnd <= end ? nestedEnd : position + 1;
+		}
+		return end;
+	}
+
+	private Span trim(int start, int end) {
+		start = skipWhitespace(start, end);
+		while (end > start && Character.isWhitespace(fSource[end - 1])) {
+			end--;
+		}
+		return new Span(fSource, start, end);
+	}
+
+	private int skipWhitespace(int position, int end) {
+		while (position < end && Character.isWhitespace(fSource[position])) {
+			position++;
+		}
+		return position;
+	}
+
+	private int indexOf(String str, int position) {
+		for (int i = position; i <= fSource.length - str.length(); i++) {
+			if (startsWith(i, str)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private boolean startsWith(int position, String prefix) {
+		if (position + prefix.length() > fSource.length) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length(); i++) {
+			if (fSource[position + i] != prefix.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean startsWithIgnoreCase(int position, String prefix) {
+		return position + prefix.length() <= fSource.length
+				&& new Span(fSource, position, position + prefix.length()).equalsIgnoreCase(prefix);
+	}
+}
@@ -25,6 +25,9 @@ import lombok.extern.slf4j.Slf4j;
 /**
  * A Wikipedia XML dump file parser
  *
+ * The articles are passed to the {@link IArticleFilter} synchronously in the XML parsing thread. See
+ * {@link ParallelWikiXMLParser} for processing the articles with multiple worker threads.
+ *
  * Original version with permission from Marco Schmidt. See:
  * <a href="https://schmidt.devlib.org/software/lucene-wikipedia.html"
  * >https://schmidt.devlib.org/software/lucene-wikipedia.html</a>
@@ -74,6 +77,9 @@ public class WikiXMLParser extends DefaultHandler {
 	}
 
 	/**
+	 * Wraps the whole file in a single decompressing stream. For random access and parallel decompression of
+	 * <i>multistream</i> dumps see {@link MultistreamDumpReader}.
+	 *
 	 * @return a Reader created from wikiDumpFilename
 	 * @throws java.io.IOException
 	 */
@@ -195,6 +201,14 @@ public class WikiXMLParser extends DefaultHandler {
 		fData.append(ch, start, length);
 	}
 
+	/**
+	 * @return the site and namespace information parsed from the header of the dump; <code>null</code> if no header
+	 *         was parsed yet
+	 */
+	public Siteinfo getSiteinfo() {
+		return fSiteinfo;
+	}
+
 	public void parse() throws IOException, SAXException {
 		fXMLReader.parse(new InputSource(fReader));
 	}
@@ -0,0 +1,582 @@
+package info.bliki.wiki.filter;
+
+import static info.bliki.wiki.filter.WikipediaEventScanner.indexEndOfTable;
+import static info.bliki.wiki.filter.WikipediaEventScanner.indexEndOfWikiLink;
+import static info.bliki.wiki.filter.WikipediaEventScanner.indexOf;
+import static info.bliki.wiki.filter.WikipediaEventScanner.indexOfEndTag;
+import static info.bliki.wiki.filter.WikipediaEventScanner.isTagNameEnd;
+import static info.bliki.wiki.filter.WikipediaEventScanner.startsWith;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+
+import info.bliki.wiki.model.IWikiModel;
+import info.bliki.wiki.namespaces.INamespace.INamespaceValue;
+import info.bliki.wiki.namespaces.INamespace.NamespaceCode;
+
+/**
+ * Converts raw wiki text into plain text in a single pass, without creating the HTML node tree of
+ * {@link IWikiModel#render(ITextConverter, String, boolean)} with a {@link PlainTextConverter}. The formatting markup is
+ * removed, links are replaced by their text and templates, comments, category, image and interwiki links are dropped.
+ * Tables and references are dropped or converted to text according to the settings of the extractor.
+ *
+ * By default templates aren't expanded, which makes the extractor suitable for creating text corpora from large dumps.
+ * If {@link #setExpandTemplates(boolean)} is enabled the templates are expanded by the wiki model before the conversion
+ * (infoboxes are removed before the expansion unless {@link #setDropInfoboxes(boolean)} is disabled).
+ *
+ * An extractor isn't thread-safe, but can be reused for many articles.
+ *
+ * @see info.bliki.wiki.dump.PlainTextArticleProcessor
+ */
+public class PlainTextExtractor {
+	/**
+	 * Tags whose content isn't text
+	 */
+	private static final String[] DROPPED_TAGS = { "math", "gallery", "timeline", "score", "hiero", "chem",
+			"imagemap", "templatedata", "graph", "mapframe", "references", "source", "syntaxhighlight" };
+
+	/**
+	 * Tags whose content is written without conversion
+	 */
+	private static final String[] LITERAL_TAGS = { "nowiki", "pre" };
+
+	private static final String INFOBOX = "infobox";
+
+	private final IWikiModel fWikiModel;
+
+	private boolean fDropTables = true;
+
+	private boolean fDropReferences = true;
+
+	private boolean fDropInfoboxes = true;
+
+	private boolean fExpandTemplates = false;
+
+	private char[] fSource;
+
+	private CharBuffer fChars;
+
+	private Appendable fOut;
+
+	/**
+	 * @param wikiModel
+	 *            the model which defines the namespaces, interwiki links and URI schemes of the wiki and expands the
+	 *            templates if enabled
+	 */
+	public PlainTextExtractor(IWikiModel wikiModel) {
+		fWikiModel = wikiModel;
+	}
+
+	/**
+	 * Set to <code>false</code> if the content of the cells of wiki and HTML tables should be written (one cell per
+	 * line). Default is <code>true</code>.
+	 */
+	public void setDropTables(boolean dropTables) {
+		fDropTables = dropTables;
+	}
+
+	/**
+	 * Set to <code>false</code> if the content of &lt;ref&gt; tags should be written at the position of the tag.
+	 * Default is <code>true</code>.
+	 */
+	public void setDropReferences(boolean dropReferences) {
+		fDropReferences = dropReferences;
+	}
+
+	/**
+	 * Set to <code>false</code> if templates whose name starts with <i>Infobox</i> should be expanded. Only used if
+	 * templates are expanded. Default is <code>true</code>.
+	 */
+	public void setDropInfoboxes(boolean dropInfoboxes) {
+		fDropInfoboxes = dropInfoboxes;
+	}
+
+	/**
+	 * Set to <code>true</code> if templates should be expanded by the wiki model before the conversion. Default is
+	 * <code>false</code>, all templates are dropped.
+	 */
+	public void setExpandTemplates(boolean expandTemplates) {
+		fExpandTemplates = expandTemplates;
+	}
+
+	/**
+	 * Convert the raw wiki text into plain text.
+	 *
+	 * @param rawWikiText
+	 *            the raw wiki text
+	 * @return the plain text
+	 */
+	public String extract(String rawWikiText) {
+		final StringBuilder buffer = new StringBuilder(rawWikiText.length());
+		try {
+			extract(rawWikiText, buffer);
+		} catch (IOException e) {
+			// a StringBuilder doesn't throw
+		}
+		return buffer.toString();
+	}
+
+	/**
+	 * Convert the raw wiki text into plain text.
+	 *
+	 * @param rawWikiText
+	 *            the raw wiki text
+	 * @param out
+	 *            receives the plain text, for example a <code>Writer</code>
+	 */
+	public void extract(String rawWikiText, Appendable out) throws IOException {
+		String text = rawWikiText;
+		if (fExpandTemplates) {
+			if (fDropInfoboxes) {
+				text = removeInfoboxes(text);
+			}
+			fWikiModel.setUp();
+			try {
+				text = fWikiModel.parseTemplates(text);
+			} finally {
+				fWikiModel.tearDown();
+			}
+		}
+		fSource = text.toCharArray();
+		fChars = CharBuffer.wrap(fSource);
+		fOut = out;
+		try {
+			appendText(0, fSource.length);
+		} finally {
+			fSource = null;
+			fChars = null;
+			fOut = null;
+		}
+	}
+
+	/**
+	 * Write the plain text of the given range of the source.
+	 */
+	private void appendText(int start, int end) throws IOException {
+		int position = start;
+		int copyStart = start;
+		while (position < end) {
+			final char ch = fSource[position];
+			if (ch == '<' || ch == '{' || ch == '[' || ch == '\'' || ch == '_' || ch == '&'
+					|| (isStartOfLine(position) && "*#:;=-".indexOf(ch) >= 0)) {
+				append(copyStart, position);
+				final int next = convert(position, end);
+				if (next < 0) {
+					copyStart = position++;
+				} else {
+					copyStart = position = next;
+				}
+			} else {
+				position++;
+			}
+		}
+		append(copyStart, end);
+	}
+
+	/**
+	 * Convert the markup starting at the given position.
+	 *
+	 * @return the position behind the converted markup or <code>-1</code> if there is no markup at the position
+	 */
+	private int convert(int position, int end) throws IOException {
+		final char ch = fSource[position];
+		switch (ch) {
+		case '<':
+			return convertTag(position, end);
+		case '{':
+			if (isStartOfLine(position) && startsWith(fSource, position, "{|", false)) {
+				return convertTable(position, end);
+			}
+			if (startsWith(fSource, position, "{{", false)) {
+				final int templateEnd = WikipediaScanner.findNestedTemplateEnd(fSource, position + 2);
+				return templateEnd > 0 && templateEnd <= end ? templateEnd : -1;
+			}
+			return -1;
+		case '[':
+			return startsWith(fSource, position, "[[", false) ? convertWikiLink(position, end)
+					: convertExternalLink(position, end);
+		case '\'':
+			// bold and italic markup
+			if (position + 1 < end && fSource[position + 1] == '\'') {
+				while (position < end && fSource[position] == '\'') {
+					position++;
+				}
+				return position;
+			}
+			return -1;
+		case '_':
+			return skipBehaviorSwitch(position, end);
+		case '&':
+			return convertEntity(position, end);
+		case '=':
+			return convertHeader(position, end);
+		case '-':
+			if (startsWith(fSource, position, "----", false)) {
+				while (position < end && fSource[position] == '-') {
+					position++;
+				}
+				return position;
+			}
+			return -1;
+		default:
+			// list and indentation markup
+			while (position < end && "*#:;".indexOf(fSource[position]) >= 0) {
+				position++;
+			}
+			return skipBlanks(position, end);
+		}
+	}
+
+	private int convertTag(int position, int end) throws IOException {
+		if (startsWith(fSource, position, "<!--", false)) {
+			final int commentEnd = indexOf(fSource, "-->", position + 4);
+			return commentEnd < 0 || commentEnd + 3 > end ? end : commentEnd + 3;
+		}
+		final boolean endTag = position + 1 < end && fSource[position + 1] == '/';
+		final int nameStart = endTag ? position + 2 : position + 1;
+		int nameEnd = nameStart;
+		while (nameEnd < end && Character.isLetter(fSource[nameEnd])) {
+			nameEnd++;
+		}
+		if (nameEnd == nameStart || nameEnd == end || !isTagNameEnd(fSource[nameEnd])) {
+			return -1;
+		}
+		final int tagEnd = indexOf(fSource, ">", nameEnd);
+		if (tagEnd < 0 || tagEnd >= end) {
+			return -1;
+		}
+		if (endTag) {
+			return tagEnd + 1;
+		}
+		final int nameLength = nameEnd - nameStart;
+		if (isTagName(nameStart, nameLength, "br")) {
+			fOut.append('\n');
+			return tagEnd + 1;
+		}
+		if (fSource[tagEnd - 1] == '/') {
+			return tagEnd + 1;
+		}
+		if (isTagName(nameStart, nameLength, LITERAL_TAGS)) {
+			final int closeStart = indexOfEndTag(fSource, tagEnd + 1, nameStart, nameLength);
+			if (closeStart < 0 || closeStart >= end) {
+				return tagEnd + 1;
+			}
+			append(tagEnd + 1, closeStart);
+			return endOfEndTag(closeStart, nameLength, end);
+		}
+		if (isTagName(nameStart, nameLength, DROPPED_TAGS) || (fDropTables && isTagName(nameStart, nameLength, "table"))
+				|| (fDropReferences && isTagName(nameStart, nameLength, "ref"))) {
+			final int closeStart = indexOfEndTag(fSource, tagEnd + 1, nameStart, nameLength);
+			if (closeStart < 0 || closeStart >= end) {
+				return tagEnd + 1;
+			}
+			return endOfEndTag(closeStart, nameLength, end);
+		}
+		// remove the tag, but keep its content
+		return tagEnd + 1;
+	}
+
+	/**
+	 * Get the position behind the end tag, which starts at <code>closeStart</code>. If the closing <code>&gt;</code> is
+	 * missing, the position behind the tag name.
+	 */
+	private int endOfEndTag(int closeStart, int nameLength, int end) {
+		final int closeEnd = indexOf(fSource, ">", closeStart);
+		if (closeEnd < 0 || closeEnd >= end) {
+			return Math.min(closeStart + nameLength + 2, end);
+		}
+		return closeEnd + 1;
+	}
+
+	private boolean isTagName(int nameStart, int nameLength, String... tagNames) {
+		for (String tagName : tagNames) {
+			if (nameLength == tagName.length() && startsWith(fSource, nameStart, tagName, true)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private int convertTable(int position, int end) throws IOException {
+		final int tableEnd = indexEndOfTable(fSource, position + 2);
+		if (tableEnd < 0 || tableEnd > end) {
+			return -1;
+		}
+		if (fDropTables) {
+			return tableEnd;
+		}
+		int lineStart = position;
+		while (lineStart < tableEnd) {
+			int lineEnd = indexOf(fSource, "\n", lineStart);
+			if (lineEnd < 0 || lineEnd > tableEnd) {
+				lineEnd = tableEnd;
+			}
+			final int start = skipBlanks(lineStart, lineEnd);
+			if (startsWith(fSource, start, "{|", false) || startsWith(fSource, start, "|}", false)
+					|| startsWith(fSource, start, "|-", false)) {
+				// table and row markup
+			} else if (startsWith(fSource, start, "|+", false)) {
+				appendCell(start + 2, lineEnd);
+			} else if (start < lineEnd && (fSource[start] == '|' || fSource[start] == '!')) {
+				final char separator = fSource[start];
+				int cellStart = start + 1;
+				for (int i = cellStart; i < lineEnd - 1; i++) {
+					if ((fSource[i] == separator || fSource[i] == '|') && fSource[i + 1] == fSource[i]) {
+						appendCell(cellStart, i);
+						cellStart = i + 2;
+						i++;
+					}
+				}
+				appendCell(cellStart, lineEnd);
+			} else if (start < lineEnd) {
+				// continued cell content
+				appendText(start, lineEnd);
+				fOut.append('\n');
+			}
+			lineStart = lineEnd + 1;
+		}
+		return tableEnd;
+	}
+
+	/**
+	 * Write the content of a table cell without the cell attributes
+	 */
+	private void appendCell(int start, int end) throws IOException {
+		for (int i = start; i < end; i++) {
+			final char ch = fSource[i];
+			if (ch == '[' || ch == '{') {
+				break;
+			}
+			if (ch == '|') {
+				start = i + 1;
+				break;
+			}
+		}
+		start = skipBlanks(start, end);
+		while (end > start && Character.isWhitespace(fSource[end - 1])) {
+			end--;
+		}
+		if (start < end) {
+			appendText(start, end);
+			fOut.append('\n');
+		}
+	}
+
+	private int convertWikiLink(int position, int end) throws IOException {
+		final int rawStart = position + 2;
+		final int linkEnd = indexEndOfWikiLink(fSource, rawStart);
+		if (linkEnd < 0 || linkEnd > end) {
+			return -1;
+		}
+		final int rawEnd = linkEnd - 2;
+		int pipe = rawStart;
+		while (pipe < rawEnd && fSource[pipe] != '|') {
+			pipe++;
+		}
+		int targetStart = skipBlanks(rawStart, pipe);
+		if (targetStart < pipe && fSource[targetStart] == ':') {
+			targetStart++;
+		} else {
+			int colon = targetStart;
+			while (colon < pipe && fSource[colon] != ':') {
+				colon++;
+			}
+			if (colon < pipe) {
+				final String prefix = new String(fSource, targetStart, colon - targetStart).trim();
+				final INamespaceValue namespace = fWikiModel.getNamespace().getNamespace(prefix);
+				if (namespace != null) {
+					final NamespaceCode code = namespace.getCode();
+					if (code == NamespaceCode.CATEGORY_NAMESPACE_KEY || code == NamespaceCode.FILE_NAMESPACE_KEY
+							|| code == NamespaceCode.MEDIA_NAMESPACE_KEY) {
+						return linkEnd;
+					}
+				} else if (fWikiModel.isInterWiki(prefix)) {
+					return linkEnd;
+				}
+			}
+		}
+		final int labelStart = skipBlanks(pipe + 1, rawEnd);
+		if (labelStart < rawEnd) {
+			appendText(labelStart, rawEnd);
+		} else {
+			appendText(targetStart, pipe);
+		}
+		return linkEnd;
+	}
+
+	private int convertExternalLink(int position, int end) throws IOException {
+		final int urlStart = position + 1;
+		int schemeEnd = urlStart;
+		while (schemeEnd < end && Character.isLetter(fSource[schemeEnd])) {
+			schemeEnd++;
+		}
+		if (!startsWith(fSource, urlStart, "//", false) && (schemeEnd == urlStart || schemeEnd == end
+				|| fSource[schemeEnd] != ':'
+				|| !fWikiModel.isValidUriScheme(new String(fSource, urlStart, schemeEnd - urlStart)))) {
+			return -1;
+		}
+		int space = -1;
+		for (int i = urlStart; i < end; i++) {
+			final char ch = fSource[i];
+			if (ch == ']') {
+				if (space > 0) {
+					appendText(skipBlanks(space, i), i);
+				}
+				return i + 1;
+			}
+			if (ch == '\n') {
+				break;
+			}
+			if (ch == ' ' && space < 0) {
+				space = i;
+			}
+		}
+		return -1;
+	}
+
+	private int convertHeader(int position, int end) throws IOException {
+		int lineEnd = indexOf(fSource, "\n", position);
+		if (lineEnd < 0 || lineEnd > end) {
+			lineEnd = end;
+		}
+		int rawEnd = lineEnd;
+		while (rawEnd > position && Character.isWhitespace(fSource[rawEnd - 1])) {
+			rawEnd--;
+		}
+		int rawStart = position;
+		while (rawStart < rawEnd - 1 && fSource[rawStart] == '=' && fSource[rawEnd - 1] == '=') {
+			rawStart++;
+			rawEnd--;
+		}
+		if (rawStart == position) {
+			return -1;
+		}
+		rawStart = skipBlanks(rawStart, rawEnd);
+		while (rawEnd > rawStart && Character.isWhitespace(fSource[rawEnd - 1])) {
+			rawEnd--;
+		}
+		appendText(rawStart, rawEnd);
+		return lineEnd;
+	}
+
+	/**
+	 * Skip a behavior switch like <code>__NOTOC__</code>
+	 */
+	private int skipBehaviorSwitch(int position, int end) {
+		if (!startsWith(fSource, position, "__", false)) {
+			return -1;
+		}
+		int switchEnd = position + 2;
+		while (switchEnd < end && Character.isUpperCase(fSource[switchEnd])) {
+			switchEnd++;
+		}
+		return switchEnd > position + 2 && startsWith(fSource, switchEnd, "__", false) && switchEnd + 2 <= end
+				? switchEnd + 2 : -1;
+	}
+
+	private int convertEntity(int position, int end) throws IOException {
+		final int semicolon = indexOf(fSource, ";", position + 1);
+		if (semicolon < 0 || semicolon >= end || semicolon - position > 10) {
+			return -1;
+		}
+		final String name = new String(fSource, position + 1, semicolon - position - 1);
+		switch (name) {
+		case "amp":
+			fOut.append('&');
+			break;
+		case "lt":
+			fOut.append('<');
+			break;
+		case "gt":
+			fOut.append('>');
+			break;
+		case "quot":
+			fOut.append('"');
+			break;
+		case "apos":
+			fOut.append('\'');
+			break;
+		case "nbsp":
+			fOut.append(' ');
+			break;
+		case "ndash":
+			fOut.append('\u2013');
+			break;
+		case "mdash":
+			fOut.append('\u2014');
+			break;
+		default:
+			if (name.length() < 2 || name.charAt(0) != '#') {
+				return -1;
+			}
+			try {
+				final int codePoint = name.charAt(1) == 'x' || name.charAt(1) == 'X'
+						? Integer.parseInt(name.substring(2), 16) : Integer.parseInt(name.substring(1));
+				if (!Character.isValidCodePoint(codePoint)) {
+					return -1;
+				}
+				fOut.append(new String(Character.toChars(codePoint)));
+			} catch (NumberFormatException e) {
+				return -1;
+			}
+		}
+		return semicolon + 1;
+	}
+
+	private void append(int start, int end) throws IOException {
+		if (start < end) {
+			if (fOut instanceof StringBuilder) {
+				((StringBuilder) fOut).append(fSource, start, end - start);
+			} else if (fOut instanceof Writer) {
+				((Writer) fOut).write(fSource, start, end - start);
+			} else {
+				fOut.append(fChars, start, end);
+			}
+		}
+	}
+
+	private boolean isStartOfLine(int position) {
+		return position == 0 || fSource[position - 1] == '\n';
+	}
+
+	private int skipBlanks(int position, int end) {
+		while (position < end && (fSource[position] == ' ' || fSource[position] == '\t')) {
+			position++;
+		}
+		return position;
+	}
+
+	/**
+	 * Remove all templates whose name starts with <i>Infobox</i>
+	 */
+	private static String removeInfoboxes(String rawWikiText) {
+		final char[] source = rawWikiText.toCharArray();
+		StringBuilder buffer = null;
+		int copyStart = 0;
+		int position = rawWikiText.indexOf("{{");
+		while (position >= 0) {
+			int nameStart = position + 2;
+			while (nameStart < source.length && Character.isWhitespace(source[nameStart])) {
+				nameStart++;
+			}
+			final int templateEnd = startsWith(source, nameStart, INFOBOX, true)
+					? WikipediaScanner.findNestedTemplateEnd(source, position + 2) : -1;
+			if (templateEnd > 0) {
+				if (buffer == null) {
+					buffer = new StringBuilder(source.length);
+				}
+				buffer.append(source, copyStart, position - copyStart);
+				copyStart = templateEnd;
+				position = rawWikiText.indexOf("{{", templateEnd);
+			} else {
+				position = rawWikiText.indexOf("{{", position + 2);
+			}
+		}
+		if (buffer == null) {
+			return rawWikiText;
+		}
+		buffer.append(source, copyStart, source.length - copyStart);
+		return buffer.toString();
+	}
+}
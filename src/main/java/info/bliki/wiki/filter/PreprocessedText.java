@@ -0,0 +1,795 @@
+package info.bliki.wiki.filter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import info.bliki.wiki.model.Configuration;
+import info.bliki.wiki.model.IWikiModel;
+import info.bliki.wiki.tags.util.WikiTagNode;
+
+/**
+ * The result of the first, parameter independent step of the template expansion: a wiki text with the
+ * <code>&lt;includeonly&gt;</code>, <code>&lt;onlyinclude&gt;</code> and <code>&lt;noinclude&gt;</code> sections
+ * resolved and the HTML comments removed, parsed into a list of top level nodes:
+ * <ul>
+ * <li>text nodes, which are copied unchanged,</li>
+ * <li>template parameter nodes <code>{{{...}}}</code>,</li>
+ * <li>template call nodes <code>{{...}}</code>; the calls without template parameters are split into the template
+ * name and the parameters only once,</li>
+ * <li>extension tag nodes <code>&lt;nowiki&gt;</code>, <code>&lt;pre&gt;</code> and <code>&lt;source&gt;</code>,
+ * whose content isn't expanded.</li>
+ * </ul>
+ * The parameters of a template call are substituted by walking the nodes in {@link #substitute(Map, IWikiModel)}.
+ * If the substituted values can't change the nodes, the template calls are expanded by walking the nodes too,
+ * otherwise the substituted text is parsed again by the {@link TemplateParser}.
+ *
+ * Instances are immutable. If the preprocessing didn't depend on the wiki model (see {@link #isCacheable()}), the same
+ * instance can be expanded for every call of a template by multiple threads.
+ */
+public final class PreprocessedText {
+	private static final int[] NO_PARAMETERS = new int[0];
+
+	enum NodeType {
+		TEXT, PARAMETER, TEMPLATE, EXTENSION_TAG
+	}
+
+	/**
+	 * A top level node of the text
+	 */
+	private static final class Node {
+		private final NodeType fType;
+		private final int fStart;
+		private final int fEnd;
+		/**
+		 * The template parameters in this node, as index range of the start/end pairs in {@link Nodes#fParameters}
+		 */
+		private final int fFirstParameter;
+		private final int fParameterEnd;
+		/**
+		 * <code>false</code> if the expanded template call may form new template calls or tags with the text around
+		 * it
+		 */
+		private final boolean fIsolated;
+		/**
+		 * The unexpanded template name and the parts of a template call without template parameters
+		 */
+		@Nullable
+		private final String fTemplateName;
+		@Nullable
+		private final List<String> fParts;
+
+		Node(final NodeType type, final int start, final int end, final int firstParameter, final int parameterEnd,
+				final boolean isolated, @Nullable final String templateName, @Nullable final List<String> parts) {
+			fType = type;
+			fStart = start;
+			fEnd = end;
+			fFirstParameter = firstParameter;
+			fParameterEnd = parameterEnd;
+			fIsolated = isolated;
+			fTemplateName = templateName;
+			fParts = parts;
+		}
+	}
+
+	/**
+	 * The nodes of the text
+	 */
+	private static final class Nodes {
+		private final char[] fSource;
+		/**
+		 * The start (behind the opening braces) and end (behind the closing braces) offsets of the top level
+		 * template parameters
+		 */
+		private final int[] fParameters;
+		/**
+		 * The trimmed names and the unsubstituted default values of the template parameters, split only once. A
+		 * <code>null</code> name if the parameter has no name.
+		 */
+		private final String[] fParameterNames;
+		private final String[] fParameterDefaults;
+		/**
+		 * The end of the text, which is appended after the last substituted parameter
+		 */
+		private final int fTailEnd;
+		/**
+		 * The top level nodes in the order of the text or <code>null</code>, if the text contains syntax the nodes
+		 * can't express, like signatures, <code>subst:</code> calls or unbalanced template parameters. Such texts are
+		 * always parsed again after the parameter substitution.
+		 */
+		@Nullable
+		private final Node[] fTree;
+
+		Nodes(final String text) {
+			final TemplateParser parser = new TemplateParser(text);
+			fSource = parser.fSource;
+			// the same scan as in TemplateParser#replaceTemplateParameters(), which stops in front of braces at the
+			// end of the text
+			final int length = fSource.length;
+			int[] parameters = NO_PARAMETERS;
+			int count = 0;
+			int position = 0;
+			int tailEnd = length;
+			while (position < length) {
+				final char ch = fSource[position++];
+				if (ch == '{') {
+					if (position + 2 >= length) {
+						if (position == length || fSource[position] == '{'
+								&& (position + 1 == length || fSource[position + 1] == '{')) {
+							tailEnd = position - 1;
+							break;
+						}
+					} else if (fSource[position] == '{' && fSource[position + 1] == '{'
+							&& fSource[position + 2] != '{') {
+						position += 2;
+						final int parameterStart = position;
+						final int temp[] = WikipediaScanner.findNestedParamEnd(fSource, parameterStart);
+						if (temp[0] >= 0) {
+							if (count == parameters.length) {
+								parameters = Arrays.copyOf(parameters, Math.max(8, count * 2));
+							}
+							parameters[count++] = parameterStart;
+							parameters[count++] = temp[0];
+							position = temp[0];
+						}
+					}
+				}
+			}
+			fParameters = count == parameters.length ? parameters : Arrays.copyOf(parameters, count);
+			fTailEnd = tailEnd;
+			fParameterNames = new String[count / 2];
+			fParameterDefaults = new String[count / 2];
+			for (int i = 0; i < count; i += 2) {
+				// the same split as in TemplateParser#substituteParameter()
+				final List<String> list = WikipediaScanner.splitByPipe(fSource, fParameters[i], fParameters[i + 1] - 3,
+						null);
+				if (list.size() > 0) {
+					fParameterNames[i / 2] = list.get(0).trim();
+					fParameterDefaults[i / 2] = list.size() > 1 ? list.get(1) : null;
+				}
+			}
+			fTree = fTailEnd == fSource.length && !text.contains("~~~") && !text.contains(TemplateParser.SUBST)
+					&& !text.contains("<!--") ? scanTree(parser) : null;
+		}
+
+		/**
+		 * Split the text into top level nodes, in the same way as the template pass of the {@link TemplateParser}
+		 * scans the text.
+		 *
+		 * @return <code>null</code> if the nodes don't match the template parameters
+		 */
+		@Nullable
+		private Node[] scanTree(final TemplateParser parser) {
+			final char[] source = fSource;
+			final int length = source.length;
+			final List<Node> tree = new ArrayList<>();
+			int parameter = 0;
+			int textStart = 0;
+			int position = 0;
+			boolean unclosedTemplate = false;
+			while (position < length) {
+				final char ch = source[position];
+				if (ch == '{' && position + 1 < length && source[position + 1] == '{') {
+					if (position + 3 >= length) {
+						// the template parser stops at the end of the text
+						return null;
+					}
+					if (parameter < fParameters.length && fParameters[parameter] - 3 == position) {
+						// top level template parameter
+						final int end = fParameters[parameter + 1];
+						if (startsInTagName(source, position) || (position > 0 && source[position - 1] == '{')
+								|| (end < length && source[end] == '}')) {
+							return null;
+						}
+						addText(tree, textStart, position);
+						tree.add(new Node(NodeType.PARAMETER, position, end, parameter, parameter + 2, true, null,
+								null));
+						parameter += 2;
+						position = textStart = end;
+						continue;
+					}
+					if (source[position + 2] == '{' && source[position + 3] != '{') {
+						// a template parameter without end
+						return null;
+					}
+					final int end = WikipediaScanner.findNestedTemplateEnd(source, position + 2);
+					if (end >= 0) {
+						final int firstParameter = parameter;
+						while (parameter < fParameters.length && fParameters[parameter] < end) {
+							if (fParameters[parameter + 1] > end) {
+								return null;
+							}
+							parameter += 2;
+						}
+						String templateName = null;
+						List<String> parts = null;
+						if (firstParameter == parameter) {
+							final Object[] objs = TemplateParser.createParameterMap(source, position + 2,
+									end - position - 4);
+							@SuppressWarnings("unchecked")
+							final List<String> list = (List<String>) objs[0];
+							parts = Collections.unmodifiableList(list);
+							templateName = (String) objs[1];
+						}
+						if (containsSpecialTag(source, position, end) && !isValidCall(templateName)) {
+							// the template parser would parse the content of an invalid call and may find a tag,
+							// which ends behind the call
+							return null;
+						}
+						addText(tree, textStart, position);
+						final boolean isolated = !startsInTagName(source, position)
+								&& !isStructureChar(source, position - 1) && !isStructureChar(source, end);
+						tree.add(new Node(NodeType.TEMPLATE, position, end, firstParameter, parameter, isolated,
+								templateName, parts));
+						position = textStart = end;
+						continue;
+					}
+					unclosedTemplate = true;
+				} else if (ch == '<' && position + 1 < length && source[position + 1] != '/') {
+					final int end = extensionTagEnd(parser, position);
+					if (end == -2) {
+						return null;
+					}
+					if (end >= 0) {
+						final int firstParameter = parameter;
+						while (parameter < fParameters.length && fParameters[parameter] < end) {
+							if (fParameters[parameter + 1] > end) {
+								return null;
+							}
+							parameter += 2;
+						}
+						addText(tree, textStart, position);
+						tree.add(new Node(NodeType.EXTENSION_TAG, position, end, firstParameter, parameter, true,
+								null, null));
+						position = textStart = end;
+						continue;
+					}
+				}
+				if (parameter < fParameters.length && fParameters[parameter] - 3 <= position) {
+					// the parameter isn't at a position, where the template parser finds it
+					return null;
+				}
+				position++;
+			}
+			if (unclosedTemplate && fParameters.length > 0) {
+				// the substituted values may close the template call
+				return null;
+			}
+			addText(tree, textStart, length);
+			return tree.toArray(new Node[tree.size()]);
+		}
+
+		/**
+		 * @return the end of the extension tag starting at the given position, <code>-1</code> if there is no
+		 *         extension tag or <code>-2</code> if the tag contains template parameters
+		 */
+		private int extensionTagEnd(final TemplateParser parser, final int position) {
+			try {
+				// the same tags as in TemplateParser#parseSpecialWikiTags()
+				final WikiTagNode tagNode = parser.parseTag(position + 1);
+				if (tagNode != null && !tagNode.isEmptyXmlTag()) {
+					final String tagName = tagNode.getTagName();
+					switch (tagName) {
+					case "nowiki":
+					case "source":
+					case "pre":
+						final int tagEnd = tagNode.getEndPosition();
+						for (int i = 0; i < fParameters.length; i += 2) {
+							if (fParameters[i] - 3 < tagEnd && fParameters[i + 1] > position) {
+								// the substituted values may change the tag
+								return -2;
+							}
+						}
+						final int end = Util.indexOfIgnoreCase(parser.fStringSource, "</", tagName + ">", tagEnd);
+						return end < 0 ? fSource.length : end + tagName.length() + 3;
+					}
+				}
+			} catch (final IndexOutOfBoundsException e) {
+				// end of scanner text
+			}
+			return -1;
+		}
+
+		private void addText(final List<Node> tree, final int start, final int end) {
+			if (start < end) {
+				tree.add(new Node(NodeType.TEXT, start, end, 0, 0, true, null, null));
+			}
+		}
+	}
+
+	/**
+	 * The parameters of one template call substituted into the nodes of a text
+	 */
+	static final class Substitution {
+		private final PreprocessedText fText;
+		/**
+		 * The substituted values of the template parameters or <code>null</code> for parameters, which weren't
+		 * substituted. <code>null</code> if no parameter was substituted.
+		 */
+		@Nullable
+		private final CharSequence[] fValues;
+		/**
+		 * The number of parameters, which were substituted before the substitution stopped
+		 */
+		private final int fCount;
+		private final int fTailEnd;
+		private final boolean fTruncated;
+
+		Substitution(final PreprocessedText text, @Nullable final CharSequence[] values, final int count,
+				final int tailEnd, final boolean truncated) {
+			fText = text;
+			fValues = values;
+			fCount = count;
+			fTailEnd = tailEnd;
+			fTruncated = truncated;
+		}
+
+		/**
+		 * Append the substituted text.
+		 */
+		void appendTo(final StringBuilder writer) {
+			if (fValues == null) {
+				writer.append(fText.fText);
+				return;
+			}
+			final Nodes nodes = fText.nodes();
+			final char[] source = nodes.fSource;
+			final int[] parameters = nodes.fParameters;
+			final int writerStart = writer.length();
+			int bufferStart = 0;
+			boolean substituted = false;
+			for (int i = 0; i < fCount; i++) {
+				final CharSequence value = fValues[i];
+				if (value != null) {
+					final int parameterStart = parameters[2 * i];
+					writer.append(source, bufferStart, parameterStart - bufferStart - 3);
+					writer.append(value);
+					bufferStart = parameters[2 * i + 1];
+					substituted = true;
+					if (writer.length() - writerStart > Configuration.TEMPLATE_BUFFER_LIMIT) {
+						// Controls the scanner, when infinite recursion occurs the
+						// buffer grows out of control.
+						return;
+					}
+				}
+			}
+			if (!substituted) {
+				writer.append(fText.fText);
+			} else if (bufferStart < fTailEnd) {
+				writer.append(source, bufferStart, fTailEnd - bufferStart);
+			}
+		}
+
+		/**
+		 * @return <code>true</code> if the template calls can be expanded by walking the nodes with
+		 *         {@link #expandNodes(IWikiModel, boolean, StringBuilder)}
+		 */
+		boolean isNodeExpansion() {
+			final Nodes nodes = fText.nodes();
+			if (nodes.fTree == null) {
+				return false;
+			}
+			if (fValues != null) {
+				if (fTruncated || fTailEnd != nodes.fTailEnd) {
+					return false;
+				}
+				long length = nodes.fSource.length;
+				for (int i = 0; i < fCount; i++) {
+					final CharSequence value = fValues[i];
+					if (value != null) {
+						if (changesNodes(value)) {
+							return false;
+						}
+						length += value.length();
+					}
+				}
+				if (length > Configuration.TEMPLATE_BUFFER_LIMIT) {
+					return false;
+				}
+				for (final Node node : nodes.fTree) {
+					if (node.fType == NodeType.TEMPLATE && node.fParts == null) {
+						// the values may change the end of the template call
+						final String call = substituted(nodes, node);
+						if (WikipediaScanner.findNestedTemplateEnd(call.toCharArray(), 2) != call.length()) {
+							return false;
+						}
+					}
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Append the text with the template calls expanded, like the template pass of the {@link TemplateParser}.
+		 *
+		 * @return <code>true</code> if an expanded template call contains syntax, which must be parsed by another
+		 *         template pass over the appended text
+		 */
+		boolean expandNodes(final IWikiModel wikiModel, final boolean renderTemplate, final StringBuilder writer)
+				throws IOException {
+			final Nodes nodes = fText.nodes();
+			final char[] source = nodes.fSource;
+			boolean parseAgain = false;
+			for (final Node node : nodes.fTree) {
+				final int start = writer.length();
+				switch (node.fType) {
+				case TEXT:
+					writer.append(source, node.fStart, node.fEnd - node.fStart);
+					break;
+				case EXTENSION_TAG:
+					appendSubstituted(nodes, node, writer);
+					break;
+				case PARAMETER:
+					final CharSequence value = value(node.fFirstParameter);
+					if (value != null) {
+						writer.append(value);
+					} else {
+						// the default values of template parameters are expanded by the template pass
+						final String parameter = new String(source, node.fStart, node.fEnd - node.fStart);
+						TemplateParser.parseNode(parameter, 0, wikiModel, renderTemplate, writer);
+						parseAgain |= !parameter.contentEquals(writer.subSequence(start, writer.length()));
+					}
+					break;
+				case TEMPLATE:
+					if (node.fParts == null) {
+						TemplateParser.parseNode(substituted(nodes, node), 0, wikiModel, renderTemplate, writer);
+					} else if (!TemplateParser.parseTemplate(source, node.fStart + 2, node.fEnd,
+							new ArrayList<>(node.fParts), node.fTemplateName, wikiModel, writer)) {
+						// not a valid template call, parse the content
+						TemplateParser.parseNode(new String(source, node.fStart, node.fEnd - node.fStart), 1,
+								wikiModel, renderTemplate, writer);
+					}
+					parseAgain |= !node.fIsolated || changesStructure(writer, start, writer.length());
+					break;
+				}
+			}
+			return parseAgain;
+		}
+
+		@Nullable
+		private CharSequence value(final int parameter) {
+			final int index = parameter / 2;
+			return fValues != null && index < fCount ? fValues[index] : null;
+		}
+
+		private String substituted(final Nodes nodes, final Node node) {
+			final StringBuilder buf = new StringBuilder(node.fEnd - node.fStart);
+			appendSubstituted(nodes, node, buf);
+			return buf.toString();
+		}
+
+		private void appendSubstituted(final Nodes nodes, final Node node, final StringBuilder writer) {
+			final char[] source = nodes.fSource;
+			final int[] parameters = nodes.fParameters;
+			int bufferStart = node.fStart;
+			for (int i = node.fFirstParameter; i < node.fParameterEnd; i += 2) {
+				final CharSequence value = value(i);
+				if (value != null) {
+					writer.append(source, bufferStart, parameters[i] - bufferStart - 3);
+					writer.append(value);
+					bufferStart = parameters[i + 1];
+				}
+			}
+			writer.append(source, bufferStart, node.fEnd - bufferStart);
+		}
+	}
+
+	private final String fText;
+	private final boolean fHasParameters;
+	private final boolean fHasEmptyDefaultParams;
+	private final boolean fOnlyInclude;
+	private final boolean fCacheable;
+	/**
+	 * The nodes are created when the text is expanded for the first time. Concurrent callers may create equal nodes.
+	 */
+	private volatile Nodes fNodes;
+
+	private PreprocessedText(final String text, final boolean onlyInclude, final boolean cacheable) {
+		fText = text;
+		fOnlyInclude = onlyInclude;
+		fCacheable = cacheable;
+		fHasParameters = text.contains("{{{");
+		fHasEmptyDefaultParams = fHasParameters && text.contains("{{{|");
+	}
+
+	private Nodes nodes() {
+		Nodes nodes = fNodes;
+		if (nodes == null) {
+			nodes = new Nodes(fText);
+			fNodes = nodes;
+		}
+		return nodes;
+	}
+
+	/**
+	 * Preprocess the <code>&lt;includeonly&gt;</code>, <code>&lt;onlyinclude&gt;</code> and
+	 * <code>&lt;noinclude&gt;</code> tags and the HTML comments of a wiki text.
+	 *
+	 * @param rawWikitext
+	 *            the raw wiki text
+	 * @param startIndex
+	 *            the index of the first character, which may start a special tag
+	 * @param renderTemplate
+	 *            <code>true</code> if the template page is rendered itself and not transcluded
+	 * @param onlyIncludeFlag
+	 *            <code>true</code> if only the content of <code>&lt;onlyinclude&gt;</code> sections is used
+	 */
+	public static PreprocessedText preprocess(final String rawWikitext, final int startIndex,
+			final IWikiModel wikiModel, final boolean renderTemplate, final boolean onlyIncludeFlag)
+			throws IOException {
+		final StringBuilder sb = new StringBuilder(rawWikitext.length());
+		final TemplateParser parser = new TemplateParser(rawWikitext, false, renderTemplate, onlyIncludeFlag);
+		parser.setModel(wikiModel);
+		parser.runPreprocessParser(0, startIndex, sb, /* ignoreTemplateTags */ false);
+		final String text = sb.toString();
+		// subst: calls and signatures are evaluated with the wiki model, errors depend on the recursion level
+		final boolean cacheable = !rawWikitext.contains("~~~") && !rawWikitext.contains(TemplateParser.SUBST)
+				&& !text.contains(TemplateParser.TEMPLATE_RECURSION_LIMIT_ERROR)
+				&& !text.contains(TemplateParser.TEMPLATE_PARSER_ERROR);
+		return new PreprocessedText(text, parser.isOnlyInclude(), cacheable);
+	}
+
+	/**
+	 * @return the preprocessed text with the unsubstituted template parameters
+	 */
+	public String getText() {
+		return fText;
+	}
+
+	/**
+	 * @return the number of top level template parameter nodes
+	 */
+	public int getParameterCount() {
+		return fHasParameters ? nodes().fParameters.length / 2 : 0;
+	}
+
+	/**
+	 * @return the types of the top level nodes or <code>null</code>, if the text is parsed again after the parameter
+	 *         substitution
+	 */
+	@Nullable
+	List<NodeType> getNodeTypes() {
+		final Node[] tree = nodes().fTree;
+		if (tree == null) {
+			return null;
+		}
+		final List<NodeType> types = new ArrayList<>(tree.length);
+		for (final Node node : tree) {
+			types.add(node.fType);
+		}
+		return types;
+	}
+
+	/**
+	 * @return <code>true</code> if an <code>&lt;onlyinclude&gt;</code> section was found
+	 */
+	public boolean isOnlyInclude() {
+		return fOnlyInclude;
+	}
+
+	/**
+	 * @return <code>false</code> if the text contains <code>subst:</code> calls or signatures, which were evaluated
+	 *         with the wiki model while preprocessing, or parser errors
+	 */
+	public boolean isCacheable() {
+		return fCacheable;
+	}
+
+	/**
+	 * Substitute the template parameters and append the result.
+	 *
+	 * @param templateParameters
+	 *            the parameters of the template call or <code>null</code>, in which case only the default values of
+	 *            parameters without name (<code>{{{|default}}}</code>) are substituted
+	 */
+	public void expand(@Nullable final Map<String, String> templateParameters, final IWikiModel wikiModel,
+			final StringBuilder writer) {
+		substitute(templateParameters, wikiModel).appendTo(writer);
+	}
+
+	/**
+	 * Substitute the values of the template parameter nodes.
+	 *
+	 * @param templateParameters
+	 *            the parameters of the template call or <code>null</code>, in which case only the default values of
+	 *            parameters without name (<code>{{{|default}}}</code>) are substituted
+	 */
+	Substitution substitute(@Nullable final Map<String, String> templateParameters, final IWikiModel wikiModel) {
+		final boolean hasParamsToReplace = templateParameters != null && !templateParameters.isEmpty();
+		if (!fHasParameters || !(hasParamsToReplace || fHasEmptyDefaultParams)) {
+			return new Substitution(this, null, 0, -1, false);
+		}
+		final Nodes nodes = nodes();
+		final char[] source = nodes.fSource;
+		final int[] parameters = nodes.fParameters;
+		final CharSequence[] values = new CharSequence[parameters.length / 2];
+		int count = 0;
+		int tailEnd = nodes.fTailEnd;
+		boolean truncated = false;
+		try {
+			final int level = wikiModel.incrementRecursionLevel();
+			if (level > Configuration.PARSER_RECURSION_LIMIT) {
+				return new Substitution(this, null, 0, -1, false);
+			}
+			int length = 0;
+			int bufferStart = 0;
+			for (int i = 0; i < parameters.length; i += 2) {
+				final int parameterStart = parameters[i];
+				final int parameterEnd = parameters[i + 1];
+				final String name = nodes.fParameterNames[i / 2];
+				final CharSequence value;
+				try {
+					value = name == null ? null
+							: TemplateParser.substituteParameter(name, nodes.fParameterDefaults[i / 2],
+									templateParameters, 0, wikiModel);
+				} catch (final IndexOutOfBoundsException e) {
+					tailEnd = parameterEnd - 1;
+					break;
+				}
+				values[count++] = value;
+				if (value != null) {
+					length += parameterStart - bufferStart - 3 + value.length();
+					bufferStart = parameterEnd;
+					if (length > Configuration.TEMPLATE_BUFFER_LIMIT) {
+						truncated = true;
+						break;
+					}
+				}
+			}
+		} finally {
+			wikiModel.decrementRecursionLevel();
+		}
+		return new Substitution(this, values, count, tailEnd, truncated);
+	}
+
+	/**
+	 * @return <code>true</code> if a substituted parameter value may change the nodes of the text, because it
+	 *         contains braces, a signature or one of the tags, which are handled by the template parser
+	 */
+	private static boolean changesNodes(final CharSequence value) {
+		final int length = value.length();
+		for (int i = 0; i < length; i++) {
+			switch (value.charAt(i)) {
+			case '{':
+			case '}':
+			case '~':
+				return true;
+			case '<':
+				if (isSpecialTag(value, i)) {
+					return true;
+				}
+				break;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return <code>true</code> if the expanded template call between the given offsets contains a template start or
+	 *         end, a signature or one of the tags, which are handled by the template parser, or starts or ends with a
+	 *         brace, so that another template pass may change it
+	 */
+	private static boolean changesStructure(final CharSequence text, final int start, final int end) {
+		if (start < end && (isBrace(text.charAt(start)) || isBrace(text.charAt(end - 1)))) {
+			return true;
+		}
+		for (int i = start; i < end; i++) {
+			switch (text.charAt(i)) {
+			case '{':
+			case '}':
+				if (i + 1 < end && text.charAt(i + 1) == text.charAt(i)) {
+					return true;
+				}
+				break;
+			case '~':
+				return true;
+			case '<':
+				if (isSpecialTag(text, i)) {
+					return true;
+				}
+				break;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return <code>true</code> if the template call with the given unexpanded name is always substituted
+	 */
+	private static boolean isValidCall(@Nullable final String templateName) {
+		if (templateName == null || templateName.isEmpty() || Util.isInvalidTemplateName(templateName)) {
+			return false;
+		}
+		for (int i = 0; i < templateName.length(); i++) {
+			switch (templateName.charAt(i)) {
+			case '{':
+			case '<':
+			case '[':
+			case '~':
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean containsSpecialTag(final char[] source, final int start, final int end) {
+		final CharSequence text = new String(source, start, end - start);
+		for (int i = 0; i < text.length(); i++) {
+			if (text.charAt(i) == '<' && isSpecialTag(text, i)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return <code>true</code> if the <code>&lt;</code> at the given index starts a comment, a
+	 *         <code>&lt;nowiki&gt;</code>, <code>&lt;pre&gt;</code>, <code>&lt;source&gt;</code> or
+	 *         <code>&lt;math&gt;</code> tag or a tag name, which isn't complete
+	 */
+	private static boolean isSpecialTag(final CharSequence text, final int index) {
+		final int length = text.length();
+		int nameStart = index + 1;
+		if (nameStart < length && text.charAt(nameStart) == '/') {
+			nameStart++;
+		}
+		if (nameStart >= length || text.charAt(nameStart) == '!') {
+			return true;
+		}
+		int nameEnd = nameStart;
+		while (nameEnd < length && Character.isLetter(text.charAt(nameEnd))) {
+			nameEnd++;
+		}
+		if (nameEnd == length) {
+			return true;
+		}
+		return isTagName(text, nameStart, nameEnd, "nowiki") || isTagName(text, nameStart, nameEnd, "pre")
+				|| isTagName(text, nameStart, nameEnd, "source") || isTagName(text, nameStart, nameEnd, "math");
+	}
+
+	private static boolean isTagName(final CharSequence text, final int start, final int end, final String name) {
+		if (end - start != name.length()) {
+			return false;
+		}
+		for (int i = 0; i < name.length(); i++) {
+			if (Character.toLowerCase(text.charAt(start + i)) != name.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return <code>true</code> if the node starting at the given offset may continue a tag name like
+	 *         <code>&lt;p</code>
+	 */
+	private static boolean startsInTagName(final char[] source, final int start) {
+		int i = start - 1;
+		while (i >= 0 && (Character.isLetter(source[i]) || source[i] == '/')) {
+			i--;
+		}
+		return i >= 0 && source[i] == '<';
+	}
+
+	private static boolean isStructureChar(final char[] source, final int index) {
+		if (index < 0 || index >= source.length) {
+			return false;
+		}
+		final char ch = source[index];
+		return isBrace(ch) || ch == '~' || ch == '<' || ch == '/';
+	}
+
+	private static boolean isBrace(final char ch) {
+		return ch == '{' || ch == '}';
+	}
+
+	@Override
+	public String toString() {
+		return fText;
+	}
+}
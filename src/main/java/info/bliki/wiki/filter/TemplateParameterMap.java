@@ -0,0 +1,210 @@
+package info.bliki.wiki.filter;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import info.bliki.wiki.model.Counter;
+import info.bliki.wiki.model.IWikiModel;
+
+/**
+ * The parameters of a template call, which are expanded on demand. The parameter names are known after splitting the
+ * template call, but the templates in a parameter value are only expanded when the value is read for the first time,
+ * typically when the template text substitutes a <code>{{{parameter}}}</code> in
+ * {@link TemplateParser#replaceTemplateParameters(Map, int)}. The expanded value is memoized.
+ *
+ * Templates like infoboxes and navboxes are called with many parameters, but use only a few of them, so most of the
+ * parameter values are never expanded. Like in MediaWiki the templates in unused parameter values aren't reported as
+ * used templates.
+ *
+ * This class isn't thread-safe, it belongs to the wiki model which is rendering the template call.
+ *
+ * See <a href="https://meta.wikimedia.org/wiki/Help:Template#Mix_of_named_and_unnamed_parameters"
+ * >Help:Template#Mix_of_named_and_unnamed_parameters</a> for the numbering of unnamed parameters.
+ */
+public class TemplateParameterMap extends AbstractMap<String, String> {
+	/**
+	 * A parameter value, which is expanded on the first access
+	 */
+	private static final class Value {
+		private final String fRawValue;
+		private final boolean fNamed;
+		/**
+		 * <code>true</code> for a value set with {@link TemplateParameterMap#put(String, String)}
+		 */
+		private final boolean fSet;
+		private String fValue;
+
+		Value(final String rawValue, final boolean named) {
+			fRawValue = rawValue;
+			fNamed = named;
+			fSet = false;
+		}
+
+		Value(final String value) {
+			fRawValue = value;
+			fNamed = true;
+			fSet = true;
+			fValue = value;
+		}
+	}
+
+	private final IWikiModel fWikiModel;
+	private final LinkedHashMap<String, Value> fParameters = new LinkedHashMap<>();
+	private List<Value> fUnnamedParameters;
+	private Counter fCalledTemplateCounter;
+
+	public TemplateParameterMap(final IWikiModel wikiModel) {
+		fWikiModel = wikiModel;
+	}
+
+	/**
+	 * Add a single parameter of the template call without expanding its value.
+	 *
+	 * @param srcString
+	 *            the parameter text between the pipe symbols, for example <code>name = {{value}}</code>
+	 * @see TemplateParser#createSingleParameter(String, IWikiModel, Map, List)
+	 */
+	public void addParameter(final String srcString) {
+		final String[] nameAndValue = TemplateParser.splitParameter(srcString);
+		if (nameAndValue == null) {
+			return;
+		}
+		if (nameAndValue[0] != null) {
+			fParameters.put(nameAndValue[0], new Value(nameAndValue[1], true));
+		} else {
+			// unnamed parameters are numbered after all named parameters are known
+			if (fUnnamedParameters == null) {
+				fUnnamedParameters = new ArrayList<>();
+			}
+			fUnnamedParameters.add(new Value(nameAndValue[1], false));
+		}
+	}
+
+	/**
+	 * Set the template loop counter of the called template. The parameter values are part of the calling text, so
+	 * the called template isn't active while they are expanded, for example in <code>{{small|{{small|x}}}}</code>.
+	 */
+	public void setCalledTemplateCounter(@Nullable final Counter counter) {
+		fCalledTemplateCounter = counter;
+	}
+
+	private LinkedHashMap<String, Value> parameters() {
+		if (fUnnamedParameters != null) {
+			int unnamedParameterIndex = 1;
+			for (final Value value : fUnnamedParameters) {
+				final String key = Integer.toString(unnamedParameterIndex++);
+				if (!fParameters.containsKey(key)) {
+					fParameters.put(key, value);
+				}
+			}
+			fUnnamedParameters = null;
+		}
+		return fParameters;
+	}
+
+	private String expand(final Value value) {
+		if (value.fValue == null) {
+			if (fCalledTemplateCounter != null) {
+				fCalledTemplateCounter.dec();
+			}
+			try {
+				value.fValue = TemplateParser.expandParameterValue(value.fRawValue, value.fNamed, fWikiModel);
+			} finally {
+				if (fCalledTemplateCounter != null) {
+					fCalledTemplateCounter.inc();
+				}
+			}
+		}
+		return value.fValue;
+	}
+
+	/**
+	 * Get the text which determines the value of a parameter without expanding it: the raw value of a parameter of
+	 * the template call prefixed with <code>n</code> for a named or <code>u</code> for an unnamed parameter, or a value
+	 * set with {@link #put(String, String)} prefixed with <code>v</code>.
+	 *
+	 * @return <code>null</code> if the parameter doesn't exist
+	 * @see info.bliki.wiki.model.TemplateCallKey
+	 */
+	@Nullable
+	public String getRawValue(final String key) {
+		final Value value = parameters().get(key);
+		if (value == null) {
+			return null;
+		}
+		return (value.fSet ? 'v' : value.fNamed ? 'n' : 'u') + value.fRawValue;
+	}
+
+	@Override
+	public String get(final Object key) {
+		final Value value = parameters().get(key);
+		return value != null ? expand(value) : null;
+	}
+
+	@Override
+	public boolean containsKey(final Object key) {
+		return parameters().containsKey(key);
+	}
+
+	@Override
+	public String put(final String key, final String value) {
+		final Value previous = parameters().put(key, new Value(value));
+		return previous != null ? expand(previous) : null;
+	}
+
+	@Override
+	public String remove(final Object key) {
+		final Value previous = parameters().remove(key);
+		return previous != null ? expand(previous) : null;
+	}
+
+	@Override
+	public int size() {
+		return parameters().size();
+	}
+
+	@Override
+	public Set<String> keySet() {
+		return parameters().keySet();
+	}
+
+	@Override
+	public Set<Map.Entry<String, String>> entrySet() {
+		return new AbstractSet<Map.Entry<String, String>>() {
+			@Override
+			public Iterator<Map.Entry<String, String>> iterator() {
+				final Iterator<Map.Entry<String, Value>> iterator = parameters().entrySet().iterator();
+				return new Iterator<Map.Entry<String, String>>() {
+					@Override
+					public boolean hasNext() {
+						return iterator.hasNext();
+					}
+
+					@Override
+					public Map.Entry<String, String> next() {
+						final Map.Entry<String, Value> entry = iterator.next();
+						return new SimpleImmutableEntry<>(entry.getKey(), expand(entry.getValue()));
+					}
+
+					@Override
+					public void remove() {
+						iterator.remove();
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return parameters().size();
+			}
+		};
+	}
+}
@@ -14,6 +14,7 @@ import javax.annotation.Nullable;
 
 import info.bliki.util.Throwables;
 import info.bliki.wiki.model.Configuration;
+import info.bliki.wiki.model.IRenderMetrics;
 import info.bliki.wiki.model.IWikiModel;
 import info.bliki.wiki.tags.TemplateTag;
 import info.bliki.wiki.tags.util.WikiTagNode;
@@ -30,9 +31,10 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class TemplateParser extends AbstractParser {
 	public static final String TEMPLATE_PARSER_ERROR = "TemplateParserError";
+	static final String TEMPLATE_RECURSION_LIMIT_ERROR = "Error - template recursion limit exceeded parsing templates.";
 
 	private static final Pattern HTML_COMMENT_PATTERN = Pattern.compile("<!--(.*?)-->");
-	private static final String SUBST = "subst:";
+	static final String SUBST = "subst:";
 	private static final String SAFESUBST = "safesubst:";
 	private static final int SUBST_LENGTH = SUBST.length();
 	private static final int SAFESUBST_LENGTH = SAFESUBST.length();
@@ -57,6 +59,13 @@ public class TemplateParser extends AbstractParser {
 		fOnlyIncludeFlag = onlyIncludeFlag;
 	}
 
+	/**
+	 * @return <code>true</code> if an <code>&lt;onlyinclude&gt;</code> section was parsed
+	 */
+	boolean isOnlyInclude() {
+		return fOnlyIncludeFlag;
+	}
+
 	public static void parse(final String rawWikitext, final IWikiModel wikiModel, final Appendable writer,
 			final boolean renderTemplate) throws IOException {
 		parse(rawWikitext, wikiModel, writer, false, renderTemplate);
@@ -115,17 +124,14 @@ public class TemplateParser extends AbstractParser {
 		try {
 			final int templateLevel = wikiModel.incrementTemplateRecursionLevel();
 			if (templateLevel > Configuration.TEMPLATE_RECURSION_LIMIT) {
-				writer.append("Error - template recursion limit exceeded parsing templates.");
+				writer.append(TEMPLATE_RECURSION_LIMIT_ERROR);
 				return false;
 			}
 
-			final StringBuilder sb = new StringBuilder(rawWikitext.length());
-			final TemplateParser parser = new TemplateParser(rawWikitext, false, renderTemplate, onlyIncludeFlag);
-			parser.setModel(wikiModel);
-			parser.runPreprocessParser(0, startIndex, sb, /* ignoreTemplateTags */ false);
-			writer.append(substituteParameters(templateParameterMap, wikiModel, sb));
-
-			return parser.fOnlyIncludeFlag;
+			final PreprocessedText text = PreprocessedText.preprocess(rawWikitext, startIndex, wikiModel,
+					renderTemplate, onlyIncludeFlag);
+			text.expand(templateParameterMap, wikiModel, writer);
+			return text.isOnlyInclude();
 		} catch (Exception | Error e) {
 			handleParserError(e, writer);
 			return false;
@@ -134,78 +140,191 @@ public class TemplateParser extends AbstractParser {
 		}
 	}
 
-	private static StringBuilder substituteParameters(final Map<String, String> templateParameterMap,
-			final IWikiModel wikiModel, final StringBuilder writer) {
-		final boolean hasParamsToReplace = templateParameterMap != null && !templateParameterMap.isEmpty();
-		final boolean hasEmptyDefaultParams = writer.indexOf("{{{|") != -1;
-
-		if (hasParamsToReplace || hasEmptyDefaultParams) {
-			final TemplateParser scanner = new TemplateParser(writer.toString());
-			scanner.setModel(wikiModel);
-			final StringBuilder result = scanner.replaceTemplateParameters(templateParameterMap, 0);
-			if (result != null) {
-				return result;
-			}
+	public static void parseRecursive(final String rawWikitext, final IWikiModel wikiModel, final Appendable writer,
+			final boolean parseOnlySignature, final boolean renderTemplate,
+			final Map<String, String> templateParameterMap) throws IOException {
+		final IRenderMetrics metrics = wikiModel.getRenderMetrics();
+		if (metrics == null || wikiModel.getTemplateRecursionLevel() != 0) {
+			parseRecursiveInternal(rawWikitext, wikiModel, writer, parseOnlySignature, renderTemplate,
+					templateParameterMap);
+			return;
+		}
+		// measure the expansion of the complete text only, nested calls are included
+		final int lengthBefore = writer instanceof CharSequence ? ((CharSequence) writer).length() : -1;
+		final long start = System.nanoTime();
+		try {
+			parseRecursiveInternal(rawWikitext, wikiModel, writer, parseOnlySignature, renderTemplate,
+					templateParameterMap);
+		} finally {
+			metrics.phase(IRenderMetrics.Phase.TEMPLATE_EXPANSION, System.nanoTime() - start, rawWikitext.length(),
+					lengthBefore < 0 ? -1 : ((CharSequence) writer).length() - lengthBefore);
 		}
-		return writer;
 	}
 
-	public static void parseRecursive(final String rawWikitext, final IWikiModel wikiModel, final Appendable writer,
-			final boolean parseOnlySignature, final boolean renderTemplate,
+	private static void parseRecursiveInternal(final String rawWikitext, final IWikiModel wikiModel,
+			final Appendable writer, final boolean parseOnlySignature, final boolean renderTemplate,
 			final Map<String, String> templateParameterMap) throws IOException {
 		final int startIndex = Util.indexOfTemplateParsing(rawWikitext);
 		if (startIndex < 0) {
 			writer.append(rawWikitext);
 			return;
 		}
-		StringBuilder sb = new StringBuilder(rawWikitext.length());
-
-		parsePreprocessRecursive(startIndex, rawWikitext, wikiModel, sb, renderTemplate, false, templateParameterMap);
-
 		if (parseOnlySignature) {
+			final StringBuilder sb = new StringBuilder(rawWikitext.length());
+			parsePreprocessRecursive(startIndex, rawWikitext, wikiModel, sb, renderTemplate, false,
+					templateParameterMap);
 			writer.append(sb);
 			return;
 		}
+		parsePreprocessedText(null, rawWikitext, startIndex, wikiModel, writer, renderTemplate,
+				templateParameterMap);
+	}
+
+	/**
+	 * Parse the text of a transcluded template, which was preprocessed before, for example by the
+	 * {@link info.bliki.wiki.model.IPreprocessedTemplateCache}.
+	 *
+	 * @param preprocessedText
+	 *            the preprocessed template text
+	 * @param templateParameterMap
+	 *            the parameters of the template call
+	 * @see #parseRecursive(String, IWikiModel, Appendable, boolean, boolean, Map)
+	 */
+	public static void parseRecursive(final PreprocessedText preprocessedText, final IWikiModel wikiModel,
+			final Appendable writer, final Map<String, String> templateParameterMap) throws IOException {
+		parsePreprocessedText(preprocessedText, preprocessedText.getText(), 0, wikiModel, writer, false,
+				templateParameterMap);
+	}
 
+	/**
+	 * Substitute the template parameters of a preprocessed text and expand its templates. The text is preprocessed
+	 * first, if no <code>preprocessedText</code> is given.
+	 */
+	private static void parsePreprocessedText(@Nullable final PreprocessedText preprocessedText,
+			final String rawWikitext, final int startIndex, final IWikiModel wikiModel, final Appendable writer,
+			final boolean renderTemplate, final Map<String, String> templateParameterMap) throws IOException {
+		final StringBuilder sb = new StringBuilder(rawWikitext.length());
+		PreprocessedText.Substitution substitution = null;
 		try {
 			final int templateLevel = wikiModel.incrementTemplateRecursionLevel();
 			if (templateLevel > Configuration.TEMPLATE_RECURSION_LIMIT) {
-				writer.append("Error - template recursion limit exceeded parsing templates.");
+				sb.append(TEMPLATE_RECURSION_LIMIT_ERROR);
+			} else {
+				final PreprocessedText text = preprocessedText != null ? preprocessedText
+						: PreprocessedText.preprocess(rawWikitext, startIndex, wikiModel, renderTemplate, false);
+				substitution = text.substitute(templateParameterMap, wikiModel);
+			}
+		} catch (Exception | Error e) {
+			handleParserError(e, sb);
+		} finally {
+			wikiModel.decrementTemplateRecursionLevel();
+		}
+		if (substitution != null) {
+			if (substitution.isNodeExpansion()) {
+				parseNodes(substitution, wikiModel, writer, renderTemplate, templateParameterMap);
 				return;
 			}
+			substitution.appendTo(sb);
+		}
+		parseSubstitutedText(sb.toString(), wikiModel, writer, renderTemplate, templateParameterMap);
+	}
 
-			TemplateParser parser = new TemplateParser(sb.toString(), false, renderTemplate);
+	/**
+	 * Expand the templates of a substituted text by walking its nodes. The result is the same as the result of
+	 * {@link #parseSubstitutedText(String, IWikiModel, Appendable, boolean, Map)} for the substituted text.
+	 */
+	private static void parseNodes(final PreprocessedText.Substitution substitution, final IWikiModel wikiModel,
+			final Appendable writer, final boolean renderTemplate, final Map<String, String> templateParameterMap)
+			throws IOException {
+		try {
+			final int templateLevel = wikiModel.incrementTemplateRecursionLevel();
+			if (templateLevel > Configuration.TEMPLATE_RECURSION_LIMIT) {
+				writer.append(TEMPLATE_RECURSION_LIMIT_ERROR);
+				return;
+			}
+			final StringBuilder sb = new StringBuilder();
+			String text;
+			if (substitution.expandNodes(wikiModel, renderTemplate, sb) && !wikiModel.isParameterParsingMode()
+					&& containsParserSyntax(text = sb.toString())) {
+				// parse again, expansion inside parameter arguments
+				final TemplateParser parser = new TemplateParser(text, false, renderTemplate);
+				parser.setModel(wikiModel);
+				sb.setLength(0);
+				parser.runParser(sb);
+			}
+			text = sb.toString();
+			appendExpandedText(text, wikiModel, writer, renderTemplate, templateParameterMap);
+		} catch (Exception | Error e) {
+			handleParserError(e, writer);
+		} finally {
+			wikiModel.decrementTemplateRecursionLevel();
+		}
+	}
+
+	/**
+	 * Parse a template call or template parameter node of a {@link PreprocessedText} like the template pass over the
+	 * substituted text.
+	 *
+	 * @param position
+	 *            the offset to start parsing at, the text before it is copied
+	 */
+	static void parseNode(String text, final int position, final IWikiModel wikiModel, final boolean renderTemplate,
+			final Appendable writer) throws IOException {
+		if (position == 0 && text.contains(SUBST)) {
+			// substituted parameter values may form subst: calls
+			final TemplateParser parser = new TemplateParser(text, false, renderTemplate);
 			parser.setModel(wikiModel);
-			sb = new StringBuilder(sb.length());
-			// process <math>, <source>, <pre> tags
+			final StringBuilder sb = new StringBuilder(text.length());
 			parser.runPreprocessParser(sb, true);
+			text = sb.toString();
+		}
+		final TemplateParser parser = new TemplateParser(text, false, renderTemplate);
+		parser.setModel(wikiModel);
+		writer.append(text, 0, position);
+		parser.fCurrentPosition = position;
+		parser.runParser(writer);
+	}
 
-			parser = new TemplateParser(sb.toString(), parseOnlySignature, renderTemplate);
-			parser.setModel(wikiModel);
-			sb = new StringBuilder(sb.length());
-			parser.runParser(sb);
+	/**
+	 * Expand the templates of a text, which is already preprocessed and has the template parameters substituted.
+	 */
+	private static void parseSubstitutedText(String text, final IWikiModel wikiModel, final Appendable writer,
+			final boolean renderTemplate, final Map<String, String> templateParameterMap) throws IOException {
+		StringBuilder sb;
+		try {
+			final int templateLevel = wikiModel.incrementTemplateRecursionLevel();
+			if (templateLevel > Configuration.TEMPLATE_RECURSION_LIMIT) {
+				writer.append(TEMPLATE_RECURSION_LIMIT_ERROR);
+				return;
+			}
 
-			// parse again, expansion inside parameter arguments
-			if (!wikiModel.isParameterParsingMode()) {
-				parser = new TemplateParser(sb.toString(), parseOnlySignature, renderTemplate);
+			// the following passes copy texts without special tags, templates or signatures unchanged
+			if (containsParserSyntax(text)) {
+				final TemplateParser parser = new TemplateParser(text, false, renderTemplate);
 				parser.setModel(wikiModel);
-				sb = new StringBuilder(sb.length());
-				parser.runParser(sb);
+				sb = new StringBuilder(text.length());
+				// process <math>, <source>, <pre> tags
+				parser.runPreprocessParser(sb, true);
+				text = sb.toString();
 			}
 
-			if (!renderTemplate) {
-				final String redirectedLink = parseRedirect(sb.toString(), wikiModel);
-				if (redirectedLink != null) {
-					final String redirectedContent = getRedirectedTemplateContent(wikiModel, redirectedLink,
-							templateParameterMap);
-					if (redirectedContent != null) {
-						parseRecursive(redirectedContent, wikiModel, writer, parseOnlySignature, renderTemplate,
-								templateParameterMap);
-						return;
-					}
+			if (containsParserSyntax(text)) {
+				TemplateParser parser = new TemplateParser(text, false, renderTemplate);
+				parser.setModel(wikiModel);
+				sb = new StringBuilder(text.length());
+				parser.runParser(sb);
+				text = sb.toString();
+
+				// parse again, expansion inside parameter arguments
+				if (!wikiModel.isParameterParsingMode() && containsParserSyntax(text)) {
+					parser = new TemplateParser(text, false, renderTemplate);
+					parser.setModel(wikiModel);
+					sb = new StringBuilder(text.length());
+					parser.runParser(sb);
+					text = sb.toString();
 				}
 			}
-			writer.append(sb);
+			appendExpandedText(text, wikiModel, writer, renderTemplate, templateParameterMap);
 		} catch (Exception | Error e) {
 			handleParserError(e, writer);
 		} finally {
@@ -213,6 +332,51 @@ public class TemplateParser extends AbstractParser {
 		}
 	}
 
+	/**
+	 * Append the expanded text of a template or, if it is a redirect, the expanded redirected template.
+	 */
+	private static void appendExpandedText(final String text, final IWikiModel wikiModel, final Appendable writer,
+			final boolean renderTemplate, final Map<String, String> templateParameterMap) throws IOException {
+		if (!renderTemplate) {
+			final String redirectedLink = parseRedirect(text, wikiModel);
+			if (redirectedLink != null) {
+				final String redirectedContent = getRedirectedTemplateContent(wikiModel, redirectedLink,
+						templateParameterMap);
+				if (redirectedContent != null) {
+					parseRecursive(redirectedContent, wikiModel, writer, false, renderTemplate, templateParameterMap);
+					return;
+				}
+			}
+		}
+		writer.append(text);
+	}
+
+	/**
+	 * Check if a text contains a start of a template <code>{{</code>, a tag or comment <code>&lt;</code> or a
+	 * signature <code>~~~</code>, which may be changed by {@link #runPreprocessParser(StringBuilder, boolean)} or
+	 * {@link #runParser(Appendable)}.
+	 */
+	private static boolean containsParserSyntax(final String text) {
+		final int length = text.length();
+		for (int i = 0; i < length; i++) {
+			switch (text.charAt(i)) {
+			case '<':
+				return true;
+			case '{':
+				if (i + 1 < length && text.charAt(i + 1) == '{') {
+					return true;
+				}
+				break;
+			case '~':
+				if (i + 2 < length && text.charAt(i + 1) == '~' && text.charAt(i + 2) == '~') {
+					return true;
+				}
+				break;
+			}
+		}
+		return false;
+	}
+
 	private static void handleParserError(final Throwable e, final Appendable writer) {
 		Throwables.log(log, e);
 		try {
@@ -599,7 +763,7 @@ public class TemplateParser extends AbstractParser {
 				final int whiteEndPosition = fCurrentPosition - diff;
 				final int count = whiteEndPosition - whiteStartPosition;
 				if (count > 0) {
-					if (stripHTMLComments) {
+					if (stripHTMLComments && containsHTMLComment(whiteStartPosition, whiteEndPosition)) {
 						writer.append(HTML_COMMENT_PATTERN
 								.matcher(fStringSource.substring(whiteStartPosition, whiteEndPosition)).replaceAll(""));
 					} else {
@@ -612,6 +776,15 @@ public class TemplateParser extends AbstractParser {
 		}
 	}
 
+	private boolean containsHTMLComment(final int startPosition, final int endPosition) {
+		for (int i = startPosition; i < endPosition - 3; i++) {
+			if (fSource[i] == '<' && fSource[i + 1] == '!' && fSource[i + 2] == '-' && fSource[i + 3] == '-') {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	private void appendContentWithComment(final Appendable writer, final int startPosition) throws IOException {
 		if (fWhiteStartPosition < startPosition - 1) {
 			appendContent(writer, fWhiteStart, fWhiteStartPosition, fCurrentPosition - startPosition + 1, true);
@@ -710,7 +883,8 @@ public class TemplateParser extends AbstractParser {
 	 * <li>Check if the call is a parser function in the <code>checkParserFunction()</code> method; if <code>true</code>
 	 * execute the parser function and return.</li>
 	 * <li>Split the template call in the <code>createParameterMap()</code method
-	 * into a <code>templateName</code> and a parameter/value map.</li>
+	 * into a <code>templateName</code> and a {@link TemplateParameterMap}, which expands the parameter values on
+	 * demand.</li>
 	 * <li>Substitute the raw template text into the existing text and replace all template parameters with their value
 	 * in <code>TemplateParser.parseRecursive()</code method.</li>
 	 * </ol>
@@ -724,17 +898,31 @@ public class TemplateParser extends AbstractParser {
 	private boolean parseTemplate(final Appendable writer, final int startTemplatePosition,
 			final int templateEndPosition) throws IOException {
 		fCurrentPosition = templateEndPosition;
-
-		final int endPosition = fCurrentPosition;
-		String plainContent;
-		final int endOffset = fCurrentPosition - 2;
 		final Object[] objs = createParameterMap(fSource, startTemplatePosition,
-				fCurrentPosition - startTemplatePosition - 2);
+				templateEndPosition - startTemplatePosition - 2);
 		@SuppressWarnings("unchecked")
 		final List<String> parts = (List<String>) objs[0];
-		String templateName = (String) objs[1];
+		return parseTemplate(fSource, startTemplatePosition, templateEndPosition, parts, (String) objs[1],
+				fWikiModel, writer);
+	}
+
+	/**
+	 * Evaluate a single template call {{...}}, which was split by <code>createParameterMap()</code>.
+	 *
+	 * @param parts
+	 *            the modifiable list of the template call parts
+	 * @param templateName
+	 *            the unexpanded template name
+	 * @return <code>false</code> if the template name isn't valid
+	 * @see #parseTemplate(Appendable, int, int)
+	 */
+	static boolean parseTemplate(final char[] src, final int startTemplatePosition, final int templateEndPosition,
+			final List<String> parts, String templateName, final IWikiModel wikiModel, final Appendable writer)
+			throws IOException {
+		String plainContent;
+		final int endOffset = templateEndPosition - 2;
 		final StringBuilder buf = new StringBuilder(templateName.length() + templateName.length() / 10);
-		TemplateParser.parse(templateName, fWikiModel, buf, false);
+		TemplateParser.parse(templateName, wikiModel, buf, false);
 		templateName = buf.toString();
 		final int currOffset = TemplateParser.checkParserFunction(buf);
 		if (currOffset > 0) {
@@ -742,7 +930,7 @@ public class TemplateParser extends AbstractParser {
 			if (Configuration.PARSER_FUNCTIONS) {
 				System.out.println(function);
 			}
-			final ITemplateFunction templateFunction = fWikiModel.getTemplateFunction(function);
+			final ITemplateFunction templateFunction = wikiModel.getTemplateFunction(function);
 			if (templateFunction != null) {
 				// if (function.charAt(0) == '#') {
 				// #if:, #ifeq:,...
@@ -750,30 +938,24 @@ public class TemplateParser extends AbstractParser {
 				// if (Configuration.PARSER_FUNCTIONS) {
 				// System.out.println(function + ": " + parts);
 				// }
-				plainContent = templateFunction.parseFunction(parts, fWikiModel, fSource,
+				plainContent = templateFunction.parseFunction(parts, wikiModel, src,
 						startTemplatePosition + currOffset, endOffset, false);
-				fCurrentPosition = endPosition;
 				if (plainContent != null) {
-					TemplateParser.parseRecursive(plainContent, fWikiModel, writer, false, false);
+					TemplateParser.parseRecursive(plainContent, wikiModel, writer, false, false);
 				}
 				return true;
 			}
-			fCurrentPosition = endOffset + 2;
 		}
 		if (Util.isInvalidTemplateName(templateName)) {
 			return false;
 		}
-		fCurrentPosition = endPosition;
-		final LinkedHashMap<String, String> parameterMap = new LinkedHashMap<>();
-		if (parts.size() > 1) {
-			final List<String> unnamedParameters = new ArrayList<>();
-			for (int i = 1; i < parts.size(); i++) {
-				createSingleParameter(parts.get(i), fWikiModel, parameterMap, unnamedParameters);
-			}
-			mergeParameters(parameterMap, unnamedParameters);
+		// the parameter values are only expanded, if the template uses them
+		final TemplateParameterMap parameterMap = new TemplateParameterMap(wikiModel);
+		for (int i = 1; i < parts.size(); i++) {
+			parameterMap.addParameter(parts.get(i));
 		}
 
-		fWikiModel.substituteTemplateCall(templateName, parameterMap, writer);
+		wikiModel.substituteTemplateCall(templateName, parameterMap, writer);
 		return true;
 	}
 
@@ -900,12 +1082,33 @@ public class TemplateParser extends AbstractParser {
 	 */
 	public static void createSingleParameter(final String srcString, final IWikiModel wikiModel,
 			final Map<String, String> namedParameterMap, final List<String> unnamedParams) {
+		final String[] nameAndValue = splitParameter(srcString);
+		if (nameAndValue == null) {
+			return;
+		}
+		final String parameter = nameAndValue[0];
+		final String value = expandParameterValue(nameAndValue[1], parameter != null, wikiModel);
+		if (parameter != null) {
+			namedParameterMap.put(parameter, value);
+		} else {
+			unnamedParams.add(value);
+		}
+	}
+
+	/**
+	 * Split a single parameter of a template call at the first <code>=</code> character, which isn't nested in a
+	 * link, template or template parameter.
+	 *
+	 * @return an array with the trimmed parameter name (<code>null</code> for an unnamed parameter) at index [0] and
+	 *         the unexpanded value at index [1] or <code>null</code> if no value can be found
+	 */
+	@Nullable
+	static String[] splitParameter(final String srcString) {
 		int currOffset = 0;
 		final char[] src = srcString.toCharArray();
 		final int endOffset = srcString.length();
 		char ch;
 		String parameter = null;
-		String value;
 		boolean equalCharParsed = false;
 
 		int lastOffset = currOffset;
@@ -949,32 +1152,34 @@ public class TemplateParser extends AbstractParser {
 
 		} catch (final IndexOutOfBoundsException e) {
 
+		}
+		if (currOffset >= lastOffset) {
+			return new String[] { parameter, srcString.substring(lastOffset, currOffset) };
+		}
+		return null;
+	}
+
+	/**
+	 * Expand the templates in the value of a template call parameter.
+	 *
+	 * @param value
+	 *            the unexpanded value
+	 * @param named
+	 *            <code>true</code> for a named parameter. See <a
+	 *            href="https://en.wikipedia.org/wiki/Help:Template">Help:Template</a>: <i>whitespace characters are not
+	 *            automatically stripped from the start and end of unnamed parameters</i>
+	 */
+	static String expandParameterValue(final String value, final boolean named, final IWikiModel wikiModel) {
+		final boolean parameterParsingMode = wikiModel.isParameterParsingMode();
+		final StringBuilder buf = new StringBuilder(value.length());
+		try {
+			wikiModel.setParameterParsingMode(true);
+			TemplateParser.parseRecursive(value, wikiModel, buf, false, false);
+		} catch (final IOException ignored) {
 		} finally {
-			if (currOffset >= lastOffset) {
-				try {
-					value = srcString.substring(lastOffset, currOffset);
-					final boolean parameterParsingMode = wikiModel.isParameterParsingMode();
-					try {
-						wikiModel.setParameterParsingMode(true);
-						if (parameter != null) {
-							final StringBuilder buf = new StringBuilder(value.length());
-							TemplateParser.parseRecursive(value, wikiModel, buf, false, false);
-							value = Util.trimNewlineRight(buf.toString());
-							namedParameterMap.put(parameter, value);
-						} else {
-							// whitespace characters are not automatically stripped from the
-							// start and end of unnamed parameters!
-							final StringBuilder buf = new StringBuilder(value.length());
-							TemplateParser.parseRecursive(value, wikiModel, buf, false, false);
-							unnamedParams.add(buf.toString());
-						}
-					} finally {
-						wikiModel.setParameterParsingMode(parameterParsingMode);
-					}
-				} catch (final IOException ignored) {
-				}
-			}
+			wikiModel.setParameterParsingMode(parameterParsingMode);
 		}
+		return named ? Util.trimNewlineRight(buf.toString()) : buf.toString();
 	}
 
 	/**
@@ -1058,8 +1263,6 @@ public class TemplateParser extends AbstractParser {
 			fScannerPosition += curlyBraceOffset;
 			char ch;
 			int parameterStart = -1;
-			StringBuilder recursiveResult;
-			boolean isDefaultValue;
 			while (true) {
 				ch = fSource[fScannerPosition++];
 				if (ch == '{' && fSource[fScannerPosition] == '{' && fSource[fScannerPosition + 1] == '{'
@@ -1070,52 +1273,17 @@ public class TemplateParser extends AbstractParser {
 					final int temp[] = findNestedParamEnd(fSource, parameterStart);
 					if (temp[0] >= 0) {
 						fScannerPosition = temp[0];
-						final List<String> list = splitByPipe(fSource, parameterStart, fScannerPosition - 3, null);
-						if (list.size() > 0) {
-							String parameterString = list.get(0).trim();
-
-							final TemplateParser scanner1 = new TemplateParser(parameterString);
-							scanner1.setModel(fWikiModel);
-							recursiveResult = scanner1.replaceTemplateParameters(templateParameters, curlyBraceOffset);
-							if (recursiveResult != null) {
-								parameterString = recursiveResult.toString();
-							}
-
-							String value = null;
-							isDefaultValue = false;
-							if (templateParameters != null) {
-								value = templateParameters.get(parameterString);
-							}
-							if (value == null && list.size() > 1) {
-								// default value is available for the template
-								value = list.get(1);
-								isDefaultValue = true;
+						final CharSequence value = substituteParameter(fSource, parameterStart, fScannerPosition,
+								templateParameters, curlyBraceOffset, fWikiModel);
+						if (value != null) {
+							if (buffer == null) {
+								buffer = new StringBuilder(fSource.length + 128);
 							}
-							if (value != null) {
-								if (value.length() <= Configuration.TEMPLATE_VALUE_LIMIT) {
-									if (buffer == null) {
-										buffer = new StringBuilder(fSource.length + 128);
-									}
-									if (bufferStart < fScannerPosition) {
-										buffer.append(fSource, bufferStart, parameterStart - bufferStart - 3);
-									}
-
-									final TemplateParser scanner2 = new TemplateParser(value);
-									scanner2.setModel(fWikiModel);
-									if (isDefaultValue) {
-										recursiveResult = scanner2.replaceTemplateParameters(templateParameters,
-												curlyBraceOffset);
-									} else {
-										recursiveResult = scanner2.replaceTemplateParameters(null, curlyBraceOffset);
-									}
-									if (recursiveResult != null) {
-										buffer.append(recursiveResult);
-									} else {
-										buffer.append(value);
-									}
-									bufferStart = fScannerPosition;
-								}
+							if (bufferStart < fScannerPosition) {
+								buffer.append(fSource, bufferStart, parameterStart - bufferStart - 3);
 							}
+							buffer.append(value);
+							bufferStart = fScannerPosition;
 						}
 						fScannerPosition = temp[0];
 						parameterStart = -1;
@@ -1137,4 +1305,86 @@ public class TemplateParser extends AbstractParser {
 		}
 		return buffer;
 	}
+
+	/**
+	 * Substitute a single template parameter <code>{{{name|default}}}</code>.
+	 *
+	 * @param src
+	 *            the source text
+	 * @param parameterStart
+	 *            the offset behind the opening braces of the parameter
+	 * @param parameterEnd
+	 *            the offset behind the closing braces of the parameter
+	 * @param templateParameters
+	 *            the parameters of the template call
+	 * @return <code>null</code> if neither a value nor a default value can be found
+	 */
+	@Nullable
+	static CharSequence substituteParameter(final char[] src, final int parameterStart, final int parameterEnd,
+			@Nullable final Map<String, String> templateParameters, final int curlyBraceOffset,
+			final IWikiModel wikiModel) {
+		final List<String> list = splitByPipe(src, parameterStart, parameterEnd - 3, null);
+		if (list.size() > 0) {
+			return substituteParameter(list.get(0).trim(), list.size() > 1 ? list.get(1) : null, templateParameters,
+					curlyBraceOffset, wikiModel);
+		}
+		return null;
+	}
+
+	/**
+	 * Substitute a single template parameter, which was split into its name and default value.
+	 *
+	 * @param parameterString
+	 *            the trimmed parameter name
+	 * @param defaultValue
+	 *            the unsubstituted default value or <code>null</code>
+	 * @return <code>null</code> if neither a value nor a default value can be found
+	 */
+	@Nullable
+	static CharSequence substituteParameter(String parameterString, @Nullable final String defaultValue,
+			@Nullable final Map<String, String> templateParameters, final int curlyBraceOffset,
+			final IWikiModel wikiModel) {
+		StringBuilder recursiveResult = replaceTemplateParameters(parameterString, templateParameters,
+				curlyBraceOffset, wikiModel);
+		if (recursiveResult != null) {
+			parameterString = recursiveResult.toString();
+		}
+
+		String value = null;
+		boolean isDefaultValue = false;
+		if (templateParameters != null) {
+			value = templateParameters.get(parameterString);
+		}
+		if (value == null && defaultValue != null) {
+			// default value is available for the template
+			value = defaultValue;
+			isDefaultValue = true;
+		}
+		if (value != null && value.length() <= Configuration.TEMPLATE_VALUE_LIMIT) {
+			if (isDefaultValue) {
+				recursiveResult = replaceTemplateParameters(value, templateParameters, curlyBraceOffset, wikiModel);
+			} else {
+				recursiveResult = replaceTemplateParameters(value, null, curlyBraceOffset, wikiModel);
+			}
+			return recursiveResult != null ? recursiveResult : value;
+		}
+		return null;
+	}
+
+	/**
+	 * Replace the template parameters in a text, without creating a scanner for texts without parameters.
+	 *
+	 * @return <code>null</code> if no replacement could be found
+	 */
+	@Nullable
+	private static StringBuilder replaceTemplateParameters(final String text,
+			@Nullable final Map<String, String> templateParameters, final int curlyBraceOffset,
+			final IWikiModel wikiModel) {
+		if (text.indexOf("{{{", curlyBraceOffset) < 0) {
+			return null;
+		}
+		final TemplateParser scanner = new TemplateParser(text);
+		scanner.setModel(wikiModel);
+		return scanner.replaceTemplateParameters(templateParameters, curlyBraceOffset);
+	}
 }
@@ -174,6 +174,32 @@ public class Util {
 		return ((start > 0) || (end < str.length())) ? str.substring(start, end) : str;
 	}
 
+	/**
+	 * Fold the case of the string, so that two strings are equal after folding if and only if they are equal according
+	 * to <code>String.CASE_INSENSITIVE_ORDER</code>. Can be used for case-insensitive keys in hash maps.
+	 *
+	 * @return the string itself if it is already folded
+	 */
+	public static String foldCase(String str) {
+		final int length = str.length();
+		int i = 0;
+		while (i < length) {
+			final char ch = str.charAt(i);
+			if (Character.toLowerCase(Character.toUpperCase(ch)) != ch) {
+				break;
+			}
+			i++;
+		}
+		if (i == length) {
+			return str;
+		}
+		final char[] chars = str.toCharArray();
+		for (; i < length; i++) {
+			chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+		}
+		return new String(chars);
+	}
+
 	/**
 	 * Check if the template name contains an invalid (ISO Control) character.
 	 *
@@ -0,0 +1,550 @@
+package info.bliki.wiki.filter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import info.bliki.wiki.model.IEventListener;
+import info.bliki.wiki.model.IWikiModel;
+import info.bliki.wiki.namespaces.INamespace;
+import info.bliki.wiki.namespaces.INamespace.INamespaceValue;
+import info.bliki.wiki.namespaces.INamespace.NamespaceCode;
+
+/**
+ * A scanner which reports the structure of a raw wiki text to an {@link IEventListener} without rendering it. In
+ * contrast to {@link IWikiModel#parseEvents(IEventListener, String)} no tag nodes, templates or HTML are created; all
+ * events are offset ranges into the scanned character array, so the scanner is suitable for extracting links, sections
+ * and categories from large dumps.
+ *
+ * Every <code>[[...]]</code> link is reported exactly once: links into the category namespace with
+ * {@link IEventListener#onCategory(char[], int, int)}, links into the file namespace with
+ * {@link IEventListener#onImage(char[], int, int)} and all other links with
+ * {@link IEventListener#onWikiLink(char[], int, int, String)}. Templates, tables, references and images are scanned
+ * recursively, so links inside of them are reported after the enclosing element. The content of HTML comments and of
+ * tags like &lt;nowiki&gt;, &lt;pre&gt; or &lt;math&gt; is skipped.
+ *
+ * The namespace prefixes of links and the URI schemes of URLs are compared in place with the names of the category and
+ * file namespaces and with {@link IWikiModel#getUriSchemeSet()}, which are read once when the scanner is created.
+ */
+public class WikipediaEventScanner {
+	private static final String[] NO_WIKI_MARKUP_TAGS = { "nowiki", "pre", "math", "source", "syntaxhighlight",
+			"timeline", "hiero", "score", "chem" };
+
+	private final char[] fSource;
+
+	private final IWikiModel fWikiModel;
+
+	private final IEventListener fListener;
+
+	/**
+	 * The case folded names of the category namespace, with spaces instead of underscores
+	 */
+	private final char[][] fCategoryNames;
+
+	/**
+	 * The case folded names of the file namespace, with spaces instead of underscores
+	 */
+	private final char[][] fFileNames;
+
+	/**
+	 * The URI schemes indexed by their length, case folded if {@link #fUriSchemesIgnoreCase}
+	 */
+	private final char[][][] fUriSchemes;
+
+	/**
+	 * <code>true</code> if the URI scheme set of the model ignores the case, like the default set
+	 */
+	private final boolean fUriSchemesIgnoreCase;
+
+	/**
+	 * For &lt;ref&gt; (index <code>0</code>) and the {@link #NO_WIKI_MARKUP_TAGS}: the lowest position from which the
+	 * search for the end tag failed, so unclosed tags don't search to the end of the text again.
+	 */
+	private final int[] fEndTagMissingFrom = new int[NO_WIKI_MARKUP_TAGS.length + 1];
+
+	/**
+	 * @param source
+	 *            the raw wiki text
+	 * @param wikiModel
+	 *            the model which defines the namespaces and URI schemes of the wiki
+	 * @param listener
+	 *            the listener which receives the events
+	 */
+	public WikipediaEventScanner(char[] source, IWikiModel wikiModel, IEventListener listener) {
+		fSource = source;
+		fWikiModel = wikiModel;
+		fListener = listener;
+		final INamespace namespace = wikiModel.getNamespace();
+		fCategoryNames = namespaceNames(namespace.getNamespaceByNumber(NamespaceCode.CATEGORY_NAMESPACE_KEY));
+		fFileNames = namespaceNames(namespace.getNamespaceByNumber(NamespaceCode.FILE_NAMESPACE_KEY));
+		final Set<String> uriSchemes = wikiModel.getUriSchemeSet();
+		fUriSchemesIgnoreCase = ignoresCase(uriSchemes);
+		fUriSchemes = uriSchemes(uriSchemes, fUriSchemesIgnoreCase);
+		Arrays.fill(fEndTagMissingFrom, Integer.MAX_VALUE);
+	}
+
+	private static char[][] namespaceNames(INamespaceValue namespace) {
+		if (namespace == null) {
+			return new char[0][];
+		}
+		final List<char[]> names = new ArrayList<>();
+		for (String text : namespace.getTexts()) {
+			names.add(Util.foldCase(text).replace('_', ' ').toCharArray());
+		}
+		return names.toArray(new char[names.size()][]);
+	}
+
+	/**
+	 * @return <code>true</code> if the set contains the upper case variant of a scheme
+	 */
+	private static boolean ignoresCase(Set<String> schemes) {
+		for (String scheme : schemes) {
+			final String upperCase = scheme.toUpperCase(Locale.ENGLISH);
+			if (!upperCase.equals(scheme)) {
+				return schemes.contains(upperCase);
+			}
+		}
+		return false;
+	}
+
+	private static char[][][] uriSchemes(Set<String> schemes, boolean ignoreCase) {
+		int maxLength = 0;
+		for (String scheme : schemes) {
+			maxLength = Math.max(maxLength, scheme.length());
+		}
+		final char[][][] schemesByLength = new char[maxLength + 1][][];
+		for (String scheme : schemes) {
+			final char[][] sameLength = schemesByLength[scheme.length()];
+			final int count = sameLength == null ? 0 : sameLength.length;
+			final char[][] extended = new char[count + 1][];
+			if (count > 0) {
+				System.arraycopy(sameLength, 0, extended, 0, count);
+			}
+			extended[count] = (ignoreCase ? Util.foldCase(scheme) : scheme).toCharArray();
+			schemesByLength[scheme.length()] = extended;
+		}
+		return schemesByLength;
+	}
+
+	/**
+	 * Scan the complete source and notify the listener.
+	 */
+	public void scan() {
+		int position = 0;
+		while (position < fSource.length) {
+			final char ch = fSource[position];
+			switch (ch) {
+			case '<':
+				position = scanTag(position);
+				break;
+			case '{':
+				position = scanBraces(position);
+				break;
+			case '[':
+				position = scanBrackets(position);
+				break;
+			case '=':
+				position = isStartOfLine(position) ? scanHeader(position) : position + 1;
+				break;
+			default:
+				if (Character.isLetter(ch) && (position == 0 || !Character.isLetterOrDigit(fSource[position - 1]))) {
+					position = scanWord(position);
+				} else {
+					position++;
+				}
+			}
+		}
+	}
+
+	private boolean isStartOfLine(int position) {
+		return position == 0 || fSource[position - 1] == '\n';
+	}
+
+	/**
+	 * Scan a HTML comment, a &lt;ref&gt; tag or a tag without wiki markup.
+	 */
+	private int scanTag(int position) {
+		if (startsWith(fSource, position, "<!--", false)) {
+			final int end = indexOf(fSource, "-->", position + 4);
+			return end < 0 ? fSource.length : end + 3;
+		}
+		final int nameStart = position + 1;
+		int nameEnd = nameStart;
+		while (nameEnd < fSource.length && Character.isLetter(fSource[nameEnd])) {
+			nameEnd++;
+		}
+		if (nameEnd == nameStart || nameEnd == fSource.length || !isTagNameEnd(fSource[nameEnd])) {
+			return position + 1;
+		}
+		final int nameLength = nameEnd - nameStart;
+		final int tagEnd = indexOf(fSource, ">", nameEnd);
+		if (tagEnd < 0) {
+			return nameEnd;
+		}
+		final boolean emptyTag = fSource[tagEnd - 1] == '/';
+		if (nameLength == 3 && startsWith(fSource, nameStart, "ref", true)) {
+			if (emptyTag) {
+				fListener.onRef(fSource, position, tagEnd + 1, tagEnd + 1, tagEnd + 1);
+			} else {
+				final int closeStart = indexOfEndTag(0, tagEnd + 1, nameStart, nameLength);
+				if (closeStart >= 0) {
+					fListener.onRef(fSource, position, endOfEndTag(closeStart, nameLength), tagEnd + 1, closeStart);
+				}
+			}
+			// references may contain links and templates
+			return tagEnd + 1;
+		}
+		if (!emptyTag) {
+			for (int i = 0; i < NO_WIKI_MARKUP_TAGS.length; i++) {
+				final String tagName = NO_WIKI_MARKUP_TAGS[i];
+				if (nameLength == tagName.length() && startsWith(fSource, nameStart, tagName, true)) {
+					final int closeStart = indexOfEndTag(i + 1, tagEnd + 1, nameStart, nameLength);
+					return closeStart < 0 ? tagEnd + 1 : endOfEndTag(closeStart, nameLength);
+				}
+			}
+		}
+		return nameEnd;
+	}
+
+	/**
+	 * @param tag
+	 *            the index of the tag in {@link #fEndTagMissingFrom}
+	 * @return the position of the end tag or <code>-1</code>
+	 */
+	private int indexOfEndTag(int tag, int position, int nameStart, int nameLength) {
+		if (position >= fEndTagMissingFrom[tag]) {
+			return -1;
+		}
+		final int closeStart = indexOfEndTag(fSource, position, nameStart, nameLength);
+		if (closeStart < 0) {
+			fEndTagMissingFrom[tag] = position;
+		}
+		return closeStart;
+	}
+
+	/**
+	 * Get the position behind the end tag, which starts at <code>closeStart</code>. If the closing <code>&gt;</code> is
+	 * missing, the position behind the tag name.
+	 */
+	private int endOfEndTag(int closeStart, int nameLength) {
+		final int closeEnd = indexOf(fSource, ">", closeStart);
+		if (closeEnd < 0) {
+			return Math.min(closeStart + nameLength + 2, fSource.length);
+		}
+		return closeEnd + 1;
+	}
+
+	static boolean isTagNameEnd(char ch) {
+		return ch == '>' || ch == '/' || ch == ' ' || ch == '\t' || ch == '\n' || ch == '\r';
+	}
+
+	/**
+	 * Scan a template, a template parameter or a table.
+	 */
+	private int scanBraces(int position) {
+		if (position + 1 >= fSource.length) {
+			return position + 1;
+		}
+		final char next = fSource[position + 1];
+		if (next == '{') {
+			if (position + 2 < fSource.length && fSource[position + 2] == '{') {
+				// template parameter
+				return position + 3;
+			}
+			final int templateStart = position + 2;
+			final int templateEnd = WikipediaScanner.findNestedTemplateEnd(fSource, templateStart);
+			if (templateEnd > 0) {
+				fListener.onTemplate(fSource, templateStart, templateEnd - 2);
+			}
+			return templateStart;
+		}
+		if (next == '|' && isStartOfLine(position)) {
+			final int tableEnd = indexEndOfTable(fSource, position + 2);
+			if (tableEnd > 0) {
+				fListener.onTable(fSource, position, tableEnd);
+			}
+		}
+		return position + 2;
+	}
+
+	/**
+	 * Scan an internal or an external link.
+	 */
+	private int scanBrackets(int position) {
+		if (position + 1 < fSource.length && fSource[position + 1] == '[') {
+			return scanWikiLink(position + 2);
+		}
+		final int rawStart = position + 1;
+		final int schemeEnd = indexOfUriSchemeEnd(rawStart);
+		if (schemeEnd < 0 && !startsWith(fSource, rawStart, "//", false)) {
+			return rawStart;
+		}
+		for (int i = rawStart; i < fSource.length; i++) {
+			final char ch = fSource[i];
+			if (ch == ']') {
+				fListener.onExternalLink(fSource, rawStart, i);
+				return i + 1;
+			}
+			if (ch == '\n' || ch == '[') {
+				break;
+			}
+		}
+		return rawStart;
+	}
+
+	private int scanWikiLink(int rawStart) {
+		final int end = indexEndOfWikiLink(fSource, rawStart);
+		if (end < 0) {
+			return rawStart;
+		}
+		final int rawEnd = end - 2;
+		int start = rawStart;
+		while (start < rawEnd && fSource[start] == ' ') {
+			start++;
+		}
+		if (start < rawEnd && fSource[start] != ':') {
+			int colon = start;
+			while (colon < rawEnd && fSource[colon] != ':' && fSource[colon] != '|') {
+				colon++;
+			}
+			if (colon < rawEnd && fSource[colon] == ':') {
+				int nameEnd = colon;
+				while (nameEnd > start && fSource[nameEnd - 1] <= ' ') {
+					nameEnd--;
+				}
+				if (matchesName(fCategoryNames, start, nameEnd)) {
+					fListener.onCategory(fSource, rawStart, rawEnd);
+					return end;
+				}
+				if (matchesName(fFileNames, start, nameEnd)) {
+					fListener.onImage(fSource, rawStart, rawEnd);
+					// the caption may contain links
+					return colon + 1;
+				}
+			}
+		}
+		// test for a suffix string behind the wiki link. Useful for plurals.
+		int suffixEnd = end;
+		while (suffixEnd < fSource.length && Character.isLowerCase(fSource[suffixEnd])) {
+			suffixEnd++;
+		}
+		fListener.onWikiLink(fSource, rawStart, rawEnd,
+				suffixEnd == end ? "" : new String(fSource, end, suffixEnd - end));
+		return suffixEnd;
+	}
+
+	/**
+	 * @return <code>true</code> if the text between <code>start</code> and <code>end</code> is one of the names,
+	 *         ignoring the case and the difference between spaces and underscores
+	 */
+	private boolean matchesName(char[][] names, int start, int end) {
+		for (char[] name : names) {
+			if (name.length == end - start) {
+				int i = 0;
+				while (i < name.length) {
+					final char ch = fSource[start + i];
+					if ((ch == '_' ? ' ' : Character.toLowerCase(Character.toUpperCase(ch))) != name[i]) {
+						break;
+					}
+					i++;
+				}
+				if (i == name.length) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Scan a section header line like <code>== Header ==</code>.
+	 */
+	private int scanHeader(int position) {
+		int lineEnd = indexOf(fSource, "\n", position);
+		if (lineEnd < 0) {
+			lineEnd = fSource.length;
+		}
+		int endPosition = lineEnd;
+		while (endPosition > position && Character.isWhitespace(fSource[endPosition - 1])) {
+			endPosition--;
+		}
+		int rawStart = position;
+		int rawEnd = endPosition;
+		int level = 0;
+		while (rawStart < rawEnd - 1 && fSource[rawStart] == '=' && fSource[rawEnd - 1] == '=') {
+			level++;
+			rawStart++;
+			rawEnd--;
+		}
+		if (level == 0) {
+			return position + 1;
+		}
+		fListener.onHeader(fSource, position, endPosition, rawStart, rawEnd, level > 6 ? 6 : level);
+		return rawStart;
+	}
+
+	/**
+	 * Scan a word which may start a URL with a registered URI scheme.
+	 */
+	private int scanWord(int position) {
+		final int schemeEnd = indexOfUriSchemeEnd(position);
+		if (schemeEnd < 0) {
+			int wordEnd = position + 1;
+			while (wordEnd < fSource.length && Character.isLetter(fSource[wordEnd])) {
+				wordEnd++;
+			}
+			return wordEnd;
+		}
+		int urlEnd = schemeEnd + 1;
+		while (urlEnd < fSource.length && Encoder.isUrlIdentifierPart(fSource[urlEnd])) {
+			urlEnd++;
+		}
+		// separators at the end aren't part of the URL
+		while (urlEnd > schemeEnd + 1 && ".!;?:,".indexOf(fSource[urlEnd - 1]) != -1) {
+			urlEnd--;
+		}
+		if (fWikiModel.isValidUriSchemeSpecificPart(new String(fSource, position, schemeEnd - position),
+				new String(fSource, schemeEnd + 1, urlEnd - schemeEnd - 1))) {
+			fListener.onExternalLink(fSource, position, urlEnd);
+			return urlEnd;
+		}
+		return schemeEnd + 1;
+	}
+
+	/**
+	 * @return the position of the colon behind a registered URI scheme starting at the given position or
+	 *         <code>-1</code>
+	 */
+	private int indexOfUriSchemeEnd(int position) {
+		int colon = position;
+		while (colon < fSource.length && Character.isLetter(fSource[colon])) {
+			colon++;
+		}
+		if (colon == position || colon == fSource.length || fSource[colon] != ':'
+				|| colon - position >= fUriSchemes.length || fUriSchemes[colon - position] == null) {
+			return -1;
+		}
+		for (char[] scheme : fUriSchemes[colon - position]) {
+			int i = 0;
+			while (i < scheme.length && (fUriSchemesIgnoreCase
+					? Character.toLowerCase(Character.toUpperCase(fSource[position + i]))
+					: fSource[position + i]) == scheme[i]) {
+				i++;
+			}
+			if (i == scheme.length) {
+				return colon;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the position behind the closing <code>]]</code> of a wiki link or <code>-1</code>
+	 * @see AbstractParser#findWikiLinkEnd()
+	 */
+	static int indexEndOfWikiLink(char[] source, int position) {
+		int level = 1;
+		boolean pipeSymbolFound = false;
+		while (position < source.length - 1) {
+			final char ch = source[position++];
+			if (ch == '|') {
+				pipeSymbolFound = true;
+			} else if (ch == '[' && source[position] == '[') {
+				if (!pipeSymbolFound) {
+					return -1;
+				}
+				level++;
+				position++;
+			} else if (ch == ']' && source[position] == ']') {
+				position++;
+				if (--level == 0) {
+					return position;
+				}
+			} else if (!pipeSymbolFound
+					&& (ch == '{' || ch == '}' || ch == '<' || ch == '>' || ch == '\n' || ch == '\r')) {
+				return -1;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the position behind the <code>|}</code> which closes a table or <code>-1</code>
+	 * @see WikipediaScanner#indexEndOfTable()
+	 */
+	static int indexEndOfTable(char[] source, int position) {
+		int level = 1;
+		while (position < source.length) {
+			final char ch = source[position++];
+			if (ch == '<' && startsWith(source, position - 1, "<!--", false)) {
+				position = indexOf(source, "-->", position);
+				if (position < 0) {
+					return -1;
+				}
+			} else if (ch == '\n') {
+				while (position < source.length && (source[position] == ' ' || source[position] == '\t')) {
+					position++;
+				}
+				if (startsWith(source, position, "{|", false)) {
+					level++;
+				} else if (startsWith(source, position, "|}", false) && --level == 0) {
+					return position + 2;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the position of the end tag <code>&lt;/name</code> for the tag name at the given offset or
+	 *         <code>-1</code>
+	 */
+	static int indexOfEndTag(char[] source, int position, int nameStart, int nameLength) {
+		for (int i = indexOf(source, "</", position); i >= 0; i = indexOf(source, "</", i + 2)) {
+			final int nameEnd = i + 2 + nameLength;
+			if (nameEnd < source.length && isTagNameEnd(source[nameEnd])
+					&& regionMatchesIgnoreCase(source, i + 2, nameStart, nameLength)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static boolean regionMatchesIgnoreCase(char[] source, int position, int otherPosition, int length) {
+		for (int i = 0; i < length; i++) {
+			final char ch = source[position + i];
+			final char otherChar = source[otherPosition + i];
+			if (ch != otherChar && Character.toLowerCase(ch) != Character.toLowerCase(otherChar)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	static int indexOf(char[] source, String str, int position) {
+		final char first = str.charAt(0);
+		for (int i = position; i <= source.length - str.length(); i++) {
+			if (source[i] == first && startsWith(source, i, str, false)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	static boolean startsWith(char[] source, int position, String prefix, boolean ignoreCase) {
+		if (position + prefix.length() > source.length) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length(); i++) {
+			final char ch = source[position + i];
+			final char prefixChar = prefix.charAt(i);
+			if (ch != prefixChar
+					&& (!ignoreCase || Character.toLowerCase(ch) != Character.toLowerCase(prefixChar))) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
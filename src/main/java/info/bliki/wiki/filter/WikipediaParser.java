@@ -11,6 +11,7 @@ import info.bliki.util.Throwables;
 import info.bliki.wiki.model.Configuration;
 import info.bliki.wiki.model.DefaultEventListener;
 import info.bliki.wiki.model.IEventListener;
+import info.bliki.wiki.model.IRenderMetrics;
 import info.bliki.wiki.model.ITableOfContent;
 import info.bliki.wiki.model.IWikiModel;
 import info.bliki.wiki.tags.HTMLBlockTag;
@@ -1267,11 +1268,11 @@ public class WikipediaParser extends AbstractWikipediaParser {
 				}
 				final String redirectedLink = parseRedirect(templatesParsedText, wikiModel);
 				if (redirectedLink == null) {
-					parseRecursive(templatesParsedText, wikiModel, false, false);
+					parseTopLevel(templatesParsedText, wikiModel);
 				}
 			} else {
 				if (parseRedirect(rawWikiText, wikiModel) == null) {
-					parseRecursive(rawWikiText, wikiModel, false, false);
+					parseTopLevel(rawWikiText, wikiModel);
 				}
 			}
 		} finally {
@@ -1280,6 +1281,20 @@ public class WikipediaParser extends AbstractWikipediaParser {
 		}
 	}
 
+	private static void parseTopLevel(final String wikiText, final IWikiModel wikiModel) {
+		final IRenderMetrics metrics = wikiModel.getRenderMetrics();
+		if (metrics == null) {
+			parseRecursive(wikiText, wikiModel, false, false);
+			return;
+		}
+		final long start = System.nanoTime();
+		try {
+			parseRecursive(wikiText, wikiModel, false, false);
+		} finally {
+			metrics.phase(IRenderMetrics.Phase.PARSE, System.nanoTime() - start, wikiText.length(), -1);
+		}
+	}
+
 	/**
 	 * Call the parser on the subsequent recursion levels, where the subtexts (of templates, table cells, list items or
 	 * image captions) don't contain a table of contents (TOC)
@@ -13,7 +13,6 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.ResourceBundle;
 import java.util.Set;
 import java.util.TimeZone;
@@ -34,8 +33,11 @@ import info.bliki.wiki.filter.MagicWord;
 import info.bliki.wiki.filter.MagicWord.MagicWordE;
 import info.bliki.wiki.filter.PDFConverter;
 import info.bliki.wiki.filter.ParsedPageName;
+import info.bliki.wiki.filter.PreprocessedText;
 import info.bliki.wiki.filter.SectionHeader;
+import info.bliki.wiki.filter.TemplateParameterMap;
 import info.bliki.wiki.filter.TemplateParser;
+import info.bliki.wiki.filter.Util;
 import info.bliki.wiki.filter.WikipediaParser;
 import info.bliki.wiki.filter.WikipediaPreTagParser;
 import info.bliki.wiki.namespaces.INamespace;
@@ -44,6 +46,7 @@ import info.bliki.wiki.namespaces.INamespace.NamespaceCode;
 import info.bliki.wiki.namespaces.Namespace;
 import info.bliki.wiki.tags.HTMLBlockTag;
 import info.bliki.wiki.tags.HTMLTag;
+import info.bliki.wiki.tags.ReferencesTag;
 import info.bliki.wiki.tags.TableOfContentTag;
 import info.bliki.wiki.tags.WPATag;
 import info.bliki.wiki.tags.code.SourceCodeFormatter;
@@ -64,6 +67,7 @@ public abstract class AbstractWikiModel implements IWikiModel, IContext {
 	protected Map<String, Integer> fReferenceNames;
 	protected int fRecursionLevel;
 	protected int fTemplateRecursionCount;
+	private int fTemplateCallDepth;
 	protected TagStack fTagStack;
 	private boolean fInitialized;
 	protected Locale fLocale;
@@ -71,7 +75,12 @@ public abstract class AbstractWikiModel implements IWikiModel, IContext {
 	private IEventListener fWikiListener;
 	protected final INamespace fNamespace;
 	protected String fRedirectLink;
-	protected String fPageTitle = "PAGENAME";
+	/**
+	 * The page name, if no page name is set with {@link #setPageName(String)}
+	 */
+	protected static final String DEFAULT_PAGE_NAME = "PAGENAME";
+
+	protected String fPageTitle = DEFAULT_PAGE_NAME;
 	protected String fNamespaceName = "";
 
 	protected int fSectionCounter;
@@ -100,6 +109,11 @@ public abstract class AbstractWikiModel implements IWikiModel, IContext {
 
 	protected Map<String, Counter> fTemplates;
 
+	/**
+	 * Collects the dependencies of the template call which is currently expanded, if a template calls cache is set.
+	 */
+	private TemplateDependencies fTemplateDependencies;
+
 	/**
 	 * A Map<Class,Object> that allows people to register a renderer for a particular kind of object to be displayed in
 	 * this template. This overrides any renderer set for this template's group.
@@ -109,6 +123,18 @@ public abstract class AbstractWikiModel implements IWikiModel, IContext {
 	 */
 	private Map<Class<?>, Object> attributeRenderers;
 
+	/**
+	 * The converter and buffer of a streaming render, see
+	 * {@link #renderStreaming(ITextConverter, String, Appendable, boolean)}
+	 */
+	private ITextConverter fStreamConverter;
+	private Appendable fStreamBuffer;
+	private IOException fStreamException;
+	/**
+	 * <code>true</code> after a <code>&lt;references&gt;</code> tag was parsed in a streaming render
+	 */
+	private boolean fStreamHeld;
+
 	private final InterWikiMap fInterWikiMap;
 
 	public AbstractWikiModel() {
@@ -123,12 +149,17 @@ public abstract class AbstractWikiModel implements IWikiModel, IContext {
 		this(configuration, locale, new Namespace(locale));
 	}
 
+	/**
+	 * @param namespace
+	 *            the namespaces of the wiki; a shared immutable instance from
+	 *            {@link Namespace#getSharedInstance(Locale)} avoids building the namespaces for every model
+	 */
 	public AbstractWikiModel(final Configuration configuration, final Locale locale, final INamespace namespace) {
 		fLocale = locale;
 		fInitialized = false;
 		fConfiguration = configuration;
 		fNamespace = namespace;
-		fInterWikiMap = new InterWikiMap(configuration.getInterWikiMapping(), configuration.getWikiId());
+		fInterWikiMap = configuration.getInterWikiMap();
 		initialize();
 	}
 
@@ -250,6 +281,9 @@ public abstract class AbstractWikiModel implements IWikiModel, IContext {
 	@Override
 	public void append(final BaseToken contentNode) {
 		fTagStack.append(contentNode);
+		if (fStreamBuffer != null) {
+			flushCompletedNodes();
+		}
 	}
 
 	@Override
@@ -895,6 +929,11 @@ public abstract class AbstractWikiModel implements IWikiModel, IContext {
 		return fRecursionLevel;
 	}
 
+	@Override
+	public int getTemplateRecursionLevel() {
+		return fTemplateRecursionCount;
+	}
+
 	@Override
 	public String getRedirectLink() {
 		return fRedirectLink;
@@ -936,11 +975,27 @@ public abstract class AbstractWikiModel implements IWikiModel, IContext {
 		return fTableOfContentTag;
 	}
 
+	@Deprecated
 	@Override
 	public Map<String, String> getTemplateCallsCache() {
 		return fConfiguration.getTemplateCallsCache();
 	}
 
+	@Override
+	public ITemplateCallsCache getSharedTemplateCallsCache() {
+		return fConfiguration.getSharedTemplateCallsCache();
+	}
+
+	@Override
+	public IRenderMetrics getRenderMetrics() {
+		return fConfiguration.getRenderMetrics();
+	}
+
+	@Override
+	public IPreprocessedTemplateCache getPreprocessedTemplateCache() {
+		return fConfiguration.getPreprocessedTemplateCache();
+	}
+
 	@Override
 	public ITemplateFunction getTemplateFunction(final String name) {
 		return getTemplateMap().get(name);
@@ -993,10 +1048,11 @@ public abstract class AbstractWikiModel implements IWikiModel, IContext {
 			fReferenceNames = null;
 			fRecursionLevel = 0;
 			fTemplateRecursionCount = 0;
+			fTemplateCallDepth = 0;
 			fSectionCounter = 0;
 			fExternalLinksCounter = 0;
 			fInitialized = true;
-			fTemplates = new HashMap<>();
+			resetTemplates();
 		}
 	}
 
@@ -1120,7 +1176,11 @@ public abstract class AbstractWikiModel implements IWikiModel, IContext {
 
 	@Override
 	public TagToken popNode() {
-		return fTagStack.pop();
+		final TagToken node = fTagStack.pop();
+		if (fStreamBuffer != null) {
+			flushCompletedNodes();
+		}
+		return node;
 	}
 
 	@Override
@@ -1179,10 +1239,14 @@ public abstract class AbstractWikiModel implements IWikiModel, IContext {
 		}
 		fTemplateTopic = templateTopic;
 		WikipediaParser.parse(rawWikiText, this, parseTemplates, null);
+		if (fStreamException != null) {
+			fInitialized = false;
+			throw fStreamException;
+		}
 		if (converter != null) {
 			final List<BaseToken> list = fTagStack.getNodeList();
 			try {
-				converter.nodesToText(list, buf, this);
+				nodesToText(converter, list, buf);
 			} finally {
 				fInitialized = false;
 			}
@@ -1191,6 +1255,86 @@ public abstract class AbstractWikiModel implements IWikiModel, IContext {
 		fInitialized = false;
 	}
 
+	@Override
+	public void renderStreaming(final ITextConverter converter, final String rawWikiText, final Appendable buf,
+			final boolean templateTopic) throws IOException {
+		fStreamConverter = converter;
+		fStreamBuffer = converter != null ? buf : null;
+		fStreamException = null;
+		fStreamHeld = false;
+		try {
+			render(converter, rawWikiText, buf, templateTopic, true);
+		} finally {
+			fStreamConverter = null;
+			fStreamBuffer = null;
+			fStreamException = null;
+		}
+	}
+
+	/**
+	 * Render and remove the completed nodes of the top-level node list, if no tag is open on the first parser
+	 * recursion level. Once a table of contents is created, all following nodes are kept, because its content is only
+	 * known after all section headers are parsed. A <code>&lt;references&gt;</code> tag and all following nodes are
+	 * kept too, because the tag lists the references of the whole page.
+	 */
+	private void flushCompletedNodes() {
+		if (fStreamHeld || fRecursionLevel != 1 || !fTagStack.isEmpty()
+				|| (fTableOfContentTag != null && !isNoToc())) {
+			return;
+		}
+		final List<BaseToken> nodeList = fTagStack.getNodeList();
+		int count = 0;
+		while (count < nodeList.size() && !containsReferences(nodeList.get(count))) {
+			count++;
+		}
+		fStreamHeld = count < nodeList.size();
+		if (count > 0) {
+			final List<BaseToken> completedNodes = nodeList.subList(0, count);
+			final Appendable buf = fStreamBuffer;
+			// renderers may parse wiki text recursively, don't flush in between
+			fStreamBuffer = null;
+			try {
+				nodesToText(fStreamConverter, completedNodes, buf);
+				completedNodes.clear();
+				fStreamBuffer = buf;
+			} catch (final IOException e) {
+				// stop streaming and report the exception after parsing
+				fStreamException = e;
+			}
+		}
+	}
+
+	private static boolean containsReferences(final Object node) {
+		if (node instanceof ReferencesTag) {
+			return true;
+		}
+		if (node instanceof TagNode) {
+			for (final Object child : ((TagNode) node).getChildren()) {
+				if (containsReferences(child)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private void nodesToText(final ITextConverter converter, final List<BaseToken> nodes, final Appendable buf)
+			throws IOException {
+		final IRenderMetrics metrics = fConfiguration.getRenderMetrics();
+		if (metrics == null) {
+			converter.nodesToText(nodes, buf, this);
+			return;
+		}
+		final int lengthBefore = buf instanceof CharSequence ? ((CharSequence) buf).length() : -1;
+		final long start = System.nanoTime();
+		try {
+			converter.nodesToText(nodes, buf, this);
+		} finally {
+			metrics.phase(IRenderMetrics.Phase.CONVERSION, System.nanoTime() - start, -1,
+					lengthBefore < 0 ? -1 : ((CharSequence) buf).length() - lengthBefore);
+		}
+	}
+
 	@Override
 	public String render(final String rawWikiText) throws IOException {
 		return render(rawWikiText, false);
@@ -1300,11 +1444,27 @@ public abstract class AbstractWikiModel implements IWikiModel, IContext {
 
 	}
 
+	@Deprecated
 	@Override
 	public void setTemplateCallsCache(final Map<String, String> map) {
 		fConfiguration.setTemplateCallsCache(map);
 	}
 
+	@Override
+	public void setSharedTemplateCallsCache(final ITemplateCallsCache cache) {
+		fConfiguration.setSharedTemplateCallsCache(cache);
+	}
+
+	@Override
+	public void setRenderMetrics(final IRenderMetrics metrics) {
+		fConfiguration.setRenderMetrics(metrics);
+	}
+
+	@Override
+	public void setPreprocessedTemplateCache(final IPreprocessedTemplateCache cache) {
+		fConfiguration.setPreprocessedTemplateCache(cache);
+	}
+
 	@Override
 	public void setUp() {
 		fFormatter = null;
@@ -1316,13 +1476,26 @@ public abstract class AbstractWikiModel implements IWikiModel, IContext {
 		fReferenceNames = null;
 		fRecursionLevel = 0;
 		fTemplateRecursionCount = 0;
+		fTemplateCallDepth = 0;
 		fRedirectLink = null;
 		fSectionCounter = 0;
 		fExternalLinksCounter = 0;
-		fTemplates = new HashMap<>();
+		resetTemplates();
+		fTemplateDependencies = null;
 		fParameterParsingMode = false;
 	}
 
+	/**
+	 * The template loop counters are internal to the model, so the map can be reused.
+	 */
+	private void resetTemplates() {
+		if (fTemplates == null) {
+			fTemplates = new HashMap<>();
+		} else {
+			fTemplates.clear();
+		}
+	}
+
 	@Override
 	public boolean showSyntax(final String tagName) {
 		return true;
@@ -1333,6 +1506,44 @@ public abstract class AbstractWikiModel implements IWikiModel, IContext {
 		return fTagStack.size();
 	}
 
+	/**
+	 * Parse the content of a transcluded template with the preprocessed text from the cache. The text is preprocessed
+	 * and added to the cache, if it isn't cached for the current revision of the template.
+	 */
+	private void parseRecursiveCached(final IPreprocessedTemplateCache cache, final ParsedPageName parsedPagename,
+			final String fullTemplateStr, final String content, final Appendable writer,
+			final Map<String, String> parameterMap) throws IOException {
+		final int startIndex = Util.indexOfTemplateParsing(content);
+		if (startIndex < 0) {
+			writer.append(content);
+			return;
+		}
+		final long revision = getTemplateRevision(parsedPagename, content);
+		PreprocessedText preprocessedText = cache.get(fullTemplateStr, revision);
+		if (preprocessedText == null) {
+			preprocessedText = PreprocessedText.preprocess(content, startIndex, this, false, false);
+			if (preprocessedText.isCacheable()) {
+				cache.put(fullTemplateStr, revision, preprocessedText);
+			}
+		}
+		TemplateParser.parseRecursive(preprocessedText, this, writer, parameterMap);
+	}
+
+	/**
+	 * Get the revision of a template, which is used as key of the {@link IPreprocessedTemplateCache}. The default
+	 * implementation returns a hash of the content, models which know the revision ids of the pages may override this
+	 * method.
+	 *
+	 * @param parsedPagename
+	 *            the parsed name of the template
+	 * @param content
+	 *            the raw content of the template
+	 * @return the revision of the template content
+	 */
+	protected long getTemplateRevision(final ParsedPageName parsedPagename, final String content) {
+		return PreprocessedTemplateCache.contentRevision(content);
+	}
+
 	/**
 	 * Substitute the template name by the template content and parameters and append the new content to the writer.
 	 *
@@ -1347,7 +1558,12 @@ public abstract class AbstractWikiModel implements IWikiModel, IContext {
 	@Override
 	public void substituteTemplateCall(final String templateName, final Map<String, String> parameterMap,
 			final Appendable writer) throws IOException {
+		final IRenderMetrics metrics = fConfiguration.getRenderMetrics();
+		final long start = metrics != null ? System.nanoTime() : 0L;
+		String fullTemplateStr = null;
 		Counter val = null;
+		TemplateDependencies dependencies = null;
+		fTemplateCallDepth++;
 		try {
 			final ParsedPageName parsedPagename = ParsedPageName.parsePageName(this, templateName,
 					fNamespace.getTemplate(), true, true);
@@ -1357,7 +1573,7 @@ public abstract class AbstractWikiModel implements IWikiModel, IContext {
 				writer.append("}}");
 				return;
 			}
-			final String fullTemplateStr = parsedPagename.fullPagename();
+			fullTemplateStr = parsedPagename.fullPagename();
 
 			val = fTemplates.get(fullTemplateStr);
 			if (val == null) {
@@ -1369,41 +1585,37 @@ public abstract class AbstractWikiModel implements IWikiModel, IContext {
 						.append(fullTemplateStr).append("</strong></span>");
 				return;
 			}
+			if (parameterMap instanceof TemplateParameterMap) {
+				((TemplateParameterMap) parameterMap).setCalledTemplateCounter(val);
+			}
 
-			Map<String, String> templateCallsCache;
-			String cacheKey = null;
-			int cacheKeyLength = 0;
-			templateCallsCache = fConfiguration.getTemplateCallsCache();
+			ITemplateCallsCache templateCallsCache = fConfiguration.getSharedTemplateCallsCache();
+			TemplateCallKey cacheKey = null;
 			if (templateCallsCache != null) {
-				cacheKeyLength += fullTemplateStr.length() + 1;
-				for (final Entry<String, String> entry : parameterMap.entrySet()) {
-					cacheKeyLength += entry.getKey().length() + entry.getValue().length() + 2;
+				cacheKey = TemplateCallKey.create(fullTemplateStr, parameterMap);
+				final CachedTemplateCall value = templateCallsCache.get(cacheKey);
+				if (metrics != null) {
+					metrics.templateCacheAccess(value != null);
 				}
-				if (cacheKeyLength < Configuration.MAX_CACHE_KEY_LENGTH) {
-					final StringBuilder cacheKeyBuffer = new StringBuilder(cacheKeyLength);
-					cacheKeyBuffer.append(fullTemplateStr);
-					cacheKeyBuffer.append("|");
-					for (final Entry<String, String> entry : parameterMap.entrySet()) {
-						cacheKeyBuffer.append(entry.getKey());
-						cacheKeyBuffer.append("=");
-						cacheKeyBuffer.append(entry.getValue());
-						cacheKeyBuffer.append("|");
+				if (value != null) {
+					writer.append(value.getContent());
+					// report the dependencies of the cached call as if the template was expanded
+					for (final String template : value.getTemplates()) {
+						addTemplateDependency(template);
 					}
-					cacheKey = cacheKeyBuffer.toString();
-
-					final String value = templateCallsCache.get(cacheKey);
-					if (value != null) {
-						// System.out.println("Cache key: " + cacheKey);
-						writer.append(value);
-						if (Configuration.TEMPLATE_NAMES) {
-							System.out.println("Cached: " + fullTemplateStr + "-" + cacheKey);
-						}
-						return;
+					for (final String include : value.getIncludes()) {
+						addIncludeDependency(include);
 					}
+					if (Configuration.TEMPLATE_NAMES) {
+						System.out.println("Cached: " + fullTemplateStr + "-" + cacheKey);
+					}
+					return;
 				}
 				if (Configuration.TEMPLATE_NAMES) {
-					System.out.println("Not Cached: " + fullTemplateStr + "-" + cacheKeyLength);
+					System.out.println("Not Cached: " + fullTemplateStr + "-" + cacheKey);
 				}
+				dependencies = new TemplateDependencies(fTemplateDependencies);
+				fTemplateDependencies = dependencies;
 			}
 
 			if (parsedPagename.namespace.isType(NamespaceCode.TEMPLATE_NAMESPACE_KEY)) {
@@ -1411,16 +1623,21 @@ public abstract class AbstractWikiModel implements IWikiModel, IContext {
 					writer.append("{{").append(templateName).append("}}");
 					return;
 				}
-				addTemplate(parsedPagename.pagename);
+				addTemplateDependency(parsedPagename.pagename);
 			} else {
-				addInclude(fullTemplateStr);
+				addIncludeDependency(fullTemplateStr);
 				// invalidate cache:
 				templateCallsCache = null;
 			}
 
 			String plainContent;
+			final long contentStart = metrics != null ? System.nanoTime() : 0L;
 			try {
 				plainContent = getRawWikiContent(parsedPagename, parameterMap);
+				if (metrics != null) {
+					metrics.phase(IRenderMetrics.Phase.RAW_CONTENT, System.nanoTime() - contentStart, -1,
+							plainContent != null ? plainContent.length() : 0);
+				}
 			} catch (final WikiModelContentException wme) {
 				writer.append(wme.getMessage());
 				return;
@@ -1432,20 +1649,78 @@ public abstract class AbstractWikiModel implements IWikiModel, IContext {
 
 			final StringBuilder templateBuffer = new StringBuilder(plainContent.length());
 
-			TemplateParser.parseRecursive(plainContent.trim(), this, templateBuffer, false, false, parameterMap);
+			final IPreprocessedTemplateCache preprocessedTemplateCache = fConfiguration.getPreprocessedTemplateCache();
+			if (preprocessedTemplateCache != null) {
+				parseRecursiveCached(preprocessedTemplateCache, parsedPagename, fullTemplateStr, plainContent.trim(),
+						templateBuffer, parameterMap);
+			} else {
+				TemplateParser.parseRecursive(plainContent.trim(), this, templateBuffer, false, false, parameterMap);
+			}
 
 			if (templateCallsCache != null && cacheKey != null) {
 				// save this template call in the cache
 				final String cacheValue = templateBuffer.toString();
-				templateCallsCache.put(cacheKey, cacheValue);
+				templateCallsCache.put(cacheKey,
+						new CachedTemplateCall(cacheValue, dependencies.fTemplateNames, dependencies.fIncludeNames));
 				writer.append(cacheValue);
 			} else {
 				writer.append(templateBuffer);
 			}
 		} finally {
+			if (metrics != null && fullTemplateStr != null) {
+				metrics.templateCall(fullTemplateStr, fTemplateCallDepth, System.nanoTime() - start);
+			}
+			fTemplateCallDepth--;
 			if (val != null) {
 				val.dec();
 			}
+			if (dependencies != null) {
+				fTemplateDependencies = dependencies.fParent;
+				dependencies.mergeIntoParent();
+			}
+		}
+	}
+
+	/**
+	 * Report a used template to the wiki model and the dependencies of the template calls which are currently
+	 * expanded.
+	 */
+	private void addTemplateDependency(final String template) {
+		addTemplate(template);
+		if (fTemplateDependencies != null) {
+			fTemplateDependencies.fTemplateNames.add(template);
+		}
+	}
+
+	/**
+	 * Report an included page to the wiki model and the dependencies of the template calls which are currently
+	 * expanded.
+	 */
+	private void addIncludeDependency(final String pageName) {
+		addInclude(pageName);
+		if (fTemplateDependencies != null) {
+			fTemplateDependencies.fIncludeNames.add(pageName);
+		}
+	}
+
+	/**
+	 * The templates and included pages used by a template call, the dependencies of nested calls are merged into the
+	 * enclosing call.
+	 */
+	private static final class TemplateDependencies {
+		final TemplateDependencies fParent;
+		final Set<String> fTemplateNames = new HashSet<>();
+		final Set<String> fIncludeNames = new HashSet<>();
+
+		TemplateDependencies(final TemplateDependencies parent) {
+			fParent = parent;
+		}
+
+		void mergeIntoParent() {
+			if (fParent != null) {
+				fParent.fTemplateNames.addAll(fTemplateNames);
+				fParent.fIncludeNames.addAll(fIncludeNames);
+			}
 		}
 	}
 
@@ -1458,7 +1733,11 @@ public abstract class AbstractWikiModel implements IWikiModel, IContext {
 
 	@Override
 	public void tearDown() {
-
+		// release the per page state, which isn't needed until the next setUp()
+		fToCSet = null;
+		fTableOfContent = null;
+		fTableOfContentTag = null;
+		fTemplateDependencies = null;
 	}
 
 	/**
@@ -0,0 +1,77 @@
+package info.bliki.wiki.model;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The cached result of a template call together with the names of all templates and included pages, which were
+ * transitively used to expand it.
+ *
+ * @see ITemplateCallsCache
+ */
+public final class CachedTemplateCall {
+	private final String fContent;
+	private final Set<String> fTemplates;
+	private final Set<String> fIncludes;
+
+	/**
+	 * @param content
+	 *            the expanded template call
+	 * @param templates
+	 *            the names of the used templates without the template namespace prefix, as reported by
+	 *            {@link IWikiModel#addTemplate(String)}
+	 * @param includes
+	 *            the names of the used pages outside the template namespace, as reported by
+	 *            {@link IWikiModel#addInclude(String)}
+	 */
+	public CachedTemplateCall(final String content, final Collection<String> templates,
+			final Collection<String> includes) {
+		fContent = content;
+		fTemplates = copy(templates);
+		fIncludes = copy(includes);
+	}
+
+	private static Set<String> copy(final Collection<String> names) {
+		if (names.isEmpty()) {
+			return Collections.emptySet();
+		}
+		return Collections.unmodifiableSet(new HashSet<>(names));
+	}
+
+	/**
+	 * @return the expanded template call
+	 */
+	public String getContent() {
+		return fContent;
+	}
+
+	/**
+	 * @return the names of the used templates without the template namespace prefix
+	 */
+	public Set<String> getTemplates() {
+		return fTemplates;
+	}
+
+	/**
+	 * @return the names of the used pages outside the template namespace
+	 */
+	public Set<String> getIncludes() {
+		return fIncludes;
+	}
+
+	/**
+	 * The approximate memory footprint in characters.
+	 */
+	int weight() {
+		int weight = fContent.length() + 1;
+		for (final String template : fTemplates) {
+			weight += template.length() + 1;
+		}
+		for (final String include : fIncludes) {
+			weight += include.length() + 1;
+		}
+		return weight;
+	}
+}
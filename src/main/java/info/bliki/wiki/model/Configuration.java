@@ -2,6 +2,7 @@ package info.bliki.wiki.model;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.AbstractMap;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
@@ -10,6 +11,7 @@ import java.util.Properties;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 import info.bliki.htmlcleaner.TagToken;
@@ -164,44 +166,54 @@ public class Configuration implements IConfiguration {
 
 	public static final String DEFAULT_WIKI_ID = "enwiki";
 
-	private static Map<String, String> TEMPLATE_CALLS_CACHE = null;
-
 	/**
 	 * Map from the interwiki shortcut to the real Interwiki-URL
 	 */
 	private static final Map<String, String> INTERWIKI_MAPPING = new HashMap<>();
-	private final Map<String, String> interWikiMapping = new HashMap<>();
 
 	/**
-	 * Map the HTML token string to the corresponding TagToken implementation
+	 * The shared interwiki maps of the default interwiki mapping per wiki id
 	 */
-	protected static final HashMap<String, TagToken> TAG_TOKEN_MAP = new HashMap<>();
-	protected final HashMap<String, TagToken> tagTokenMap = new HashMap<>(TAG_TOKEN_MAP);
+	private static final Map<String, InterWikiMap> DEFAULT_INTERWIKI_MAPS = new ConcurrentHashMap<>();
+
+	private static final HashMap<String, TagToken> TAG_TOKENS = new HashMap<>();
+	private static final HashMap<String, SourceCodeFormatter> CODE_FORMATTERS = new HashMap<>();
+	private static final Map<String, ITemplateFunction> TEMPLATE_FUNCTIONS = new TreeMap<>(
+			String.CASE_INSENSITIVE_ORDER);
+	private static final Set<String> URI_SCHEMES = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+	/**
+	 * Map the HTML token string to the corresponding TagToken implementation. Like the other static maps it's an
+	 * unmodifiable view of the built-in defaults.
+	 */
+	protected static final Map<String, TagToken> TAG_TOKEN_MAP = Collections.unmodifiableMap(TAG_TOKENS);
 
 	/**
 	 * Map the source code's language string to the code formatter implementation
 	 */
-	protected static final HashMap<String, SourceCodeFormatter> CODE_FORMATTER_MAP = new HashMap<>();
+	protected static final Map<String, SourceCodeFormatter> CODE_FORMATTER_MAP = Collections
+			.unmodifiableMap(CODE_FORMATTERS);
 
 	/**
 	 * Map the template's function name to the TemplateFunction implementation
 	 */
-	protected static final Map<String, ITemplateFunction> TEMPLATE_FUNCTION_MAP = new TreeMap<>(
-			String.CASE_INSENSITIVE_ORDER);
+	protected static final Map<String, ITemplateFunction> TEMPLATE_FUNCTION_MAP = Collections
+			.unmodifiableMap(TEMPLATE_FUNCTIONS);
 
 	/**
 	 * Allowed URI schemes
 	 */
-	protected static final Set<String> URI_SCHEME_MAP = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+	protected static final Set<String> URI_SCHEME_MAP = Collections.unmodifiableSet(URI_SCHEMES);
+
 	public final static Pattern NOWIKI_OPEN_PATTERN = Pattern.compile("\\<nowiki\\>", Pattern.CASE_INSENSITIVE);
 	public final static Pattern NOWIKI_CLOSE_PATTERN = Pattern.compile("\\<\\/nowiki\\>", Pattern.CASE_INSENSITIVE);
 
 	static {
 		final Properties mapping = Configuration.loadProperties(INTERWIKI_RESOURCE_NAME);
 
-		URI_SCHEME_MAP.add("http");
-		URI_SCHEME_MAP.add("https");
-		URI_SCHEME_MAP.add("ftp");
+		URI_SCHEMES.add("http");
+		URI_SCHEMES.add("https");
+		URI_SCHEMES.add("ftp");
 
 		final Enumeration<Object> eKeys = mapping.keys();
 
@@ -212,121 +224,125 @@ public class Configuration implements IConfiguration {
 			}
 		}
 
-		TEMPLATE_FUNCTION_MAP.put("#$", DollarContext.CONST);
-		TEMPLATE_FUNCTION_MAP.put("anchorencode", Anchorencode.CONST);
-		TEMPLATE_FUNCTION_MAP.put("formatnum", Formatnum.CONST);
-		TEMPLATE_FUNCTION_MAP.put("fullurl", Fullurl.CONST);
-		TEMPLATE_FUNCTION_MAP.put("ns", NS.CONST);
-		TEMPLATE_FUNCTION_MAP.put("nse", NSE.CONST);
-		TEMPLATE_FUNCTION_MAP.put("urlencode", URLEncode.CONST);
-		TEMPLATE_FUNCTION_MAP.put("lc", LC.CONST);
-		TEMPLATE_FUNCTION_MAP.put("uc", UC.CONST);
-		TEMPLATE_FUNCTION_MAP.put("localurl", Localurl.CONST);
-		TEMPLATE_FUNCTION_MAP.put("lcfirst", LCFirst.CONST);
-		TEMPLATE_FUNCTION_MAP.put("ucfirst", UCFirst.CONST);
-		TEMPLATE_FUNCTION_MAP.put("padleft", Padleft.CONST);
-		TEMPLATE_FUNCTION_MAP.put("padright", Padright.CONST);
-		TEMPLATE_FUNCTION_MAP.put("plural", Plural.CONST);
-		TEMPLATE_FUNCTION_MAP.put("#expr", Expr.CONST);
-		TEMPLATE_FUNCTION_MAP.put("#formatdate", FormatDate.CONST);
-		TEMPLATE_FUNCTION_MAP.put("#dateformat", FormatDate.CONST);
-		TEMPLATE_FUNCTION_MAP.put("#if", If.CONST);
-		TEMPLATE_FUNCTION_MAP.put("#iferror", Iferror.CONST);
-		TEMPLATE_FUNCTION_MAP.put("#ifeq", Ifeq.CONST);
-		TEMPLATE_FUNCTION_MAP.put("#ifexist", Ifexist.CONST);
-		TEMPLATE_FUNCTION_MAP.put("#ifexpr", Ifexpr.CONST);
-		TEMPLATE_FUNCTION_MAP.put("#switch", Switch.CONST);
-		TEMPLATE_FUNCTION_MAP.put("#tag", Tag.CONST);
-		TEMPLATE_FUNCTION_MAP.put("#time", Time.CONST);
-		TEMPLATE_FUNCTION_MAP.put("#timel", Time.CONST);
-		TEMPLATE_FUNCTION_MAP.put("#titleparts", Titleparts.CONST);
-
-		CODE_FORMATTER_MAP.put("abap", new ABAPCodeFilter());
-		CODE_FORMATTER_MAP.put("csharp", new CSharpCodeFilter());
-		CODE_FORMATTER_MAP.put("groovy", new GroovyCodeFilter());
-		CODE_FORMATTER_MAP.put("java", new JavaCodeFilter());
-		CODE_FORMATTER_MAP.put("javascript", new JavaScriptCodeFilter());
-		CODE_FORMATTER_MAP.put("php", new PHPCodeFilter());
-		CODE_FORMATTER_MAP.put("python", new PythonCodeFilter());
-		CODE_FORMATTER_MAP.put("html4strict", new XMLCodeFilter());
-		CODE_FORMATTER_MAP.put("sql", new SQLCodeFilter());
-		CODE_FORMATTER_MAP.put("xml", new XMLCodeFilter());
-
-		TAG_TOKEN_MAP.put("br", new BrTag());
-		TAG_TOKEN_MAP.put("hr", new HrTag());
-
-		TAG_TOKEN_MAP.put("nowiki", new NowikiTag());
-		TAG_TOKEN_MAP.put("pre", HTML_PRE_OPEN);// new PreTag());
-		TAG_TOKEN_MAP.put("math", new MathTag());
-		// TAG_TOKEN_MAP.put("embed", new EmbedTag());
-		TAG_TOKEN_MAP.put("ref", new RefTag());
-		TAG_TOKEN_MAP.put("references", new ReferencesTag());
+		TEMPLATE_FUNCTIONS.put("#$", DollarContext.CONST);
+		TEMPLATE_FUNCTIONS.put("anchorencode", Anchorencode.CONST);
+		TEMPLATE_FUNCTIONS.put("formatnum", Formatnum.CONST);
+		TEMPLATE_FUNCTIONS.put("fullurl", Fullurl.CONST);
+		TEMPLATE_FUNCTIONS.put("ns", NS.CONST);
+		TEMPLATE_FUNCTIONS.put("nse", NSE.CONST);
+		TEMPLATE_FUNCTIONS.put("urlencode", URLEncode.CONST);
+		TEMPLATE_FUNCTIONS.put("lc", LC.CONST);
+		TEMPLATE_FUNCTIONS.put("uc", UC.CONST);
+		TEMPLATE_FUNCTIONS.put("localurl", Localurl.CONST);
+		TEMPLATE_FUNCTIONS.put("lcfirst", LCFirst.CONST);
+		TEMPLATE_FUNCTIONS.put("ucfirst", UCFirst.CONST);
+		TEMPLATE_FUNCTIONS.put("padleft", Padleft.CONST);
+		TEMPLATE_FUNCTIONS.put("padright", Padright.CONST);
+		TEMPLATE_FUNCTIONS.put("plural", Plural.CONST);
+		TEMPLATE_FUNCTIONS.put("#expr", Expr.CONST);
+		TEMPLATE_FUNCTIONS.put("#formatdate", FormatDate.CONST);
+		TEMPLATE_FUNCTIONS.put("#dateformat", FormatDate.CONST);
+		TEMPLATE_FUNCTIONS.put("#if", If.CONST);
+		TEMPLATE_FUNCTIONS.put("#iferror", Iferror.CONST);
+		TEMPLATE_FUNCTIONS.put("#ifeq", Ifeq.CONST);
+		TEMPLATE_FUNCTIONS.put("#ifexist", Ifexist.CONST);
+		TEMPLATE_FUNCTIONS.put("#ifexpr", Ifexpr.CONST);
+		TEMPLATE_FUNCTIONS.put("#switch", Switch.CONST);
+		TEMPLATE_FUNCTIONS.put("#tag", Tag.CONST);
+		TEMPLATE_FUNCTIONS.put("#time", Time.CONST);
+		TEMPLATE_FUNCTIONS.put("#timel", Time.CONST);
+		TEMPLATE_FUNCTIONS.put("#titleparts", Titleparts.CONST);
+
+		CODE_FORMATTERS.put("abap", new ABAPCodeFilter());
+		CODE_FORMATTERS.put("csharp", new CSharpCodeFilter());
+		CODE_FORMATTERS.put("groovy", new GroovyCodeFilter());
+		CODE_FORMATTERS.put("java", new JavaCodeFilter());
+		CODE_FORMATTERS.put("javascript", new JavaScriptCodeFilter());
+		CODE_FORMATTERS.put("php", new PHPCodeFilter());
+		CODE_FORMATTERS.put("python", new PythonCodeFilter());
+		CODE_FORMATTERS.put("html4strict", new XMLCodeFilter());
+		CODE_FORMATTERS.put("sql", new SQLCodeFilter());
+		CODE_FORMATTERS.put("xml", new XMLCodeFilter());
+
+		TAG_TOKENS.put("br", new BrTag());
+		TAG_TOKENS.put("hr", new HrTag());
+
+		TAG_TOKENS.put("nowiki", new NowikiTag());
+		TAG_TOKENS.put("pre", HTML_PRE_OPEN);// new PreTag());
+		TAG_TOKENS.put("math", new MathTag());
+		// TAG_TOKENS.put("embed", new EmbedTag());
+		TAG_TOKENS.put("ref", new RefTag());
+		TAG_TOKENS.put("references", new ReferencesTag());
 
 		// see https://www.mediawiki.org/wiki/Extension:SyntaxHighlight_GeSHi
-		TAG_TOKEN_MAP.put("syntaxhighlight", new SourceTag());
-		TAG_TOKEN_MAP.put("source", new SourceTag());
-
-		TAG_TOKEN_MAP.put("a", HTML_A_OPEN);
-		TAG_TOKEN_MAP.put("h1", HTML_H1_OPEN);
-		TAG_TOKEN_MAP.put("h2", HTML_H2_OPEN);
-		TAG_TOKEN_MAP.put("h3", HTML_H3_OPEN);
-		TAG_TOKEN_MAP.put("h4", HTML_H4_OPEN);
-		TAG_TOKEN_MAP.put("h5", HTML_H5_OPEN);
-		TAG_TOKEN_MAP.put("h6", HTML_H6_OPEN);
-
-		TAG_TOKEN_MAP.put("em", HTML_EM_OPEN);
-		TAG_TOKEN_MAP.put("i", HTML_ITALIC_OPEN);
-		TAG_TOKEN_MAP.put("b", HTML_BOLD_OPEN);
-
-		TAG_TOKEN_MAP.put("strong", HTML_STRONG_OPEN);
-		TAG_TOKEN_MAP.put("u", HTML_UNDERLINE_OPEN);
-		TAG_TOKEN_MAP.put("p", HTML_PARAGRAPH_OPEN);
-
-		TAG_TOKEN_MAP.put("blockquote", HTML_BLOCKQUOTE_OPEN);
-
-		TAG_TOKEN_MAP.put("var", HTML_VAR_OPEN);
-		TAG_TOKEN_MAP.put("code", HTML_CODE_OPEN);
-		TAG_TOKEN_MAP.put("s", HTML_S_OPEN);
-		TAG_TOKEN_MAP.put("small", HTML_SMALL_OPEN);
-		TAG_TOKEN_MAP.put("big", HTML_BIG_OPEN);
-		TAG_TOKEN_MAP.put("del", HTML_DEL_OPEN);
-
-		TAG_TOKEN_MAP.put("sub", HTML_SUB_OPEN);
-		TAG_TOKEN_MAP.put("sup", HTML_SUP_OPEN);
-		TAG_TOKEN_MAP.put("strike", HTML_STRIKE_OPEN);
-
-		TAG_TOKEN_MAP.put("table", HTML_TABLE_OPEN);
-		TAG_TOKEN_MAP.put("th", HTML_TH_OPEN);
-		TAG_TOKEN_MAP.put("tr", HTML_TR_OPEN);
-		TAG_TOKEN_MAP.put("td", HTML_TD_OPEN);
-		TAG_TOKEN_MAP.put("caption", HTML_CAPTION_OPEN);
-
-		TAG_TOKEN_MAP.put("ul", HTML_UL_OPEN);
-		TAG_TOKEN_MAP.put("ol", HTML_OL_OPEN);
-		TAG_TOKEN_MAP.put("li", HTML_LI_OPEN);
-
-		TAG_TOKEN_MAP.put("font", HTML_FONT_OPEN);
-		TAG_TOKEN_MAP.put("center", HTML_CENTER_OPEN);
-		TAG_TOKEN_MAP.put("tt", HTML_TT_OPEN);
-		TAG_TOKEN_MAP.put("div", HTML_DIV_OPEN);
-		TAG_TOKEN_MAP.put("span", HTML_SPAN_OPEN);
-
-		TAG_TOKEN_MAP.put("abbr", HTML_ABBR_OPEN);
-		TAG_TOKEN_MAP.put("cite", HTML_CITE_OPEN);
-
-		TAG_TOKEN_MAP.put("dl", HTML_DL_OPEN);
-		TAG_TOKEN_MAP.put("dd", HTML_DD_OPEN);
-
-		TAG_TOKEN_MAP.put("q", HTML_Q_OPEN);
-
-		TAG_TOKEN_MAP.put("ruby", HTML_RUBY_OPEN);
-		TAG_TOKEN_MAP.put("rt", HTML_RT_OPEN);
-		TAG_TOKEN_MAP.put("rp", HTML_RP_OPEN);
+		TAG_TOKENS.put("syntaxhighlight", new SourceTag());
+		TAG_TOKENS.put("source", new SourceTag());
+
+		TAG_TOKENS.put("a", HTML_A_OPEN);
+		TAG_TOKENS.put("h1", HTML_H1_OPEN);
+		TAG_TOKENS.put("h2", HTML_H2_OPEN);
+		TAG_TOKENS.put("h3", HTML_H3_OPEN);
+		TAG_TOKENS.put("h4", HTML_H4_OPEN);
+		TAG_TOKENS.put("h5", HTML_H5_OPEN);
+		TAG_TOKENS.put("h6", HTML_H6_OPEN);
+
+		TAG_TOKENS.put("em", HTML_EM_OPEN);
+		TAG_TOKENS.put("i", HTML_ITALIC_OPEN);
+		TAG_TOKENS.put("b", HTML_BOLD_OPEN);
+
+		TAG_TOKENS.put("strong", HTML_STRONG_OPEN);
+		TAG_TOKENS.put("u", HTML_UNDERLINE_OPEN);
+		TAG_TOKENS.put("p", HTML_PARAGRAPH_OPEN);
+
+		TAG_TOKENS.put("blockquote", HTML_BLOCKQUOTE_OPEN);
+
+		TAG_TOKENS.put("var", HTML_VAR_OPEN);
+		TAG_TOKENS.put("code", HTML_CODE_OPEN);
+		TAG_TOKENS.put("s", HTML_S_OPEN);
+		TAG_TOKENS.put("small", HTML_SMALL_OPEN);
+		TAG_TOKENS.put("big", HTML_BIG_OPEN);
+		TAG_TOKENS.put("del", HTML_DEL_OPEN);
+
+		TAG_TOKENS.put("sub", HTML_SUB_OPEN);
+		TAG_TOKENS.put("sup", HTML_SUP_OPEN);
+		TAG_TOKENS.put("strike", HTML_STRIKE_OPEN);
+
+		TAG_TOKENS.put("table", HTML_TABLE_OPEN);
+		TAG_TOKENS.put("th", HTML_TH_OPEN);
+		TAG_TOKENS.put("tr", HTML_TR_OPEN);
+		TAG_TOKENS.put("td", HTML_TD_OPEN);
+		TAG_TOKENS.put("caption", HTML_CAPTION_OPEN);
+
+		TAG_TOKENS.put("ul", HTML_UL_OPEN);
+		TAG_TOKENS.put("ol", HTML_OL_OPEN);
+		TAG_TOKENS.put("li", HTML_LI_OPEN);
+
+		TAG_TOKENS.put("font", HTML_FONT_OPEN);
+		TAG_TOKENS.put("center", HTML_CENTER_OPEN);
+		TAG_TOKENS.put("tt", HTML_TT_OPEN);
+		TAG_TOKENS.put("div", HTML_DIV_OPEN);
+		TAG_TOKENS.put("span", HTML_SPAN_OPEN);
+
+		TAG_TOKENS.put("abbr", HTML_ABBR_OPEN);
+		TAG_TOKENS.put("cite", HTML_CITE_OPEN);
+
+		TAG_TOKENS.put("dl", HTML_DL_OPEN);
+		TAG_TOKENS.put("dd", HTML_DD_OPEN);
+
+		TAG_TOKENS.put("q", HTML_Q_OPEN);
+
+		TAG_TOKENS.put("ruby", HTML_RUBY_OPEN);
+		TAG_TOKENS.put("rt", HTML_RT_OPEN);
+		TAG_TOKENS.put("rp", HTML_RP_OPEN);
 	}
 
 	/**
 	 * Limits the length of the template cache key to this length.
+	 *
+	 * @deprecated the {@link ITemplateCallsCache} is bounded by the size of the cached template calls, so template
+	 *             calls of any length are cached
 	 */
+	@Deprecated
 	public final static int MAX_CACHE_KEY_LENGTH = 256;
 
 	/**
@@ -371,20 +387,89 @@ public class Configuration implements IConfiguration {
 	 */
 	private final String wikiId;
 	private final Casing casing;
+	private volatile ITemplateCallsCache templateCallsCache;
+	private volatile IRenderMetrics renderMetrics;
+	private volatile IPreprocessedTemplateCache preprocessedTemplateCache;
+	private volatile InterWikiMap interWikiMap;
+	private volatile boolean frozen;
+
+	/*
+	 * The registries of this configuration start with the built-in defaults. Every modification replaces a registry
+	 * with a modified copy, so readers in concurrent renders always see an unmodifiable snapshot without locking.
+	 */
+	private volatile Map<String, String> interWikiMapping = INTERWIKI_MAPPING;
+	private volatile Map<String, TagToken> tokenMap = TAG_TOKEN_MAP;
+	private volatile Map<String, SourceCodeFormatter> codeFormatterMap = CODE_FORMATTER_MAP;
+	private volatile Map<String, ITemplateFunction> templateFunctionMap = TEMPLATE_FUNCTION_MAP;
+	private volatile Set<String> uriSchemeSet = URI_SCHEME_MAP;
+
+	/**
+	 * A read-only view of the current {@link #getTokenMap()}.
+	 *
+	 * @deprecated use {@link #getTokenMap()} and {@link #addTokenTag(String, TagToken)}
+	 */
+	@Deprecated
+	protected final Map<String, TagToken> tagTokenMap = new AbstractMap<String, TagToken>() {
+		@Override
+		public TagToken get(final Object key) {
+			return tokenMap.get(key);
+		}
+
+		@Override
+		public boolean containsKey(final Object key) {
+			return tokenMap.containsKey(key);
+		}
+
+		@Override
+		public Set<Map.Entry<String, TagToken>> entrySet() {
+			return tokenMap.entrySet();
+		}
+	};
 
 	public Configuration() {
 		this(DEFAULT_WIKI_ID, Casing.FirstLetter);
 	}
 
 	public Configuration(final String wikiId, final Casing casing) {
-		interWikiMapping.putAll(INTERWIKI_MAPPING);
 		this.wikiId = wikiId;
 		this.casing = casing;
 	}
 
 	@Override
-	public String addInterwikiLink(final String key, final String value) {
-		return interWikiMapping.put("__global:" + key, "0 " + value);
+	public synchronized String addInterwikiLink(final String key, final String value) {
+		checkModifiable();
+		final Map<String, String> mapping = new HashMap<>(interWikiMapping);
+		final String previous = mapping.put("__global:" + key, "0 " + value);
+		interWikiMapping = mapping;
+		interWikiMap = null;
+		return previous;
+	}
+
+	/**
+	 * Freeze this configuration after all extensions are added. All <code>add...()</code> and <code>set...()</code>
+	 * methods of a frozen configuration, like {@link #setSharedTemplateCallsCache(ITemplateCallsCache)}, throw an
+	 * {@link UnsupportedOperationException}, so the configuration can be safely shared by wiki models rendering in
+	 * different threads.
+	 *
+	 * @return this configuration
+	 */
+	public synchronized Configuration freeze() {
+		frozen = true;
+		return this;
+	}
+
+	/**
+	 * @return <code>true</code> if this configuration can't be modified anymore
+	 * @see #freeze()
+	 */
+	public boolean isFrozen() {
+		return frozen;
+	}
+
+	private void checkModifiable() {
+		if (frozen) {
+			throw new UnsupportedOperationException("the frozen configuration of " + wikiId + " can't be modified");
+		}
 	}
 
 	/**
@@ -398,6 +483,30 @@ public class Configuration implements IConfiguration {
 		return Collections.unmodifiableMap(interWikiMapping);
 	}
 
+	/**
+	 * Get the interwiki links of the interwiki mapping resolved for the wiki id. The map is created once and shared by
+	 * all wiki models using this configuration, until another interwiki link is added.
+	 */
+	public InterWikiMap getInterWikiMap() {
+		InterWikiMap map = interWikiMap;
+		if (map == null) {
+			synchronized (this) {
+				map = interWikiMap;
+				if (map == null) {
+					final Map<String, String> mapping = interWikiMapping;
+					if (mapping == INTERWIKI_MAPPING) {
+						map = DEFAULT_INTERWIKI_MAPS.computeIfAbsent(wikiId,
+								id -> new InterWikiMap(INTERWIKI_MAPPING, id));
+					} else {
+						map = new InterWikiMap(mapping, wikiId);
+					}
+					interWikiMap = map;
+				}
+			}
+		}
+		return map;
+	}
+
 	/**
 	 * Get the set of all allowed URI scheme shortcuts like http, https, ftp,...
 	 *
@@ -406,7 +515,7 @@ public class Configuration implements IConfiguration {
 	 */
 	@Override
 	public Set<String> getUriSchemeSet() {
-		return URI_SCHEME_MAP;
+		return uriSchemeSet;
 	}
 
 	/**
@@ -416,28 +525,77 @@ public class Configuration implements IConfiguration {
 	 *
 	 * @return <code>true</code> if the set did not already contain the specified URI key.
 	 */
-	public boolean addUriScheme(final String uriKey) {
-		return URI_SCHEME_MAP.add(uriKey);
+	public synchronized boolean addUriScheme(final String uriKey) {
+		checkModifiable();
+		if (uriSchemeSet.contains(uriKey)) {
+			return false;
+		}
+		final Set<String> set = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+		set.addAll(uriSchemeSet);
+		set.add(uriKey);
+		uriSchemeSet = Collections.unmodifiableSet(set);
+		return true;
 	}
 
 	@Override
 	public Map<String, ITemplateFunction> getTemplateMap() {
-		return TEMPLATE_FUNCTION_MAP;
+		return templateFunctionMap;
 	}
 
 	@Override
-	public ITemplateFunction addTemplateFunction(final String key, final ITemplateFunction value) {
-		return TEMPLATE_FUNCTION_MAP.put(key, value);
+	public synchronized ITemplateFunction addTemplateFunction(final String key, final ITemplateFunction value) {
+		checkModifiable();
+		final Map<String, ITemplateFunction> map = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		map.putAll(templateFunctionMap);
+		final ITemplateFunction previous = map.put(key, value);
+		templateFunctionMap = Collections.unmodifiableMap(map);
+		return previous;
 	}
 
+	@Deprecated
 	@Override
 	public Map<String, String> getTemplateCallsCache() {
-		return TEMPLATE_CALLS_CACHE;
+		final ITemplateCallsCache cache = templateCallsCache;
+		return cache instanceof MapTemplateCallsCache ? ((MapTemplateCallsCache) cache).getMap() : null;
 	}
 
+	@Deprecated
 	@Override
 	public void setTemplateCallsCache(final Map<String, String> map) {
-		TEMPLATE_CALLS_CACHE = map;
+		setSharedTemplateCallsCache(map != null ? new MapTemplateCallsCache(map) : null);
+	}
+
+	@Override
+	public ITemplateCallsCache getSharedTemplateCallsCache() {
+		return templateCallsCache;
+	}
+
+	@Override
+	public synchronized void setSharedTemplateCallsCache(final ITemplateCallsCache cache) {
+		checkModifiable();
+		templateCallsCache = cache;
+	}
+
+	@Override
+	public IRenderMetrics getRenderMetrics() {
+		return renderMetrics;
+	}
+
+	@Override
+	public synchronized void setRenderMetrics(final IRenderMetrics metrics) {
+		checkModifiable();
+		renderMetrics = metrics;
+	}
+
+	@Override
+	public IPreprocessedTemplateCache getPreprocessedTemplateCache() {
+		return preprocessedTemplateCache;
+	}
+
+	@Override
+	public synchronized void setPreprocessedTemplateCache(final IPreprocessedTemplateCache cache) {
+		checkModifiable();
+		preprocessedTemplateCache = cache;
 	}
 
 	@Override
@@ -447,22 +605,30 @@ public class Configuration implements IConfiguration {
 
 	@Override
 	public Map<String, SourceCodeFormatter> getCodeFormatterMap() {
-		return CODE_FORMATTER_MAP;
+		return codeFormatterMap;
 	}
 
 	@Override
-	public SourceCodeFormatter addCodeFormatter(final String key, final SourceCodeFormatter value) {
-		return CODE_FORMATTER_MAP.put(key, value);
+	public synchronized SourceCodeFormatter addCodeFormatter(final String key, final SourceCodeFormatter value) {
+		checkModifiable();
+		final Map<String, SourceCodeFormatter> map = new HashMap<>(codeFormatterMap);
+		final SourceCodeFormatter previous = map.put(key, value);
+		codeFormatterMap = Collections.unmodifiableMap(map);
+		return previous;
 	}
 
 	@Override
 	public Map<String, TagToken> getTokenMap() {
-		return tagTokenMap;
+		return tokenMap;
 	}
 
 	@Override
-	public TagToken addTokenTag(final String key, final TagToken value) {
-		return tagTokenMap.put(key, value);
+	public synchronized TagToken addTokenTag(final String key, final TagToken value) {
+		checkModifiable();
+		final Map<String, TagToken> map = new HashMap<>(tokenMap);
+		final TagToken previous = map.put(key, value);
+		tokenMap = Collections.unmodifiableMap(map);
+		return previous;
 	}
 
 	/**
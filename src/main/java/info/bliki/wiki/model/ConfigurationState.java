@@ -0,0 +1,50 @@
+package info.bliki.wiki.model;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * The state of the default methods of {@link IConfiguration}, for implementations which don't override the accessors
+ * added after the interface was published. The state is kept as long as the configuration is reachable.
+ */
+final class ConfigurationState {
+	private static final Map<IConfiguration, ConfigurationState> STATES = Collections
+			.synchronizedMap(new WeakHashMap<IConfiguration, ConfigurationState>());
+
+	/**
+	 * The wrapper of the map returned by {@link IConfiguration#getTemplateCallsCache()}
+	 */
+	volatile MapTemplateCallsCache fMapTemplateCallsCache;
+	/**
+	 * A cache set with {@link IConfiguration#setSharedTemplateCallsCache(ITemplateCallsCache)}, which isn't a map
+	 */
+	volatile ITemplateCallsCache fTemplateCallsCache;
+	/**
+	 * The listener set with {@link IConfiguration#setRenderMetrics(IRenderMetrics)}
+	 */
+	volatile IRenderMetrics fRenderMetrics;
+	/**
+	 * The cache set with {@link IConfiguration#setPreprocessedTemplateCache(IPreprocessedTemplateCache)}
+	 */
+	volatile IPreprocessedTemplateCache fPreprocessedTemplateCache;
+
+	private ConfigurationState() {
+	}
+
+	static ConfigurationState of(final IConfiguration configuration) {
+		return STATES.computeIfAbsent(configuration, key -> new ConfigurationState());
+	}
+
+	/**
+	 * Get the wrapper of a template calls cache map, which is created once for every map.
+	 */
+	MapTemplateCallsCache wrap(final Map<String, String> map) {
+		MapTemplateCallsCache cache = fMapTemplateCallsCache;
+		if (cache == null || cache.getMap() != map) {
+			cache = new MapTemplateCallsCache(map);
+			fMapTemplateCallsCache = cache;
+		}
+		return cache;
+	}
+}
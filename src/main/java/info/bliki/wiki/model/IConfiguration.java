@@ -60,11 +60,53 @@ public interface IConfiguration {
 	/**
 	 * Get the currently configured cache implementation for template calls.
 	 *
-	 * @return <code>null</code> if no cache implementation is set.
+	 * @return <code>null</code> if no cache implementation is set or if the cache isn't a map set with
+	 *         {@link #setTemplateCallsCache(Map)}.
 	 * @see IConfiguration#setTemplateCallsCache(Map)
+	 * @deprecated use {@link #getSharedTemplateCallsCache()}
 	 */
+	@Deprecated
 	Map<String, String> getTemplateCallsCache();
 
+	/**
+	 * Get the currently configured cache implementation for template calls.
+	 *
+	 * The default implementation wraps the map of the deprecated {@link #getTemplateCallsCache()}, if it's set.
+	 * Otherwise it returns the cache set with the default implementation of
+	 * {@link #setSharedTemplateCallsCache(ITemplateCallsCache)}.
+	 *
+	 * @return <code>null</code> if no cache implementation is set.
+	 * @see IConfiguration#setSharedTemplateCallsCache(ITemplateCallsCache)
+	 */
+	default ITemplateCallsCache getSharedTemplateCallsCache() {
+		final ConfigurationState state = ConfigurationState.of(this);
+		final Map<String, String> map = getTemplateCallsCache();
+		return map != null ? state.wrap(map) : state.fTemplateCallsCache;
+	}
+
+	/**
+	 * Get the currently configured listener for render metrics.
+	 *
+	 * The default implementation returns the listener set with the default implementation of
+	 * {@link #setRenderMetrics(IRenderMetrics)}.
+	 *
+	 * @return <code>null</code> if no metrics are collected.
+	 * @see IConfiguration#setRenderMetrics(IRenderMetrics)
+	 */
+	default IRenderMetrics getRenderMetrics() {
+		return ConfigurationState.of(this).fRenderMetrics;
+	}
+
+	/**
+	 * Get the currently configured cache implementation for preprocessed template texts.
+	 *
+	 * @return <code>null</code> if no cache implementation is set.
+	 * @see IConfiguration#setPreprocessedTemplateCache(IPreprocessedTemplateCache)
+	 */
+	default IPreprocessedTemplateCache getPreprocessedTemplateCache() {
+		return ConfigurationState.of(this).fPreprocessedTemplateCache;
+	}
+
 	/**
 	 * Get the <a href="https://www.mediawiki.org/wiki/Manual:Parser_functions">template parser functions</a> map of
 	 * built-in template functions
@@ -84,7 +126,8 @@ public interface IConfiguration {
 	Set<String> getUriSchemeSet();
 
 	/**
-	 * Set a cache map implementation. For example based on <a href="https://jcp.org/en/jsr/detail?id=107">JSR 107</a>.
+	 * Set a cache implementation for template calls.
+	 *
 	 * Template calls which use the same parameters over and over again do lookup this cache and use the preparsed
 	 * result if available.
 	 *
@@ -92,9 +135,64 @@ public interface IConfiguration {
 	 *
 	 * @param map
 	 *            the cache implementation
+	 * @deprecated use {@link #setSharedTemplateCallsCache(ITemplateCallsCache)}, the map can't track the dependencies
+	 *             of the cached template calls
 	 */
+	@Deprecated
 	void setTemplateCallsCache(Map<String, String> map);
 
+	/**
+	 * Set a cache implementation for template calls. Template calls which use the same parameters over and over again
+	 * do lookup this cache and use the preparsed result if available.
+	 *
+	 * The cache can be shared by multiple wiki models rendering in different threads, see {@link TemplateCallsCache}
+	 * for the default implementation.
+	 *
+	 * The default implementation passes the map of a cache returned by {@link #getSharedTemplateCallsCache()} to the
+	 * deprecated {@link #setTemplateCallsCache(Map)}. Other caches are kept for the default implementation of
+	 * {@link #getSharedTemplateCallsCache()} and the deprecated map is set to <code>null</code>.
+	 *
+	 * @param cache
+	 *            the cache implementation or <code>null</code> to disable caching
+	 */
+	default void setSharedTemplateCallsCache(ITemplateCallsCache cache) {
+		final ConfigurationState state = ConfigurationState.of(this);
+		if (cache instanceof MapTemplateCallsCache) {
+			state.fMapTemplateCallsCache = (MapTemplateCallsCache) cache;
+			state.fTemplateCallsCache = null;
+			setTemplateCallsCache(((MapTemplateCallsCache) cache).getMap());
+		} else {
+			state.fTemplateCallsCache = cache;
+			setTemplateCallsCache((Map<String, String>) null);
+		}
+	}
+
+	/**
+	 * Set a listener for the time spent in the phases of rendering, the template calls and the template call cache
+	 * accesses. See {@link RenderMetrics} for the default implementation, which aggregates the metrics in memory.
+	 *
+	 * @param metrics
+	 *            the metrics implementation or <code>null</code> to disable the measurements
+	 */
+	default void setRenderMetrics(IRenderMetrics metrics) {
+		ConfigurationState.of(this).fRenderMetrics = metrics;
+	}
+
+	/**
+	 * Set a cache implementation for the preprocessed texts of templates. A transcluded template is looked up by its
+	 * name and revision, so the <code>&lt;noinclude&gt;</code>, <code>&lt;includeonly&gt;</code> and
+	 * <code>&lt;onlyinclude&gt;</code> sections and the comments of the template are only processed once.
+	 *
+	 * The cache can be shared by multiple wiki models rendering in different threads, see
+	 * {@link PreprocessedTemplateCache} for the default implementation.
+	 *
+	 * @param cache
+	 *            the cache implementation or <code>null</code> to disable caching
+	 */
+	default void setPreprocessedTemplateCache(IPreprocessedTemplateCache cache) {
+		ConfigurationState.of(this).fPreprocessedTemplateCache = cache;
+	}
+
 	/**
 	 * @return the default casing, defaults to {@link Casing#FirstLetter}.
 	 */
@@ -3,6 +3,7 @@ package info.bliki.wiki.model;
 /**
  * A wiki event listener which will trigger the <code>on....</code> event methods during the parsing process.
  *
+ * The events of the {@link IWikiModel#scanEvents(IEventListener, String)} mode are default methods, which do nothing.
  */
 public interface IEventListener {
 
@@ -56,4 +57,80 @@ public interface IEventListener {
 	 *            the end offset of the wiki link excluding the wiki template end tags '}}'
 	 */
 	public void onTemplate(char[] src, int rawStart, int rawEnd);
+
+	/**
+	 * Notify the listener about a link into the category namespace. Only called by the {@link
+	 * IWikiModel#scanEvents(IEventListener, String)} mode, which doesn't report category links as wiki links.
+	 *
+	 * @param src
+	 *            the currently parsed raw wikitext character array
+	 * @param rawStart
+	 *            the start offset of the category link excluding the start tags '[['
+	 * @param rawEnd
+	 *            the end offset of the category link excluding the end tags ']]'
+	 */
+	public default void onCategory(char[] src, int rawStart, int rawEnd) {
+	}
+
+	/**
+	 * Notify the listener about a link into the file namespace. Only called by the {@link
+	 * IWikiModel#scanEvents(IEventListener, String)} mode, which doesn't report image links as wiki links.
+	 *
+	 * @param src
+	 *            the currently parsed raw wikitext character array
+	 * @param rawStart
+	 *            the start offset of the image link excluding the start tags '[['
+	 * @param rawEnd
+	 *            the end offset of the image link excluding the end tags ']]'
+	 */
+	public default void onImage(char[] src, int rawStart, int rawEnd) {
+	}
+
+	/**
+	 * Notify the listener about an external link. Only called by the {@link IWikiModel#scanEvents(IEventListener,
+	 * String)} mode.
+	 *
+	 * @param src
+	 *            the currently parsed raw wikitext character array
+	 * @param rawStart
+	 *            the start offset of the URL
+	 * @param rawEnd
+	 *            the end offset of the URL, or of the link text separated by a space if the link is enclosed in
+	 *            brackets (excluding the closing ']')
+	 */
+	public default void onExternalLink(char[] src, int rawStart, int rawEnd) {
+	}
+
+	/**
+	 * Notify the listener about a wiki table. Only called by the {@link IWikiModel#scanEvents(IEventListener, String)}
+	 * mode.
+	 *
+	 * @param src
+	 *            the currently parsed raw wikitext character array
+	 * @param startPosition
+	 *            the start offset of the table including the table start tags '{|'
+	 * @param endPosition
+	 *            the end offset of the table including the table end tags '|}'
+	 */
+	public default void onTable(char[] src, int startPosition, int endPosition) {
+	}
+
+	/**
+	 * Notify the listener about a &lt;ref&gt; tag. Only called by the {@link IWikiModel#scanEvents(IEventListener,
+	 * String)} mode.
+	 *
+	 * @param src
+	 *            the currently parsed raw wikitext character array
+	 * @param startPosition
+	 *            the start offset of the opening &lt;ref&gt; tag
+	 * @param endPosition
+	 *            the end offset of the closing &lt;/ref&gt; tag
+	 * @param rawStart
+	 *            the start offset of the reference content
+	 * @param rawEnd
+	 *            the end offset of the reference content; equal to <code>rawStart</code> for an empty tag like
+	 *            <code>&lt;ref name="x" /&gt;</code>
+	 */
+	public default void onRef(char[] src, int startPosition, int endPosition, int rawStart, int rawEnd) {
+	}
 }
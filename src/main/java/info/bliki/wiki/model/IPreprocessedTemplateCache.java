@@ -0,0 +1,56 @@
+package info.bliki.wiki.model;
+
+import javax.annotation.Nullable;
+
+import info.bliki.wiki.filter.PreprocessedText;
+
+/**
+ * A cache for the preprocessed texts of templates. A template which is transcluded over and over again is only
+ * preprocessed once per revision; for every call only the parameters are substituted and the result is expanded.
+ *
+ * Implementations must be thread-safe, because a single cache is typically shared by all wiki models of a
+ * {@link Configuration}, and bounded. The cached {@link PreprocessedText}s are immutable and are shared read-only by
+ * all wiki models.
+ *
+ * @see PreprocessedTemplateCache
+ * @see IConfiguration#setPreprocessedTemplateCache(IPreprocessedTemplateCache)
+ */
+public interface IPreprocessedTemplateCache {
+	/**
+	 * Get the preprocessed text of a template revision.
+	 *
+	 * @param templateName
+	 *            the full name of the template including the namespace
+	 * @param revision
+	 *            the revision of the template content, see
+	 *            {@link AbstractWikiModel#getTemplateRevision(info.bliki.wiki.filter.ParsedPageName, String)}
+	 * @return <code>null</code> if the template revision isn't cached
+	 */
+	@Nullable
+	PreprocessedText get(String templateName, long revision);
+
+	/**
+	 * Store the preprocessed text of a template revision. The cache may reject or evict the value at any time.
+	 */
+	void put(String templateName, long revision, PreprocessedText text);
+
+	/**
+	 * Remove all cached texts; the statistics counters are not reset.
+	 */
+	void clear();
+
+	/**
+	 * @return the number of currently cached texts
+	 */
+	int size();
+
+	/**
+	 * @return the number of lookups which returned a cached value
+	 */
+	long getHitCount();
+
+	/**
+	 * @return the number of lookups which didn't return a cached value
+	 */
+	long getMissCount();
+}
@@ -0,0 +1,74 @@
+package info.bliki.wiki.model;
+
+/**
+ * A listener for performance metrics of the rendering process. The wiki model reports the time spent in every phase
+ * of rendering, the template calls and the template call cache accesses to the metrics configured with
+ * {@link IConfiguration#setRenderMetrics(IRenderMetrics)}. If no metrics are configured the measurements are skipped.
+ *
+ * Implementations must be thread-safe, because the metrics are typically shared by all wiki models of a
+ * {@link Configuration}, and fast, because they are called for every template call.
+ *
+ * @see RenderMetrics
+ */
+public interface IRenderMetrics {
+	/**
+	 * The phases of rendering a wiki text
+	 */
+	public enum Phase {
+		/**
+		 * The template expansion of a complete text, see
+		 * {@link info.bliki.wiki.filter.TemplateParser#parseRecursive(String, IWikiModel, Appendable, boolean, boolean, java.util.Map)}
+		 */
+		TEMPLATE_EXPANSION,
+		/**
+		 * Reading the raw content of a template, see
+		 * {@link IWikiModel#getRawWikiContent(info.bliki.wiki.filter.ParsedPageName, java.util.Map)}
+		 */
+		RAW_CONTENT,
+		/**
+		 * Parsing the expanded wiki text into the tag node tree, see
+		 * {@link info.bliki.wiki.filter.WikipediaParser#parse(String, IWikiModel, boolean, Appendable)}
+		 */
+		PARSE,
+		/**
+		 * Converting the tag node tree into the output format, see
+		 * {@link info.bliki.wiki.filter.ITextConverter#nodesToText(java.util.List, Appendable, IWikiModel)}
+		 */
+		CONVERSION
+	}
+
+	/**
+	 * Report the completion of a rendering phase.
+	 *
+	 * @param phase
+	 *            the phase
+	 * @param nanos
+	 *            the elapsed time in nanoseconds
+	 * @param charsIn
+	 *            the number of characters processed by the phase or <code>-1</code> if unknown
+	 * @param charsOut
+	 *            the number of characters created by the phase or <code>-1</code> if unknown
+	 */
+	public void phase(Phase phase, long nanos, long charsIn, long charsOut);
+
+	/**
+	 * Report the completion of a template call, see
+	 * {@link IWikiModel#substituteTemplateCall(String, java.util.Map, Appendable)}.
+	 *
+	 * @param templateName
+	 *            the full name of the template, for example <code>Template:Infobox</code>
+	 * @param depth
+	 *            the nesting depth of the call; <code>1</code> for a template called by the rendered text
+	 * @param nanos
+	 *            the elapsed time in nanoseconds, including the nested template calls
+	 */
+	public void templateCall(String templateName, int depth, long nanos);
+
+	/**
+	 * Report a lookup in the {@link ITemplateCallsCache}.
+	 *
+	 * @param hit
+	 *            <code>true</code> if the template call was found in the cache
+	 */
+	public void templateCacheAccess(boolean hit);
+}
@@ -0,0 +1,84 @@
+package info.bliki.wiki.model;
+
+import java.util.Collection;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+/**
+ * A cache for the expanded results of template calls. Template calls which use the same parameters over and over again
+ * do lookup this cache and use the preparsed result if available.
+ *
+ * Implementations must be thread-safe, because a single cache is typically shared by all wiki models of a
+ * {@link Configuration}, and bounded, because the number of distinct template calls of a large wiki is practically
+ * unlimited.
+ *
+ * Every cached template call knows the templates and pages it transitively depends on, and the wiki models register
+ * the dependencies of every rendered page. When a template is edited {@link #invalidate(String)} removes only the
+ * affected template calls and returns the pages which have to be rendered again.
+ *
+ * @see TemplateCallsCache
+ * @see IConfiguration#setSharedTemplateCallsCache(ITemplateCallsCache)
+ */
+public interface ITemplateCallsCache {
+	/**
+	 * Get the cached result of a template call.
+	 *
+	 * @return <code>null</code> if the template call isn't cached
+	 */
+	@Nullable
+	CachedTemplateCall get(TemplateCallKey key);
+
+	/**
+	 * Store the result of a template call. The cache may reject or evict the value at any time.
+	 */
+	void put(TemplateCallKey key, CachedTemplateCall value);
+
+	/**
+	 * Register the templates and included pages a rendered page depends on. A previous registration of the same page is
+	 * replaced.
+	 *
+	 * @param pageName
+	 *            the name of the rendered page
+	 * @param dependencies
+	 *            the names of the templates (without the template namespace prefix) and included pages
+	 */
+	void addPage(String pageName, Collection<String> dependencies);
+
+	/**
+	 * Remove all cached template calls which transitively depend on the given template or included page, for example
+	 * after the template was edited.
+	 *
+	 * @param name
+	 *            the name of the template without the template namespace prefix, as reported by
+	 *            {@link IWikiModel#addTemplate(String)}, or the name of an included page, as reported by
+	 *            {@link IWikiModel#addInclude(String)}
+	 * @return the names of the registered pages which depend on the template or included page
+	 */
+	Set<String> invalidate(String name);
+
+	/**
+	 * Remove all cached template calls and registered pages; the statistics counters are not reset.
+	 */
+	void clear();
+
+	/**
+	 * @return the number of currently cached template calls
+	 */
+	int size();
+
+	/**
+	 * @return the number of lookups which returned a cached value
+	 */
+	long getHitCount();
+
+	/**
+	 * @return the number of lookups which didn't return a cached value
+	 */
+	long getMissCount();
+
+	/**
+	 * @return the number of template calls which were removed to stay within the size and weight limits
+	 */
+	long getEvictionCount();
+}
@@ -18,6 +18,7 @@ import info.bliki.wiki.filter.AbstractWikipediaParser;
 import info.bliki.wiki.filter.Encoder;
 import info.bliki.wiki.filter.ITextConverter;
 import info.bliki.wiki.filter.ParsedPageName;
+import info.bliki.wiki.filter.WikipediaEventScanner;
 import info.bliki.wiki.namespaces.INamespace;
 import info.bliki.wiki.namespaces.INamespace.INamespaceValue;
 import info.bliki.wiki.tags.util.TagStack;
@@ -457,6 +458,20 @@ public interface IWikiModel extends IConfiguration {
 	 */
 	int getRecursionLevel();
 
+	/**
+	 * Get the current recursion level of the template parser.
+	 *
+	 * The default implementation increments and decrements the level again.
+	 *
+	 * @return the current template recursion level counter; <code>0</code> outside of template expansion
+	 * @see #incrementTemplateRecursionLevel()
+	 */
+	default int getTemplateRecursionLevel() {
+		final int level = incrementTemplateRecursionLevel() - 1;
+		decrementTemplateRecursionLevel();
+		return level;
+	}
+
 	/**
 	 * Get the redirect link.
 	 *
@@ -706,6 +721,37 @@ public interface IWikiModel extends IConfiguration {
 	 */
 	void parseEvents(IEventListener listener, String rawWikiText);
 
+	/**
+	 * Scan the raw Wikipedia text and notify the listener without rendering it. No tag nodes are created and templates
+	 * aren't expanded, the listener only receives offsets into the character array of the raw text.
+	 *
+	 * @param listener
+	 *            an event listener
+	 * @param rawWikiText
+	 *            the raw wiki text
+	 * @see info.bliki.wiki.filter.WikipediaEventScanner
+	 */
+	default void scanEvents(IEventListener listener, String rawWikiText) {
+		if (rawWikiText != null) {
+			scanEvents(listener, rawWikiText.toCharArray());
+		}
+	}
+
+	/**
+	 * Scan the raw Wikipedia text and notify the listener without rendering it.
+	 *
+	 * @param listener
+	 *            an event listener
+	 * @param rawWikiText
+	 *            the raw wiki text, which isn't copied
+	 * @see #scanEvents(IEventListener, String)
+	 */
+	default void scanEvents(IEventListener listener, char[] rawWikiText) {
+		if (rawWikiText != null) {
+			new WikipediaEventScanner(rawWikiText, this, listener).scan();
+		}
+	}
+
 	/**
 	 * Append the internal wiki image link to this model. <br/>
 	 * <br/>
@@ -792,6 +838,35 @@ public interface IWikiModel extends IConfiguration {
 	void render(ITextConverter converter, String rawWikiText, Appendable buffer, boolean templateTopic,
 			boolean parseTemplates) throws IOException;
 
+	/**
+	 * Render the raw Wikipedia text for a given converter and write every completed top-level block (paragraphs,
+	 * sections, tables, lists,...) to the buffer as soon as the parser closes it, instead of rendering the complete node
+	 * tree after parsing. The output is the same as the output of
+	 * {@link #render(ITextConverter, String, Appendable, boolean, boolean)}, but only the currently open block has to be
+	 * kept in memory.
+	 *
+	 * <b>Note:</b> the table of contents can only be rendered after all section headers are parsed, so the blocks
+	 * following the first section header (or a <code>__TOC__</code> identifier) are written at the end of the parsing
+	 * process, unless the table of contents is disabled for the model (see {@link #isNoToc()}).
+	 *
+	 * The default implementation renders the complete node tree after parsing, like
+	 * {@link #render(ITextConverter, String, Appendable, boolean, boolean)}.
+	 *
+	 * @param converter
+	 *            a text converter
+	 * @param rawWikiText
+	 *            a raw wiki text
+	 * @param buffer
+	 *            write the completed blocks to this buffer
+	 * @param templateTopic
+	 *            if <code>true</code>, render the wiki text as if a template topic will be displayed directly,
+	 *            otherwise render the text as if a common wiki topic will be displayed.
+	 */
+	default void renderStreaming(ITextConverter converter, String rawWikiText, Appendable buffer,
+			boolean templateTopic) throws IOException {
+		render(converter, rawWikiText, buffer, templateTopic, true);
+	}
+
 	/**
 	 * Render the raw Wikipedia text into a string for a given converter
 	 *
@@ -882,6 +957,13 @@ public interface IWikiModel extends IConfiguration {
 	/**
 	 * Prepare or initialize the wiki model before rendering the wikipedia text
 	 *
+	 * A wiki model can be reused for rendering many pages: <code>setUp()</code> resets all the state collected while
+	 * rendering the previous page (for example the token stack, references, table of contents, categories and links),
+	 * but keeps the configuration, locale, namespace, interwiki map and the settings of the model like the page name.
+	 * The results of a previous rendering returned by the model (for example the maps and sets of categories and
+	 * links) are not modified by <code>setUp()</code>.
+	 *
+	 * @see WikiModelPool
 	 */
 	void setUp();
 
@@ -918,6 +1000,7 @@ public interface IWikiModel extends IConfiguration {
 	/**
 	 * Clean up (i.e. free internal resources) in the wiki model after rendering the wikipedia text, if necessary
 	 *
+	 * The model may be reused after calling {@link #setUp()} again.
 	 */
 	void tearDown();
 
@@ -1,36 +1,69 @@
 package info.bliki.wiki.model;
 
+import info.bliki.wiki.filter.Util;
+
 import javax.annotation.Nullable;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.TreeMap;
 
+/**
+ * The interwiki links of a single wiki, resolved from the interwiki mapping of a {@link Configuration} for the wiki id.
+ *
+ * Instances are immutable and can be shared by multiple wiki models and threads, see
+ * {@link Configuration#getInterWikiMap()}. The prefixes are looked up case-insensitively in a single hash map.
+ */
 public class InterWikiMap {
 	private static final String GLOBAL_PREFIX = "__global:";
 	private static final String SITES_PREFIX = "__sites:";
 	private static final String LIST_PREFIX = "__list:";
 
-	private Map<String, InterWiki> wikis;
-	private final Map<String, String> sites = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+	/**
+	 * Maps the case-folded prefixes to the interwiki links of this wiki
+	 */
+	private final Map<String, InterWiki> wikis;
 	private final String wikiId;
 
 	public InterWikiMap(Map<String, String> map, String wikiId) {
 		this.wikiId = wikiId;
-		this.wikis = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
 
+		String site = null;
 		for (Map.Entry<String, String> entry : map.entrySet()) {
 			final String key = entry.getKey();
-			final String value = entry.getValue();
+			if (key.startsWith(SITES_PREFIX) && key.substring(SITES_PREFIX.length()).equalsIgnoreCase(wikiId)) {
+				site = entry.getValue();
+			}
+		}
+		final String sitePrefix = site != null ? "_" + site + ":" : null;
+		final String wikiPrefix = wikiId + ":";
 
-			if (key.startsWith(SITES_PREFIX)) {
-				final String[] parts = key.split(":", 2);
-				if (parts.length != 2) {
-					throw new RuntimeException("Invalid site descriptor: " + value);
-				}
-				sites.put(parts[1], value);
-			} else if (!key.startsWith(LIST_PREFIX) && !value.isEmpty()) {
-				wikis.put(key, parseInterWiki(value));
+		// the wiki specific links override the links of the site, which override the global links
+		final Map<String, InterWiki> globalWikis = new HashMap<>();
+		final Map<String, InterWiki> siteWikis = new HashMap<>();
+		final Map<String, InterWiki> localWikis = new HashMap<>();
+		for (Map.Entry<String, String> entry : map.entrySet()) {
+			final String key = entry.getKey();
+			final String value = entry.getValue();
+			if (key.startsWith(SITES_PREFIX) || key.startsWith(LIST_PREFIX) || value.isEmpty()) {
+				continue;
+			}
+			if (startsWithIgnoreCase(key, GLOBAL_PREFIX)) {
+				globalWikis.put(Util.foldCase(key.substring(GLOBAL_PREFIX.length())), parseInterWiki(value));
+			} else if (sitePrefix != null && startsWithIgnoreCase(key, sitePrefix)) {
+				siteWikis.put(Util.foldCase(key.substring(sitePrefix.length())), parseInterWiki(value));
+			} else if (startsWithIgnoreCase(key, wikiPrefix)) {
+				localWikis.put(Util.foldCase(key.substring(wikiPrefix.length())), parseInterWiki(value));
 			}
 		}
+		wikis = new HashMap<>(globalWikis);
+		wikis.putAll(siteWikis);
+		wikis.putAll(localWikis);
+	}
+
+	/**
+	 * @return the wiki id for which the interwiki links were resolved
+	 */
+	public String getWikiId() {
+		return wikiId;
 	}
 
 	/**
@@ -40,15 +73,14 @@ public class InterWikiMap {
 	 */
 	@Nullable
 	public InterWiki getInterWiki(String prefix) {
-		String site = sites.get(wikiId);
-		InterWiki interWiki = wikis.get(wikiId + ":" + prefix);
-		if (interWiki == null && site != null) {
-			interWiki = wikis.get("_" + site + ":" + prefix);
-		}
-		if (interWiki == null) {
-			interWiki = wikis.get(GLOBAL_PREFIX + prefix);
+		if (prefix == null) {
+			return null;
 		}
-		return interWiki;
+		return wikis.get(Util.foldCase(prefix));
+	}
+
+	private static boolean startsWithIgnoreCase(String key, String prefix) {
+		return key.regionMatches(true, 0, prefix, 0, prefix.length());
 	}
 
 	private InterWiki parseInterWiki(String value) {
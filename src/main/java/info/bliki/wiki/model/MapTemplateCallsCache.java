@@ -0,0 +1,86 @@
+package info.bliki.wiki.model;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nullable;
+
+/**
+ * An {@link ITemplateCallsCache} adapter for a template calls cache <code>Map</code>, which was set with the deprecated
+ * {@link IConfiguration#setTemplateCallsCache(Map)}.
+ *
+ * The map only stores the expanded content of a template call, so the dependencies of the cached template calls and
+ * the registered pages are unknown. {@link #invalidate(String)} therefore clears the whole map.
+ */
+final class MapTemplateCallsCache implements ITemplateCallsCache {
+	private final Map<String, String> fMap;
+	private final LongAdder fHitCount = new LongAdder();
+	private final LongAdder fMissCount = new LongAdder();
+
+	MapTemplateCallsCache(final Map<String, String> map) {
+		fMap = map;
+	}
+
+	/**
+	 * @return the wrapped map
+	 */
+	Map<String, String> getMap() {
+		return fMap;
+	}
+
+	@Nullable
+	@Override
+	public CachedTemplateCall get(final TemplateCallKey key) {
+		final String content = fMap.get(key.toString());
+		if (content == null) {
+			fMissCount.increment();
+			return null;
+		}
+		fHitCount.increment();
+		return new CachedTemplateCall(content, Collections.emptySet(), Collections.emptySet());
+	}
+
+	@Override
+	public void put(final TemplateCallKey key, final CachedTemplateCall value) {
+		fMap.put(key.toString(), value.getContent());
+	}
+
+	@Override
+	public void addPage(final String pageName, final Collection<String> dependencies) {
+		// the map doesn't track pages
+	}
+
+	@Override
+	public Set<String> invalidate(final String name) {
+		fMap.clear();
+		return Collections.emptySet();
+	}
+
+	@Override
+	public void clear() {
+		fMap.clear();
+	}
+
+	@Override
+	public int size() {
+		return fMap.size();
+	}
+
+	@Override
+	public long getHitCount() {
+		return fHitCount.sum();
+	}
+
+	@Override
+	public long getMissCount() {
+		return fMissCount.sum();
+	}
+
+	@Override
+	public long getEvictionCount() {
+		return 0;
+	}
+}
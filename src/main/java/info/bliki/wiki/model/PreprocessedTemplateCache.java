@@ -0,0 +1,117 @@
+package info.bliki.wiki.model;
+
+import javax.annotation.Nullable;
+
+import info.bliki.util.SegmentedLruCache;
+import info.bliki.wiki.filter.PreprocessedText;
+
+/**
+ * The default thread-safe and bounded {@link IPreprocessedTemplateCache} implementation.
+ *
+ * The texts are cached in a {@link SegmentedLruCache} together with the node tree, which is built when a text is
+ * expanded for the first time. Entries are evicted when either the maximum number of entries or the maximum weight
+ * (the number of characters of the cached texts) is exceeded. The revision is part of the key, so an edited template
+ * doesn't have to be invalidated: the texts of outdated revisions aren't used anymore and are evicted eventually.
+ */
+public class PreprocessedTemplateCache implements IPreprocessedTemplateCache {
+	/**
+	 * The default maximum number of cached template texts
+	 */
+	public static final int DEFAULT_MAXIMUM_SIZE = 4096;
+
+	/**
+	 * The default maximum number of cached characters
+	 */
+	public static final long DEFAULT_MAXIMUM_WEIGHT = 32L * 1024 * 1024;
+
+	private final SegmentedLruCache<Key, PreprocessedText> fCache;
+
+	public PreprocessedTemplateCache() {
+		this(DEFAULT_MAXIMUM_SIZE, DEFAULT_MAXIMUM_WEIGHT);
+	}
+
+	/**
+	 * @param maximumSize
+	 *            the maximum number of cached template texts
+	 * @param maximumWeight
+	 *            the maximum number of characters of all cached texts
+	 */
+	public PreprocessedTemplateCache(final int maximumSize, final long maximumWeight) {
+		fCache = new SegmentedLruCache<>(maximumSize, maximumWeight, text -> text.getText().length(), null);
+	}
+
+	/**
+	 * Create a revision for a template content, which doesn't have a revision number.
+	 *
+	 * @return a 64-bit FNV-1a hash of the content
+	 */
+	public static long contentRevision(final String content) {
+		long hash = 0xCBF29CE484222325L;
+		for (int i = 0; i < content.length(); i++) {
+			hash ^= content.charAt(i);
+			hash *= 0x100000001B3L;
+		}
+		return hash;
+	}
+
+	@Nullable
+	@Override
+	public PreprocessedText get(final String templateName, final long revision) {
+		return fCache.get(new Key(templateName, revision));
+	}
+
+	@Override
+	public void put(final String templateName, final long revision, final PreprocessedText text) {
+		fCache.put(new Key(templateName, revision), text);
+	}
+
+	@Override
+	public void clear() {
+		fCache.clear();
+	}
+
+	@Override
+	public int size() {
+		return fCache.size();
+	}
+
+	@Override
+	public long getHitCount() {
+		return fCache.getHitCount();
+	}
+
+	@Override
+	public long getMissCount() {
+		return fCache.getMissCount();
+	}
+
+	@Override
+	public String toString() {
+		return "PreprocessedTemplateCache[size=" + size() + ", hits=" + getHitCount() + ", misses=" + getMissCount()
+				+ "]";
+	}
+
+	private static final class Key {
+		private final String fTemplateName;
+		private final long fRevision;
+
+		Key(final String templateName, final long revision) {
+			fTemplateName = templateName;
+			fRevision = revision;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * fTemplateName.hashCode() + (int) (fRevision ^ (fRevision >>> 32));
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			final Key other = (Key) obj;
+			return fRevision == other.fRevision && fTemplateName.equals(other.fTemplateName);
+		}
+	}
+}
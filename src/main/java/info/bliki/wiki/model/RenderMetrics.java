@@ -0,0 +1,245 @@
+package info.bliki.wiki.model;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The default {@link IRenderMetrics} implementation, which aggregates the reported metrics in memory. The elapsed times
+ * of every phase are collected in a histogram with power of two nanosecond buckets, so percentiles can be estimated
+ * within a factor of two without storing the single measurements.
+ *
+ * This class is thread-safe and can be shared by all wiki models of a configuration.
+ */
+public class RenderMetrics implements IRenderMetrics {
+	private static final int BUCKETS = 64;
+
+	/**
+	 * The aggregated measurements of a single phase
+	 */
+	private static final class PhaseMetrics {
+		final LongAdder count = new LongAdder();
+		final LongAdder nanos = new LongAdder();
+		final LongAdder charsIn = new LongAdder();
+		final LongAdder charsOut = new LongAdder();
+		final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+		final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+		void add(long elapsedNanos) {
+			count.increment();
+			nanos.add(elapsedNanos);
+			maxNanos.accumulate(elapsedNanos);
+			histogram.incrementAndGet(bucket(elapsedNanos));
+		}
+
+		void reset() {
+			count.reset();
+			nanos.reset();
+			charsIn.reset();
+			charsOut.reset();
+			maxNanos.reset();
+			for (int i = 0; i < BUCKETS; i++) {
+				histogram.set(i, 0L);
+			}
+		}
+	}
+
+	private final Map<Phase, PhaseMetrics> fPhases = new EnumMap<>(Phase.class);
+	private final PhaseMetrics fTemplateCalls = new PhaseMetrics();
+	private final Map<String, LongAdder> fTemplateCallCounts = new ConcurrentHashMap<>();
+	private final LongAccumulator fMaxTemplateDepth = new LongAccumulator(Math::max, 0L);
+	private final LongAdder fCacheHits = new LongAdder();
+	private final LongAdder fCacheMisses = new LongAdder();
+
+	public RenderMetrics() {
+		for (Phase phase : Phase.values()) {
+			fPhases.put(phase, new PhaseMetrics());
+		}
+	}
+
+	@Override
+	public void phase(Phase phase, long nanos, long charsIn, long charsOut) {
+		final PhaseMetrics metrics = fPhases.get(phase);
+		metrics.add(nanos);
+		if (charsIn > 0) {
+			metrics.charsIn.add(charsIn);
+		}
+		if (charsOut > 0) {
+			metrics.charsOut.add(charsOut);
+		}
+	}
+
+	@Override
+	public void templateCall(String templateName, int depth, long nanos) {
+		fTemplateCalls.add(nanos);
+		fTemplateCallCounts.computeIfAbsent(templateName, key -> new LongAdder()).increment();
+		fMaxTemplateDepth.accumulate(depth);
+	}
+
+	@Override
+	public void templateCacheAccess(boolean hit) {
+		if (hit) {
+			fCacheHits.increment();
+		} else {
+			fCacheMisses.increment();
+		}
+	}
+
+	/**
+	 * @return the number of completed phases
+	 */
+	public long getCount(Phase phase) {
+		return fPhases.get(phase).count.sum();
+	}
+
+	/**
+	 * @return the total time spent in the phase in nanoseconds
+	 */
+	public long getTotalNanos(Phase phase) {
+		return fPhases.get(phase).nanos.sum();
+	}
+
+	/**
+	 * @return the longest time spent in a single phase in nanoseconds
+	 */
+	public long getMaxNanos(Phase phase) {
+		return fPhases.get(phase).maxNanos.get();
+	}
+
+	/**
+	 * @return the total number of characters processed by the phase
+	 */
+	public long getCharsIn(Phase phase) {
+		return fPhases.get(phase).charsIn.sum();
+	}
+
+	/**
+	 * @return the total number of characters created by the phase
+	 */
+	public long getCharsOut(Phase phase) {
+		return fPhases.get(phase).charsOut.sum();
+	}
+
+	/**
+	 * Estimate a percentile of the elapsed times of a phase.
+	 *
+	 * @param percentile
+	 *            the percentile between <code>0.0</code> and <code>1.0</code>, for example <code>0.99</code>
+	 * @return the upper bound of the histogram bucket which contains the percentile in nanoseconds or <code>0</code>
+	 *         if the phase was never completed
+	 */
+	public long getPercentileNanos(Phase phase, double percentile) {
+		return percentile(fPhases.get(phase), percentile);
+	}
+
+	/**
+	 * @return the total number of template calls
+	 */
+	public long getTemplateCalls() {
+		return fTemplateCalls.count.sum();
+	}
+
+	/**
+	 * @return the total time spent in template calls which weren't nested in other template calls is included in
+	 *         {@link Phase#TEMPLATE_EXPANSION}; this is the sum over all (nested) calls in nanoseconds
+	 */
+	public long getTemplateCallNanos() {
+		return fTemplateCalls.nanos.sum();
+	}
+
+	/**
+	 * @see #getPercentileNanos(Phase, double)
+	 */
+	public long getTemplateCallPercentileNanos(double percentile) {
+		return percentile(fTemplateCalls, percentile);
+	}
+
+	/**
+	 * @return a snapshot of the number of calls per template name
+	 */
+	public Map<String, Long> getTemplateCallCounts() {
+		final Map<String, Long> counts = new HashMap<>();
+		fTemplateCallCounts.forEach((name, count) -> counts.put(name, count.sum()));
+		return Collections.unmodifiableMap(counts);
+	}
+
+	/**
+	 * @return the maximum nesting depth of template calls
+	 */
+	public int getMaxTemplateDepth() {
+		return (int) fMaxTemplateDepth.get();
+	}
+
+	/**
+	 * @return the number of template calls found in the {@link ITemplateCallsCache}
+	 */
+	public long getCacheHits() {
+		return fCacheHits.sum();
+	}
+
+	/**
+	 * @return the number of template calls not found in the {@link ITemplateCallsCache}
+	 */
+	public long getCacheMisses() {
+		return fCacheMisses.sum();
+	}
+
+	/**
+	 * Reset all metrics. Measurements reported concurrently may be lost.
+	 */
+	public void reset() {
+		for (PhaseMetrics metrics : fPhases.values()) {
+			metrics.reset();
+		}
+		fTemplateCalls.reset();
+		fTemplateCallCounts.clear();
+		fMaxTemplateDepth.reset();
+		fCacheHits.reset();
+		fCacheMisses.reset();
+	}
+
+	private static int bucket(long nanos) {
+		return nanos <= 0 ? 0 : BUCKETS - Long.numberOfLeadingZeros(nanos) - 1;
+	}
+
+	private static long percentile(PhaseMetrics metrics, double percentile) {
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			total += metrics.histogram.get(i);
+		}
+		if (total == 0) {
+			return 0L;
+		}
+		final long rank = Math.max(1L, (long) Math.ceil(percentile * total));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += metrics.histogram.get(i);
+			if (seen >= rank) {
+				return i == BUCKETS - 1 ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+			}
+		}
+		return metrics.maxNanos.get();
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder buf = new StringBuilder(256);
+		for (Phase phase : Phase.values()) {
+			final PhaseMetrics metrics = fPhases.get(phase);
+			buf.append(phase).append(": count=").append(metrics.count.sum()).append(" totalMillis=")
+					.append(metrics.nanos.sum() / 1000000L).append(" p50Micros=")
+					.append(percentile(metrics, 0.5) / 1000L).append(" p99Micros=")
+					.append(percentile(metrics, 0.99) / 1000L).append(" charsIn=").append(metrics.charsIn.sum())
+					.append(" charsOut=").append(metrics.charsOut.sum()).append('\n');
+		}
+		buf.append("TEMPLATE_CALLS: count=").append(getTemplateCalls()).append(" maxDepth=")
+				.append(getMaxTemplateDepth()).append(" cacheHits=").append(getCacheHits()).append(" cacheMisses=")
+				.append(getCacheMisses());
+		return buf.toString();
+	}
+}
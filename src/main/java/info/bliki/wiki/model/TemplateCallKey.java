@@ -0,0 +1,96 @@
+package info.bliki.wiki.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import info.bliki.wiki.filter.TemplateParameterMap;
+
+/**
+ * The key of a template call in an {@link ITemplateCallsCache}. The key contains the full template name and the
+ * parameters of the call, sorted by name, so it doesn't depend on the iteration order of the parameter map. Keys are
+ * equal only if the template names and all parameter names and values are equal.
+ *
+ * The values of a {@link TemplateParameterMap} are expanded on demand, so its raw values are used instead (see
+ * {@link TemplateParameterMap#getRawValue(String)}) and the unused values aren't expanded to create the key.
+ */
+public final class TemplateCallKey {
+	private final String fTemplateName;
+	/**
+	 * The sorted parameters, every name and value is prefixed with its length
+	 */
+	private final String fParameters;
+	private final int fHashCode;
+
+	private TemplateCallKey(final String templateName, final String parameters) {
+		fTemplateName = templateName;
+		fParameters = parameters;
+		fHashCode = 31 * templateName.hashCode() + parameters.hashCode();
+	}
+
+	/**
+	 * Create the key for a template call.
+	 *
+	 * @param templateName
+	 *            the full name of the template including the namespace
+	 * @param parameterMap
+	 *            the parameters of the template call
+	 */
+	public static TemplateCallKey create(final String templateName, final Map<String, String> parameterMap) {
+		if (parameterMap.isEmpty()) {
+			return new TemplateCallKey(templateName, "");
+		}
+		final TemplateParameterMap lazyMap = parameterMap instanceof TemplateParameterMap
+				? (TemplateParameterMap) parameterMap : null;
+		final List<String> names = new ArrayList<>(parameterMap.keySet());
+		Collections.sort(names);
+		final StringBuilder parameters = new StringBuilder();
+		if (lazyMap != null) {
+			// the raw values never equal the values of other maps
+			parameters.append('~');
+		}
+		for (final String name : names) {
+			append(parameters, name);
+			append(parameters, lazyMap != null ? lazyMap.getRawValue(name) : parameterMap.get(name));
+		}
+		return new TemplateCallKey(templateName, parameters.toString());
+	}
+
+	/**
+	 * Append a string with a length prefix, so the concatenation of the names and values is unambiguous.
+	 */
+	private static void append(final StringBuilder buffer, final String str) {
+		buffer.append(str.length()).append(':').append(str);
+	}
+
+	/**
+	 * @return the full name of the template including the namespace
+	 */
+	public String getTemplateName() {
+		return fTemplateName;
+	}
+
+	@Override
+	public int hashCode() {
+		return fHashCode;
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof TemplateCallKey)) {
+			return false;
+		}
+		final TemplateCallKey other = (TemplateCallKey) obj;
+		return fHashCode == other.fHashCode && fTemplateName.equals(other.fTemplateName)
+				&& fParameters.equals(other.fParameters);
+	}
+
+	@Override
+	public String toString() {
+		return fTemplateName + "|" + fParameters;
+	}
+}
@@ -0,0 +1,183 @@
+package info.bliki.wiki.model;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nullable;
+
+import info.bliki.util.SegmentedLruCache;
+
+/**
+ * The default thread-safe and bounded {@link ITemplateCallsCache} implementation.
+ *
+ * The template calls are cached in a {@link SegmentedLruCache}, so template calls which are used only once (for
+ * example with the page specific parameters of an infobox) can't evict the frequently used ones. Entries are evicted
+ * when either the maximum number of entries or the maximum weight (the number of characters of the cached values) is
+ * exceeded.
+ *
+ * For {@link #invalidate(String)} the cache keeps an index from every template and included page to the cached template
+ * calls and registered pages depending on it. The registered pages are not bounded by the cache limits. Template calls
+ * which are expanded while a template they use is invalidated may be cached with the outdated content.
+ */
+public class TemplateCallsCache implements ITemplateCallsCache {
+	/**
+	 * The default maximum number of cached template calls
+	 */
+	public static final int DEFAULT_MAXIMUM_SIZE = 16384;
+
+	/**
+	 * The default maximum number of cached characters
+	 */
+	public static final long DEFAULT_MAXIMUM_WEIGHT = 32L * 1024 * 1024;
+
+	private final SegmentedLruCache<TemplateCallKey, CachedTemplateCall> fCache;
+	private final Map<String, Set<TemplateCallKey>> fDependentCalls = new ConcurrentHashMap<>();
+	private final Map<String, Set<String>> fDependentPages = new ConcurrentHashMap<>();
+	private final Map<String, Collection<String>> fPageDependencies = new ConcurrentHashMap<>();
+
+	public TemplateCallsCache() {
+		this(DEFAULT_MAXIMUM_SIZE, DEFAULT_MAXIMUM_WEIGHT);
+	}
+
+	/**
+	 * @param maximumSize
+	 *            the maximum number of cached template calls
+	 * @param maximumWeight
+	 *            the maximum number of characters of all cached values
+	 */
+	public TemplateCallsCache(final int maximumSize, final long maximumWeight) {
+		fCache = new SegmentedLruCache<>(maximumSize, maximumWeight, CachedTemplateCall::weight, this::unregister);
+	}
+
+	@Nullable
+	@Override
+	public CachedTemplateCall get(final TemplateCallKey key) {
+		return fCache.get(key);
+	}
+
+	@Override
+	public void put(final TemplateCallKey key, final CachedTemplateCall value) {
+		for (final String template : value.getTemplates()) {
+			fDependentCalls.computeIfAbsent(template, name -> ConcurrentHashMap.newKeySet()).add(key);
+		}
+		for (final String include : value.getIncludes()) {
+			fDependentCalls.computeIfAbsent(include, name -> ConcurrentHashMap.newKeySet()).add(key);
+		}
+		final CachedTemplateCall oldValue = fCache.put(key, value);
+		if (oldValue != null) {
+			unregisterReplaced(key, oldValue, value);
+		}
+	}
+
+	@Override
+	public void addPage(final String pageName, final Collection<String> dependencies) {
+		final Collection<String> newDependencies = Collections.unmodifiableSet(new HashSet<>(dependencies));
+		final Collection<String> oldDependencies = fPageDependencies.put(pageName, newDependencies);
+		if (oldDependencies != null) {
+			for (final String dependency : oldDependencies) {
+				if (!newDependencies.contains(dependency)) {
+					removeDependent(fDependentPages, dependency, pageName);
+				}
+			}
+		}
+		for (final String dependency : newDependencies) {
+			fDependentPages.computeIfAbsent(dependency, name -> ConcurrentHashMap.newKeySet()).add(pageName);
+		}
+	}
+
+	@Override
+	public Set<String> invalidate(final String name) {
+		final Set<TemplateCallKey> keys = fDependentCalls.remove(name);
+		if (keys != null) {
+			for (final TemplateCallKey key : keys) {
+				fCache.remove(key);
+			}
+		}
+		final Set<String> pages = fDependentPages.get(name);
+		if (pages == null) {
+			return Collections.emptySet();
+		}
+		return new HashSet<>(pages);
+	}
+
+	@Override
+	public void clear() {
+		fCache.clear();
+		fDependentCalls.clear();
+		fDependentPages.clear();
+		fPageDependencies.clear();
+	}
+
+	@Override
+	public int size() {
+		return fCache.size();
+	}
+
+	/**
+	 * @return the number of characters of all cached values
+	 */
+	public long weight() {
+		return fCache.weight();
+	}
+
+	@Override
+	public long getHitCount() {
+		return fCache.getHitCount();
+	}
+
+	@Override
+	public long getMissCount() {
+		return fCache.getMissCount();
+	}
+
+	@Override
+	public long getEvictionCount() {
+		return fCache.getEvictionCount();
+	}
+
+	@Override
+	public String toString() {
+		return "TemplateCallsCache[size=" + size() + ", weight=" + weight() + ", hits=" + getHitCount() + ", misses="
+				+ getMissCount() + ", evictions=" + getEvictionCount() + "]";
+	}
+
+	/**
+	 * Remove the key of a cached template call from the dependency index, after it was evicted or invalidated.
+	 */
+	private void unregister(final TemplateCallKey key, final CachedTemplateCall value) {
+		for (final String template : value.getTemplates()) {
+			removeDependent(fDependentCalls, template, key);
+		}
+		for (final String include : value.getIncludes()) {
+			removeDependent(fDependentCalls, include, key);
+		}
+	}
+
+	private static <T> void removeDependent(final Map<String, Set<T>> index, final String name, final T dependent) {
+		index.computeIfPresent(name, (key, dependents) -> {
+			dependents.remove(dependent);
+			return dependents.isEmpty() ? null : dependents;
+		});
+	}
+
+	/**
+	 * Remove the dependencies of a replaced value, which aren't dependencies of the new value.
+	 */
+	private void unregisterReplaced(final TemplateCallKey key, final CachedTemplateCall oldValue,
+			final CachedTemplateCall newValue) {
+		for (final String template : oldValue.getTemplates()) {
+			if (!newValue.getTemplates().contains(template) && !newValue.getIncludes().contains(template)) {
+				removeDependent(fDependentCalls, template, key);
+			}
+		}
+		for (final String include : oldValue.getIncludes()) {
+			if (!newValue.getTemplates().contains(include) && !newValue.getIncludes().contains(include)) {
+				removeDependent(fDependentCalls, include, key);
+			}
+		}
+	}
+}
@@ -328,6 +328,27 @@ public class WikiModel extends AbstractWikiModel {
 		semanticAttributes = null;
 	}
 
+	/**
+	 * Renders the wiki text and registers the used templates and included pages of the page
+	 * {@link #getPageName()} in the template calls cache, if one is set. The dependencies of texts rendered without a
+	 * page name aren't registered.
+	 *
+	 * @see ITemplateCallsCache#invalidate(String)
+	 */
+	@Override
+	public void render(ITextConverter converter, String rawWikiText, Appendable buf, boolean templateTopic,
+			boolean parseTemplates) throws IOException {
+		super.render(converter, rawWikiText, buf, templateTopic, parseTemplates);
+		ITemplateCallsCache templateCallsCache = getSharedTemplateCallsCache();
+		String pageName = getPageName();
+		if (templateCallsCache != null && rawWikiText != null && pageName != null
+				&& !DEFAULT_PAGE_NAME.equals(pageName)) {
+			Set<String> dependencies = new HashSet<>(templates);
+			dependencies.addAll(includes);
+			templateCallsCache.addPage(pageName, dependencies);
+		}
+	}
+
 	/**
 	 *
 	 */
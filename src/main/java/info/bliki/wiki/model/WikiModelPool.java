@@ -0,0 +1,107 @@
+package info.bliki.wiki.model;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.function.Supplier;
+
+/**
+ * A thread-confined pool of wiki models, so a server or a dump processor doesn't have to construct a new model (with
+ * its namespace and interwiki map) for every rendered page. The pool only saves the construction of the model: the
+ * per-page state like the token stack, the references and the table of contents is still allocated for every rendered
+ * page, only the map of the template loop counters is reused.
+ *
+ * Every thread keeps up to <code>maxIdle</code> idle models. {@link #acquire()} returns an idle model of the current
+ * thread (or a new one from the factory) after calling {@link IWikiModel#setUp()}, {@link #release(IWikiModel)}
+ * calls {@link IWikiModel#tearDown()} and returns the model to the idle models of the current thread. Nested
+ * acquisitions in the same thread get different models. A model must not be used after it was released.
+ *
+ * Example:
+ *
+ * <pre>
+ * WikiModelPool&lt;WikiModel&gt; pool = new WikiModelPool&lt;&gt;(() -&gt; new WikiModel(&quot;${image}&quot;, &quot;${title}&quot;));
+ * String html = pool.execute(model -&gt; {
+ * 	model.setPageName(title);
+ * 	return model.render(wikiText);
+ * });
+ * </pre>
+ */
+public class WikiModelPool<T extends IWikiModel> {
+	/**
+	 * The default maximum number of idle models per thread
+	 */
+	public static final int DEFAULT_MAX_IDLE = 2;
+
+	/**
+	 * A task which uses a pooled wiki model.
+	 */
+	public interface IWikiModelTask<T extends IWikiModel, R> {
+		R execute(T model) throws IOException;
+	}
+
+	private final Supplier<? extends T> fFactory;
+	private final int fMaxIdle;
+	private final ThreadLocal<ArrayDeque<T>> fIdleModels = ThreadLocal.withInitial(ArrayDeque::new);
+
+	public WikiModelPool(final Supplier<? extends T> factory) {
+		this(factory, DEFAULT_MAX_IDLE);
+	}
+
+	/**
+	 * @param factory
+	 *            creates new models
+	 * @param maxIdle
+	 *            the maximum number of idle models kept per thread
+	 */
+	public WikiModelPool(final Supplier<? extends T> factory, final int maxIdle) {
+		if (maxIdle < 0) {
+			throw new IllegalArgumentException("invalid number of idle models " + maxIdle);
+		}
+		fFactory = factory;
+		fMaxIdle = maxIdle;
+	}
+
+	/**
+	 * Get a model for the current thread which has been set up for rendering a new page.
+	 */
+	public T acquire() {
+		T model = fIdleModels.get().pollLast();
+		if (model == null) {
+			model = fFactory.get();
+		}
+		model.setUp();
+		return model;
+	}
+
+	/**
+	 * Tear down the model and keep it for the next {@link #acquire()} of the current thread.
+	 */
+	public void release(final T model) {
+		model.tearDown();
+		final ArrayDeque<T> idleModels = fIdleModels.get();
+		if (idleModels.size() < fMaxIdle) {
+			idleModels.addLast(model);
+		}
+	}
+
+	/**
+	 * Execute the task with a model acquired from this pool and release it afterwards.
+	 *
+	 * @return the result of the task
+	 */
+	public <R> R execute(final IWikiModelTask<? super T, R> task) throws IOException {
+		final T model = acquire();
+		try {
+			return task.execute(model);
+		} finally {
+			release(model);
+		}
+	}
+
+	/**
+	 * Discard the idle models of the current thread, for example before a thread of a container's thread pool is
+	 * returned.
+	 */
+	public void clear() {
+		fIdleModels.remove();
+	}
+}
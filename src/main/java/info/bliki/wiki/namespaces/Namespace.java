@@ -2,30 +2,44 @@ package info.bliki.wiki.namespaces;
 
 import info.bliki.Messages;
 import info.bliki.wiki.filter.Encoder;
+import info.bliki.wiki.filter.Util;
 
 import javax.annotation.Nullable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.ResourceBundle;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static info.bliki.wiki.namespaces.INamespace.NamespaceCode.*;
-import static java.lang.String.CASE_INSENSITIVE_ORDER;
 
 /**
  * Mediawiki Namespaces.
- * 
+ *
+ * A new instance can be modified, for example with {@link INamespaceValue#addAlias(String)}. The immutable instances
+ * returned by {@link #getSharedInstance(Locale)} are created only once per locale and can be shared by all wiki models
+ * and threads.
+ *
  * @see <a href="https://www.mediawiki.org/wiki/Manual:Namespace#Built-in_namespaces"> Mediawiki - Manual:Namespace</a>
  */
 public class Namespace implements INamespace {
+	private static final Map<Locale, Namespace> SHARED_INSTANCES = new ConcurrentHashMap<>();
+
+	/**
+	 * Maps the case-folded namespaces (see {@link Util#foldCase(String)}) to their according {@link NamespaceValue}
+	 * objects.
+	 */
+	private final Map<String, NamespaceValue> TEXT_TO_NAMESPACE_MAP = new HashMap<>(256);
 	/**
-	 * Maps namespaces case-insensitively to their according {@link NamespaceValue} objects.
+	 * Maps the namespaces with their exact case to their according {@link NamespaceValue} objects, which avoids the
+	 * case folding for the common lookups.
 	 */
-	private final Map<String, NamespaceValue> TEXT_TO_NAMESPACE_MAP = new TreeMap<>(CASE_INSENSITIVE_ORDER);
+	private final Map<String, NamespaceValue> EXACT_TEXT_TO_NAMESPACE_MAP = new HashMap<>(256);
 	private final Map<Integer, NamespaceValue> namespaceMap = new HashMap<>(NamespaceCode.values().length);
+	private boolean frozen;
 
 	/**
 	 * The "Media" namespace for the current language.
@@ -149,6 +163,30 @@ public class Namespace implements INamespace {
 		initializeNamespaces();
 	}
 
+	/**
+	 * Get the shared, immutable namespaces for the given locale. The namespace texts and aliases of the returned
+	 * instance can't be modified.
+	 *
+	 * @param locale
+	 *            the locale of the namespace texts
+	 * @return the same instance for every call with an equal locale
+	 */
+	public static Namespace getSharedInstance(Locale locale) {
+		return SHARED_INSTANCES.computeIfAbsent(locale, key -> {
+			Namespace namespace = new Namespace(key);
+			namespace.frozen = true;
+			return namespace;
+		});
+	}
+
+	/**
+	 * @return <code>true</code> if the namespace texts can't be modified
+	 * @see #getSharedInstance(Locale)
+	 */
+	public boolean isFrozen() {
+		return frozen;
+	}
+
 	@Override
 	public boolean isNamespace(String namespace, NamespaceCode code) {
 		NamespaceValue nsVal = getNamespace(namespace);
@@ -163,7 +201,14 @@ public class Namespace implements INamespace {
 	@Override
 	@Nullable
 	public NamespaceValue getNamespace(String namespace) {
-		return TEXT_TO_NAMESPACE_MAP.get(namespace);
+		if (namespace == null) {
+			return null;
+		}
+		NamespaceValue value = EXACT_TEXT_TO_NAMESPACE_MAP.get(namespace);
+		if (value == null) {
+			value = TEXT_TO_NAMESPACE_MAP.get(Util.foldCase(namespace));
+		}
+		return value;
 	}
 
 	@Override
@@ -471,11 +516,12 @@ public class Namespace implements INamespace {
 		@Override
 		public void setTexts(String... aliases) {
 			assert (aliases.length >= 1);
+			checkModifiable();
 			// remove old texts:
 			for (String text : this.texts) {
-				TEXT_TO_NAMESPACE_MAP.remove(text);
-				TEXT_TO_NAMESPACE_MAP.remove(text.replace(' ', '_'));
-				TEXT_TO_NAMESPACE_MAP.remove(text.replace('_', ' '));
+				removeText(text);
+				removeText(text.replace(' ', '_'));
+				removeText(text.replace('_', ' '));
 			}
 			// note: don't assign the fixed-size list of Arrays.asList to texts!
 			texts = new ArrayList<>(aliases.length);
@@ -487,11 +533,40 @@ public class Namespace implements INamespace {
 
 		@Override
 		public void addAlias(String alias) {
-			if (!TEXT_TO_NAMESPACE_MAP.containsKey(alias)) {
+			checkModifiable();
+			if (!TEXT_TO_NAMESPACE_MAP.containsKey(Util.foldCase(alias))) {
 				texts.add(alias);
-				TEXT_TO_NAMESPACE_MAP.put(alias, this);
-				TEXT_TO_NAMESPACE_MAP.put(alias.replace(' ', '_'), this);
-				TEXT_TO_NAMESPACE_MAP.put(alias.replace('_', ' '), this);
+				putText(alias);
+				putText(alias.replace(' ', '_'));
+				putText(alias.replace('_', ' '));
+			}
+		}
+
+		private void putText(String text) {
+			String foldedText = Util.foldCase(text);
+			NamespaceValue previous = TEXT_TO_NAMESPACE_MAP.put(foldedText, this);
+			if (previous != null && previous != this) {
+				removeExactTexts(foldedText);
+			}
+			EXACT_TEXT_TO_NAMESPACE_MAP.put(text, this);
+		}
+
+		private void removeText(String text) {
+			String foldedText = Util.foldCase(text);
+			TEXT_TO_NAMESPACE_MAP.remove(foldedText);
+			removeExactTexts(foldedText);
+		}
+
+		/**
+		 * Remove all case variants of a text from the exact lookup map.
+		 */
+		private void removeExactTexts(String foldedText) {
+			EXACT_TEXT_TO_NAMESPACE_MAP.keySet().removeIf(key -> Util.foldCase(key).equals(foldedText));
+		}
+
+		private void checkModifiable() {
+			if (frozen) {
+				throw new UnsupportedOperationException("the shared namespace instances can't be modified");
 			}
 		}
 
@@ -507,7 +582,7 @@ public class Namespace implements INamespace {
 
 		@Override
 		public List<String> getTexts() {
-			return texts;
+			return frozen ? Collections.unmodifiableList(texts) : texts;
 		}
 
 		@Override
@@ -5,6 +5,7 @@ import info.bliki.wiki.filter.ITextConverter;
 import info.bliki.wiki.model.Configuration;
 import info.bliki.wiki.model.IWikiModel;
 import info.bliki.wiki.model.Reference;
+import info.bliki.wiki.tags.util.IBodyTag;
 
 import java.io.IOException;
 import java.util.List;
@@ -14,7 +15,7 @@ import java.util.List;
  *
  * See <a href="https://en.wikipedia.org/wiki/Wikipedia:Footnotes">Footnotes</a>
  */
-public class ReferencesTag extends HTMLTag {
+public class ReferencesTag extends HTMLTag implements IBodyTag {
 	public ReferencesTag() {
 		super("references");
 	}
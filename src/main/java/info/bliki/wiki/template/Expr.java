@@ -7,6 +7,7 @@ import info.bliki.util.Throwables;
 import info.bliki.wiki.filter.TemplateParser;
 import info.bliki.wiki.model.Configuration;
 import info.bliki.wiki.model.IWikiModel;
+import info.bliki.wiki.template.expr.eval.CompiledExpression;
 import info.bliki.wiki.template.expr.eval.DoubleEvaluator;
 import lombok.extern.slf4j.Slf4j;
 
@@ -39,8 +40,7 @@ public class Expr extends AbstractTemplateFunction {
 				expression = conditionBuffer.toString();
 			}
 			try {
-				final DoubleEvaluator engine = new DoubleEvaluator();
-				final double d = engine.evaluate(expression);
+				final double d = CompiledExpression.get(expression).evaluate();
 				return getWikiNumberFormat(d, model);
 			} catch (final Exception e) {
 				if (Configuration.DEBUG) {
@@ -5,6 +5,7 @@ import java.util.List;
 import info.bliki.util.Throwables;
 import info.bliki.wiki.model.Configuration;
 import info.bliki.wiki.model.IWikiModel;
+import info.bliki.wiki.template.expr.eval.CompiledExpression;
 import info.bliki.wiki.template.expr.eval.DoubleEvaluator;
 import lombok.extern.slf4j.Slf4j;
 
@@ -27,8 +28,7 @@ public class Ifexpr extends AbstractTemplateFunction {
 			final String condition = isSubst ? list.get(0) : parseTrim(list.get(0), model);
 			if (condition.length() > 0) {
 				try {
-					final DoubleEvaluator engine = new DoubleEvaluator();
-					final double d = engine.evaluate(condition);
+					final double d = CompiledExpression.get(condition).evaluate();
 					// if (d == 0.0) {
 					if (Math.abs(d - 0.0) < DoubleEvaluator.EPSILON) {
 						if (list.size() >= 3) {
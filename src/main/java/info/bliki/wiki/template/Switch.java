@@ -11,6 +11,7 @@ import java.util.List;
  * See <a href ="https://www.mediawiki.org/wiki/Help:Extension:ParserFunctions">Mediwiki's
  * Help:Extension:ParserFunctions</a>
  *
+ * Switches with many literal case labels are resolved with a cached {@link SwitchIndex}.
  */
 public class Switch extends AbstractTemplateFunction {
 	public final static ITemplateFunction CONST = new Switch();
@@ -23,6 +24,13 @@ public class Switch extends AbstractTemplateFunction {
 		}
 		String defaultResult = null;
 		final String conditionString = isSubst ? list.get(0) : parseTrim(list.get(0), model);
+		// the first list entry is the condition
+		if (!isSubst && list.size() - 1 > SwitchIndex.MAXIMUM_LINEAR_CASES) {
+			final SwitchIndex index = SwitchIndex.get(list);
+			if (index != null) {
+				return parseTrim(index.resolve(conditionString), model);
+			}
+		}
 
 		boolean valueFound = false;
 		for (int i = 1; i < list.size(); i++) {
@@ -79,7 +87,7 @@ public class Switch extends AbstractTemplateFunction {
 		return first.equals(second);
 	}
 
-	private static boolean checkNumerically(String condition) {
+	static boolean checkNumerically(String condition) {
 		if (condition.length() > 0) {
 			if (isNumeric0(condition.charAt(0))) {
 				return true;
@@ -0,0 +1,255 @@
+package info.bliki.wiki.template;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nullable;
+
+/**
+ * A hash index of the cases of a <code>{{ #switch: ... }}</code> body, whose case labels are literal texts without
+ * templates, links, tags or signatures. Templates for countries, languages or units contain switches with hundreds of
+ * such cases, which are otherwise split and parsed one after another for every call.
+ *
+ * The index resolves the same case as {@link Switch#parseFunction(List, info.bliki.wiki.model.IWikiModel, char[], int,
+ * int, boolean)}: the first case whose label is equal to the condition, or numerically equal if the condition looks
+ * like a number, the fall-through of cases without a value and the explicit <code>#default</code> or implicit default
+ * (the last case without a value).
+ *
+ * The indexes are cached by the raw text of the cases. Instances are immutable and shared by all threads.
+ */
+final class SwitchIndex {
+	/**
+	 * The maximum number of cases of a switch, which is resolved by the linear scan. Switches with more cases are
+	 * indexed.
+	 */
+	static final int MAXIMUM_LINEAR_CASES = 8;
+
+	/**
+	 * The maximum number of cached indexes. The cache is cleared, when it's full.
+	 */
+	private static final int MAXIMUM_CACHE_SIZE = 1024;
+
+	private static final Map<Key, SwitchIndex> CACHE = new ConcurrentHashMap<>();
+
+	/**
+	 * The first case for every non-empty label, without a leading <code>+</code>
+	 */
+	private final Map<String, Integer> fLabels;
+	/**
+	 * The first case for every numeric label
+	 */
+	private final Map<Double, Integer> fNumbers;
+	/**
+	 * The first case with an empty label or <code>-1</code>
+	 */
+	private final int fEmptyLabel;
+	/**
+	 * The unparsed result of every case, after the fall-through
+	 */
+	private final String[] fResults;
+	/**
+	 * The unparsed result, if no case matches
+	 */
+	private final String fDefault;
+
+	private SwitchIndex(final Map<String, Integer> labels, final Map<Double, Integer> numbers, final int emptyLabel,
+			final String[] results, final String defaultResult) {
+		fLabels = labels;
+		fNumbers = numbers;
+		fEmptyLabel = emptyLabel;
+		fResults = results;
+		fDefault = defaultResult;
+	}
+
+	/**
+	 * Get the cached index of a switch body or build and cache a new index.
+	 *
+	 * @param list
+	 *            the condition and the cases of the switch
+	 * @return <code>null</code> if the switch has a case label, which isn't a literal text
+	 */
+	@Nullable
+	static SwitchIndex get(final List<String> list) {
+		final List<String> cases = list.subList(1, list.size());
+		final Key key = new Key(cases);
+		SwitchIndex index = CACHE.get(key);
+		if (index == null) {
+			index = build(cases);
+			if (index != null) {
+				if (CACHE.size() >= MAXIMUM_CACHE_SIZE) {
+					CACHE.clear();
+				}
+				CACHE.put(key, index);
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Build the index of the cases of a switch.
+	 *
+	 * @return <code>null</code> if a case label isn't a literal text
+	 */
+	@Nullable
+	static SwitchIndex build(final List<String> cases) {
+		final int size = cases.size();
+		final String[] labels = new String[size];
+		final String[] values = new String[size];
+		for (int i = 0; i < size; i++) {
+			final String item = cases.get(i);
+			final int equalsIndex = item.indexOf('=');
+			final String label = equalsIndex < 0 ? item : item.substring(0, equalsIndex);
+			if (!isLiteral(label)) {
+				return null;
+			}
+			// the label is parsed with parseTrim(), which doesn't change a literal text
+			labels[i] = label.trim();
+			values[i] = equalsIndex < 0 ? null : item.substring(equalsIndex + 1);
+		}
+
+		final int last = size - 1;
+		final String implicitDefault = values[last] == null ? labels[last] : null;
+		final String[] results = new String[size];
+		// a case without a value falls through to the next value
+		String next = implicitDefault;
+		for (int i = last; i >= 0; i--) {
+			if (values[i] != null) {
+				next = values[i];
+			}
+			results[i] = next;
+		}
+
+		final Map<String, Integer> labelMap = new HashMap<>();
+		final Map<Double, Integer> numberMap = new HashMap<>();
+		int emptyLabel = -1;
+		String explicitDefault = null;
+		for (int i = 0; i < size; i++) {
+			final String label = labels[i];
+			if (values[i] != null && "#default".equals(label)) {
+				explicitDefault = values[i];
+				continue;
+			}
+			if (label.length() == 0) {
+				if (emptyLabel < 0) {
+					emptyLabel = i;
+				}
+				continue;
+			}
+			final String key = stripPlus(label);
+			if (!labelMap.containsKey(key)) {
+				labelMap.put(key, i);
+			}
+			final Double number = parseNumber(key);
+			if (number != null && !numberMap.containsKey(number)) {
+				numberMap.put(number, i);
+			}
+		}
+		return new SwitchIndex(labelMap, numberMap, emptyLabel, results,
+				implicitDefault != null ? implicitDefault : explicitDefault);
+	}
+
+	/**
+	 * Resolve the result of the switch for a condition.
+	 *
+	 * @param condition
+	 *            the parsed and trimmed condition
+	 * @return the unparsed result text or <code>null</code> if no case matches and the switch has no default
+	 */
+	@Nullable
+	String resolve(final String condition) {
+		int index;
+		if (condition.length() == 0) {
+			index = fEmptyLabel;
+		} else {
+			final String key = stripPlus(condition);
+			final Integer labelIndex = fLabels.get(key);
+			index = labelIndex != null ? labelIndex : -1;
+			if (!fNumbers.isEmpty() && Switch.checkNumerically(condition)) {
+				final Double number = parseNumber(key);
+				final Integer numberIndex = number != null ? fNumbers.get(number) : null;
+				if (numberIndex != null && (index < 0 || numberIndex < index)) {
+					index = numberIndex;
+				}
+			}
+		}
+		return index >= 0 ? fResults[index] : fDefault;
+	}
+
+	/**
+	 * The key of a cached index: the raw text span of the cases, i.e. the cases joined with the pipe symbols they were
+	 * split at, which is copied and hashed once per lookup.
+	 */
+	private static final class Key {
+		private final String fText;
+		private final int fCaseCount;
+		private final int fHash;
+
+		Key(final List<String> cases) {
+			int length = cases.size() - 1;
+			for (final String item : cases) {
+				length += item.length();
+			}
+			final StringBuilder buf = new StringBuilder(length);
+			for (int i = 0; i < cases.size(); i++) {
+				if (i > 0) {
+					buf.append('|');
+				}
+				buf.append(cases.get(i));
+			}
+			fText = buf.toString();
+			fCaseCount = cases.size();
+			fHash = 31 * fText.hashCode() + fCaseCount;
+		}
+
+		@Override
+		public int hashCode() {
+			return fHash;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			final Key other = (Key) obj;
+			return fHash == other.fHash && fCaseCount == other.fCaseCount && fText.equals(other.fText);
+		}
+	}
+
+	/**
+	 * Check if the label doesn't contain characters, which may be changed by the template parser.
+	 */
+	private static boolean isLiteral(final String label) {
+		for (int i = 0; i < label.length(); i++) {
+			final char ch = label.charAt(i);
+			if (ch == '{' || ch == '[' || ch == '<' || ch == '~') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static String stripPlus(final String str) {
+		return str.charAt(0) == '+' ? str.substring(1) : str;
+	}
+
+	/**
+	 * Parse a number like <code>Double.parseDouble()</code>, with <code>-0.0</code> equal to <code>0.0</code>.
+	 *
+	 * @return <code>null</code> if the string isn't a number or isn't equal to any number
+	 */
+	@Nullable
+	private static Double parseNumber(final String str) {
+		try {
+			final double d = Double.parseDouble(str);
+			if (Double.isNaN(d)) {
+				return null;
+			}
+			return d == 0.0 ? 0.0 : d;
+		} catch (final NumberFormatException e) {
+			return null;
+		}
+	}
+}
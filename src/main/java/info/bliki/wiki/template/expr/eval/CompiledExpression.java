@@ -0,0 +1,102 @@
+package info.bliki.wiki.template.expr.eval;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import info.bliki.wiki.template.expr.SyntaxError;
+
+/**
+ * A compiled <code>{{ #expr: ... }}</code> expression.
+ *
+ * Expressions don't contain variables, so the abstract syntax tree of an expression which was constant-folded with
+ * {@link DoubleEvaluator#optimizeFunction(info.bliki.wiki.template.expr.ast.FunctionNode)} is a single number. The
+ * compiled expression keeps this number or the message of the evaluation error, and the expressions are cached by
+ * their text: templates like <i>Age</i> or <i>Convert</i> evaluate the same expressions many times on a page and on
+ * every page which uses them. A failed expression throws a new exception for every evaluation.
+ *
+ * Instances are immutable and shared by all threads.
+ */
+public final class CompiledExpression {
+	/**
+	 * The maximum number of cached expressions. The cache is cleared, when it's full.
+	 */
+	private static final int MAXIMUM_CACHE_SIZE = 8192;
+
+	/**
+	 * The maximum length of a cached expression text
+	 */
+	private static final int MAXIMUM_EXPRESSION_LENGTH = 1024;
+
+	private static final Map<String, CompiledExpression> CACHE = new ConcurrentHashMap<>();
+
+	private final double fValue;
+	/**
+	 * The message of the evaluation error or <code>null</code>
+	 */
+	private final String fErrorMessage;
+	/**
+	 * <code>true</code> if the evaluation error is a {@link SyntaxError}
+	 */
+	private final boolean fSyntaxError;
+
+	private CompiledExpression(final double value, final String errorMessage, final boolean syntaxError) {
+		fValue = value;
+		fErrorMessage = errorMessage;
+		fSyntaxError = syntaxError;
+	}
+
+	/**
+	 * Compile an expression without using the cache.
+	 *
+	 * @param expression
+	 *            the expression text
+	 * @return the compiled expression
+	 */
+	public static CompiledExpression compile(final String expression) {
+		try {
+			return new CompiledExpression(new DoubleEvaluator().evaluate(expression), null, false);
+		} catch (final RuntimeException e) {
+			return new CompiledExpression(Double.NaN, String.valueOf(e.getMessage()), e instanceof SyntaxError);
+		}
+	}
+
+	/**
+	 * Get the compiled expression from the cache or compile and cache the expression.
+	 *
+	 * @param expression
+	 *            the expression text
+	 * @return the compiled expression
+	 */
+	public static CompiledExpression get(final String expression) {
+		CompiledExpression compiledExpression = CACHE.get(expression);
+		if (compiledExpression == null) {
+			compiledExpression = compile(expression);
+			if (expression.length() <= MAXIMUM_EXPRESSION_LENGTH) {
+				if (CACHE.size() >= MAXIMUM_CACHE_SIZE) {
+					CACHE.clear();
+				}
+				CACHE.put(expression, compiledExpression);
+			}
+		}
+		return compiledExpression;
+	}
+
+	/**
+	 * Evaluate the expression.
+	 *
+	 * @return the value of the expression
+	 * @throws SyntaxError
+	 *             a new exception with the message of the syntax error of the expression
+	 * @throws ArithmeticException
+	 *             a new exception with the message of any other evaluation error
+	 */
+	public double evaluate() {
+		if (fErrorMessage != null) {
+			if (fSyntaxError) {
+				throw new SyntaxError(0, 0, 0, "", fErrorMessage, 0);
+			}
+			throw new ArithmeticException(fErrorMessage);
+		}
+		return fValue;
+	}
+}
@@ -435,27 +435,23 @@ public class DoubleEvaluator {
 	 */
 	public double evaluateFunction(final FunctionNode functionNode) {
 		if (functionNode.size() > 0 && functionNode.get(0) instanceof SymbolNode) {
-			String symbol = functionNode.get(0).toString();
+			final Object obj = FUNCTION_DOUBLE_MAP.get(functionNode.get(0).toString());
 			if (functionNode.size() == 1) {
-				Object obj = FUNCTION_DOUBLE_MAP.get(symbol);
 				if (obj instanceof IDouble0Function) {
 					return ((IDouble0Function) obj).evaluate();
 				}
 			} else if (functionNode.size() == 2) {
-				Object obj = FUNCTION_DOUBLE_MAP.get(symbol);
 				if (obj instanceof IDouble1Function) {
 					return ((IDouble1Function) obj).evaluate(evaluateNode(functionNode.get(1)));
 				}
 				return evaluateNodeLogical(functionNode) ? 1.0 : 0.0;
 			} else if (functionNode.size() == 3) {
-				Object obj = FUNCTION_DOUBLE_MAP.get(symbol);
 				if (obj instanceof IDouble2Function) {
 					return ((IDouble2Function) obj).evaluate(evaluateNode(functionNode.get(1)),
 							evaluateNode(functionNode.get(2)));
 				}
 				return evaluateNodeLogical(functionNode) ? 1.0 : 0.0;
 			} else {
-				Object obj = FUNCTION_DOUBLE_MAP.get(symbol);
 				if (obj instanceof IDoubleFunction) {
 					return ((IDoubleFunction) obj).evaluate(this, functionNode);
 				}
@@ -520,6 +516,9 @@ public class DoubleEvaluator {
 				node = functionNode.get(i);
 				if (node instanceof NumberNode) {
 					functionNode.set(i, new DoubleNode(((NumberNode) functionNode.get(i)).doubleValue()));
+				} else if (node instanceof SymbolNode && SYMBOL_DOUBLE_MAP.containsKey(node.toString())) {
+					// resolve the constants once
+					functionNode.set(i, new DoubleNode(SYMBOL_DOUBLE_MAP.get(node.toString()).doubleValue()));
 				} else if (functionNode.get(i) instanceof FunctionNode) {
 					ASTNode optNode = optimizeFunction((FunctionNode) functionNode.get(i));
 					if (!(optNode instanceof DoubleNode)) {
@@ -0,0 +1,122 @@
+package info.bliki.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CachingConnectorTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final List<String> props = Collections.synchronizedList(new ArrayList<>());
+	private int revision = 1;
+
+	/**
+	 * Answer <code>prop=info</code> and <code>prop=revisions</code> queries; every page has the same latest revision.
+	 */
+	private String respond(Map<String, String> parameters) {
+		final String prop = parameters.get("prop");
+		props.add(prop);
+		final StringBuilder xml = new StringBuilder("<?xml version=\"1.0\"?><api><query><pages>");
+		int id = 1;
+		for (final String title : parameters.get("titles").split("\\|")) {
+			xml.append("<page pageid=\"").append(id++).append("\" ns=\"0\" title=\"").append(title).append('"');
+			if (title.startsWith("Missing")) {
+				xml.append(" missing=\"\" />");
+			} else if (prop.equals("info")) {
+				xml.append(" lastrevid=\"").append(revision).append("\" />");
+			} else {
+				xml.append("><revisions><rev revid=\"").append(revision).append("\">").append(title)
+						.append(" revision ").append(revision).append("</rev></revisions></page>");
+			}
+		}
+		return xml.append("</pages></query></api>").toString();
+	}
+
+	private static List<String> titles(int count) {
+		final List<String> titles = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			titles.add("Page " + i);
+		}
+		titles.add("Missing");
+		return titles;
+	}
+
+	@Test
+	public void testContentIsServedFromCacheUntilRevisionChanges() throws Exception {
+		try (StubApiServer server = new StubApiServer(this::respond);
+				FileRevisionCache cache = new FileRevisionCache(folder.getRoot())) {
+			final User user = new User("", "", server.getActionUrl(), "",
+					new CachingConnector(StubApiServer.clientBuilder(1), 1, cache));
+
+			List<Page> pages = user.queryContent(titles(60));
+			assertThat(pages).hasSize(61);
+			assertThat(pages.get(59).getCurrentContent()).isEqualTo("Page 59 revision 1");
+			assertThat(pages.get(60).isMissing()).isTrue();
+			// the probes of 61 titles are batched into 2 requests
+			assertThat(props).containsExactly("info", "info", "revisions", "revisions");
+			assertThat(cache.size()).isEqualTo(60);
+
+			props.clear();
+			pages = user.queryContent(titles(60));
+			assertThat(pages).hasSize(61);
+			assertThat(pages.get(0).getCurrentContent()).isEqualTo("Page 0 revision 1");
+			assertThat(props).containsExactly("info", "info");
+
+			props.clear();
+			revision = 2;
+			pages = user.queryContent("Page 1", "Page 2");
+			assertThat(pages).extracting(Page::getCurrentContent).containsExactly("Page 1 revision 2",
+					"Page 2 revision 2");
+			assertThat(props).containsExactly("info", "revisions");
+		}
+	}
+
+	@Test
+	public void testAsyncContentIsServedFromCache() throws Exception {
+		try (StubApiServer server = new StubApiServer(this::respond);
+				FileRevisionCache cache = new FileRevisionCache(folder.getRoot())) {
+			final CachingConnector connector = new CachingConnector(StubApiServer.clientBuilder(2), 2, cache);
+			final List<Page> pages = new ArrayList<>();
+			connector.queryContentAsync(server.user(), titles(60), pages::add).get(10, TimeUnit.SECONDS);
+			assertThat(pages).hasSize(61);
+			assertThat(props).containsOnly("info", "revisions").hasSize(4);
+			assertThat(cache.size()).isEqualTo(60);
+
+			props.clear();
+			pages.clear();
+			revision = 2;
+			cache.put(cachedPage("Page 1", 2));
+			connector.queryContentAsync(server.user(), titles(60), pages::add).get(10, TimeUnit.SECONDS);
+			assertThat(pages).hasSize(61);
+			assertThat(pages).filteredOn(page -> "Page 1".equals(page.getTitle())).extracting(Page::getCurrentContent)
+					.containsExactly("cached Page 1");
+			assertThat(props).containsOnly("info", "revisions").hasSize(4);
+			assertThat(cache.size()).isEqualTo(60);
+
+			props.clear();
+			pages.clear();
+			connector.queryContentAsync(server.user(), titles(60), pages::add).get(10, TimeUnit.SECONDS);
+			assertThat(pages).hasSize(61);
+			assertThat(props).containsExactly("info", "info");
+		}
+	}
+
+	private static Page cachedPage(String title, int revid) {
+		final Page page = new Page();
+		page.setTitle(title);
+		final Revision revision = new Revision();
+		revision.setRevid(Integer.toString(revid));
+		revision.setContent("cached " + title);
+		page.setCurrentRevision(revision);
+		return page;
+	}
+}
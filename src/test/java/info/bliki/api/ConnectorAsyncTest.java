@@ -0,0 +1,81 @@
+package info.bliki.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class ConnectorAsyncTest {
+
+	private static List<String> titles(int count) {
+		final List<String> titles = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			titles.add("Page " + i);
+		}
+		return titles;
+	}
+
+	/**
+	 * Answer a <code>prop=links</code> query with one link per page, and a second link in a continuation.
+	 */
+	private static String links(Map<String, String> parameters) {
+		final boolean continuation = parameters.containsKey("plcontinue");
+		final StringBuilder xml = new StringBuilder("<?xml version=\"1.0\"?><api batchcomplete=\"\">");
+		if (!continuation) {
+			xml.append("<continue plcontinue=\"1|0|Next\" continue=\"||\" />");
+		}
+		xml.append("<query><pages>");
+		int id = 1;
+		for (final String title : parameters.get("titles").split("\\|")) {
+			xml.append("<page pageid=\"").append(id++).append("\" ns=\"0\" title=\"").append(title)
+					.append("\"><links><pl ns=\"0\" title=\"").append(continuation ? "Second" : "First")
+					.append("\" /></links></page>");
+		}
+		try {
+			// keep the requests in flight long enough to overlap
+			Thread.sleep(50);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return xml.append("</pages></query></api>").toString();
+	}
+
+	@Test
+	public void testQueryLinksInChunksWithContinuation() throws Exception {
+		try (StubApiServer server = new StubApiServer(ConnectorAsyncTest::links)) {
+			final List<Page> pages = new ArrayList<>();
+			server.connector(3).queryLinksAsync(server.user(), titles(120), pages::add).get(10, TimeUnit.SECONDS);
+
+			assertThat(pages).hasSize(120);
+			assertThat(pages).extracting(Page::getTitle).containsOnlyElementsOf(titles(120));
+			for (final Page page : pages) {
+				assertThat(page.sizeOfLinksList()).isEqualTo(2);
+				assertThat(page.getLink(0).getTitle()).isEqualTo("First");
+				assertThat(page.getLink(1).getTitle()).isEqualTo("Second");
+			}
+			// 3 chunks of at most 50 titles, each with a continuation
+			assertThat(server.getRequests()).isEqualTo(6);
+			assertThat(server.getMaxInFlight()).isBetween(2, 3);
+		}
+	}
+
+	@Test
+	public void testFailedRequestCompletesExceptionally() throws Exception {
+		try (StubApiServer server = new StubApiServer(parameters -> null)) {
+			server.setRetryAfter("0");
+			final List<Page> pages = new ArrayList<>();
+			try {
+				server.connector(2).queryContentAsync(server.user(), titles(10), pages::add).get(10, TimeUnit.SECONDS);
+				throw new AssertionError("expected ExecutionException");
+			} catch (final ExecutionException expected) {
+				assertThat(expected.getCause()).hasMessageContaining("503");
+				assertThat(pages).isEmpty();
+			}
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package info.bliki.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FileRevisionCacheTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	static Page page(String title, String revid, String content) {
+		final Page page = new Page();
+		page.setTitle(title);
+		page.setPageid("1");
+		page.setNs("10");
+		final Revision revision = new Revision();
+		revision.setRevid(revid);
+		revision.setContent(content);
+		page.setCurrentRevision(revision);
+		return page;
+	}
+
+	@Test
+	public void testGetLatestRevision() throws Exception {
+		try (FileRevisionCache cache = new FileRevisionCache(folder.getRoot())) {
+			cache.put(page("Template:Echo", "10", "{{{1}}}"));
+			cache.put(page("Template:Echo", "11", "{{{1}}}!"));
+			cache.put(page("Template:Grüße", "12", "Schöne Grüße"));
+			cache.put(page("Template:None", null, "ignored"));
+
+			assertThat(cache.size()).isEqualTo(2);
+			assertThat(cache.get("Template:Echo", "10")).isNull();
+			assertThat(cache.get("Template:Echo", "11").getCurrentContent()).isEqualTo("{{{1}}}!");
+			assertThat(cache.get("Template:Grüße", "12").getCurrentContent()).isEqualTo("Schöne Grüße");
+			assertThat(cache.get("Template:None", "1")).isNull();
+		}
+	}
+
+	@Test
+	public void testReopenWithSegmentsAndTruncatedRecord() throws Exception {
+		try (FileRevisionCache cache = new FileRevisionCache(folder.getRoot(), 64)) {
+			for (int i = 0; i < 5; i++) {
+				cache.put(page("Page " + i, String.valueOf(i), "Content of page " + i));
+			}
+		}
+		final File[] segments = folder.getRoot().listFiles();
+		assertThat(segments).hasSize(5);
+		final File last = new File(folder.getRoot(), "revisions-00004.seg");
+		try (RandomAccessFile file = new RandomAccessFile(last, "rw")) {
+			file.setLength(file.length() - 3);
+		}
+
+		try (FileRevisionCache cache = new FileRevisionCache(folder.getRoot(), 64)) {
+			assertThat(cache.size()).isEqualTo(4);
+			assertThat(cache.get("Page 3", "3").getCurrentContent()).isEqualTo("Content of page 3");
+			assertThat(cache.get("Page 3", "3").getLastrevid()).isEqualTo("3");
+			assertThat(cache.get("Page 4", "4")).isNull();
+			assertThat(last.length()).isZero();
+
+			cache.put(page("Page 4", "4", "Content of page 4"));
+			assertThat(cache.get("Page 4", "4").getCurrentContent()).isEqualTo("Content of page 4");
+		}
+	}
+}
@@ -0,0 +1,114 @@
+package info.bliki.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import info.bliki.api.query.Query;
+
+public class RequestSchedulerTest {
+	private static final String EMPTY_RESPONSE = "<?xml version=\"1.0\"?><api><query><pages /></query></api>";
+
+	@Test
+	public void testRetryAfterThrottledResponses() throws Exception {
+		final AtomicInteger requests = new AtomicInteger();
+		try (StubApiServer server = new StubApiServer(
+				parameters -> requests.incrementAndGet() <= 2 ? null : EMPTY_RESPONSE)) {
+			server.setRetryAfter("0");
+			final RequestScheduler scheduler = new RequestScheduler(4);
+			scheduler.setMaxlag(5);
+			final Connector connector = new Connector(StubApiServer.clientBuilder(4), scheduler);
+
+			assertThat(connector.sendXML(server.user(), Query.create().titles("Foo"))).isEqualTo(EMPTY_RESPONSE);
+			assertThat(requests.get()).isEqualTo(3);
+			assertThat(scheduler.getThrottledResponses()).isEqualTo(2);
+			assertThat(scheduler.getCompletedRequests()).isEqualTo(1);
+			// halved twice to 1, then increased by 1 / 1
+			assertThat(scheduler.getConcurrencyLimit()).isEqualTo(2);
+			assertThat(scheduler.getInFlightRequests()).isZero();
+			assertThat(scheduler.getQueueDepth()).isZero();
+
+			scheduler.setMaxRetries(0);
+			requests.set(0);
+			assertThat(connector.sendXML(server.user(), Query.create().titles("Foo"))).isNull();
+			assertThat(requests.get()).isEqualTo(1);
+		}
+	}
+
+	@Test
+	public void testMaxlagParameter() throws Exception {
+		final List<String> maxlags = new ArrayList<>();
+		try (StubApiServer server = new StubApiServer(parameters -> {
+			maxlags.add(parameters.get("maxlag"));
+			return EMPTY_RESPONSE;
+		})) {
+			final RequestScheduler scheduler = new RequestScheduler(1);
+			final Connector connector = new Connector(StubApiServer.clientBuilder(1), scheduler);
+			connector.queryInfo(server.user(), Collections.singletonList("Foo"));
+			scheduler.setMaxlag(5);
+			connector.queryInfo(server.user(), Collections.singletonList("Foo"));
+			assertThat(maxlags).containsExactly(null, "5");
+		}
+	}
+
+	@Test
+	public void testIdenticalRequestsInFlightAreSentOnce() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		try (StubApiServer server = new StubApiServer(parameters -> {
+			try {
+				release.await(10, TimeUnit.SECONDS);
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return EMPTY_RESPONSE;
+		})) {
+			final RequestScheduler scheduler = new RequestScheduler(4);
+			final Connector connector = new Connector(StubApiServer.clientBuilder(4), scheduler);
+			final ExecutorService executor = Executors.newFixedThreadPool(4);
+			try {
+				final List<Future<String>> responses = new ArrayList<>();
+				for (int i = 0; i < 4; i++) {
+					responses.add(executor.submit(() -> connector.sendXML(server.user(), Query.create().titles("Foo"))));
+				}
+				while (server.getRequests() == 0) {
+					Thread.sleep(10);
+				}
+				// give the other threads time to join the request in flight
+				Thread.sleep(200);
+				release.countDown();
+				for (final Future<String> response : responses) {
+					assertThat(response.get(10, TimeUnit.SECONDS)).isEqualTo(EMPTY_RESPONSE);
+				}
+				assertThat(server.getRequests()).isEqualTo(1);
+			} finally {
+				executor.shutdownNow();
+			}
+		}
+	}
+
+	@Test
+	public void testRateLimit() throws Exception {
+		try (StubApiServer server = new StubApiServer(parameters -> EMPTY_RESPONSE)) {
+			final RequestScheduler scheduler = new RequestScheduler(20, 1, 2);
+			final Connector connector = new Connector(StubApiServer.clientBuilder(2), scheduler);
+			final long start = System.nanoTime();
+			for (int i = 0; i < 6; i++) {
+				connector.sendXML(server.user(), Query.create().titles("Page " + i));
+			}
+			// the first request uses the burst token, the others wait 50 ms each
+			assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(240);
+			assertThat(scheduler.getCompletedRequests()).isEqualTo(6);
+			assertThat(scheduler.getMeanLatencyMillis()).isGreaterThan(0);
+		}
+	}
+}
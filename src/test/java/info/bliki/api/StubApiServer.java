@@ -0,0 +1,124 @@
+package info.bliki.api;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A local Mediawiki API stub which answers every request with the XML of a handler. The server speaks plain HTTP, the
+ * connectors created by {@link #connector(int)} don't use TLS for <code>https</code> URLs.
+ */
+public class StubApiServer implements Closeable {
+	private final HttpServer server;
+	private final AtomicInteger requests = new AtomicInteger();
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicInteger maxInFlight = new AtomicInteger();
+	private volatile String retryAfter;
+
+	/**
+	 * @param handler
+	 *            creates the XML response for the decoded request parameters, or <code>null</code> to answer with
+	 *            <code>503 Service Unavailable</code> and the {@link #setRetryAfter(String) Retry-After} header
+	 */
+	public StubApiServer(final Function<Map<String, String>, String> handler) throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.createContext("/w/api.php", exchange -> {
+			requests.incrementAndGet();
+			maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+			try {
+				final String xml = handler.apply(parameters(exchange.getRequestURI().getRawQuery()));
+				if (xml == null) {
+					if (retryAfter != null) {
+						exchange.getResponseHeaders().set("Retry-After", retryAfter);
+					}
+					exchange.sendResponseHeaders(503, -1);
+					exchange.close();
+					return;
+				}
+				final byte[] body = xml.getBytes(UTF_8);
+				exchange.getResponseHeaders().set("Content-Type", "text/xml; charset=utf-8");
+				exchange.sendResponseHeaders(200, body.length);
+				try (OutputStream out = exchange.getResponseBody()) {
+					out.write(body);
+				}
+			} finally {
+				inFlight.decrementAndGet();
+			}
+		});
+		server.start();
+	}
+
+	private static Map<String, String> parameters(final String query) throws IOException {
+		final Map<String, String> parameters = new LinkedHashMap<>();
+		for (final String pair : query.split("&")) {
+			final int index = pair.indexOf('=');
+			parameters.put(URLDecoder.decode(pair.substring(0, index), "UTF-8"),
+					URLDecoder.decode(pair.substring(index + 1), "UTF-8"));
+		}
+		return parameters;
+	}
+
+	public String getActionUrl() {
+		return "https://localhost:" + server.getAddress().getPort() + "/w/api.php";
+	}
+
+	public User user() {
+		return new User("", "", getActionUrl());
+	}
+
+	public Connector connector(final int maxConcurrentRequests) {
+		return new Connector(clientBuilder(maxConcurrentRequests), maxConcurrentRequests);
+	}
+
+	/**
+	 * @return a client builder which connects to <code>https</code> URLs without TLS
+	 */
+	public static HttpClientBuilder clientBuilder(final int maxConnections) {
+		final PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(
+				RegistryBuilder.<ConnectionSocketFactory> create()
+						.register("https", PlainConnectionSocketFactory.getSocketFactory()).build());
+		connectionManager.setDefaultMaxPerRoute(maxConnections);
+		return HttpClientBuilder.create().setConnectionManager(connectionManager);
+	}
+
+	public void setRetryAfter(final String retryAfter) {
+		this.retryAfter = retryAfter;
+	}
+
+	/**
+	 * @return the number of received requests
+	 */
+	public int getRequests() {
+		return requests.get();
+	}
+
+	/**
+	 * @return the maximum number of requests which were handled at the same time
+	 */
+	public int getMaxInFlight() {
+		return maxInFlight.get();
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+	}
+}
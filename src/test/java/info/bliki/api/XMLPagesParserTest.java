@@ -2,7 +2,16 @@ package info.bliki.api;
 
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
 import static info.bliki.api.Fixtures.xml;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class XMLPagesParserTest {
@@ -48,6 +57,23 @@ public class XMLPagesParserTest {
 		assertThat(parser.getWarnings()).containsExactly("This is a warning");
 	}
 
+	@Test
+	public void testParseStreamHandsOutPages() throws Exception {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+			out.write(xml("fooPageWithWarning").getBytes(UTF_8));
+		}
+		try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()))) {
+			XMLPagesParser parser = new XMLPagesParser(in);
+			List<Page> pages = new ArrayList<>();
+			parser.setPageConsumer(pages::add);
+			parser.parse();
+			assertThat(pages).extracting(Page::getTitle).containsExactly("foo");
+			assertThat(parser.getPagesList()).isEmpty();
+			assertThat(parser.getWarnings()).containsExactly("This is a warning");
+		}
+	}
+
 	private Page assertAndReturnOnePage(XMLPagesParser parser) {
 		assertThat(parser.getPagesList()).hasSize(1);
 		return parser.getPagesList().get(0);
@@ -2,6 +2,8 @@ package info.bliki.html;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.io.StringWriter;
+
 import org.junit.Test;
 
 import info.bliki.html.wikipedia.ToWikipedia;
@@ -204,4 +206,14 @@ public class HTML2WikipediaTest {
 		assertThat("\n" + "== TST ==\n" + "").isEqualTo(result);
 	}
 
+	@Test
+	public void testToWikiWriter() throws Exception {
+		final HTML2WikiConverter conv = new HTML2WikiConverter();
+		conv.setInputHTML("<p>first<br>second<br>* third</p><ul><li>item<br>next</li></ul>text<br>");
+		final StringWriter writer = new StringWriter();
+		conv.toWiki(new ToWikipedia(), writer);
+		assertThat(writer.toString()).isEqualTo(conv.toWiki(new ToWikipedia()))
+				.isEqualTo("\nfirst<br>\nsecond<br>* third\n\n\n* item<br>\nnext\ntext<br>");
+	}
+
 }
@@ -0,0 +1,70 @@
+package info.bliki.htmlcleaner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class HtmlCleanerTest {
+	private static final String[] HTML = { "<b>hello<em>world</em></b>",
+			"<ul><li>hello world<ol><li>hello subworld</ol><li>second line</ul>",
+			"<html><head><title>Title</title></head><body class=\"x\"><p>first<p>second<div>third</div></body></html>",
+			"<table><tr>misplaced<td>cell</td></tr></table>after", "<b>bold<p>paragraph</b> text</p><!-- comment -->",
+			"text<script>if (a < b) {}</script><style>p {}</style>" };
+
+	@Test
+	public void testStreamingModeCreatesSameDocument() throws Exception {
+		for (final String html : HTML) {
+			final HtmlCleaner cleaner = new HtmlCleaner(html);
+			cleaner.clean();
+
+			final HtmlCleaner streamingCleaner = new HtmlCleaner(html);
+			final List<BaseToken> nodes = new ArrayList<>();
+			streamingCleaner.clean(nodes::add);
+			assertThat(streamingCleaner.getBodyNode().getChildren()).isEmpty();
+			for (final BaseToken node : nodes) {
+				streamingCleaner.getBodyNode().addChild(node);
+			}
+			assertThat(streamingCleaner.getXmlAsString()).isEqualTo(cleaner.getXmlAsString());
+		}
+	}
+
+	@Test
+	public void testNodesAreVisitedWhileReading() throws Exception {
+		final StringBuilder html = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			html.append("<p>paragraph <b>").append(i).append("</b></p>\n");
+		}
+		final byte[] bytes = html.toString().getBytes(StandardCharsets.UTF_8);
+		final int[] read = new int[1];
+		final InputStream in = new ByteArrayInputStream(bytes) {
+			@Override
+			public synchronized int read(byte[] b, int off, int len) {
+				final int count = super.read(b, off, len);
+				read[0] += Math.max(count, 0);
+				return count;
+			}
+		};
+		final List<Integer> readAtVisit = new ArrayList<>();
+		new HtmlCleaner(in, "UTF-8").clean(node -> {
+			if (node instanceof TagNode) {
+				readAtVisit.add(read[0]);
+			}
+		});
+		assertThat(readAtVisit).hasSize(1000);
+		assertThat(readAtVisit.get(0)).isLessThan(bytes.length);
+	}
+
+	@Test(expected = IOException.class)
+	public void testVisitorExceptionAbortsCleaning() throws Exception {
+		new HtmlCleaner("<p>first</p><p>second</p>").clean(node -> {
+			throw new IOException("stop");
+		});
+	}
+}
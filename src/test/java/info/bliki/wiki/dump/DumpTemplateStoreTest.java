@@ -0,0 +1,94 @@
+package info.bliki.wiki.dump;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import info.bliki.wiki.model.IConfiguration.Casing;
+import info.bliki.wiki.namespaces.INamespace.NamespaceCode;
+
+public class DumpTemplateStoreTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File dumpFile;
+
+	/**
+	 * Create a dump with a few templates and modules using the header of the test dump.
+	 */
+	@Before
+	public void setUp() throws Exception {
+		final String xml = new String(
+				Files.readAllBytes(Paths.get(getClass().getResource("/dump/enwiki-20150112-pages-articles1.xml").toURI())),
+				UTF_8);
+		final StringBuilder dump = new StringBuilder(xml.substring(0, xml.indexOf("  <page>")));
+		appendPage(dump, 1, "Template:Echo", "{{{1}}}");
+		appendPage(dump, 2, "Module:Hello", "return { hello = function() return 'Hello' end }");
+		appendPage(dump, 3, "Article", "A main namespace article.");
+		appendPage(dump, 4, "Template:Grüße", "Schöne Grüße");
+		appendPage(dump, 5, "Template:Echo", "{{{1}}}!");
+		dump.append("</mediawiki>\n");
+		dumpFile = folder.newFile("test-pages-articles.xml");
+		Files.write(dumpFile.toPath(), dump.toString().getBytes(UTF_8));
+	}
+
+	@Test
+	public void testLookup() throws Exception {
+		try (DumpTemplateStore store = DumpTemplateStore.build(dumpFile, folder.newFolder("store"))) {
+			assertThat(store.size()).isEqualTo(4);
+			// the last revision of a page in the dump wins
+			assertThat(store.getRawWikiContent(NamespaceCode.TEMPLATE_NAMESPACE_KEY.code, "Echo")).isEqualTo("{{{1}}}!");
+			assertThat(store.getRawWikiContent(NamespaceCode.TEMPLATE_NAMESPACE_KEY.code, "echo")).isEqualTo("{{{1}}}!");
+			assertThat(store.getRawWikiContent(NamespaceCode.TEMPLATE_NAMESPACE_KEY.code, "Grüße"))
+					.isEqualTo("Schöne Grüße");
+			assertThat(store.getRawWikiContent(NamespaceCode.MODULE_NAMESPACE_KEY.code, "Hello")).startsWith("return");
+			assertThat(store.getRawWikiContent(NamespaceCode.MAIN_NAMESPACE_KEY.code, "Article")).isNull();
+			assertThat(store.getRawWikiContent(NamespaceCode.MODULE_NAMESPACE_KEY.code, "Echo")).isNull();
+		}
+	}
+
+	@Test
+	public void testCustomFilterWithoutCache() throws Exception {
+		final File directory = folder.newFolder("store");
+		try (DumpTemplateStore.Writer writer = new DumpTemplateStore.Writer(directory, WikiArticle::isMain,
+				Casing.FirstLetter)) {
+			new WikiXMLParser(dumpFile, writer).parse();
+		}
+		try (DumpTemplateStore store = new DumpTemplateStore(directory, 0)) {
+			assertThat(store.size()).isEqualTo(1);
+			assertThat(store.getRawWikiContent(NamespaceCode.MAIN_NAMESPACE_KEY.code, "Article"))
+					.isEqualTo("A main namespace article.");
+		}
+	}
+
+	@Test
+	public void testDumpWikiModel() throws Exception {
+		try (DumpTemplateStore store = DumpTemplateStore.build(dumpFile, folder.newFolder("store"))) {
+			final DumpWikiModel wikiModel = new DumpWikiModel(store, "${image}", "${title}");
+			assertThat(wikiModel.render("{{echo|Hello}} {{Grüße}}", false)).isEqualTo("\n<p>Hello! Schöne Grüße</p>");
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testClosedStore() throws Exception {
+		final DumpTemplateStore store = DumpTemplateStore.build(dumpFile, folder.newFolder("store"));
+		assertThat(store.getRawWikiContent(NamespaceCode.TEMPLATE_NAMESPACE_KEY.code, "Echo")).isEqualTo("{{{1}}}!");
+		store.close();
+		store.getRawWikiContent(NamespaceCode.TEMPLATE_NAMESPACE_KEY.code, "Echo");
+	}
+
+	private static void appendPage(StringBuilder dump, int id, String title, String text) {
+		dump.append("  <page>\n    <title>").append(title).append("</title>\n    <id>").append(id)
+				.append("</id>\n    <revision>\n      <id>").append(id)
+				.append("</id>\n      <text xml:space=\"preserve\">").append(text.replace("'", "&apos;"))
+				.append("</text>\n    </revision>\n  </page>\n");
+	}
+}
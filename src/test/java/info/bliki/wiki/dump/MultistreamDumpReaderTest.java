@@ -0,0 +1,141 @@
+package info.bliki.wiki.dump;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MultistreamDumpReaderTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File dumpFile;
+	private File indexFile;
+
+	/**
+	 * Create a multistream dump with one page per stream from the uncompressed test dump.
+	 */
+	@Before
+	public void setUp() throws Exception {
+		final String xml = new String(
+				Files.readAllBytes(Paths.get(getClass().getResource("/dump/enwiki-20150112-pages-articles1.xml").toURI())),
+				UTF_8);
+		final List<String> chunks = new ArrayList<>();
+		int start = 0;
+		int pageStart;
+		while ((pageStart = xml.indexOf("  <page>", start)) >= 0) {
+			chunks.add(xml.substring(start, pageStart));
+			start = pageStart;
+			final int pageEnd = xml.indexOf("</page>", pageStart) + "</page>\n".length();
+			chunks.add(xml.substring(pageStart, pageEnd));
+			start = pageEnd;
+		}
+		chunks.add(xml.substring(start));
+
+		dumpFile = folder.newFile("test-pages-articles-multistream.xml.bz2");
+		final StringBuilder index = new StringBuilder();
+		long offset = 0;
+		try (OutputStream out = new FileOutputStream(dumpFile)) {
+			for (final String chunk : chunks) {
+				if (chunk.trim().startsWith("<page>")) {
+					final String title = between(chunk, "<title>", "</title>");
+					final String id = between(chunk, "<id>", "</id>");
+					index.append(offset).append(':').append(id).append(':').append(title).append('\n');
+				}
+				final byte[] compressed = compress(chunk.getBytes(UTF_8));
+				out.write(compressed);
+				offset += compressed.length;
+			}
+		}
+		indexFile = folder.newFile("test-pages-articles-multistream-index.txt.bz2");
+		Files.write(indexFile.toPath(), compress(index.toString().getBytes(UTF_8)));
+	}
+
+	@Test
+	public void testIndex() throws Exception {
+		final MultistreamIndex index = MultistreamIndex.load(indexFile);
+		assertThat(index.getStreamCount()).isEqualTo(3);
+		assertThat(index.getPageCount()).isEqualTo(3);
+		assertThat(index.findStreamById(10)).isEqualTo(0);
+		assertThat(index.findStreamById(12)).isEqualTo(1);
+		assertThat(index.findStreamById(13)).isEqualTo(2);
+		assertThat(index.findStreamById(11)).isEqualTo(-1);
+		assertThat(index.findIdsByTitle("Anarchism")).contains(12L);
+		assertThat(index.findIdsByTitle("Foo")).isEmpty();
+	}
+
+	@Test
+	public void testTitleFilter() throws Exception {
+		final MultistreamIndex index = MultistreamIndex.load(indexFile, title -> title.startsWith("A"));
+		assertThat(index.findIdsByTitle("Anarchism")).contains(12L);
+		final MultistreamIndex empty = MultistreamIndex.load(indexFile, title -> title.startsWith("Template:"));
+		assertThat(empty.findIdsByTitle("Anarchism")).isEmpty();
+		assertThat(empty.findStreamById(12)).isEqualTo(1);
+	}
+
+	@Test
+	public void testRandomAccess() throws Exception {
+		try (MultistreamDumpReader reader = new MultistreamDumpReader(dumpFile, MultistreamIndex.load(indexFile))) {
+			assertThat(reader.getSiteinfo().getSitename()).isEqualTo("Wikipedia");
+
+			final WikiArticle anarchism = reader.getArticle("Anarchism");
+			assertThat(anarchism).isNotNull();
+			assertThat(anarchism.getId()).isEqualTo("12");
+			assertThat(anarchism.getText()).startsWith("{{Redirect2|Anarchist|Anarchists|the fictional character");
+
+			final WikiArticle byId = reader.getArticle(13);
+			assertThat(byId.getTitle()).isEqualTo("AfghanistanHistory");
+			assertThat(reader.getArticle("Accessible_Computing")).isNull();
+			assertThat(reader.getArticle(99)).isNull();
+		}
+	}
+
+	@Test
+	public void testParallelDecompression() throws Exception {
+		final List<String> titles = new ArrayList<>();
+		try (MultistreamDumpReader reader = new MultistreamDumpReader(dumpFile, MultistreamIndex.load(indexFile))) {
+			reader.parse((article, siteinfo) -> titles.add(article.getTitle()), 2);
+
+			final ByteArrayOutputStream uncompressed = new ByteArrayOutputStream();
+			try (InputStream in = reader.openParallelInputStream(3)) {
+				final byte[] buffer = new byte[1000];
+				int count;
+				while ((count = in.read(buffer)) >= 0) {
+					uncompressed.write(buffer, 0, count);
+				}
+			}
+			final byte[] expected = Files.readAllBytes(
+					Paths.get(getClass().getResource("/dump/enwiki-20150112-pages-articles1.xml").toURI()));
+			assertThat(uncompressed.toByteArray()).isEqualTo(expected);
+		}
+		assertThat(titles).containsExactly("AccessibleComputing", "Anarchism", "AfghanistanHistory");
+	}
+
+	private static String between(String text, String start, String end) {
+		final int index = text.indexOf(start) + start.length();
+		return text.substring(index, text.indexOf(end, index));
+	}
+
+	private static byte[] compress(byte[] bytes) throws IOException {
+		final ByteArrayOutputStream result = new ByteArrayOutputStream();
+		try (OutputStream out = new BZip2CompressorOutputStream(result)) {
+			out.write(bytes);
+		}
+		return result.toByteArray();
+	}
+}
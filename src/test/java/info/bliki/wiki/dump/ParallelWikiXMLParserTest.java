@@ -0,0 +1,134 @@
+package info.bliki.wiki.dump;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import info.bliki.wiki.model.WikiModel;
+
+public class ParallelWikiXMLParserTest {
+	private static final List<String> TITLES = new ArrayList<>();
+
+	static {
+		TITLES.add("AccessibleComputing");
+		TITLES.add("Anarchism");
+		TITLES.add("AfghanistanHistory");
+	}
+
+	/**
+	 * Renders the articles with one <code>WikiModel</code> per worker thread.
+	 */
+	static class RenderProcessor implements IArticleProcessor<String> {
+		private final WikiModel wikiModel = new WikiModel("${image}", "${title}");
+
+		@Override
+		public String process(WikiArticle article, Siteinfo siteinfo) throws IOException {
+			wikiModel.setUp();
+			try {
+				return wikiModel.render(article.getText(), false);
+			} finally {
+				wikiModel.tearDown();
+			}
+		}
+	}
+
+	@Test
+	public void testOrderedSink() throws Exception {
+		final List<String> titles = new ArrayList<>();
+		final List<String> results = new ArrayList<>();
+		ParallelWikiXMLParser<String> parser = new ParallelWikiXMLParser<>(dump(), RenderProcessor::new,
+				new IArticleSink<String>() {
+					@Override
+					public void accept(WikiArticle article, String result) {
+						titles.add(article.getTitle());
+						results.add(result);
+					}
+				}, 3, 2, true);
+		parser.parse();
+
+		assertThat(titles).isEqualTo(TITLES);
+		assertThat(results).hasSize(3);
+		assertThat(results.get(1)).contains("Anarchism");
+	}
+
+	@Test
+	public void testUnorderedSink() throws Exception {
+		final List<String> titles = new ArrayList<>();
+		ParallelWikiXMLParser<String> parser = new ParallelWikiXMLParser<>(dump(), () -> (article, siteinfo) -> {
+			assertThat(siteinfo).isNotNull();
+			return article.getTitle();
+		}, (article, result) -> titles.add(result), 2, 1, false);
+		parser.parse();
+
+		assertThat(titles).containsOnlyElementsOf(TITLES).hasSize(3);
+	}
+
+	@Test
+	public void testProcessorExceptionIsPropagated() throws Exception {
+		ParallelWikiXMLParser<String> parser = new ParallelWikiXMLParser<>(dump(), () -> (article, siteinfo) -> {
+			if (article.getTitle().equals("Anarchism")) {
+				throw new IOException("stop at " + article.getTitle());
+			}
+			return article.getTitle();
+		}, null, 2, 2, true);
+		try {
+			parser.parse();
+			fail("IOException expected");
+		} catch (IOException e) {
+			assertThat(e).hasMessage("stop at Anarchism");
+		}
+	}
+
+	@Test
+	public void testSinkExceptionIsPropagated() throws Exception {
+		ParallelWikiXMLParser<String> parser = new ParallelWikiXMLParser<>(dump(),
+				() -> (article, siteinfo) -> article.getTitle(), (article, result) -> {
+					throw new IllegalStateException(result);
+				}, 2, 2, true);
+		try {
+			parser.parse();
+			fail("IllegalStateException expected");
+		} catch (IllegalStateException e) {
+			assertThat(e).hasMessage("AccessibleComputing");
+		}
+	}
+
+	/**
+	 * The revisions of a page in a history dump are passed to the workers as separate articles.
+	 */
+	@Test
+	public void testHistoryDump() throws Exception {
+		final StringBuilder xml = new StringBuilder("<mediawiki><page><title>History</title><id>1</id>");
+		for (int i = 1; i <= 20; i++) {
+			xml.append("<revision><id>").append(i).append("</id><text>text ").append(i).append("</text></revision>");
+		}
+		xml.append("</page></mediawiki>");
+		final List<String> results = new ArrayList<>();
+		ParallelWikiXMLParser<String> parser = new ParallelWikiXMLParser<>(
+				new ByteArrayInputStream(xml.toString().getBytes(UTF_8)), () -> (article, siteinfo) -> {
+					Thread.yield();
+					return article.getRevisionId() + " " + article.getText();
+				}, (article, result) -> results.add(result), 4, 8, true);
+		parser.parse();
+
+		assertThat(results).hasSize(20);
+		for (int i = 1; i <= 20; i++) {
+			assertThat(results.get(i - 1)).isEqualTo(i + " text " + i);
+		}
+	}
+
+	private File dump() {
+		final URL dump = getClass().getResource("/dump/enwiki-20150112-pages-articles1.xml.bz2");
+		assertThat(dump).isNotNull();
+		return new File(dump.getFile());
+	}
+}
@@ -0,0 +1,66 @@
+package info.bliki.wiki.dump;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class WikiTextExtractorTest {
+	private static final String TEXT = "{{Infobox person\n| name = [[Hello|Hello World]]\n| image = {{photo|a|b}}\n"
+			+ "| positional }}\n"
+			+ "'''Hello''' is a [[greeting]] and a [[ word | words]].<!-- [[comment]] --><nowiki>[[nowiki]]</nowiki>\n"
+			+ "[[File:Hello.png|thumb|A [[caption]]]] {{Greeting-stub}}\n"
+			+ "[[Category:Greetings|Hello]]\n[[:Category:Words]]\n[[Kategorie:Grüße]]\n[[de:Hallo]]\n";
+
+	@Test
+	public void testExtraction() {
+		final WikiTextExtractor extractor = new WikiTextExtractor(TEXT);
+		assertThat(extractor.getRedirect()).isNull();
+		assertThat(toStrings(extractor.getLinks())).containsExactly("Hello", "greeting", "word", "caption");
+		assertThat(toStrings(extractor.getCategories())).containsExactly("Greetings");
+		assertThat(toStrings(extractor.getInterwikiLinks())).containsExactly("Kategorie:Grüße", "de:Hallo");
+		assertThat(toStrings(extractor.getTemplateNames())).containsExactly("Infobox person", "photo",
+				"Greeting-stub");
+		assertThat(extractor.getInfoBox().toString()).startsWith("{{Infobox person").endsWith("positional }}");
+		assertThat(extractor.getInfoBoxParameters()).containsOnlyKeys("name", "image", "1");
+		assertThat(extractor.getInfoBoxParameters().get("name").toString()).isEqualTo("[[Hello|Hello World]]");
+		assertThat(extractor.getInfoBoxParameters().get("image").toString()).isEqualTo("{{photo|a|b}}");
+		assertThat(extractor.getInfoBoxParameters().get("1").toString()).isEqualTo("positional");
+	}
+
+	@Test
+	public void testLocalizedNamespaces() {
+		final Siteinfo siteinfo = new Siteinfo();
+		siteinfo.addNamespace("14", "Kategorie");
+		final WikiTextExtractor extractor = new WikiTextExtractor(TEXT, siteinfo);
+		// the canonical namespace names are valid in every wiki
+		assertThat(toStrings(extractor.getCategories())).containsExactly("Greetings", "Grüße");
+		assertThat(toStrings(extractor.getInterwikiLinks())).containsExactly("de:Hallo");
+	}
+
+	@Test
+	public void testRedirect() {
+		final WikiTextExtractor extractor = new WikiTextExtractor("#redirect: [[Hello world#Section|x]]");
+		assertThat(extractor.getRedirect().toString()).isEqualTo("Hello world#Section");
+		assertThat(extractor.getRedirect().getStart()).isEqualTo(13);
+		assertThat(new WikiTextExtractor("See #REDIRECT [[Hello]]").getRedirect()).isNull();
+	}
+
+	@Test
+	public void testWikiPatternMatcher() {
+		final WikiPatternMatcher matcher = new WikiPatternMatcher(TEXT);
+		assertThat(matcher.isRedirect()).isFalse();
+		assertThat(matcher.isStub()).isTrue();
+		assertThat(matcher.isDisambiguationPage()).isFalse();
+		assertThat(matcher.getLinks()).containsExactly("Hello", "greeting", "word", "caption");
+		assertThat(matcher.getCategories()).containsExactly("Greetings");
+		assertThat(matcher.getTranslatedTitle("de")).isEqualTo("Hallo");
+		assertThat(matcher.getInfoBox().getParameters()).containsKey("name");
+		assertThat(new WikiPatternMatcher("{{Disambig}}").isDisambiguationPage()).isTrue();
+	}
+
+	private static String[] toStrings(List<WikiTextExtractor.Span> spans) {
+		return spans.stream().map(WikiTextExtractor.Span::toString).toArray(String[]::new);
+	}
+}
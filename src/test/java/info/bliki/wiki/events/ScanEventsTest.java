@@ -0,0 +1,129 @@
+package info.bliki.wiki.events;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import info.bliki.wiki.model.DefaultEventListener;
+import info.bliki.wiki.model.WikiModel;
+
+public class ScanEventsTest {
+	private final WikiModel wikiModel = new WikiModel("${image}", "${title}");
+
+	@Test
+	public void testEvents() {
+		final RecordingListener listener = new RecordingListener();
+		wikiModel.scanEvents(listener,
+				"Intro with [[link]]s, [[Category:Greetings]] and {{cite|url=http://example.com/a}}.<ref name=\"x\">"
+						+ "[http://example.com/b Example]</ref><ref name=\"x\" />\n"
+						+ "== Header [[in header]] ==\n"
+						+ "[[File:Hello.png|thumb|A [[caption]]]] see http://example.com/c.\n"
+						+ "{|\n| cell [[in table]]\n|}\n"
+						+ "<nowiki>[[no link]]</nowiki><!-- [[no link]] -->[[:Category:Greetings]]");
+		assertThat(listener.events).containsExactly("wikiLink:link|s", "category:Category:Greetings",
+				"template:cite|url=http://example.com/a", "externalLink:http://example.com/a",
+				"ref:[http://example.com/b Example]", "externalLink:http://example.com/b Example", "ref:",
+				"header2: Header [[in header]] ", "wikiLink:in header|", "image:File:Hello.png|thumb|A [[caption]]",
+				"wikiLink:caption|", "externalLink:http://example.com/c", "table:{|\n| cell [[in table]]\n|}",
+				"wikiLink:in table|", "wikiLink::Category:Greetings|");
+	}
+
+	@Test
+	public void testSameHeadersAndTemplatesAsParseEvents() {
+		final HelloHeadListener parsedHeaders = new HelloHeadListener();
+		wikiModel.parseEvents(parsedHeaders, HelloRenderTest.HELLO_TEXT);
+		final HelloHeadListener scannedHeaders = new HelloHeadListener();
+		wikiModel.scanEvents(scannedHeaders, HelloRenderTest.HELLO_TEXT);
+		assertThat(scannedHeaders.getCollectorBuffer().toString())
+				.isEqualTo(parsedHeaders.getCollectorBuffer().toString());
+
+		final HelloTemplateListener parsedTemplates = new HelloTemplateListener();
+		wikiModel.parseEvents(parsedTemplates, HelloRenderTest.HELLO_TEXT);
+		final HelloTemplateListener scannedTemplates = new HelloTemplateListener();
+		wikiModel.scanEvents(scannedTemplates, HelloRenderTest.HELLO_TEXT);
+		assertThat(scannedTemplates.getCollectorBuffer().toString())
+				.isEqualTo(parsedTemplates.getCollectorBuffer().toString());
+	}
+
+	@Test(timeout = 10000)
+	public void testEndTagWithoutClosingBracket() {
+		final List<String> refs = new ArrayList<>();
+		final RecordingListener listener = new RecordingListener() {
+			@Override
+			public void onRef(char[] src, int startPosition, int endPosition, int rawStart, int rawEnd) {
+				refs.add(startPosition + " " + endPosition + " " + rawStart + " " + rawEnd);
+			}
+		};
+		wikiModel.scanEvents(listener, "x <pre>a</pre b [[link]]");
+		assertThat(listener.events).containsExactly("wikiLink:link|");
+		wikiModel.scanEvents(listener, "x <ref>a</ref b");
+		assertThat(refs).containsExactly("2 13 7 8");
+	}
+
+	@Test
+	public void testNamespacePrefixes() {
+		final RecordingListener listener = new RecordingListener();
+		wikiModel.scanEvents(listener, "[[ category :A]] [[Image:B.png]] [[file_talk:C]] [[Categoryx:D]] "
+				+ "ftp://example.com/f HTTP://example.com");
+		assertThat(listener.events).containsExactly("category: category :A", "image:Image:B.png",
+				"wikiLink:file_talk:C|", "wikiLink:Categoryx:D|", "externalLink:ftp://example.com/f", "externalLink:HTTP://example.com");
+	}
+
+	@Test(timeout = 10000)
+	public void testUnclosedRefs() {
+		final StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 50000; i++) {
+			text.append("<ref>unclosed [[link]] ");
+		}
+		final RecordingListener listener = new RecordingListener();
+		wikiModel.scanEvents(listener, text.toString());
+		assertThat(listener.events).hasSize(50000).containsOnly("wikiLink:link|");
+	}
+
+	private static class RecordingListener extends DefaultEventListener {
+		final List<String> events = new ArrayList<>();
+
+		@Override
+		public void onHeader(char[] src, int startPosition, int endPosition, int rawStart, int rawEnd, int level) {
+			events.add("header" + level + ":" + new String(src, rawStart, rawEnd - rawStart));
+		}
+
+		@Override
+		public void onWikiLink(char[] src, int rawStart, int rawEnd, String suffix) {
+			events.add("wikiLink:" + new String(src, rawStart, rawEnd - rawStart) + "|" + suffix);
+		}
+
+		@Override
+		public void onTemplate(char[] src, int rawStart, int rawEnd) {
+			events.add("template:" + new String(src, rawStart, rawEnd - rawStart));
+		}
+
+		@Override
+		public void onCategory(char[] src, int rawStart, int rawEnd) {
+			events.add("category:" + new String(src, rawStart, rawEnd - rawStart));
+		}
+
+		@Override
+		public void onImage(char[] src, int rawStart, int rawEnd) {
+			events.add("image:" + new String(src, rawStart, rawEnd - rawStart));
+		}
+
+		@Override
+		public void onExternalLink(char[] src, int rawStart, int rawEnd) {
+			events.add("externalLink:" + new String(src, rawStart, rawEnd - rawStart));
+		}
+
+		@Override
+		public void onTable(char[] src, int startPosition, int endPosition) {
+			events.add("table:" + new String(src, startPosition, endPosition - startPosition));
+		}
+
+		@Override
+		public void onRef(char[] src, int startPosition, int endPosition, int rawStart, int rawEnd) {
+			events.add("ref:" + new String(src, rawStart, rawEnd - rawStart));
+		}
+	}
+}
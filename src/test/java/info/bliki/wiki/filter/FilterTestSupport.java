@@ -19,7 +19,17 @@ public class FilterTestSupport {
 		WikiTestModel model = new WikiTestModel(Locale.ENGLISH, "http://www.bliki.info/wiki/${image}",
 				"http://www.bliki.info/wiki/${title}", "wikitestModel");
 		model.addTokenTag("iframe", new HTMLBlockTag("iframe", Configuration.SPECIAL_BLOCK_TAGS));
+		if (!isTemplateCallsCacheEnabled()) {
+			model.setSharedTemplateCallsCache(null);
+		}
 		model.setUp();
 		return model;
 	}
+
+	/**
+	 * @return <code>false</code> to run the tests without the template calls cache of the {@link WikiTestModel}
+	 */
+	protected boolean isTemplateCallsCacheEnabled() {
+		return true;
+	}
 }
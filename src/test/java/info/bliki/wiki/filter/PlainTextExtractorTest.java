@@ -0,0 +1,50 @@
+package info.bliki.wiki.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+public class PlainTextExtractorTest extends FilterTestSupport {
+	private static final String TEXT = "{{Infobox person|name=Hello}}\n"
+			+ "'''Hello''' is a [[salutation (greeting)|salutation]] or [[greeting]]s in the [[English language]]."
+			+ "<ref>{{cite web|url=http://example.com}}</ref> See [http://example.com the example] &amp; [http://example.org].\n"
+			+ "__NOTOC__\n== First use ==\n* [[:Category:Greetings|Greetings]]<!-- comment -->\n"
+			+ "{| class=\"wikitable\"\n! Language !! Word\n|-\n| style=\"color:red\" | German || ''Hallo''\n|}\n"
+			+ "<nowiki>[[no link]]</nowiki> <math>x^2</math>a<br/>b\n"
+			+ "[[File:Hello.png|thumb|A caption]][[Category:Greetings]][[de:Hallo]]";
+
+	@Test
+	public void testDefaultPolicy() {
+		final PlainTextExtractor extractor = new PlainTextExtractor(wikiModel);
+		assertThat(extractor.extract(TEXT)).isEqualTo("\n"
+				+ "Hello is a salutation or greetings in the English language. See the example & .\n" + "\n"
+				+ "First use\n" + "Greetings\n" + "\n" + "[[no link]] a\nb\n");
+	}
+
+	@Test
+	public void testKeepTablesAndReferences() throws Exception {
+		final PlainTextExtractor extractor = new PlainTextExtractor(wikiModel);
+		extractor.setDropTables(false);
+		extractor.setDropReferences(false);
+		final StringWriter writer = new StringWriter();
+		extractor.extract(TEXT, writer);
+		assertThat(writer.toString()).contains("English language. See").contains("First use\nGreetings\n"
+				+ "Language\nWord\nGerman\nHallo\n\n");
+	}
+
+	@Test
+	public void testExpandTemplates() {
+		final PlainTextExtractor extractor = new PlainTextExtractor(wikiModel);
+		extractor.setExpandTemplates(true);
+		assertThat(extractor.extract("{{Infobox person|name=Hello}}{{1x|Expanded}} text")).isEqualTo("Expanded text");
+	}
+
+	@Test(timeout = 10000)
+	public void testEndTagWithoutClosingBracket() {
+		final PlainTextExtractor extractor = new PlainTextExtractor(wikiModel);
+		assertThat(extractor.extract("x <pre>a</pre b")).isEqualTo("x a b");
+		assertThat(extractor.extract("x <ref>a</ref b")).isEqualTo("x  b");
+	}
+}
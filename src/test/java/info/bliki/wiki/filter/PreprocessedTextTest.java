@@ -0,0 +1,99 @@
+package info.bliki.wiki.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import static info.bliki.wiki.filter.PreprocessedText.NodeType.EXTENSION_TAG;
+import static info.bliki.wiki.filter.PreprocessedText.NodeType.PARAMETER;
+import static info.bliki.wiki.filter.PreprocessedText.NodeType.TEMPLATE;
+import static info.bliki.wiki.filter.PreprocessedText.NodeType.TEXT;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class PreprocessedTextTest extends FilterTestSupport {
+
+	@Test
+	public void testExpandWithDifferentParameters() throws Exception {
+		final String raw = "<noinclude>doc</noinclude>Hello {{{1|nobody}}}<!-- comment -->, {{{greeting|{{{2|hi}}}}}}!";
+		final PreprocessedText text = PreprocessedText.preprocess(raw, 0, wikiModel, false, false);
+		assertThat(text.getText()).isEqualTo("Hello {{{1|nobody}}}, {{{greeting|{{{2|hi}}}}}}!");
+		assertThat(text.getParameterCount()).isEqualTo(2);
+		assertThat(text.isCacheable()).isTrue();
+		assertThat(text.isOnlyInclude()).isFalse();
+
+		assertThat(expand(text, null)).isEqualTo("Hello {{{1|nobody}}}, {{{greeting|{{{2|hi}}}}}}!");
+		final Map<String, String> parameters = new HashMap<>();
+		parameters.put("1", "World");
+		assertThat(expand(text, parameters)).isEqualTo("Hello World, hi!");
+		parameters.put("2", "hello");
+		assertThat(expand(text, parameters)).isEqualTo("Hello World, hello!");
+		parameters.put("greeting", "good morning");
+		assertThat(expand(text, parameters)).isEqualTo("Hello World, good morning!");
+	}
+
+	@Test
+	public void testOnlyInclude() throws Exception {
+		final PreprocessedText text = PreprocessedText.preprocess("a<onlyinclude>{{{1}}}</onlyinclude>b", 0,
+				wikiModel, false, false);
+		assertThat(text.isOnlyInclude()).isTrue();
+		assertThat(text.getText()).isEqualTo("{{{1}}}");
+	}
+
+	@Test
+	public void testSignaturesAreNotCacheable() throws Exception {
+		assertThat(PreprocessedText.preprocess("~~~~", 0, wikiModel, false, false).isCacheable()).isFalse();
+		assertThat(PreprocessedText.preprocess("{{subst:1x|a}}", 0, wikiModel, false, false).isCacheable())
+				.isFalse();
+	}
+
+	@Test
+	public void testNodeTypes() throws Exception {
+		final PreprocessedText text = PreprocessedText.preprocess(
+				"a {{{1}}} {{1x|{{{2|b}}}}} <nowiki>{{{3}}} {{1x|c}}</nowiki> d", 0, wikiModel, false, false);
+		assertThat(text.getNodeTypes()).containsExactly(TEXT, PARAMETER, TEXT, TEMPLATE, TEXT, EXTENSION_TAG, TEXT);
+		assertThat(PreprocessedText.preprocess("{{{{{1}}}}}", 0, wikiModel, false, false).getNodeTypes())
+				.containsExactly(TEMPLATE);
+		// a parameter, which may complete an unclosed template call, needs the text to be parsed again
+		assertThat(PreprocessedText.preprocess("{{1x|{{{1}}}", 0, wikiModel, false, false).getNodeTypes()).isNull();
+	}
+
+	@Test
+	public void testParseNodes() throws Exception {
+		final String raw = "a {{{1}}} {{1x|{{{2|b}}}}} <nowiki>{{{3}}} {{1x|c}}</nowiki> {{{{{4|1x}}}|d}}";
+		final PreprocessedText text = PreprocessedText.preprocess(raw, 0, wikiModel, false, false);
+		final Map<String, String> parameters = new HashMap<>();
+		assertThat(parse(text, parameters)).isEqualTo("a {{{1}}} b <nowiki>{{{3}}} {{1x|c}}</nowiki> d")
+				.isEqualTo(parse(raw, parameters));
+		parameters.put("1", "'''e'''");
+		parameters.put("2", "[[f]]");
+		parameters.put("3", "g");
+		assertThat(parse(text, parameters)).isEqualTo("a '''e''' [[f]] <nowiki>g {{1x|c}}</nowiki> d")
+				.isEqualTo(parse(raw, parameters));
+		// values with braces or tags fall back to parsing the substituted text
+		parameters.put("1", "{{1x|h}}");
+		parameters.put("2", "<nowiki>{{1x|i}}</nowiki>");
+		parameters.put("4", "2x");
+		assertThat(parse(text, parameters)).isEqualTo(parse(raw, parameters));
+	}
+
+	private String parse(final PreprocessedText text, final Map<String, String> parameters) throws IOException {
+		final StringBuilder buf = new StringBuilder();
+		TemplateParser.parseRecursive(text, wikiModel, buf, parameters);
+		return buf.toString();
+	}
+
+	private String parse(final String raw, final Map<String, String> parameters) throws IOException {
+		final StringBuilder buf = new StringBuilder();
+		TemplateParser.parseRecursive(raw, wikiModel, buf, false, false, parameters);
+		return buf.toString();
+	}
+
+	private String expand(final PreprocessedText text, final Map<String, String> parameters) {
+		final StringBuilder buf = new StringBuilder();
+		text.expand(parameters, wikiModel, buf);
+		return buf.toString();
+	}
+}
@@ -0,0 +1,97 @@
+package info.bliki.wiki.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import info.bliki.htmlcleaner.TagToken;
+import info.bliki.wiki.model.WikiModel;
+import info.bliki.wiki.tags.PTag;
+
+public class StreamingRenderTest extends FilterTestSupport {
+	private static final String[] TEXTS = { "A paragraph\n\nAnother ''paragraph''",
+			"Text<ref>first</ref>\n{|\n|cell<ref>second</ref>\n|}\n* item\n* item\n\n<references/>",
+			"Intro\n==Section 1==\ntext 1\n==Section 2==\ntext 2\n==Section 3==\ntext 3\n==Section 4==\ntext 4",
+			"{| align=\"right\" \n| __TOC__ \n|}\n\n==hello world 2==\nhello world 2\n\n===hello world3===\nhello world 3",
+			"__NOTOC__\n==Section==\n text\n\n<pre>pre</pre>\nend",
+			"Text<ref>first</ref>\n\n<references/>\n\nMore<ref>second</ref>\n\nend",
+			"<div class=\"reflist\"><references/></div>\n\nLater<ref>late</ref>" };
+
+	@Test
+	public void testSameOutputAsRender() throws Exception {
+		for (final String text : TEXTS) {
+			final StringBuilder streamed = new StringBuilder();
+			wikiModel.renderStreaming(new HTMLConverter(), text, streamed, false);
+			assertThat(streamed.toString()).isEqualTo(newWikiTestModel().render(text, false));
+		}
+	}
+
+	@Test
+	public void testReferencesAfterTheReferencesTag() throws Exception {
+		final String text = "Text<ref>first</ref>\n\n<references/>\n\nMore<ref>second</ref>\n\nend";
+		final StringBuilder streamed = new StringBuilder();
+		final List<Integer> outputLengths = new ArrayList<>();
+		final WikiModel model = new WikiModel("${image}", "${title}") {
+			@Override
+			public boolean pushNode(TagToken node) {
+				if (node instanceof PTag) {
+					outputLengths.add(streamed.length());
+				}
+				return super.pushNode(node);
+			}
+		};
+		model.renderStreaming(new HTMLConverter(), text, streamed, false);
+		// the paragraph before the references is written, the references and all following nodes are kept
+		assertThat(outputLengths.get(1)).isGreaterThan(0);
+		assertThat(outputLengths.subList(1, outputLengths.size())).containsOnly(outputLengths.get(1));
+		assertThat(streamed.toString()).isEqualTo(newWikiTestModel().render(text, false))
+				.contains("<li id=\"_note-1\">").contains("<sup id=\"_ref-2\"").contains("<p>end</p>");
+	}
+
+	@Test
+	public void testCompletedBlocksAreWrittenWhileParsing() throws Exception {
+		final StringBuilder streamed = new StringBuilder();
+		final List<String> outputAtParagraphStart = new ArrayList<>();
+		final WikiModel model = new WikiModel("${image}", "${title}") {
+			@Override
+			public boolean pushNode(TagToken node) {
+				if (node instanceof PTag) {
+					outputAtParagraphStart.add(streamed.toString());
+				}
+				return super.pushNode(node);
+			}
+		};
+		model.renderStreaming(new HTMLConverter(), "first\n\nsecond\n\nthird", streamed, false);
+		assertThat(outputAtParagraphStart).containsExactly("", "\n<p>first</p>", "\n<p>first</p>\n<p>second</p>");
+		assertThat(streamed.toString()).isEqualTo("\n<p>first</p>\n<p>second</p>\n<p>third</p>");
+	}
+
+	@Test
+	public void testBlocksAfterTableOfContentsAreWrittenAtTheEnd() throws Exception {
+		final StringBuilder streamed = new StringBuilder();
+		final List<Integer> outputLengths = new ArrayList<>();
+		final WikiModel model = new WikiModel("${image}", "${title}") {
+			@Override
+			public boolean pushNode(TagToken node) {
+				if (node instanceof PTag) {
+					outputLengths.add(streamed.length());
+				}
+				return super.pushNode(node);
+			}
+		};
+		model.renderStreaming(new HTMLConverter(), "intro\n==a==\nfirst\n==b==\nsecond", streamed, false);
+		// the paragraph before the first section header is written, the section headers are kept
+		assertThat(outputLengths).hasSize(3);
+		assertThat(outputLengths.get(1)).isGreaterThan(0);
+		assertThat(outputLengths.get(2)).isEqualTo(outputLengths.get(1));
+
+		outputLengths.clear();
+		streamed.setLength(0);
+		model.setNoToc(true);
+		model.renderStreaming(new HTMLConverter(), "intro\n==a==\nfirst\n==b==\nsecond", streamed, false);
+		assertThat(outputLengths.get(2)).isGreaterThan(outputLengths.get(1));
+	}
+}
@@ -0,0 +1,11 @@
+package info.bliki.wiki.filter;
+
+/**
+ * Run the tests of {@link TemplateFilterTest} without a template calls cache, so every template call is expanded.
+ */
+public class TemplateFilterWithoutCacheTest extends TemplateFilterTest {
+	@Override
+	protected boolean isTemplateCallsCacheEnabled() {
+		return false;
+	}
+}
@@ -0,0 +1,93 @@
+package info.bliki.wiki.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import info.bliki.wiki.model.TemplateCallsCache;
+import info.bliki.wiki.model.WikiModel;
+import info.bliki.wiki.model.WikiModelContentException;
+
+public class TemplateParameterMapTest {
+	private final Map<String, String> templateContents = new HashMap<>();
+	private final List<String> readTemplates = new ArrayList<>();
+	private WikiModel wikiModel;
+
+	@Before
+	public void setUp() throws Exception {
+		templateContents.put("First", "{{{1}}}");
+		templateContents.put("Twice", "{{{1}}}-{{{1}}}");
+		templateContents.put("Named", "{{{b|default}}}");
+		templateContents.put("Wrap", "({{{1}}})");
+		templateContents.put("A", "a");
+		templateContents.put("B", "b");
+		wikiModel = new WikiModel("${image}", "${title}") {
+			@Override
+			public String getRawWikiContent(ParsedPageName parsedPagename, Map<String, String> templateParameters)
+					throws WikiModelContentException {
+				final String result = super.getRawWikiContent(parsedPagename, templateParameters);
+				if (result != null) {
+					return result;
+				}
+				readTemplates.add(parsedPagename.pagename);
+				return templateContents.get(parsedPagename.pagename);
+			}
+		};
+		wikiModel.setUp();
+	}
+
+	@Test
+	public void testUnusedParametersAreNotExpanded() throws Exception {
+		assertThat(wikiModel.parseTemplates("{{First|{{A}}|{{B}}|x={{B}}}}")).isEqualTo("a");
+		assertThat(readTemplates).containsExactly("First", "A");
+		assertThat(wikiModel.getTemplates()).doesNotContain("B");
+	}
+
+	@Test
+	public void testUnusedParametersAreNotExpandedWithCache() throws Exception {
+		wikiModel.setSharedTemplateCallsCache(new TemplateCallsCache());
+		assertThat(wikiModel.parseTemplates("{{First|{{A}}|{{B}}|x={{B}}}}")).isEqualTo("a");
+		assertThat(readTemplates).containsExactly("First", "A");
+		readTemplates.clear();
+		assertThat(wikiModel.parseTemplates("{{First|{{A}}|{{B}}|x={{B}}}}")).isEqualTo("a");
+		assertThat(readTemplates).isEmpty();
+		assertThat(wikiModel.parseTemplates("{{First|{{A}}|{{A}}}}")).isEqualTo("a");
+		assertThat(readTemplates).containsExactly("First");
+	}
+
+	@Test
+	public void testValuesAreExpandedOnce() throws Exception {
+		assertThat(wikiModel.parseTemplates("{{Twice|{{A}}}}")).isEqualTo("a-a");
+		assertThat(readTemplates).containsExactly("Twice", "A");
+	}
+
+	@Test
+	public void testNamedAndUnnamedParameters() throws Exception {
+		assertThat(wikiModel.parseTemplates("{{Named|b = {{B}}\n}}")).isEqualTo("b");
+		assertThat(wikiModel.parseTemplates("{{Named|x}}")).isEqualTo("default");
+		// a named parameter wins over the unnamed parameter with the same number
+		assertThat(wikiModel.parseTemplates("{{First|{{A}}|1=one}}")).isEqualTo("one");
+
+		readTemplates.clear();
+		final TemplateParameterMap parameterMap = new TemplateParameterMap(wikiModel);
+		parameterMap.addParameter(" {{A}} ");
+		parameterMap.addParameter("name = {{B}} ");
+		parameterMap.addParameter("x");
+		assertThat(parameterMap.keySet()).containsExactly("name", "1", "2");
+		assertThat(readTemplates).isEmpty();
+		assertThat(parameterMap).containsEntry("1", " a ").containsEntry("name", "b").containsEntry("2", "x");
+	}
+
+	@Test
+	public void testNestedCallOfTheSameTemplate() throws Exception {
+		assertThat(wikiModel.parseTemplates("{{Wrap|{{Wrap|x}}}}")).isEqualTo("((x))");
+		templateContents.put("Loop", "{{Loop|{{{1}}}}}");
+		assertThat(wikiModel.parseTemplates("{{Loop|x}}")).contains("Template loop detected");
+	}
+}
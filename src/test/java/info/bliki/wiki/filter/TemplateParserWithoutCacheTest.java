@@ -0,0 +1,11 @@
+package info.bliki.wiki.filter;
+
+/**
+ * Run the tests of {@link TemplateParserTest} without a template calls cache, so every template call is expanded.
+ */
+public class TemplateParserWithoutCacheTest extends TemplateParserTest {
+	@Override
+	protected boolean isTemplateCallsCacheEnabled() {
+		return false;
+	}
+}
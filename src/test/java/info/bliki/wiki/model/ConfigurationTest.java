@@ -0,0 +1,196 @@
+package info.bliki.wiki.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+import info.bliki.htmlcleaner.TagToken;
+import info.bliki.wiki.tags.IgnoreTag;
+import info.bliki.wiki.tags.code.SourceCodeFormatter;
+import info.bliki.wiki.template.If;
+import info.bliki.wiki.template.ITemplateFunction;
+
+public class ConfigurationTest {
+
+	@Test
+	public void testRegistriesAreScopedToTheConfiguration() throws Exception {
+		final Configuration configuration = new Configuration();
+		final Configuration other = new Configuration();
+		configuration.addTokenTag("inputbox", new IgnoreTag("inputbox"));
+		configuration.addUriScheme("tel");
+		configuration.addTemplateFunction("#myif", If.CONST);
+		configuration.addInterwikiLink("mywiki", "https://wiki.example.com/$1");
+
+		assertThat(configuration.getTokenMap()).containsKey("inputbox");
+		assertThat(configuration.getUriSchemeSet().contains("TEL")).isTrue();
+		assertThat(configuration.getTemplateMap().get("#MyIf")).isSameAs(If.CONST);
+		assertThat(configuration.getInterWikiMap().getInterWiki("mywiki")).isNotNull();
+
+		assertThat(other.getTokenMap()).doesNotContainKey("inputbox").containsKey("nowiki");
+		assertThat(other.getUriSchemeSet()).doesNotContain("tel").contains("http");
+		assertThat(other.getTemplateMap()).doesNotContainKey("#myif").containsKey("#if");
+		assertThat(other.getInterWikiMap().getInterWiki("mywiki")).isNull();
+	}
+
+	@Test
+	public void testSnapshotsAreNotAffectedByLaterChanges() throws Exception {
+		final Configuration configuration = new Configuration();
+		final Map<String, ITemplateFunction> snapshot = configuration.getTemplateMap();
+		assertThat(configuration.addTemplateFunction("#myif", If.CONST)).isNull();
+		assertThat(snapshot).doesNotContainKey("#myif");
+		assertThat(configuration.getTemplateMap()).containsKey("#myif");
+		assertThat(configuration.addUriScheme("http")).isFalse();
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testRegistriesAreUnmodifiable() throws Exception {
+		new Configuration().getTokenMap().put("inputbox", new IgnoreTag("inputbox"));
+	}
+
+	@Test
+	public void testDeprecatedTokenMapIsAReadOnlyView() throws Exception {
+		final Configuration configuration = new Configuration();
+		configuration.addTokenTag("inputbox", new IgnoreTag("inputbox"));
+		assertThat(configuration.tagTokenMap).containsKey("inputbox").containsKey("nowiki");
+		assertThat(Configuration.TAG_TOKEN_MAP).doesNotContainKey("inputbox");
+		try {
+			configuration.tagTokenMap.put("math", new IgnoreTag("math"));
+			throw new AssertionError("expected UnsupportedOperationException");
+		} catch (final UnsupportedOperationException expected) {
+			assertThat(configuration.getTokenMap().get("math")).isNotInstanceOf(IgnoreTag.class);
+		}
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testDefaultsAreUnmodifiable() throws Exception {
+		Configuration.TEMPLATE_FUNCTION_MAP.put("#myif", If.CONST);
+	}
+
+	@Test
+	public void testFreeze() throws Exception {
+		final Configuration configuration = new Configuration();
+		configuration.addUriScheme("tel");
+		assertThat(configuration.freeze().isFrozen()).isTrue();
+		assertThat(configuration.getUriSchemeSet()).contains("tel");
+		try {
+			configuration.addTokenTag("inputbox", new IgnoreTag("inputbox"));
+			throw new AssertionError("expected UnsupportedOperationException");
+		} catch (final UnsupportedOperationException expected) {
+			assertThat(configuration.getTokenMap()).doesNotContainKey("inputbox");
+		}
+	}
+
+	@Test
+	public void testDefaultTemplateCallsCacheAccessors() throws Exception {
+		final IConfiguration configuration = new LegacyConfiguration();
+		assertThat(configuration.getSharedTemplateCallsCache()).isNull();
+
+		final Map<String, String> map = new HashMap<>();
+		configuration.setTemplateCallsCache(map);
+		final ITemplateCallsCache mapCache = configuration.getSharedTemplateCallsCache();
+		assertThat(mapCache).isNotNull();
+		assertThat(configuration.getSharedTemplateCallsCache()).isSameAs(mapCache);
+
+		final TemplateCallsCache cache = new TemplateCallsCache();
+		configuration.setSharedTemplateCallsCache(cache);
+		assertThat(configuration.getSharedTemplateCallsCache()).isSameAs(cache);
+		assertThat(configuration.getTemplateCallsCache()).isNull();
+
+		configuration.setSharedTemplateCallsCache(mapCache);
+		assertThat(configuration.getTemplateCallsCache()).isSameAs(map);
+		assertThat(configuration.getSharedTemplateCallsCache()).isSameAs(mapCache);
+		configuration.setSharedTemplateCallsCache(null);
+		assertThat(configuration.getSharedTemplateCallsCache()).isNull();
+	}
+
+	@Test
+	public void testDefaultRenderMetricsAccessors() throws Exception {
+		final IConfiguration configuration = new LegacyConfiguration();
+		assertThat(configuration.getRenderMetrics()).isNull();
+		final RenderMetrics metrics = new RenderMetrics();
+		configuration.setRenderMetrics(metrics);
+		assertThat(configuration.getRenderMetrics()).isSameAs(metrics);
+		assertThat(new LegacyConfiguration().getRenderMetrics()).isNull();
+		configuration.setRenderMetrics(null);
+		assertThat(configuration.getRenderMetrics()).isNull();
+	}
+
+	@Test
+	public void testDefaultPreprocessedTemplateCacheAccessors() throws Exception {
+		final IConfiguration configuration = new LegacyConfiguration();
+		assertThat(configuration.getPreprocessedTemplateCache()).isNull();
+		final PreprocessedTemplateCache cache = new PreprocessedTemplateCache();
+		configuration.setPreprocessedTemplateCache(cache);
+		assertThat(configuration.getPreprocessedTemplateCache()).isSameAs(cache);
+		assertThat(new LegacyConfiguration().getPreprocessedTemplateCache()).isNull();
+		configuration.setPreprocessedTemplateCache(null);
+		assertThat(configuration.getPreprocessedTemplateCache()).isNull();
+	}
+
+	/**
+	 * A configuration, which implements only the abstract methods of {@link IConfiguration}.
+	 */
+	static class LegacyConfiguration implements IConfiguration {
+		private final Configuration fConfiguration = new Configuration();
+		private Map<String, String> fTemplateCallsCache;
+
+		@Override
+		public SourceCodeFormatter addCodeFormatter(String key, SourceCodeFormatter value) {
+			return fConfiguration.addCodeFormatter(key, value);
+		}
+
+		@Override
+		public String addInterwikiLink(String key, String value) {
+			return fConfiguration.addInterwikiLink(key, value);
+		}
+
+		@Override
+		public ITemplateFunction addTemplateFunction(String key, ITemplateFunction value) {
+			return fConfiguration.addTemplateFunction(key, value);
+		}
+
+		@Override
+		public TagToken addTokenTag(String key, TagToken value) {
+			return fConfiguration.addTokenTag(key, value);
+		}
+
+		@Override
+		public Map<String, SourceCodeFormatter> getCodeFormatterMap() {
+			return fConfiguration.getCodeFormatterMap();
+		}
+
+		@Override
+		public Map<String, String> getTemplateCallsCache() {
+			return fTemplateCallsCache;
+		}
+
+		@Override
+		public Map<String, ITemplateFunction> getTemplateMap() {
+			return fConfiguration.getTemplateMap();
+		}
+
+		@Override
+		public Map<String, TagToken> getTokenMap() {
+			return fConfiguration.getTokenMap();
+		}
+
+		@Override
+		public Set<String> getUriSchemeSet() {
+			return fConfiguration.getUriSchemeSet();
+		}
+
+		@Override
+		public void setTemplateCallsCache(Map<String, String> map) {
+			fTemplateCallsCache = map;
+		}
+
+		@Override
+		public Casing casing() {
+			return fConfiguration.casing();
+		}
+	}
+}
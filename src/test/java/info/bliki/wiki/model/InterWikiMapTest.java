@@ -56,4 +56,16 @@ public class InterWikiMapTest {
 		final InterWiki interWiki = subject.getInterWiki("s");
 		assertThat(interWiki.pattern).isEqualTo("https://fr.wikisource.org/wiki/$1");
 	}
+
+	@Test
+	public void testConfigurationSharesInterWikiMap() throws Exception {
+		final Configuration configuration = new Configuration();
+		assertThat(configuration.getInterWikiMap()).isSameAs(new Configuration().getInterWikiMap());
+		assertThat(configuration.getInterWikiMap().getInterWiki("fr").pattern)
+				.isEqualTo("https://fr.wikipedia.org/wiki/$1");
+
+		configuration.addInterwikiLink("intra", "/$1");
+		assertThat(configuration.getInterWikiMap().getInterWiki("INTRA").pattern).isEqualTo("/$1");
+		assertThat(new Configuration().getInterWikiMap().getInterWiki("intra")).isNull();
+	}
 }
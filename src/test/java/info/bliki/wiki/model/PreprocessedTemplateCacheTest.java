@@ -0,0 +1,97 @@
+package info.bliki.wiki.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import info.bliki.wiki.filter.ParsedPageName;
+import info.bliki.wiki.filter.PreprocessedText;
+
+public class PreprocessedTemplateCacheTest {
+	private final Map<String, String> templateContents = new HashMap<>();
+
+	private WikiModel newWikiModel(final Configuration configuration) {
+		return new WikiModel(configuration, "${image}", "${title}") {
+			@Override
+			public String getRawWikiContent(ParsedPageName parsedPagename, Map<String, String> templateParameters)
+					throws WikiModelContentException {
+				final String result = super.getRawWikiContent(parsedPagename, templateParameters);
+				return result != null ? result : templateContents.get(parsedPagename.pagename);
+			}
+		};
+	}
+
+	@Test
+	public void testTemplatesArePreprocessedOnce() throws Exception {
+		templateContents.put("Box", "<noinclude>Documentation</noinclude>({{{1|default}}}<!-- comment -->)");
+		templateContents.put("Plain", "plain text");
+		final PreprocessedTemplateCache cache = new PreprocessedTemplateCache();
+		final Configuration configuration = new Configuration();
+		configuration.setPreprocessedTemplateCache(cache);
+
+		final String text = "{{Box|a}} {{Box}} {{Box|{{Box|b}}}} {{Plain}}";
+		final String expected = newWikiModel(new Configuration()).render(text, false);
+		assertThat(expected).isEqualTo("\n<p>(a) (default) ((b)) plain text</p>");
+		assertThat(newWikiModel(configuration).render(text, false)).isEqualTo(expected);
+		// texts without template syntax aren't cached
+		assertThat(cache.size()).isEqualTo(1);
+		assertThat(cache.getMissCount()).isEqualTo(1);
+		assertThat(cache.getHitCount()).isEqualTo(3);
+
+		assertThat(newWikiModel(configuration).render(text, false)).isEqualTo(expected);
+		assertThat(cache.getMissCount()).isEqualTo(1);
+		assertThat(cache.getHitCount()).isEqualTo(7);
+	}
+
+	@Test
+	public void testEditedTemplateIsANewRevision() throws Exception {
+		templateContents.put("Box", "[{{{1}}}]");
+		final PreprocessedTemplateCache cache = new PreprocessedTemplateCache();
+		final Configuration configuration = new Configuration();
+		configuration.setPreprocessedTemplateCache(cache);
+		assertThat(newWikiModel(configuration).render("{{Box|a}}", false)).isEqualTo("\n<p>[a]</p>");
+
+		templateContents.put("Box", "({{{1}}})");
+		assertThat(newWikiModel(configuration).render("{{Box|a}}", false)).isEqualTo("\n<p>(a)</p>");
+		assertThat(cache.getMissCount()).isEqualTo(2);
+		assertThat(cache.size()).isEqualTo(2);
+	}
+
+	@Test
+	public void testSignaturesAreNotCached() throws Exception {
+		templateContents.put("Signed", "{{{1}}} ~~~");
+		final PreprocessedTemplateCache cache = new PreprocessedTemplateCache();
+		final Configuration configuration = new Configuration();
+		configuration.setPreprocessedTemplateCache(cache);
+		final String text = "{{Signed|a}}";
+		assertThat(newWikiModel(configuration).render(text, false))
+				.isEqualTo(newWikiModel(new Configuration()).render(text, false));
+		assertThat(cache.size()).isEqualTo(0);
+	}
+
+	@Test
+	public void testEviction() throws Exception {
+		final WikiModel wikiModel = newWikiModel(new Configuration());
+		final PreprocessedTemplateCache cache = new PreprocessedTemplateCache(16, 1024);
+		for (int i = 0; i < 100; i++) {
+			cache.put("Template:T" + i, i, PreprocessedText.preprocess("{{{1}}}", 0, wikiModel, false, false));
+		}
+		assertThat(cache.size()).isLessThanOrEqualTo(16);
+
+		final PreprocessedText large = PreprocessedText.preprocess(new String(new char[2048]).replace('\0', 'x'), 0,
+				wikiModel, false, false);
+		cache.put("Template:Large", 1, large);
+		assertThat(cache.get("Template:Large", 1)).isNull();
+
+		cache.clear();
+		assertThat(cache.size()).isEqualTo(0);
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testFrozenConfiguration() throws Exception {
+		new Configuration().freeze().setPreprocessedTemplateCache(new PreprocessedTemplateCache());
+	}
+}
@@ -0,0 +1,76 @@
+package info.bliki.wiki.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import info.bliki.wiki.filter.ParsedPageName;
+import info.bliki.wiki.model.IRenderMetrics.Phase;
+
+public class RenderMetricsTest {
+
+	@Test
+	public void testRenderIsMeasured() throws Exception {
+		final Map<String, String> templateContents = new HashMap<>();
+		templateContents.put("Outer", "[{{Inner|{{{1}}}}}]");
+		templateContents.put("Inner", "'''{{{1}}}'''");
+		final Configuration configuration = new Configuration();
+		final RenderMetrics metrics = new RenderMetrics();
+		configuration.setRenderMetrics(metrics);
+		configuration.setSharedTemplateCallsCache(new TemplateCallsCache());
+		final WikiModel wikiModel = new WikiModel(configuration, "${image}", "${title}") {
+			@Override
+			public String getRawWikiContent(ParsedPageName parsedPagename, Map<String, String> templateParameters)
+					throws WikiModelContentException {
+				final String result = super.getRawWikiContent(parsedPagename, templateParameters);
+				return result != null ? result : templateContents.get(parsedPagename.pagename);
+			}
+		};
+
+		final String text = "{{Outer|x}} {{Outer|x}}";
+		assertThat(wikiModel.render(text, false)).isEqualTo("\n<p>[<b>x</b>] [<b>x</b>]</p>");
+
+		assertThat(metrics.getCount(Phase.TEMPLATE_EXPANSION)).isEqualTo(1);
+		assertThat(metrics.getCharsIn(Phase.TEMPLATE_EXPANSION)).isEqualTo(text.length());
+		assertThat(metrics.getCharsOut(Phase.TEMPLATE_EXPANSION)).isEqualTo("['''x'''] ['''x''']".length());
+		assertThat(metrics.getCount(Phase.PARSE)).isEqualTo(1);
+		assertThat(metrics.getCount(Phase.CONVERSION)).isEqualTo(1);
+		assertThat(metrics.getCharsOut(Phase.CONVERSION)).isEqualTo("\n<p>[<b>x</b>] [<b>x</b>]</p>".length());
+		// the second call of Outer is found in the cache
+		assertThat(metrics.getCount(Phase.RAW_CONTENT)).isEqualTo(2);
+		assertThat(metrics.getTemplateCalls()).isEqualTo(3);
+		assertThat(metrics.getTemplateCallCounts()).containsEntry("Template:Outer", 2L)
+				.containsEntry("Template:Inner", 1L);
+		assertThat(metrics.getMaxTemplateDepth()).isEqualTo(2);
+		assertThat(metrics.getCacheHits()).isEqualTo(1);
+		assertThat(metrics.getCacheMisses()).isEqualTo(2);
+		assertThat(metrics.getPercentileNanos(Phase.PARSE, 0.5)).isGreaterThanOrEqualTo(metrics.getMaxNanos(Phase.PARSE));
+
+		metrics.reset();
+		assertThat(metrics.getCount(Phase.PARSE)).isEqualTo(0);
+		assertThat(metrics.getTemplateCallCounts()).isEmpty();
+		assertThat(metrics.getPercentileNanos(Phase.PARSE, 0.5)).isEqualTo(0);
+	}
+
+	@Test
+	public void testPercentiles() throws Exception {
+		final RenderMetrics metrics = new RenderMetrics();
+		for (int i = 0; i < 99; i++) {
+			metrics.phase(Phase.PARSE, 100, -1, -1);
+		}
+		metrics.phase(Phase.PARSE, 1000000, -1, -1);
+		assertThat(metrics.getPercentileNanos(Phase.PARSE, 0.5)).isBetween(100L, 200L);
+		assertThat(metrics.getPercentileNanos(Phase.PARSE, 0.99)).isBetween(100L, 200L);
+		assertThat(metrics.getPercentileNanos(Phase.PARSE, 1.0)).isBetween(1000000L, 2000000L);
+		assertThat(metrics.getMaxNanos(Phase.PARSE)).isEqualTo(1000000L);
+		assertThat(metrics.getTotalNanos(Phase.PARSE)).isEqualTo(99 * 100L + 1000000L);
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testFrozenConfiguration() throws Exception {
+		new Configuration().freeze().setRenderMetrics(new RenderMetrics());
+	}
+}
@@ -0,0 +1,266 @@
+package info.bliki.wiki.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import info.bliki.wiki.filter.ParsedPageName;
+
+public class TemplateCallsCacheTest {
+
+	@Test
+	public void testKeyIgnoresParameterOrder() {
+		final Map<String, String> parameters1 = new LinkedHashMap<>();
+		parameters1.put("1", "a");
+		parameters1.put("name", "value");
+		final Map<String, String> parameters2 = new LinkedHashMap<>();
+		parameters2.put("name", "value");
+		parameters2.put("1", "a");
+		final Map<String, String> parameters3 = new LinkedHashMap<>();
+		parameters3.put("1", "a=name");
+		parameters3.put("value", "");
+
+		assertThat(TemplateCallKey.create("Template:Test", parameters1))
+				.isEqualTo(TemplateCallKey.create("Template:Test", parameters2));
+		assertThat(TemplateCallKey.create("Template:Test", parameters1))
+				.isNotEqualTo(TemplateCallKey.create("Template:Test", parameters3));
+		assertThat(TemplateCallKey.create("Template:Test", parameters1))
+				.isNotEqualTo(TemplateCallKey.create("Template:Other", parameters1));
+	}
+
+	@Test
+	public void testKeyComparesParameters() {
+		final Map<String, String> parameters1 = new HashMap<>();
+		parameters1.put("1", "Aa");
+		final Map<String, String> parameters2 = new HashMap<>();
+		parameters2.put("1", "BB");
+
+		// "Aa" and "BB" have the same String hash code
+		final TemplateCallKey key1 = TemplateCallKey.create("Template:Test", parameters1);
+		final TemplateCallKey key2 = TemplateCallKey.create("Template:Test", parameters2);
+		assertThat(key1.hashCode()).isEqualTo(key2.hashCode());
+		assertThat(key1).isNotEqualTo(key2);
+
+		final TemplateCallsCache cache = new TemplateCallsCache();
+		cache.put(key1, call("Aa"));
+		assertThat(cache.get(key2)).isNull();
+	}
+
+	@Test
+	public void testLongParametersAreCached() {
+		final StringBuilder longValue = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			longValue.append("value ").append(i);
+		}
+		final Map<String, String> parameters = new HashMap<>();
+		parameters.put("1", longValue.toString());
+		final TemplateCallsCache cache = new TemplateCallsCache();
+		cache.put(TemplateCallKey.create("Template:Test", parameters), call("result"));
+
+		assertThat(cache.get(TemplateCallKey.create("Template:Test", new HashMap<>(parameters))).getContent())
+				.isEqualTo("result");
+		parameters.put("1", longValue + "!");
+		assertThat(cache.get(TemplateCallKey.create("Template:Test", parameters))).isNull();
+		assertThat(cache.getHitCount()).isEqualTo(1);
+		assertThat(cache.getMissCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void testSizeEviction() {
+		final TemplateCallsCache cache = new TemplateCallsCache(64, Long.MAX_VALUE);
+		for (int i = 0; i < 1000; i++) {
+			cache.put(key(i), call("value" + i));
+		}
+		assertThat(cache.size()).isLessThanOrEqualTo(64);
+		assertThat(cache.getEvictionCount()).isEqualTo(1000 - cache.size());
+	}
+
+	@Test
+	public void testWeightEviction() {
+		final TemplateCallsCache cache = new TemplateCallsCache(100000, 16 * 100);
+		final CachedTemplateCall value = call(new String(new char[49]));
+		for (int i = 0; i < 1000; i++) {
+			cache.put(key(i), value);
+		}
+		assertThat(cache.weight()).isLessThanOrEqualTo(16 * 100);
+		assertThat(cache.size()).isLessThanOrEqualTo(32);
+		// larger than a segment
+		cache.put(key(-1), call(new String(new char[200])));
+		assertThat(cache.get(key(-1))).isNull();
+	}
+
+	@Test
+	public void testFrequentlyUsedEntriesSurviveScans() {
+		final TemplateCallsCache cache = new TemplateCallsCache(16 * 10, Long.MAX_VALUE);
+		final List<TemplateCallKey> hotKeys = new ArrayList<>();
+		for (int i = 0; i < 32; i++) {
+			hotKeys.add(key(i));
+			cache.put(key(i), call("hot"));
+			assertThat(cache.get(key(i)).getContent()).isEqualTo("hot");
+		}
+		// a scan of template calls which are used only once
+		for (int i = 1000; i < 11000; i++) {
+			cache.put(key(i), call("cold"));
+		}
+		for (final TemplateCallKey key : hotKeys) {
+			assertThat(cache.get(key).getContent()).isEqualTo("hot");
+		}
+	}
+
+	@Test
+	public void testConcurrentAccess() throws Exception {
+		final TemplateCallsCache cache = new TemplateCallsCache(500, Long.MAX_VALUE);
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			final List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < 4; t++) {
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < 20000; i++) {
+						final int n = i % 1000;
+						final CachedTemplateCall value = cache.get(key(n));
+						if (value == null) {
+							cache.put(key(n), call("value" + n));
+						} else {
+							assertThat(value.getContent()).isEqualTo("value" + n);
+						}
+					}
+				}));
+			}
+			for (final Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertThat(cache.size()).isLessThanOrEqualTo(512);
+		assertThat(cache.getHitCount() + cache.getMissCount()).isEqualTo(80000);
+	}
+
+	@Test
+	public void testInvalidate() {
+		final TemplateCallsCache cache = new TemplateCallsCache();
+		cache.put(key(1), new CachedTemplateCall("1", Arrays.asList("Test", "Inner"), Collections.emptySet()));
+		cache.put(key(2), new CachedTemplateCall("2", Arrays.asList("Test"), Arrays.asList("Help:Page")));
+		cache.addPage("Page A", Arrays.asList("Test", "Inner"));
+		cache.addPage("Page B", Arrays.asList("Test", "Help:Page"));
+		cache.addPage("Page C", Arrays.asList("Other"));
+
+		assertThat(cache.invalidate("Inner")).containsOnly("Page A");
+		assertThat(cache.get(key(1))).isNull();
+		assertThat(cache.get(key(2))).isNotNull();
+
+		// a page registered again replaces its dependencies
+		cache.addPage("Page A", Arrays.asList("Test"));
+		assertThat(cache.invalidate("Inner")).isEmpty();
+		assertThat(cache.invalidate("Help:Page")).containsOnly("Page B");
+		assertThat(cache.get(key(2))).isNull();
+		assertThat(cache.invalidate("Test")).containsOnly("Page A", "Page B");
+		assertThat(cache.invalidate("Unused")).isEmpty();
+	}
+
+	@Test
+	public void testDependenciesOfRenderedPages() throws Exception {
+		final Map<String, String> templateContents = new HashMap<>();
+		templateContents.put("Outer", "[{{Inner|{{{1}}}}}]");
+		templateContents.put("Inner", "<b>{{{1}}}</b>");
+		templateContents.put("Single", "single");
+		final Configuration configuration = new Configuration();
+		final TemplateCallsCache cache = new TemplateCallsCache();
+		configuration.setSharedTemplateCallsCache(cache);
+		final WikiModel wikiModel = new WikiModel(configuration, "${image}", "${title}") {
+			@Override
+			public String getRawWikiContent(ParsedPageName parsedPagename, Map<String, String> templateParameters)
+					throws WikiModelContentException {
+				final String result = super.getRawWikiContent(parsedPagename, templateParameters);
+				return result != null ? result : templateContents.get(parsedPagename.pagename);
+			}
+		};
+
+		wikiModel.setUp();
+		wikiModel.setPageName("First");
+		assertThat(wikiModel.render("{{Outer|x}}", false)).isEqualTo("\n<p>[<b>x</b>]</p>");
+		assertThat(wikiModel.getTemplates()).containsOnly("Outer", "Inner");
+		wikiModel.tearDown();
+
+		// the second page uses the cached call, but still reports the nested template
+		wikiModel.setUp();
+		wikiModel.setPageName("Second");
+		assertThat(wikiModel.render("{{Outer|x}} {{Single}}", false)).isEqualTo("\n<p>[<b>x</b>] single</p>");
+		assertThat(wikiModel.getTemplates()).containsOnly("Outer", "Inner", "Single");
+		wikiModel.tearDown();
+		assertThat(cache.getHitCount()).isEqualTo(1);
+
+		assertThat(cache.invalidate("Inner")).containsOnly("First", "Second");
+		assertThat(cache.size()).isEqualTo(1);
+		assertThat(cache.invalidate("Single")).containsOnly("Second");
+		assertThat(cache.size()).isEqualTo(0);
+	}
+
+	@Test
+	public void testRenderWithoutPageName() throws Exception {
+		final Configuration configuration = new Configuration();
+		final TemplateCallsCache cache = new TemplateCallsCache();
+		configuration.setSharedTemplateCallsCache(cache);
+		final WikiModel wikiModel = new WikiModel(configuration, "${image}", "${title}") {
+			@Override
+			public String getRawWikiContent(ParsedPageName parsedPagename, Map<String, String> templateParameters)
+					throws WikiModelContentException {
+				final String result = super.getRawWikiContent(parsedPagename, templateParameters);
+				return result != null ? result : "single";
+			}
+		};
+		assertThat(wikiModel.render("{{Single}}", false)).isEqualTo("\n<p>single</p>");
+		assertThat(cache.invalidate("Single")).isEmpty();
+
+		wikiModel.setPageName(null);
+		assertThat(wikiModel.render("{{Single}}", false)).isEqualTo("\n<p>single</p>");
+		assertThat(cache.invalidate("Single")).isEmpty();
+	}
+
+	@SuppressWarnings("deprecation")
+	@Test
+	public void testDeprecatedMapCache() throws Exception {
+		final Configuration configuration = new Configuration();
+		final Map<String, String> map = new HashMap<>();
+		configuration.setTemplateCallsCache(map);
+		assertThat(configuration.getTemplateCallsCache()).isSameAs(map);
+		assertThat(configuration.getSharedTemplateCallsCache()).isNotNull();
+		final WikiModel wikiModel = new WikiModel(configuration, "${image}", "${title}") {
+			@Override
+			public String getRawWikiContent(ParsedPageName parsedPagename, Map<String, String> templateParameters)
+					throws WikiModelContentException {
+				final String result = super.getRawWikiContent(parsedPagename, templateParameters);
+				return result != null ? result : "<b>{{{1}}}</b>";
+			}
+		};
+		assertThat(wikiModel.render("{{Bold|x}} {{Bold|x}}", false)).isEqualTo("\n<p><b>x</b> <b>x</b></p>");
+		assertThat(map).hasSize(1);
+		assertThat(configuration.getSharedTemplateCallsCache().getHitCount()).isEqualTo(1);
+
+		configuration.setSharedTemplateCallsCache(new TemplateCallsCache());
+		assertThat(configuration.getTemplateCallsCache()).isNull();
+		configuration.setTemplateCallsCache(null);
+		assertThat(configuration.getSharedTemplateCallsCache()).isNull();
+	}
+
+	private static CachedTemplateCall call(String content) {
+		return new CachedTemplateCall(content, Collections.singleton("Test"), Collections.emptySet());
+	}
+
+	private static TemplateCallKey key(int i) {
+		final Map<String, String> parameters = new HashMap<>();
+		parameters.put("1", Integer.toString(i));
+		return TemplateCallKey.create("Template:Test", parameters);
+	}
+}
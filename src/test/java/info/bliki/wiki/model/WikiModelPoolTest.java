@@ -0,0 +1,65 @@
+package info.bliki.wiki.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class WikiModelPoolTest {
+	private final AtomicInteger created = new AtomicInteger();
+	private final WikiModelPool<WikiModel> pool = new WikiModelPool<>(() -> {
+		created.incrementAndGet();
+		return new WikiModel("${image}", "${title}");
+	});
+
+	@Test
+	public void testModelIsReused() throws Exception {
+		final WikiModel first = pool.acquire();
+		assertThat(first.render("[[Category:First]] [[Link]]", false)).contains("Link");
+		assertThat(first.getCategories()).containsKey("First");
+		pool.release(first);
+
+		final WikiModel second = pool.acquire();
+		assertThat(second).isSameAs(first);
+		assertThat(second.getCategories()).isEmpty();
+		assertThat(second.getLinks()).isEmpty();
+		assertThat(second.render("text<ref>note</ref>\n<references/>", false)).contains("note");
+		pool.release(second);
+		assertThat(created.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void testNestedAcquire() throws Exception {
+		final String result = pool.execute(outer -> {
+			final WikiModel inner = pool.acquire();
+			try {
+				assertThat(inner).isNotSameAs(outer);
+				return outer.render(inner.render("'''bold'''", false), false);
+			} finally {
+				pool.release(inner);
+			}
+		});
+		assertThat(result).contains("<b>bold</b>");
+		assertThat(created.get()).isEqualTo(2);
+		pool.execute(model -> model.render("again", false));
+		assertThat(created.get()).isEqualTo(2);
+	}
+
+	@Test
+	public void testThreadConfinement() throws Exception {
+		final WikiModel model = pool.acquire();
+		pool.release(model);
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			final WikiModel other = executor.submit(() -> pool.execute(m -> m)).get();
+			assertThat(other).isNotSameAs(model);
+		} finally {
+			executor.shutdown();
+		}
+		pool.clear();
+		assertThat(pool.acquire()).isNotSameAs(model);
+	}
+}
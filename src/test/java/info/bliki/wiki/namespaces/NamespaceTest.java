@@ -8,6 +8,7 @@ import org.junit.Test;
 import java.util.Locale;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
 
 /**
  * Tests for {@link Namespace}.
@@ -73,6 +74,30 @@ public class NamespaceTest {
 		assertThat(namespace.getNamespace("Category_talk")).isEqualTo(null);
 	}
 
+	@Test
+	public void testCaseInsensitiveLookup() {
+		assertThat(namespace.getNamespace("TEMPLATE")).isEqualTo(namespace.TEMPLATE);
+		assertThat(namespace.getNamespace("template_TALK")).isEqualTo(namespace.TEMPLATE_TALK);
+		assertThat(namespace.getNamespace("Templates")).isNull();
+		assertThat(namespace.getNamespace(null)).isNull();
+	}
+
+	@Test
+	public void testSharedInstance() {
+		Namespace shared = Namespace.getSharedInstance(Locale.GERMAN);
+		assertThat(shared).isSameAs(Namespace.getSharedInstance(Locale.GERMAN));
+		assertThat(shared.isFrozen()).isTrue();
+		assertThat(shared.getNamespace("vorlage")).isEqualTo(shared.TEMPLATE);
+		assertThat(shared.getNamespace("Template")).isEqualTo(shared.TEMPLATE);
+		try {
+			shared.getImage().addAlias("Bild2");
+			fail("UnsupportedOperationException expected");
+		} catch (UnsupportedOperationException e) {
+			assertThat(shared.getNamespace("Bild2")).isNull();
+		}
+		assertThat(namespace.isFrozen()).isFalse();
+	}
+
 	@Test
 	public void testModuleNamespace() {
 		assertThat(namespace.getNamespace("Module")).isEqualTo(namespace.MODULE);
@@ -0,0 +1,68 @@
+package info.bliki.wiki.template;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class SwitchIndexTest {
+	private static final String[] BODIES = {
+			"| de | deu | ger = German | fr | fra | fre = French | en | eng = English | es | spa = Spanish | it = Italian"
+					+ " | nl = Dutch | #default = unknown | pt = Portuguese | sv = Swedish ",
+			"| 1 = one | 2 = two | +3 = three | 4.0 = four | 1e1 = ten | 007 = Bond | 7 = seven | -0 = zero | = empty"
+					+ " | + = plus | x = {{lc:X}} | last ",
+			"| a | b | c | d | e | f | g | h = letter | #default | i = {{uc:i}} | j ",
+			"| a = 1 | b = 2 | c = 3 | d = 4 | e = 5 | f = 6 | g = 7 | a = 8 | #default = first | #default = second" };
+
+	private static final String[] CONDITIONS = { "", "de", "ger", "eng", "fr", "it", "sv", "xx", "1", "+1", "1.0", "2",
+			"3", "+3", "4", "10", "7", "007", "+07", "0", "-0", "0.0", "+", "x", "a", "e", "h", "i", "j", "#default",
+			"last", "Infinity", "NaN" };
+
+	protected ParserFunctionModel wikiModel = null;
+
+	@Before
+	public void setUp() throws Exception {
+		wikiModel = new ParserFunctionModel("http://www.bliki.info/wiki/${image}",
+				"http://www.bliki.info/wiki/${title}");
+		wikiModel.setUp();
+	}
+
+	/**
+	 * Compare the indexed switches with the linear scan, which is used if a case label contains a template.
+	 */
+	@Test
+	public void testSameResultAsLinearScan() throws Exception {
+		for (final String body : BODIES) {
+			for (final String condition : CONDITIONS) {
+				final String indexed = wikiModel.parseTemplates("{{#switch: " + condition + " " + body + "}}", false);
+				final String linear = wikiModel
+						.parseTemplates("{{#switch: " + condition + " | {{lc:NEVER}} = never " + body + "}}", false);
+				assertThat(indexed).as(condition + " " + body).isEqualTo(linear);
+			}
+		}
+	}
+
+	@Test
+	public void testResolve() throws Exception {
+		assertThat(wikiModel.parseTemplates("{{#switch: fre " + BODIES[0] + "}}", false)).isEqualTo("French");
+		assertThat(wikiModel.parseTemplates("{{#switch: xx " + BODIES[0] + "}}", false)).isEqualTo("unknown");
+		assertThat(wikiModel.parseTemplates("{{#switch: 10.0 " + BODIES[1] + "}}", false)).isEqualTo("ten");
+		assertThat(wikiModel.parseTemplates("{{#switch: x " + BODIES[1] + "}}", false)).isEqualTo("x");
+		assertThat(wikiModel.parseTemplates("{{#switch: i " + BODIES[2] + "}}", false)).isEqualTo("I");
+		assertThat(wikiModel.parseTemplates("{{#switch: #default " + BODIES[2] + "}}", false)).isEqualTo("I");
+	}
+
+	@Test
+	public void testIndexIsCached() throws Exception {
+		final String[] cases = BODIES[0].substring(1).split("\\|");
+		final String[] list = new String[cases.length + 1];
+		list[0] = "de";
+		System.arraycopy(cases, 0, list, 1, cases.length);
+		final SwitchIndex index = SwitchIndex.get(Arrays.asList(list));
+		assertThat(index).isNotNull();
+		assertThat(SwitchIndex.get(Arrays.asList(list.clone()))).isSameAs(index);
+		assertThat(SwitchIndex.build(Arrays.asList("a = b", "{{lc:A}} = c"))).isNull();
+	}
+}
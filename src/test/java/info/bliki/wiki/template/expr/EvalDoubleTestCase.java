@@ -5,6 +5,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import org.junit.Test;
 
 import info.bliki.util.Throwables;
+import info.bliki.wiki.template.expr.eval.CompiledExpression;
 import info.bliki.wiki.template.expr.eval.DoubleEvaluator;
 import lombok.extern.slf4j.Slf4j;
 
@@ -79,4 +80,29 @@ public class EvalDoubleTestCase {
 		check("ceil-1.2", "-1.0");
 	}
 
+	@Test
+	public void testConstants() {
+		check("pi", "3.141592653589793");
+		check("2*pi", "6.283185307179586");
+		check("e^2 round 3", "7.389");
+	}
+
+	@Test
+	public void testCompiledExpression() {
+		assertThat(CompiledExpression.get("(4/7)*1e-290round300"))
+				.isSameAs(CompiledExpression.get("(4/7)*1e-290round300"));
+		assertThat(CompiledExpression.get("30 / 7 round 4").evaluate()).isEqualTo(4.2857);
+		assertThat(CompiledExpression.get("2*pi").evaluate()).isEqualTo(2 * Math.PI);
+		ArithmeticException first = null;
+		for (int i = 0; i < 2; i++) {
+			try {
+				CompiledExpression.get("1/0").evaluate();
+				throw new AssertionError("expected ArithmeticException");
+			} catch (final ArithmeticException e) {
+				assertThat(e.getMessage()).isEqualTo("Division by zero");
+				assertThat(e).isNotSameAs(first);
+				first = e;
+			}
+		}
+	}
 }